@@ -0,0 +1,199 @@
+/*
+ * Java Reliable Event Logging Protocol Library Server Implementation RLP-03
+ * Copyright (C) 2021-2024 Suomen Kanuuna Oy
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Affero General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Affero General Public License for more details.
+ *
+ * You should have received a copy of the GNU Affero General Public License
+ * along with this program.  If not, see <https://www.gnu.org/licenses/>.
+ *
+ *
+ * Additional permission under GNU Affero General Public License version 3
+ * section 7
+ *
+ * If you modify this Program, or any covered work, by linking or combining it
+ * with other code, such other code is not for that reason alone subject to any
+ * of the requirements of the GNU Affero GPL version 3 as long as this Program
+ * is the same Program as licensed from Suomen Kanuuna Oy without any additional
+ * modifications.
+ *
+ * Supplemented terms under GNU Affero General Public License version 3
+ * section 7
+ *
+ * Origin of the software must be attributed to Suomen Kanuuna Oy. Any modified
+ * versions must be marked as "Modified version of" The Program.
+ *
+ * Names of the licensors and authors may not be used for publicity purposes.
+ *
+ * No rights are granted for use of trade names, trademarks, or service marks
+ * which are in The Program if any.
+ *
+ * Licensee must indemnify licensors and authors for any liability that these
+ * contractual assumptions impose on licensors and authors.
+ *
+ * To the extent this program is licensed as part of the Commercial versions of
+ * Teragrep, the applicable Commercial License may apply to this file if you as
+ * a licensee so wish it.
+ */
+package com.teragrep.rlp_03.client;
+
+import java.util.concurrent.locks.Lock;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * {@link CongestionWindow} sized by additive increase, multiplicative decrease. The window grows by one transaction per
+ * window of acknowledgements while round trip times stay within tolerance of the lowest round trip time of the recent
+ * samples, and is multiplied by decrease when they do not or when a transaction fails. At most one decrease is made per
+ * window of acknowledgements so that responses already in flight do not collapse the window.
+ */
+public final class CongestionWindowAdaptive implements CongestionWindow {
+
+    private final int minimum;
+    private final int maximum;
+    private final double tolerance;
+    private final double decrease;
+    private final RoundTripSamples roundTripSamples;
+    private final Lock lock;
+    private double window;
+    private long baseline;
+    private long periodMinimum;
+    private long acknowledgedSinceBackoff;
+    private long backoffs;
+
+    public CongestionWindowAdaptive(int minimum, int maximum) {
+        this(minimum, minimum, maximum, 2.0, 0.5, 1024);
+    }
+
+    /**
+     * @param initial   window size before any acknowledgements
+     * @param minimum   lowest window size
+     * @param maximum   highest window size
+     * @param tolerance round trip time relative to the baseline above which the window is decreased
+     * @param decrease  multiplier applied to the window on backoff
+     * @param samples   number of latest round trip times kept for percentiles and the baseline
+     */
+    public CongestionWindowAdaptive(
+            int initial,
+            int minimum,
+            int maximum,
+            double tolerance,
+            double decrease,
+            int samples
+    ) {
+        if (minimum < 1 || maximum < minimum || initial < minimum || initial > maximum) {
+            throw new IllegalArgumentException(
+                    "window must satisfy 1 <= minimum <= initial <= maximum, was <" + minimum + ", " + initial + ", "
+                            + maximum + ">"
+            );
+        }
+        if (tolerance <= 1) {
+            throw new IllegalArgumentException("tolerance must be greater than 1, was <" + tolerance + ">");
+        }
+        if (decrease <= 0 || decrease >= 1) {
+            throw new IllegalArgumentException("decrease must be between 0 and 1, was <" + decrease + ">");
+        }
+        this.minimum = minimum;
+        this.maximum = maximum;
+        this.tolerance = tolerance;
+        this.decrease = decrease;
+        this.roundTripSamples = new RoundTripSamples(samples);
+        this.lock = new ReentrantLock();
+        this.window = initial;
+        this.baseline = Long.MAX_VALUE;
+        this.periodMinimum = Long.MAX_VALUE;
+        this.acknowledgedSinceBackoff = 0;
+        this.backoffs = 0;
+    }
+
+    @Override
+    public int size() {
+        lock.lock();
+        try {
+            return (int) window;
+        }
+        finally {
+            lock.unlock();
+        }
+    }
+
+    @Override
+    public void acknowledged(long roundTripNanos) {
+        lock.lock();
+        try {
+            roundTripSamples.add(roundTripNanos);
+            acknowledgedSinceBackoff++;
+
+            // baseline follows the lowest round trip time of the previous period of samples
+            periodMinimum = Math.min(periodMinimum, roundTripNanos);
+            baseline = Math.min(baseline, roundTripNanos);
+            if (roundTripSamples.count() % roundTripSamples.capacity() == 0) {
+                baseline = periodMinimum;
+                periodMinimum = Long.MAX_VALUE;
+            }
+
+            if (roundTripNanos > baseline * tolerance) {
+                backoff();
+            }
+            else {
+                window = Math.min(maximum, window + 1 / window);
+            }
+        }
+        finally {
+            lock.unlock();
+        }
+    }
+
+    @Override
+    public void failed() {
+        lock.lock();
+        try {
+            backoff();
+        }
+        finally {
+            lock.unlock();
+        }
+    }
+
+    private void backoff() {
+        if (acknowledgedSinceBackoff >= (long) window || backoffs == 0) {
+            window = Math.max(minimum, window * decrease);
+            acknowledgedSinceBackoff = 0;
+            backoffs++;
+        }
+    }
+
+    /**
+     * @return number of times the window has been decreased
+     */
+    public long backoffs() {
+        lock.lock();
+        try {
+            return backoffs;
+        }
+        finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * @param percentile between 0 and 100
+     * @return round trip time in nanoseconds at percentile of the latest samples, 0 if there are none
+     */
+    public long roundTripNanos(double percentile) {
+        lock.lock();
+        try {
+            return roundTripSamples.percentile(percentile);
+        }
+        finally {
+            lock.unlock();
+        }
+    }
+}
@@ -48,12 +48,60 @@ package com.teragrep.rlp_03.client;
 import com.teragrep.rlp_03.frame.RelpFrame;
 
 import java.io.Closeable;
+import java.util.ArrayList;
+import java.util.List;
 import java.util.concurrent.CompletableFuture;
 
 public interface RelpClient extends Closeable {
 
     CompletableFuture<RelpFrame> transmit(RelpFrame relpFrame);
 
+    /**
+     * Transmits relpFrames one by one unless the implementation gathers them into fewer writes.
+     *
+     * @return a response {@link CompletableFuture} for each of relpFrames, in the same order
+     */
+    default List<CompletableFuture<RelpFrame>> transmit(List<RelpFrame> relpFrames) {
+        List<CompletableFuture<RelpFrame>> rv = new ArrayList<>(relpFrames.size());
+        for (RelpFrame relpFrame : relpFrames) {
+            rv.add(transmit(relpFrame));
+        }
+        return rv;
+    }
+
+    /**
+     * @return number of transmitted frames waiting for a response
+     * @throws UnsupportedOperationException if the implementation does not bound frames in flight
+     */
+    default int inFlight() {
+        throw new UnsupportedOperationException("inFlight");
+    }
+
+    /**
+     * @return current number of frames allowed in flight
+     * @throws UnsupportedOperationException if the implementation does not bound frames in flight
+     */
+    default int window() {
+        throw new UnsupportedOperationException("window");
+    }
+
+    /**
+     * @return window of this client, for reading the metrics of implementations such as
+     *         {@link CongestionWindowAdaptive}
+     * @throws UnsupportedOperationException if the implementation does not bound frames in flight
+     */
+    default CongestionWindow congestionWindow() {
+        throw new UnsupportedOperationException("congestionWindow");
+    }
+
+    /**
+     * @return number of frames waiting for a free slot in the window before they are transmitted
+     * @throws UnsupportedOperationException if the implementation does not bound frames in flight
+     */
+    default int waiting() {
+        throw new UnsupportedOperationException("waiting");
+    }
+
     @Override
     void close();
 
@@ -45,6 +45,7 @@
  */
 package com.teragrep.rlp_03.client;
 
+import com.teragrep.rlp_03.frame.CommandToken;
 import com.teragrep.rlp_03.frame.delegate.FrameContext;
 import com.teragrep.net_01.channel.context.EstablishedContext;
 import com.teragrep.rlp_03.frame.delegate.FrameDelegate;
@@ -68,11 +69,11 @@ final class RelpClientDelegate implements FrameDelegate {
     public boolean accept(FrameContext frameContext) {
         LOGGER.debug("client got <[{}]>", frameContext.relpFrame());
 
-        int txn = frameContext.relpFrame().txn().toInt();
+        int txn = frameContext.relpFrame().txnId();
 
         // TODO implement better handling for hint frames
         if (txn == 0) {
-            if ("serverclose".equals(frameContext.relpFrame().command().toString())) {
+            if (frameContext.relpFrame().commandToken() == CommandToken.SERVERCLOSE) {
                 return false;
             }
             return true;
@@ -94,7 +95,11 @@ final class RelpClientDelegate implements FrameDelegate {
         return false;
     }
 
-    RelpClient create(EstablishedContext establishedContext) {
-        return new RelpClientImpl(establishedContext, transactionService);
+    RelpClient create(
+            EstablishedContext establishedContext,
+            CongestionWindow congestionWindow,
+            ResponseTimeout responseTimeout
+    ) {
+        return new RelpClientImpl(establishedContext, transactionService, congestionWindow, responseTimeout);
     }
 }
@@ -52,14 +52,19 @@ import com.teragrep.net_01.eventloop.EventLoop;
 import com.teragrep.rlp_03.frame.FrameDelegationClockFactory;
 
 import java.net.InetSocketAddress;
+import java.time.Duration;
 import java.util.concurrent.CompletableFuture;
 import java.util.concurrent.CompletionException;
+import java.util.concurrent.ScheduledExecutorService;
 import java.util.function.BiFunction;
+import java.util.function.Supplier;
 
 public final class RelpClientFactory {
 
     private final ConnectContextFactory connectContextFactory;
     private final EventLoop eventLoop;
+    private final Supplier<CongestionWindow> congestionWindowSupplier;
+    private final ResponseTimeout responseTimeout;
 
     /**
      * Main for Constructor for {@link RelpClientFactory}
@@ -68,8 +73,72 @@ public final class RelpClientFactory {
      * @param eventLoop             {@link EventLoop} to register new connections with
      */
     public RelpClientFactory(ConnectContextFactory connectContextFactory, EventLoop eventLoop) {
+        this(connectContextFactory, eventLoop, Integer.MAX_VALUE);
+    }
+
+    /**
+     * @param connectContextFactory {@link ConnectContextFactory} for creating new connections
+     * @param eventLoop             {@link EventLoop} to register new connections with
+     * @param window                maximum number of transactions in flight per {@link RelpClient}
+     */
+    public RelpClientFactory(ConnectContextFactory connectContextFactory, EventLoop eventLoop, int window) {
+        this(connectContextFactory, eventLoop, new CongestionWindowFixed(window));
+    }
+
+    private RelpClientFactory(
+            ConnectContextFactory connectContextFactory,
+            EventLoop eventLoop,
+            CongestionWindowFixed congestionWindowFixed
+    ) {
+        this(connectContextFactory, eventLoop, () -> congestionWindowFixed);
+    }
+
+    /**
+     * @param connectContextFactory    {@link ConnectContextFactory} for creating new connections
+     * @param eventLoop                {@link EventLoop} to register new connections with
+     * @param congestionWindowSupplier provides the {@link CongestionWindow} of each opened {@link RelpClient}
+     */
+    public RelpClientFactory(
+            ConnectContextFactory connectContextFactory,
+            EventLoop eventLoop,
+            Supplier<CongestionWindow> congestionWindowSupplier
+    ) {
+        this(connectContextFactory, eventLoop, congestionWindowSupplier, new ResponseTimeoutStub());
+    }
+
+    /**
+     * @param connectContextFactory    {@link ConnectContextFactory} for creating new connections
+     * @param eventLoop                {@link EventLoop} to register new connections with
+     * @param congestionWindowSupplier provides the {@link CongestionWindow} of each opened {@link RelpClient}
+     * @param scheduledExecutorService runs the response timeouts, cancelled timeouts should be removed from its queue
+     * @param responseTimeout          time to wait for a response before the transaction is completed exceptionally
+     *                                 with a {@link java.util.concurrent.TimeoutException} and its slot is freed
+     */
+    public RelpClientFactory(
+            ConnectContextFactory connectContextFactory,
+            EventLoop eventLoop,
+            Supplier<CongestionWindow> congestionWindowSupplier,
+            ScheduledExecutorService scheduledExecutorService,
+            Duration responseTimeout
+    ) {
+        this(
+                connectContextFactory,
+                eventLoop,
+                congestionWindowSupplier,
+                new ResponseTimeoutImpl(scheduledExecutorService, responseTimeout)
+        );
+    }
+
+    private RelpClientFactory(
+            ConnectContextFactory connectContextFactory,
+            EventLoop eventLoop,
+            Supplier<CongestionWindow> congestionWindowSupplier,
+            ResponseTimeout responseTimeout
+    ) {
         this.connectContextFactory = connectContextFactory;
         this.eventLoop = eventLoop;
+        this.congestionWindowSupplier = congestionWindowSupplier;
+        this.responseTimeout = responseTimeout;
     }
 
     /**
@@ -110,6 +179,10 @@ public final class RelpClientFactory {
         establishedContextCompletableFuture.handle(clientDelegateClosure);
 
         // RelpClientDelegate will return a RelpClient that assigns the transaction numbers and tracks their replies when transmitting frames
-        return establishedContextCompletableFuture.thenApply(relpClientDelegate::create);
+        return establishedContextCompletableFuture
+                .thenApply(
+                        establishedContext -> relpClientDelegate
+                                .create(establishedContext, congestionWindowSupplier.get(), responseTimeout)
+                );
     }
 }
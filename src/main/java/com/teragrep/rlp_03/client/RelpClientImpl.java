@@ -45,79 +45,279 @@
  */
 package com.teragrep.rlp_03.client;
 
+import com.teragrep.net_01.channel.buffer.writable.Writeable;
 import com.teragrep.net_01.channel.context.EstablishedContext;
 import com.teragrep.rlp_03.frame.RelpFrame;
 import com.teragrep.rlp_03.frame.RelpFrameImpl;
 import com.teragrep.rlp_03.frame.fragment.Fragment;
 import com.teragrep.rlp_03.frame.fragment.FragmentFactory;
 
+import java.nio.charset.StandardCharsets;
+
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Queue;
 import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeoutException;
 import java.util.concurrent.atomic.AtomicInteger;
 import java.util.concurrent.locks.Lock;
 import java.util.concurrent.locks.ReentrantLock;
+import java.util.function.Consumer;
 
 /**
- * Simple client with asynchronous transmit and {@link java.util.concurrent.Future} based receive.
+ * Simple client with asynchronous transmit and {@link java.util.concurrent.Future} based receive. At most
+ * {@link CongestionWindow#size()} frames are in flight, frames transmitted while the window is full wait and are sent
+ * in order as responses arrive. Transactions not responded within the optional {@link ResponseTimeout} are completed
+ * exceptionally with a {@link TimeoutException}, which frees their slot.
  */
 public final class RelpClientImpl implements RelpClient {
 
+    private static final byte[] okStatus = "200".getBytes(StandardCharsets.UTF_8);
+
     private final EstablishedContext establishedContext;
     private final TransactionService transactionService;
     private final AtomicInteger txnCounter;
     private final FragmentFactory fragmentFactory;
     private final Lock lock;
+    private final CongestionWindow congestionWindow;
+    private final Queue<WaitingTransmission> waitingTransmissions;
+    private final ResponseTimeout responseTimeout;
+    private final GatheredWrite gatheredWrite;
+    private int inFlight;
+    private boolean closed;
 
-    RelpClientImpl(EstablishedContext establishedContext, TransactionService transactionService) {
+    RelpClientImpl(
+            EstablishedContext establishedContext,
+            TransactionService transactionService,
+            CongestionWindow congestionWindow,
+            ResponseTimeout responseTimeout
+    ) {
         this.establishedContext = establishedContext;
         this.transactionService = transactionService;
         this.txnCounter = new AtomicInteger();
         this.fragmentFactory = new FragmentFactory();
         this.lock = new ReentrantLock();
+        this.congestionWindow = congestionWindow;
+        this.waitingTransmissions = new ArrayDeque<>();
+        this.responseTimeout = responseTimeout;
+        this.gatheredWrite = new GatheredWrite(writeable -> establishedContext.egress().accept(writeable));
+        this.inFlight = 0;
+        this.closed = false;
     }
 
     /**
-     * Transmits {@link RelpFrame} with automatic {@link RelpFrame#txn()}
+     * Transmits {@link RelpFrame} with automatic {@link RelpFrame#txn()}. The frame waits for a free slot if the window
+     * is full.
      * 
      * @param relpFrame to transmit
      * @return {@link CompletableFuture} for a response {@link RelpFrame}
      */
     @Override
     public CompletableFuture<RelpFrame> transmit(RelpFrame relpFrame) {
+        final CompletableFuture<RelpFrame> rv;
+        final List<WaitingTransmission> failed;
+        lock.lock();
+        try {
+            if (!closed && inFlight < congestionWindow.size() && waitingTransmissions.isEmpty()) {
+                rv = send(relpFrame, establishedContext.egress());
+            }
+            else {
+                rv = new CompletableFuture<>();
+                waitingTransmissions.add(new WaitingTransmission(relpFrame, rv));
+            }
+            failed = closed ? takeWaiting() : Collections.emptyList();
+        }
+        finally {
+            lock.unlock();
+        }
+        fail(failed);
+        return rv;
+    }
+
+    /**
+     * Transmits {@link RelpFrame}s with consecutive {@link RelpFrame#txn()}s. Frames that fit in the window are written
+     * with a single write, the rest wait for free slots.
+     *
+     * @param relpFrames to transmit
+     * @return {@link CompletableFuture} for a response {@link RelpFrame} of each frame, in the same order
+     */
+    @Override
+    public List<CompletableFuture<RelpFrame>> transmit(List<RelpFrame> relpFrames) {
+        final List<CompletableFuture<RelpFrame>> futures = new ArrayList<>(relpFrames.size());
+        final List<Writeable> writeables = new ArrayList<>(relpFrames.size());
+        final List<WaitingTransmission> failed;
+        lock.lock();
+        try {
+            for (RelpFrame relpFrame : relpFrames) {
+                if (!closed && inFlight < congestionWindow.size() && waitingTransmissions.isEmpty()) {
+                    futures.add(send(relpFrame, writeables::add));
+                }
+                else {
+                    CompletableFuture<RelpFrame> future = new CompletableFuture<>();
+                    waitingTransmissions.add(new WaitingTransmission(relpFrame, future));
+                    futures.add(future);
+                }
+            }
+            gatheredWrite.write(writeables);
+            failed = closed ? takeWaiting() : Collections.emptyList();
+        }
+        finally {
+            lock.unlock();
+        }
+        fail(failed);
+        return futures;
+    }
+
+    private CompletableFuture<RelpFrame> send(RelpFrame relpFrame, Consumer<Writeable> egress) {
+        int txnInt = txnCounter.incrementAndGet();
+        Fragment txn = fragmentFactory.create(txnInt);
+        RelpFrame relpFrameToXmit = new RelpFrameImpl(
+                txn,
+                relpFrame.command(),
+                relpFrame.payloadLength(),
+                relpFrame.payload(),
+                relpFrame.endOfTransfer(),
+                txnInt,
+                relpFrame.commandToken(),
+                relpFrame.payloadLengthValue()
+        );
+        CompletableFuture<RelpFrame> future = transactionService.create(relpFrameToXmit);
+        inFlight++;
+        final long transmitted = System.nanoTime();
+        if (!responseTimeout.isStub()) {
+            final Future<?> timeout = responseTimeout
+                    .schedule(
+                            () -> transactionService
+                                    .abandon(
+                                            txnInt, new TimeoutException("no response to txn <[" + txnInt + "]> in time")
+                                    )
+                    );
+            future.whenComplete((response, throwable) -> timeout.cancel(false));
+        }
+
+        egress.accept(relpFrameToXmit.toWriteable());
+        // status is read before the response is handed to the caller, who may close it
+        final CompletableFuture<RelpFrame> rv = new CompletableFuture<>();
+        future.whenComplete((response, throwable) -> {
+            release(transmitted, throwable == null && isOk(response));
+            if (throwable == null) {
+                rv.complete(response);
+            }
+            else {
+                rv.completeExceptionally(throwable);
+            }
+        });
+        return rv;
+    }
+
+    private static boolean isOk(RelpFrame response) {
+        return response.payload().toFragmentByteStream().regionMatches(0, okStatus);
+    }
+
+    /**
+     * Frees the slot of a completed transaction, updates the window and transmits the frames waiting for it.
+     *
+     * @param ok true if the transaction was responded with status 200
+     */
+    private void release(long transmitted, boolean ok) {
         lock.lock();
-        CompletableFuture<RelpFrame> future;
         try {
-            int txnInt = txnCounter.incrementAndGet();
-            Fragment txn = fragmentFactory.create(txnInt);
-            RelpFrame relpFrameToXmit = new RelpFrameImpl(
-                    txn,
-                    relpFrame.command(),
-                    relpFrame.payloadLength(),
-                    relpFrame.payload(),
-                    relpFrame.endOfTransfer()
-            );
-            future = transactionService.create(relpFrameToXmit);
-
-            establishedContext.egress().accept(relpFrameToXmit.toWriteable());
+            inFlight--;
+            if (!closed) {
+                if (ok) {
+                    congestionWindow.acknowledged(System.nanoTime() - transmitted);
+                }
+                else {
+                    congestionWindow.failed();
+                }
+            }
+            final List<Writeable> writeables = new ArrayList<>();
+            while (!closed && inFlight < congestionWindow.size() && !waitingTransmissions.isEmpty()) {
+                WaitingTransmission waitingTransmission = waitingTransmissions.poll();
+                send(waitingTransmission.relpFrame, writeables::add).whenComplete(waitingTransmission::complete);
+            }
+            gatheredWrite.write(writeables);
         }
         finally {
             lock.unlock();
         }
-        return future;
+    }
+
+    private List<WaitingTransmission> takeWaiting() {
+        final List<WaitingTransmission> rv = new ArrayList<>(waitingTransmissions);
+        waitingTransmissions.clear();
+        return rv;
     }
 
     /**
-     * Closes client connection
+     * Completes the waiting transmissions exceptionally, called without holding the lock as the callbacks of the
+     * futures may use the client.
+     */
+    private void fail(List<WaitingTransmission> failed) {
+        for (WaitingTransmission waitingTransmission : failed) {
+            waitingTransmission
+                    .complete(
+                            null,
+                            new TransactionServiceClosedException(
+                                    "RelpClient closed before transaction was transmitted."
+                            )
+                    );
+        }
+    }
+
+    @Override
+    public int inFlight() {
+        lock.lock();
+        try {
+            return inFlight;
+        }
+        finally {
+            lock.unlock();
+        }
+    }
+
+    @Override
+    public int window() {
+        return congestionWindow.size();
+    }
+
+    @Override
+    public CongestionWindow congestionWindow() {
+        return congestionWindow;
+    }
+
+    @Override
+    public int waiting() {
+        lock.lock();
+        try {
+            return waitingTransmissions.size();
+        }
+        finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * Closes client connection. The connection is closed without holding the lock, responses completing on the
+     * connection's thread need it to release their slots.
      */
     @Override
     public void close() {
+        final List<WaitingTransmission> failed;
         lock.lock();
         try {
-            transactionService.close();
-            establishedContext.close();
+            closed = true;
+            failed = takeWaiting();
         }
         finally {
             lock.unlock();
         }
+        fail(failed);
+        transactionService.close();
+        establishedContext.close();
     }
 
     @Override
@@ -125,4 +325,24 @@ public final class RelpClientImpl implements RelpClient {
         return false;
     }
 
+    private static final class WaitingTransmission {
+
+        private final RelpFrame relpFrame;
+        private final CompletableFuture<RelpFrame> future;
+
+        private WaitingTransmission(RelpFrame relpFrame, CompletableFuture<RelpFrame> future) {
+            this.relpFrame = relpFrame;
+            this.future = future;
+        }
+
+        private void complete(RelpFrame response, Throwable throwable) {
+            if (throwable == null) {
+                future.complete(response);
+            }
+            else {
+                future.completeExceptionally(throwable);
+            }
+        }
+    }
+
 }
@@ -47,6 +47,7 @@ package com.teragrep.rlp_03.client;
 
 import com.teragrep.rlp_03.frame.RelpFrame;
 
+import java.util.List;
 import java.util.concurrent.CompletableFuture;
 
 public final class RelpClientStub implements RelpClient {
@@ -56,6 +57,31 @@ public final class RelpClientStub implements RelpClient {
         throw new IllegalStateException("ClientStub does not implement this");
     }
 
+    @Override
+    public List<CompletableFuture<RelpFrame>> transmit(List<RelpFrame> relpFrames) {
+        throw new IllegalStateException("ClientStub does not implement this");
+    }
+
+    @Override
+    public int inFlight() {
+        throw new IllegalStateException("ClientStub does not implement this");
+    }
+
+    @Override
+    public int window() {
+        throw new IllegalStateException("ClientStub does not implement this");
+    }
+
+    @Override
+    public CongestionWindow congestionWindow() {
+        throw new IllegalStateException("ClientStub does not implement this");
+    }
+
+    @Override
+    public int waiting() {
+        throw new IllegalStateException("ClientStub does not implement this");
+    }
+
     @Override
     public void close() {
         throw new IllegalStateException("ClientStub does not implement this");
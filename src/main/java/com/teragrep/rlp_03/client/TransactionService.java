@@ -46,85 +46,316 @@
 package com.teragrep.rlp_03.client;
 
 import com.teragrep.rlp_03.frame.RelpFrame;
-import com.teragrep.rlp_03.frame.RelpFrameStub;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
+import java.util.ArrayList;
+import java.util.List;
+import java.util.TreeSet;
 import java.util.concurrent.CompletableFuture;
-import java.util.concurrent.ConcurrentHashMap;
-import java.util.concurrent.atomic.AtomicBoolean;
 import java.util.concurrent.locks.Lock;
 import java.util.concurrent.locks.ReentrantLock;
 
+/**
+ * Pending transactions in a ring indexed by txn. Txns are sequential, so the pending ones map to distinct slots as long
+ * as they fit in the ring, which is grown when a slot is still taken. Abandoned transactions keep their slot for a late
+ * response until the slot is needed by a new transaction. The ring grows up to a maximum, after which a transaction
+ * still pending in the slot of a new one is failed with {@link TransactionServiceFullException}. Txns failed before
+ * their response whose slot has been taken are remembered, up to maximumCapacity of them, so that a late response to
+ * one is discarded instead of treated as a response to a txn that was never pending.
+ */
 public final class TransactionService implements AutoCloseable {
 
     private static final Logger LOGGER = LoggerFactory.getLogger(TransactionService.class);
-    private static final RelpFrameStub relpFrameStub = new RelpFrameStub();
+    private static final CompletableFuture<RelpFrame> abandoned = new CompletableFuture<>();
 
-    private final ConcurrentHashMap<Integer, CompletableFuture<RelpFrame>> transactions;
-    private final AtomicBoolean closed;
     private final Lock lock;
+    private final int maximumCapacity;
+    private final TreeSet<Integer> forgotten;
+    private CompletableFuture<RelpFrame>[] futures;
+    private int[] txns;
+    private int mask;
+    private boolean closed;
 
     public TransactionService() {
-        this.transactions = new ConcurrentHashMap<>();
-        this.closed = new AtomicBoolean();
+        this(64);
+    }
+
+    /**
+     * @param capacity initial number of slots, rounded up to a power of two
+     */
+    public TransactionService(int capacity) {
+        this(capacity, Math.max(capacity, 1 << 16));
+    }
+
+    /**
+     * @param capacity        initial number of slots, rounded up to a power of two
+     * @param maximumCapacity number of slots the ring may grow to, rounded up to a power of two
+     */
+    public TransactionService(int capacity, int maximumCapacity) {
+        if (capacity < 1 || capacity > 1 << 30) {
+            throw new IllegalArgumentException("capacity must be between 1 and 2^30, got <" + capacity + ">");
+        }
+        if (maximumCapacity < capacity || maximumCapacity > 1 << 30) {
+            throw new IllegalArgumentException(
+                    "maximumCapacity must be between capacity and 2^30, got <" + maximumCapacity + ">"
+            );
+        }
+        final int size = powerOfTwo(capacity);
         this.lock = new ReentrantLock();
+        this.maximumCapacity = powerOfTwo(maximumCapacity);
+        this.futures = futures(size);
+        this.txns = new int[size];
+        this.forgotten = new TreeSet<>();
+        this.mask = size - 1;
+        this.closed = false;
+    }
+
+    private static int powerOfTwo(int value) {
+        final int rv;
+        if (Integer.highestOneBit(value) == value) {
+            rv = value;
+        }
+        else {
+            rv = Integer.highestOneBit(value) << 1;
+        }
+        return rv;
+    }
+
+    @SuppressWarnings("unchecked")
+    private static CompletableFuture<RelpFrame>[] futures(int size) {
+        return (CompletableFuture<RelpFrame>[]) new CompletableFuture[size];
     }
 
     @Override
     public void close() {
-        closed.set(true);
-        create(relpFrameStub);
+        final List<CompletableFuture<RelpFrame>> pending = new ArrayList<>();
+        lock.lock();
+        try {
+            closed = true;
+            for (int i = 0; i < futures.length; i++) {
+                if (futures[i] != null && futures[i] != abandoned) {
+                    pending.add(futures[i]);
+                }
+                futures[i] = null;
+            }
+            forgotten.clear();
+        }
+        finally {
+            lock.unlock();
+        }
+
+        for (CompletableFuture<RelpFrame> future : pending) {
+            future
+                    .completeExceptionally(
+                            new TransactionServiceClosedException(
+                                    "TransactionService closed before transaction was completed."
+                            )
+                    );
+        }
     }
 
     public CompletableFuture<RelpFrame> create(RelpFrame relpFrame) {
         CompletableFuture<RelpFrame> future = new CompletableFuture<>();
 
         if (!relpFrame.isStub()) {
-            int txn = relpFrame.txn().toInt();
+            int txn = relpFrame.txnId();
             if (txn != 0) { // hints do not create transactions
-                transactions.put(txn, future);
-            }
-        }
-        else {
-            if (closed.get()) {
-                // drain and completeExceptionally all
-                while (!transactions.isEmpty()) {
-                    if (lock.tryLock()) {
-                        try {
-                            transactions
-                                    .forEach((integer, relpFrameCompletableFuture) -> relpFrameCompletableFuture.completeExceptionally(new TransactionServiceClosedException("TransactionService closed before transaction was completed.")));
-                            transactions.clear();
+                boolean registered;
+                CompletableFuture<RelpFrame> evicted = abandoned;
+                int evictedTxn = 0;
+                lock.lock();
+                try {
+                    registered = !closed;
+                    if (registered) {
+                        evicted = register(txn, future);
+                        evictedTxn = txns[txn & mask];
+                        txns[txn & mask] = txn;
+                        if (evicted != abandoned) {
+                            forget(evictedTxn);
                         }
-                        finally {
-                            lock.unlock();
-                        }
-                    }
-                    else {
-                        break;
                     }
                 }
+                finally {
+                    lock.unlock();
+                }
+
+                if (evicted != abandoned) {
+                    LOGGER.warn("transaction ring is full, failing txn <[{}]> for txn <[{}]>", evictedTxn, txn);
+                    evicted
+                            .completeExceptionally(
+                                    new TransactionServiceFullException(
+                                            "TransactionService ring of <" + maximumCapacity + "> slots is full, txn <["
+                                                    + evictedTxn
+                                                    + "]> was still pending when the slot was needed for txn <[" + txn
+                                                    + "]>"
+                                    )
+                            );
+                }
+
+                if (!registered) {
+                    future
+                            .completeExceptionally(
+                                    new TransactionServiceClosedException(
+                                            "TransactionService closed before transaction was created."
+                                    )
+                            );
+                }
             }
         }
 
         return future;
     }
 
-    public void complete(RelpFrame relpFrame) {
-        int txn = relpFrame.txn().toInt();
+    /**
+     * Places the future in the slot of txn, the caller sets the txn of the slot.
+     *
+     * @return future of the pending transaction evicted from the slot or abandoned if none was
+     */
+    private CompletableFuture<RelpFrame> register(int txn, CompletableFuture<RelpFrame> future) {
+        boolean grown = true;
+        while (grown && futures[txn & mask] != null && futures[txn & mask] != abandoned) {
+            grown = grow();
+        }
+        final CompletableFuture<RelpFrame> rv;
+        if (futures[txn & mask] == abandoned) {
+            // late response of the abandoned txn can no longer be matched by its slot
+            forget(txns[txn & mask]);
+            rv = abandoned;
+        }
+        else if (futures[txn & mask] == null) {
+            rv = abandoned;
+        }
+        else {
+            rv = futures[txn & mask];
+        }
+        futures[txn & mask] = future;
+        return rv;
+    }
 
-        CompletableFuture<RelpFrame> future = transactions.remove(txn);
+    /**
+     * Remembers a txn failed before its response, the oldest is dropped once maximumCapacity are remembered.
+     */
+    private void forget(int txn) {
+        forgotten.add(txn);
+        if (forgotten.size() > maximumCapacity) {
+            LOGGER.debug("late response to txn <[{}]> will not be recognized", forgotten.pollFirst());
+        }
+    }
 
-        if (future == null) {
-            if (!closed.get()) {
-                // unless it is closed, this is a serious error
+    /**
+     * @return false if the ring is at maximumCapacity
+     */
+    private boolean grow() {
+        int size = futures.length;
+        boolean rv = false;
+        while (!rv && size < maximumCapacity) {
+            // pending txns further apart than the ring collide, grow until they fit
+            size = size * 2;
+            rv = rehash(size);
+        }
+        if (rv) {
+            LOGGER.debug("grew transaction ring to <{}> slots", size);
+        }
+        return rv;
+    }
+
+    private boolean rehash(int size) {
+        final CompletableFuture<RelpFrame>[] grownFutures = futures(size);
+        final int[] grownTxns = new int[size];
+        final int grownMask = size - 1;
+        final List<Integer> dropped = new ArrayList<>(0);
+        boolean rv = true;
+        for (int i = 0; i < futures.length && rv; i++) {
+            if (futures[i] == abandoned) {
+                // kept only if the slot is free
+                final int slot = txns[i] & grownMask;
+                if (grownFutures[slot] == null) {
+                    grownFutures[slot] = abandoned;
+                    grownTxns[slot] = txns[i];
+                }
+                else {
+                    dropped.add(txns[i]);
+                }
+            }
+            else if (futures[i] != null) {
+                final int slot = txns[i] & grownMask;
+                rv = grownFutures[slot] == null || grownFutures[slot] == abandoned;
+                grownFutures[slot] = futures[i];
+                grownTxns[slot] = txns[i];
+            }
+        }
+        if (rv) {
+            futures = grownFutures;
+            txns = grownTxns;
+            mask = grownMask;
+            for (int txn : dropped) {
+                forget(txn);
+            }
+        }
+        return rv;
+    }
+
+    public void complete(RelpFrame relpFrame) {
+        int txn = relpFrame.txnId();
+
+        CompletableFuture<RelpFrame> future;
+        boolean pending;
+        boolean late;
+        lock.lock();
+        try {
+            future = futures[txn & mask];
+            pending = future != null && txns[txn & mask] == txn;
+            late = !pending && forgotten.remove(txn);
+            if (pending) {
+                futures[txn & mask] = null;
+            }
+            else if (!late && !closed) {
+                // unless it is closed or the txn was failed before its response, this is a serious error
                 throw new IllegalStateException("txn not pending <[" + txn + "]>");
             }
         }
-        else {
+        finally {
+            lock.unlock();
+        }
+
+        if (late) {
+            LOGGER.debug("late response to failed transaction <[{}]>", txn);
+            relpFrame.close();
+        }
+        else if (pending && future == abandoned) {
+            LOGGER.debug("response to abandoned transaction <[{}]>", txn);
+            relpFrame.close();
+        }
+        else if (pending) {
             future.complete(relpFrame);
             LOGGER.debug("completed transaction for <[{}]>", txn);
         }
+    }
+
+    /**
+     * Completes a pending transaction exceptionally without waiting for its response. A late response is discarded.
+     *
+     * @param cause the future of the transaction is completed with
+     */
+    public void abandon(int txn, Throwable cause) {
+        CompletableFuture<RelpFrame> future;
+        boolean pending;
+        lock.lock();
+        try {
+            future = futures[txn & mask];
+            pending = future != null && future != abandoned && txns[txn & mask] == txn;
+            if (pending) {
+                futures[txn & mask] = abandoned;
+            }
+        }
+        finally {
+            lock.unlock();
+        }
 
+        if (pending) {
+            future.completeExceptionally(cause);
+            LOGGER.debug("abandoned transaction for <[{}]>", txn);
+        }
     }
 }
@@ -0,0 +1,100 @@
+/*
+ * Java Reliable Event Logging Protocol Library Server Implementation RLP-03
+ * Copyright (C) 2021-2024 Suomen Kanuuna Oy
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Affero General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Affero General Public License for more details.
+ *
+ * You should have received a copy of the GNU Affero General Public License
+ * along with this program.  If not, see <https://www.gnu.org/licenses/>.
+ *
+ *
+ * Additional permission under GNU Affero General Public License version 3
+ * section 7
+ *
+ * If you modify this Program, or any covered work, by linking or combining it
+ * with other code, such other code is not for that reason alone subject to any
+ * of the requirements of the GNU Affero GPL version 3 as long as this Program
+ * is the same Program as licensed from Suomen Kanuuna Oy without any additional
+ * modifications.
+ *
+ * Supplemented terms under GNU Affero General Public License version 3
+ * section 7
+ *
+ * Origin of the software must be attributed to Suomen Kanuuna Oy. Any modified
+ * versions must be marked as "Modified version of" The Program.
+ *
+ * Names of the licensors and authors may not be used for publicity purposes.
+ *
+ * No rights are granted for use of trade names, trademarks, or service marks
+ * which are in The Program if any.
+ *
+ * Licensee must indemnify licensors and authors for any liability that these
+ * contractual assumptions impose on licensors and authors.
+ *
+ * To the extent this program is licensed as part of the Commercial versions of
+ * Teragrep, the applicable Commercial License may apply to this file if you as
+ * a licensee so wish it.
+ */
+package com.teragrep.rlp_03.frame;
+
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+
+/**
+ * {@link DelimiterScanner} testing eight bytes at a time within a long word (SWAR). Bytes that do not fill a whole word
+ * are read one at a time.
+ */
+public final class DelimiterScannerSwar implements DelimiterScanner {
+
+    private static final long ones = 0x0101010101010101L;
+    private static final long lowBits = 0x7F7F7F7F7F7F7F7FL;
+
+    @Override
+    public int indexOf(ByteBuffer buffer, int from, int to, byte delimiter) {
+        final long pattern = ones * (delimiter & 0xFF);
+        final boolean bigEndian = buffer.order() == ByteOrder.BIG_ENDIAN;
+
+        int index = -1;
+        int i = from;
+        while (i + Long.BYTES <= to) {
+            final long matches = zeroBytes(buffer.getLong(i) ^ pattern);
+            if (matches != 0) {
+                if (bigEndian) {
+                    index = i + (Long.numberOfLeadingZeros(matches) >>> 3);
+                }
+                else {
+                    index = i + (Long.numberOfTrailingZeros(matches) >>> 3);
+                }
+                break;
+            }
+            i = i + Long.BYTES;
+        }
+
+        if (index == -1) {
+            while (i < to) {
+                if (buffer.get(i) == delimiter) {
+                    index = i;
+                    break;
+                }
+                i++;
+            }
+        }
+        return index;
+    }
+
+    /**
+     * @return word with the high bit set exactly in the bytes of x that are zero
+     */
+    private static long zeroBytes(long x) {
+        final long y = (x & lowBits) + lowBits;
+        return ~(y | x | lowBits);
+    }
+}
@@ -0,0 +1,121 @@
+/*
+ * Java Reliable Event Logging Protocol Library Server Implementation RLP-03
+ * Copyright (C) 2021-2024 Suomen Kanuuna Oy
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Affero General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Affero General Public License for more details.
+ *
+ * You should have received a copy of the GNU Affero General Public License
+ * along with this program.  If not, see <https://www.gnu.org/licenses/>.
+ *
+ *
+ * Additional permission under GNU Affero General Public License version 3
+ * section 7
+ *
+ * If you modify this Program, or any covered work, by linking or combining it
+ * with other code, such other code is not for that reason alone subject to any
+ * of the requirements of the GNU Affero GPL version 3 as long as this Program
+ * is the same Program as licensed from Suomen Kanuuna Oy without any additional
+ * modifications.
+ *
+ * Supplemented terms under GNU Affero General Public License version 3
+ * section 7
+ *
+ * Origin of the software must be attributed to Suomen Kanuuna Oy. Any modified
+ * versions must be marked as "Modified version of" The Program.
+ *
+ * Names of the licensors and authors may not be used for publicity purposes.
+ *
+ * No rights are granted for use of trade names, trademarks, or service marks
+ * which are in The Program if any.
+ *
+ * Licensee must indemnify licensors and authors for any liability that these
+ * contractual assumptions impose on licensors and authors.
+ *
+ * To the extent this program is licensed as part of the Commercial versions of
+ * Teragrep, the applicable Commercial License may apply to this file if you as
+ * a licensee so wish it.
+ */
+package com.teragrep.rlp_03.frame;
+
+import com.teragrep.net_01.channel.buffer.writable.Writeable;
+import com.teragrep.rlp_03.frame.fragment.Fragment;
+import com.teragrep.rlp_03.frame.fragment.FragmentByteStream;
+import com.teragrep.rlp_03.frame.fragment.FragmentOffsets;
+
+import java.nio.ByteBuffer;
+
+/**
+ * Field of a {@link RelpFrameRecycled}, pointed to new ranges each time the frame is reused. Content is read through a
+ * {@link FragmentOffsets} created on access.
+ */
+final class FragmentRecycled implements Fragment {
+
+    private ByteBuffer[] buffers;
+    private int[] table;
+    private int fromRange;
+    private int toRange;
+    private int size;
+
+    FragmentRecycled() {
+        this.buffers = new ByteBuffer[0];
+        this.table = new int[0];
+        this.fromRange = 0;
+        this.toRange = 0;
+        this.size = 0;
+    }
+
+    void reset(ByteBuffer[] buffers, int[] table, int fromRange, int toRange, int size) {
+        this.buffers = buffers;
+        this.table = table;
+        this.fromRange = fromRange;
+        this.toRange = toRange;
+        this.size = size;
+    }
+
+    private Fragment offsets() {
+        return new FragmentOffsets(buffers, table, fromRange, toRange, size);
+    }
+
+    @Override
+    public boolean isStub() {
+        return false;
+    }
+
+    @Override
+    public byte[] toBytes() {
+        return offsets().toBytes();
+    }
+
+    @Override
+    public String toString() {
+        return offsets().toString();
+    }
+
+    @Override
+    public int toInt() {
+        return offsets().toInt();
+    }
+
+    @Override
+    public Writeable toWriteable() {
+        return offsets().toWriteable();
+    }
+
+    @Override
+    public FragmentByteStream toFragmentByteStream() {
+        return offsets().toFragmentByteStream();
+    }
+
+    @Override
+    public long size() {
+        return size;
+    }
+}
@@ -0,0 +1,136 @@
+/*
+ * Java Reliable Event Logging Protocol Library Server Implementation RLP-03
+ * Copyright (C) 2021-2024 Suomen Kanuuna Oy
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Affero General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Affero General Public License for more details.
+ *
+ * You should have received a copy of the GNU Affero General Public License
+ * along with this program.  If not, see <https://www.gnu.org/licenses/>.
+ *
+ *
+ * Additional permission under GNU Affero General Public License version 3
+ * section 7
+ *
+ * If you modify this Program, or any covered work, by linking or combining it
+ * with other code, such other code is not for that reason alone subject to any
+ * of the requirements of the GNU Affero GPL version 3 as long as this Program
+ * is the same Program as licensed from Suomen Kanuuna Oy without any additional
+ * modifications.
+ *
+ * Supplemented terms under GNU Affero General Public License version 3
+ * section 7
+ *
+ * Origin of the software must be attributed to Suomen Kanuuna Oy. Any modified
+ * versions must be marked as "Modified version of" The Program.
+ *
+ * Names of the licensors and authors may not be used for publicity purposes.
+ *
+ * No rights are granted for use of trade names, trademarks, or service marks
+ * which are in The Program if any.
+ *
+ * Licensee must indemnify licensors and authors for any liability that these
+ * contractual assumptions impose on licensors and authors.
+ *
+ * To the extent this program is licensed as part of the Commercial versions of
+ * Teragrep, the applicable Commercial License may apply to this file if you as
+ * a licensee so wish it.
+ */
+package com.teragrep.rlp_03.frame;
+
+import com.teragrep.net_01.channel.buffer.writable.Writeable;
+import com.teragrep.rlp_03.frame.fragment.Fragment;
+import com.teragrep.rlp_03.frame.fragment.FragmentByteStream;
+import com.teragrep.rlp_03.frame.fragment.FragmentOffsets;
+
+import java.io.EOFException;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.ClosedChannelException;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+
+/**
+ * Payload of a {@link SpillFile}, read from the file with positional reads on each access so that nothing of it is held
+ * in memory in between.
+ */
+final class FragmentSpilled implements Fragment {
+
+    private final FileChannel fileChannel;
+    private final int size;
+
+    FragmentSpilled(FileChannel fileChannel, int size) {
+        this.fileChannel = fileChannel;
+        this.size = size;
+    }
+
+    @Override
+    public boolean isStub() {
+        return false;
+    }
+
+    @Override
+    public byte[] toBytes() {
+        return read().array();
+    }
+
+    @Override
+    public String toString() {
+        return new String(toBytes(), StandardCharsets.UTF_8);
+    }
+
+    @Override
+    public int toInt() {
+        return Integer.parseInt(toString());
+    }
+
+    @Override
+    public Writeable toWriteable() {
+        return loaded().toWriteable();
+    }
+
+    @Override
+    public FragmentByteStream toFragmentByteStream() {
+        return loaded().toFragmentByteStream();
+    }
+
+    @Override
+    public long size() {
+        return size;
+    }
+
+    private Fragment loaded() {
+        return new FragmentOffsets(new ByteBuffer[] {
+                read()
+        }, new int[] {
+                0, 0, size
+        }, 0, 1, size);
+    }
+
+    private ByteBuffer read() {
+        final ByteBuffer buffer = ByteBuffer.allocate(size);
+        try {
+            while (buffer.hasRemaining()) {
+                if (fileChannel.read(buffer, buffer.position()) == -1) {
+                    throw new EOFException("spill file ended at <" + buffer.position() + "> of <" + size + ">");
+                }
+            }
+        }
+        catch (ClosedChannelException closedChannelException) {
+            throw new IllegalStateException("payload accessed after the frame was closed", closedChannelException);
+        }
+        catch (IOException ioException) {
+            throw new UncheckedIOException(ioException);
+        }
+        buffer.flip();
+        return buffer;
+    }
+}
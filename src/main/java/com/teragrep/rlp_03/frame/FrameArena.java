@@ -0,0 +1,134 @@
+/*
+ * Java Reliable Event Logging Protocol Library Server Implementation RLP-03
+ * Copyright (C) 2021-2024 Suomen Kanuuna Oy
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Affero General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Affero General Public License for more details.
+ *
+ * You should have received a copy of the GNU Affero General Public License
+ * along with this program.  If not, see <https://www.gnu.org/licenses/>.
+ *
+ *
+ * Additional permission under GNU Affero General Public License version 3
+ * section 7
+ *
+ * If you modify this Program, or any covered work, by linking or combining it
+ * with other code, such other code is not for that reason alone subject to any
+ * of the requirements of the GNU Affero GPL version 3 as long as this Program
+ * is the same Program as licensed from Suomen Kanuuna Oy without any additional
+ * modifications.
+ *
+ * Supplemented terms under GNU Affero General Public License version 3
+ * section 7
+ *
+ * Origin of the software must be attributed to Suomen Kanuuna Oy. Any modified
+ * versions must be marked as "Modified version of" The Program.
+ *
+ * Names of the licensors and authors may not be used for publicity purposes.
+ *
+ * No rights are granted for use of trade names, trademarks, or service marks
+ * which are in The Program if any.
+ *
+ * Licensee must indemnify licensors and authors for any liability that these
+ * contractual assumptions impose on licensors and authors.
+ *
+ * To the extent this program is licensed as part of the Commercial versions of
+ * Teragrep, the applicable Commercial License may apply to this file if you as
+ * a licensee so wish it.
+ */
+package com.teragrep.rlp_03.frame;
+
+import com.teragrep.net_01.channel.buffer.BufferLease;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.locks.Lock;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * Per-connection pool of {@link RelpFrameRecycled}. Collects the leases of the frame being parsed and hands them over
+ * to the frame when it is assembled. Frames may be closed from any thread, at most capacity frames are kept.
+ */
+final class FrameArena implements RelpFrameAssembler {
+
+    private final RelpFrameRecycled[] frames;
+    private final Lock lock;
+    private int size;
+
+    private final List<BufferLease> pendingLeases;
+
+    FrameArena(int capacity) {
+        this.frames = new RelpFrameRecycled[capacity];
+        this.lock = new ReentrantLock();
+        this.size = 0;
+        this.pendingLeases = new ArrayList<>();
+    }
+
+    /**
+     * Records a lease submitted for the frame being parsed.
+     */
+    void lease(BufferLease bufferLease) {
+        pendingLeases.add(bufferLease);
+    }
+
+    @Override
+    public RelpFrame assemble(FrameRanges frameRanges, int txnId, CommandToken commandToken, int payloadLengthValue) {
+        final RelpFrameRecycled relpFrameRecycled = take();
+        frameRanges.copyTo(relpFrameRecycled);
+        relpFrameRecycled.header(txnId, commandToken, payloadLengthValue);
+        for (int i = 0; i < pendingLeases.size(); i++) {
+            relpFrameRecycled.lease(pendingLeases.get(i));
+        }
+        pendingLeases.clear();
+        return relpFrameRecycled;
+    }
+
+    /**
+     * Releases the leases of a frame that will not be assembled.
+     */
+    void releasePending() {
+        for (int i = 0; i < pendingLeases.size(); i++) {
+            pendingLeases.get(i).removeRef();
+        }
+        pendingLeases.clear();
+    }
+
+    private RelpFrameRecycled take() {
+        lock.lock();
+        try {
+            final RelpFrameRecycled relpFrameRecycled;
+            if (size > 0) {
+                size--;
+                relpFrameRecycled = frames[size];
+                frames[size] = null;
+            }
+            else {
+                relpFrameRecycled = new RelpFrameRecycled(this);
+            }
+            return relpFrameRecycled;
+        }
+        finally {
+            lock.unlock();
+        }
+    }
+
+    void release(RelpFrameRecycled relpFrameRecycled) {
+        lock.lock();
+        try {
+            if (size < frames.length) {
+                frames[size] = relpFrameRecycled;
+                size++;
+            }
+        }
+        finally {
+            lock.unlock();
+        }
+    }
+}
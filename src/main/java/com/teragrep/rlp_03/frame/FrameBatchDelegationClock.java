@@ -0,0 +1,178 @@
+/*
+ * Java Reliable Event Logging Protocol Library Server Implementation RLP-03
+ * Copyright (C) 2021-2024 Suomen Kanuuna Oy
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Affero General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Affero General Public License for more details.
+ *
+ * You should have received a copy of the GNU Affero General Public License
+ * along with this program.  If not, see <https://www.gnu.org/licenses/>.
+ *
+ *
+ * Additional permission under GNU Affero General Public License version 3
+ * section 7
+ *
+ * If you modify this Program, or any covered work, by linking or combining it
+ * with other code, such other code is not for that reason alone subject to any
+ * of the requirements of the GNU Affero GPL version 3 as long as this Program
+ * is the same Program as licensed from Suomen Kanuuna Oy without any additional
+ * modifications.
+ *
+ * Supplemented terms under GNU Affero General Public License version 3
+ * section 7
+ *
+ * Origin of the software must be attributed to Suomen Kanuuna Oy. Any modified
+ * versions must be marked as "Modified version of" The Program.
+ *
+ * Names of the licensors and authors may not be used for publicity purposes.
+ *
+ * No rights are granted for use of trade names, trademarks, or service marks
+ * which are in The Program if any.
+ *
+ * Licensee must indemnify licensors and authors for any liability that these
+ * contractual assumptions impose on licensors and authors.
+ *
+ * To the extent this program is licensed as part of the Commercial versions of
+ * Teragrep, the applicable Commercial License may apply to this file if you as
+ * a licensee so wish it.
+ */
+package com.teragrep.rlp_03.frame;
+
+import com.teragrep.net_01.channel.buffer.BufferLease;
+import com.teragrep.net_01.channel.buffer.writable.WriteableClosure;
+import com.teragrep.net_01.channel.context.Clock;
+import com.teragrep.net_01.channel.context.EstablishedContext;
+import com.teragrep.rlp_03.frame.delegate.FrameBatchDelegate;
+import com.teragrep.rlp_03.frame.delegate.FrameContext;
+import com.teragrep.rlp_03.frame.delegate.event.ResponseEncoder;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.util.function.Function;
+
+/**
+ * Clock which parses every complete frame of a buffer before delegating them as a single {@link FrameBatchImpl}.
+ */
+public class FrameBatchDelegationClock implements Clock {
+
+    private static final Logger LOGGER = LoggerFactory.getLogger(FrameBatchDelegationClock.class);
+    private static final ResponseEncoder serverCloseResponse = new ResponseEncoder("serverclose", "");
+
+    private final EstablishedContext establishedContext;
+    private final FrameBatchDelegate frameBatchDelegate;
+
+    private final FrameLeaseClock frameLeaseClock;
+    private final ReadInterestImpl readInterest;
+    private final ParseErrorCounters parseErrorCounters;
+    private final FrameBatchImpl frameBatch;
+
+    public FrameBatchDelegationClock(EstablishedContext establishedContext, FrameBatchDelegate frameBatchDelegate) {
+        this(establishedContext, frameBatchDelegate, new DelimiterScannerBytewise());
+    }
+
+    public FrameBatchDelegationClock(
+            EstablishedContext establishedContext,
+            FrameBatchDelegate frameBatchDelegate,
+            DelimiterScanner delimiterScanner
+    ) {
+        this(
+                establishedContext,
+                frameBatchDelegate,
+                (readInterest) -> new FrameClockLeaseful(new FrameClock(delimiterScanner)),
+                new ParseErrorCounters()
+        );
+    }
+
+    /**
+     * @param frameLeaseClockFunction creates the frame clock, given the read interest of this clock
+     * @param parseErrorCounters      counts the connections closed due to malformed input
+     */
+    FrameBatchDelegationClock(
+            EstablishedContext establishedContext,
+            FrameBatchDelegate frameBatchDelegate,
+            Function<ReadInterest, FrameLeaseClock> frameLeaseClockFunction,
+            ParseErrorCounters parseErrorCounters
+    ) {
+        this.establishedContext = establishedContext;
+        this.frameBatchDelegate = frameBatchDelegate;
+        this.readInterest = new ReadInterestImpl(establishedContext, this);
+        this.frameLeaseClock = frameLeaseClockFunction.apply(readInterest);
+        this.parseErrorCounters = parseErrorCounters;
+        this.frameBatch = new FrameBatchImpl();
+    }
+
+    @Override
+    public void advance(BufferLease bufferLease) {
+        if (LOGGER.isDebugEnabled()) {
+            LOGGER.debug("submitting bufferLease id <{}>", bufferLease.id());
+        }
+
+        try {
+            RelpFrame relpFrame = frameLeaseClock.submit(bufferLease);
+            while (!relpFrame.isStub()) {
+                frameBatch.add(new FrameContext(establishedContext, new RelpFrameAccess(relpFrame), readInterest));
+
+                if (!bufferLease.buffer().hasRemaining()) {
+                    break;
+                }
+                // each frame releases one reference of the leases it was parsed from
+                bufferLease.addRef();
+                relpFrame = frameLeaseClock.submit(bufferLease);
+            }
+        }
+        catch (RuntimeException runtimeException) {
+            frameBatch.closeFrames();
+            frameBatch.clear();
+            throw runtimeException;
+        }
+
+        boolean interested = true;
+        if (frameBatch.size() > 0) {
+            LOGGER.debug("delegating batch of <{}> frames", frameBatch.size());
+            try {
+                interested = frameBatchDelegate.accept(frameBatch);
+            }
+            finally {
+                frameBatch.clear();
+            }
+        }
+
+        if (LOGGER.isDebugEnabled()) {
+            LOGGER.debug("bufferLease id <{}> isTerminated <{}>", bufferLease.id(), bufferLease.isTerminated());
+        }
+
+        if (interested && frameLeaseClock.parseError() != ParseError.NONE) {
+            // frames parsed before the malformed input are delegated first
+            serverClose(frameLeaseClock.parseError());
+            interested = false;
+        }
+
+        if (!interested) {
+            readInterest.terminate();
+            establishedContext.ingress().unregister(this);
+        }
+        else {
+            readInterest.safePoint(bufferLease);
+        }
+    }
+
+    private void serverClose(ParseError parseError) {
+        parseErrorCounters.increment(parseError);
+        LOGGER.warn("closing connection due to malformed input <{}>", parseError);
+        establishedContext.egress().accept(new WriteableClosure(serverCloseResponse.encode(0), establishedContext));
+    }
+
+    @Override
+    public void close() throws Exception {
+        frameLeaseClock.close();
+        frameBatchDelegate.close();
+    }
+
+}
@@ -0,0 +1,126 @@
+/*
+ * Java Reliable Event Logging Protocol Library Server Implementation RLP-03
+ * Copyright (C) 2021-2024 Suomen Kanuuna Oy
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Affero General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Affero General Public License for more details.
+ *
+ * You should have received a copy of the GNU Affero General Public License
+ * along with this program.  If not, see <https://www.gnu.org/licenses/>.
+ *
+ *
+ * Additional permission under GNU Affero General Public License version 3
+ * section 7
+ *
+ * If you modify this Program, or any covered work, by linking or combining it
+ * with other code, such other code is not for that reason alone subject to any
+ * of the requirements of the GNU Affero GPL version 3 as long as this Program
+ * is the same Program as licensed from Suomen Kanuuna Oy without any additional
+ * modifications.
+ *
+ * Supplemented terms under GNU Affero General Public License version 3
+ * section 7
+ *
+ * Origin of the software must be attributed to Suomen Kanuuna Oy. Any modified
+ * versions must be marked as "Modified version of" The Program.
+ *
+ * Names of the licensors and authors may not be used for publicity purposes.
+ *
+ * No rights are granted for use of trade names, trademarks, or service marks
+ * which are in The Program if any.
+ *
+ * Licensee must indemnify licensors and authors for any liability that these
+ * contractual assumptions impose on licensors and authors.
+ *
+ * To the extent this program is licensed as part of the Commercial versions of
+ * Teragrep, the applicable Commercial License may apply to this file if you as
+ * a licensee so wish it.
+ */
+package com.teragrep.rlp_03.frame;
+
+import com.teragrep.net_01.channel.context.Clock;
+import com.teragrep.net_01.channel.context.ClockFactory;
+import com.teragrep.net_01.channel.context.EstablishedContext;
+import com.teragrep.rlp_03.frame.delegate.FrameBatchDelegate;
+
+import java.util.function.Supplier;
+
+public class FrameBatchDelegationClockFactory implements ClockFactory {
+
+    private static final MemoryAccount memoryAccountStub = new MemoryAccountStub();
+    private static final FrameCompaction frameCompactionDisabled = new FrameCompaction(0, 0);
+
+    private final Supplier<FrameBatchDelegate> frameBatchDelegateSupplier;
+    private final DelimiterScanner delimiterScanner;
+    private final MemoryBudget memoryBudget;
+    private final long connectionLimit;
+    private final ParseErrorCounters parseErrorCounters;
+
+    public FrameBatchDelegationClockFactory(final Supplier<FrameBatchDelegate> frameBatchDelegateSupplier) {
+        this(frameBatchDelegateSupplier, new DelimiterScannerBytewise());
+    }
+
+    public FrameBatchDelegationClockFactory(
+            final Supplier<FrameBatchDelegate> frameBatchDelegateSupplier,
+            final DelimiterScanner delimiterScanner
+    ) {
+        this(frameBatchDelegateSupplier, delimiterScanner, new MemoryBudget(Long.MAX_VALUE), Long.MAX_VALUE);
+    }
+
+    /**
+     * Buffers held by frames are charged from the memoryBudget shared by all connections and from a connectionLimit of
+     * each connection, reading from a connection pauses while either is exceeded.
+     */
+    public FrameBatchDelegationClockFactory(
+            final Supplier<FrameBatchDelegate> frameBatchDelegateSupplier,
+            final DelimiterScanner delimiterScanner,
+            final MemoryBudget memoryBudget,
+            final long connectionLimit
+    ) {
+        this.frameBatchDelegateSupplier = frameBatchDelegateSupplier;
+        this.delimiterScanner = delimiterScanner;
+        this.memoryBudget = memoryBudget;
+        this.connectionLimit = connectionLimit;
+        this.parseErrorCounters = new ParseErrorCounters();
+    }
+
+    @Override
+    public Clock create(final EstablishedContext establishedContext) {
+        final FrameBatchDelegate frameBatchDelegate = frameBatchDelegateSupplier.get();
+        return new FrameBatchDelegationClock(
+                establishedContext,
+                frameBatchDelegate,
+                this::frameLeaseClock,
+                parseErrorCounters
+        );
+    }
+
+    private FrameLeaseClock frameLeaseClock(final ReadInterest readInterest) {
+        final FrameClock frameClock = new FrameClock(delimiterScanner);
+
+        final MemoryAccount memoryAccount;
+        if (memoryBudget.isUnlimited() && connectionLimit == Long.MAX_VALUE) {
+            memoryAccount = memoryAccountStub;
+        }
+        else {
+            memoryAccount = memoryBudget.account(connectionLimit, readInterest);
+        }
+
+        return new FrameClockLeaseful(frameClock, memoryAccount, frameCompactionDisabled);
+    }
+
+    /**
+     * @return connections closed due to malformed input by the clocks of this factory
+     */
+    public ParseErrorCounters parseErrorCounters() {
+        return parseErrorCounters;
+    }
+
+}
@@ -46,74 +46,154 @@
 package com.teragrep.rlp_03.frame;
 
 import com.teragrep.rlp_03.frame.fragment.Fragment;
-import com.teragrep.rlp_03.frame.fragment.FragmentStub;
-import com.teragrep.rlp_03.frame.fragment.clocks.*;
+import com.teragrep.rlp_03.frame.fragment.FragmentFactory;
 
 import java.nio.ByteBuffer;
 
+/**
+ * Single pass RELP frame parser. Header numbers are decoded directly into primitives and the fields are recorded as
+ * byte ranges of the submitted buffers, so no objects are created until a frame is complete. Malformed input does not
+ * throw, the clock stops parsing and reports the kind of the failure from {@link #parseError()}.
+ */
 public final class FrameClock {
 
     private static final RelpFrameStub relpFrameStub = new RelpFrameStub();
-    private static final FragmentStub fragmentStub = new FragmentStub();
+    private static final Fragment endOfTransfer = new FragmentFactory().create("\n");
+    private static final Fragment[] noHeader = new Fragment[0];
+
+    private static final int maximumTxnLength = 9;
+    private static final int maximumCommandLength = 32;
+    private static final int maximumPayloadLengthLength = 9;
+
+    private static final CommandToken[] commandTokens = CommandToken.values();
+    private static final int allCommandCandidates = allCommandCandidates();
+
+    private final FrameRanges frameRanges;
 
-    private final TransactionClock transactionClock;
-    private final CommandClock commandClock;
-    private final PayloadLengthClock payloadLengthClock;
-    private final PayloadClock payloadClock;
-    private final EndOfTransferClock endOfTransferClock;
+    private Phase phase;
+    private int txnValue;
+    private int commandCandidates;
+    private CommandToken commandToken;
+    private int payloadLengthValue;
 
-    private Fragment txn;
-    private Fragment command;
-    private Fragment payloadLength;
-    private int cachedPayloadLength;
-    private Fragment payload;
-    private Fragment endOfTransfer;
+    private boolean streaming;
+    private int streamedLength;
+    private Fragment[] streamedHeader;
+    private boolean streamedFrameAssembled;
+    private ParseError parseError;
+
+    private final DelimiterScanner delimiterScanner;
+    private final RelpFrameAssembler relpFrameAssembler;
+    private final PayloadSink payloadSink;
 
     public FrameClock() {
-        this.transactionClock = new TransactionClock();
-        this.commandClock = new CommandClock();
-        this.payloadLengthClock = new PayloadLengthClock();
-        this.payloadClock = new PayloadClock();
-        this.endOfTransferClock = new EndOfTransferClock();
+        this(new DelimiterScannerBytewise());
+    }
+
+    public FrameClock(DelimiterScanner delimiterScanner) {
+        this(delimiterScanner, new RelpFrameAssemblerImpl());
+    }
+
+    FrameClock(DelimiterScanner delimiterScanner, RelpFrameAssembler relpFrameAssembler) {
+        this(delimiterScanner, relpFrameAssembler, new PayloadSinkStub());
+    }
+
+    FrameClock(DelimiterScanner delimiterScanner, RelpFrameAssembler relpFrameAssembler, PayloadSink payloadSink) {
+        this.delimiterScanner = delimiterScanner;
+        this.relpFrameAssembler = relpFrameAssembler;
+        this.payloadSink = payloadSink;
+        this.frameRanges = new FrameRanges();
+        this.streamedHeader = noHeader;
+        this.streamedFrameAssembled = false;
+        this.parseError = ParseError.NONE;
 
         reset();
     }
 
     private void reset() {
-        txn = fragmentStub;
-        command = fragmentStub;
-        payloadLength = fragmentStub;
-        cachedPayloadLength = Integer.MIN_VALUE;
-        payload = fragmentStub;
-        endOfTransfer = fragmentStub;
+        phase = Phase.TXN;
+        txnValue = 0;
+        commandCandidates = allCommandCandidates;
+        commandToken = CommandToken.CUSTOM;
+        payloadLengthValue = 0;
+        streaming = false;
+        streamedLength = 0;
+        streamedHeader = noHeader;
+        frameRanges.clear();
+    }
+
+    /**
+     * @return true if the frame returned by the last submit or the frame in progress refers to the submitted buffers
+     */
+    synchronized boolean holdsInput() {
+        return !streaming && !streamedFrameAssembled;
     }
 
+    /**
+     * @return {@link ParseError#NONE} unless parsing has stopped due to malformed input
+     */
+    public synchronized ParseError parseError() {
+        return parseError;
+    }
+
+    /**
+     * Releases the streamed payload of the frame in progress, called when the connection closes.
+     */
+    synchronized void discard() {
+        if (streaming) {
+            payloadSink.discard();
+        }
+    }
+
+    /**
+     * @return next complete frame or a stub, the remaining input is discarded once a parse error has occurred
+     */
     public synchronized RelpFrame submit(ByteBuffer input) {
         RelpFrame relpFrame = relpFrameStub;
+        streamedFrameAssembled = false;
 
         while (input.hasRemaining()) {
-            if (txn.isStub()) {
-                txn = transactionClock.submit(input);
+            if (phase == Phase.TXN) {
+                submitTxn(input);
             }
-            else if (command.isStub()) {
-                command = commandClock.submit(input);
+            else if (phase == Phase.COMMAND) {
+                submitCommand(input);
             }
-            else if (payloadLength.isStub()) {
-                payloadLength = payloadLengthClock.submit(input);
-                if (!payloadLength.isStub()) {
-                    cachedPayloadLength = payloadLength.toInt();
-                }
+            else if (phase == Phase.PAYLOAD_LENGTH) {
+                submitPayloadLength(input);
             }
-            else if (payload.isStub()) {
-                payload = payloadClock.submit(input, cachedPayloadLength);
+            else if (phase == Phase.PAYLOAD) {
+                submitPayload(input);
             }
-            else if (endOfTransfer.isStub()) {
-                endOfTransfer = endOfTransferClock.submit(input);
-                if (!endOfTransfer.isStub()) {
-                    relpFrame = new RelpFrameImpl(txn, command, payloadLength, payload, endOfTransfer);
-                    reset();
+            else if (phase == Phase.END_OF_TRANSFER) {
+                submitEndOfTransfer(input);
+                if (phase == Phase.FAILED) {
                     break;
                 }
+                if (streaming) {
+                    relpFrame = payloadSink
+                            .assembled(
+                                    new RelpFrameImpl(
+                                            streamedHeader[0],
+                                            streamedHeader[1],
+                                            streamedHeader[2],
+                                            payloadSink.end(),
+                                            endOfTransfer,
+                                            txnValue,
+                                            commandToken,
+                                            payloadLengthValue
+                                    )
+                            );
+                    streamedFrameAssembled = true;
+                }
+                else {
+                    relpFrame = relpFrameAssembler.assemble(frameRanges, txnValue, commandToken, payloadLengthValue);
+                }
+                reset();
+                break;
+            }
+            else if (phase == Phase.FAILED) {
+                input.position(input.limit());
             }
             else {
                 throw new IllegalStateException("FrameClock not in phase");
@@ -122,4 +202,258 @@ public final class FrameClock {
 
         return relpFrame;
     }
+
+    private void submitTxn(ByteBuffer input) {
+        final int start = input.position();
+        final int limit = input.limit();
+        int position = start;
+        boolean complete = false;
+        ParseError error = ParseError.NONE;
+        while (position < limit) {
+            final byte b = input.get(position);
+            if (b == ' ') {
+                if (frameRanges.fieldLength() + position - start == 0) {
+                    error = ParseError.TXN_EMPTY;
+                }
+                complete = true;
+                break;
+            }
+            if (b < '0' || b > '9') {
+                error = ParseError.TXN_NOT_NUMBER;
+                break;
+            }
+            if (frameRanges.fieldLength() + position - start == maximumTxnLength) {
+                error = ParseError.TXN_TOO_LONG;
+                break;
+            }
+            txnValue = txnValue * 10 + (b - '0');
+            position++;
+        }
+
+        if (error != ParseError.NONE) {
+            fail(input, error);
+        }
+        else {
+            frameRanges.add(input, start, position - start);
+            if (complete) {
+                // terminating ' ' is consumed but not part of the txn
+                input.position(position + 1);
+                frameRanges.endField();
+                phase = Phase.COMMAND;
+            }
+            else {
+                input.position(position);
+            }
+        }
+    }
+
+    private void submitCommand(ByteBuffer input) {
+        final int start = input.position();
+        // one byte past the maximum length is scanned, it is either the terminating ' ' or too much
+        final int window = Math.min(input.limit(), start + maximumCommandLength - frameRanges.fieldLength() + 1);
+        final int space = delimiterScanner.indexOf(input, start, window, (byte) ' ');
+        final boolean complete = space != -1;
+        final int position;
+        if (complete) {
+            position = space;
+        }
+        else {
+            position = window;
+        }
+
+        if (frameRanges.fieldLength() + position - start > maximumCommandLength) {
+            fail(input, ParseError.COMMAND_TOO_LONG);
+        }
+        else {
+            submitCommandBytes(input, start, position, complete);
+        }
+    }
+
+    private void submitCommandBytes(ByteBuffer input, int start, int position, boolean complete) {
+        for (int i = start; i < position && commandCandidates != 0; i++) {
+            commandCandidates = narrowCommandCandidates(
+                    commandCandidates, frameRanges.fieldLength() + i - start, input.get(i)
+            );
+        }
+        frameRanges.add(input, start, position - start);
+
+        if (complete) {
+            // terminating ' ' is consumed but not part of the command
+            input.position(position + 1);
+            commandToken = matchCommandToken(commandCandidates, frameRanges.fieldLength());
+            frameRanges.endField();
+            phase = Phase.PAYLOAD_LENGTH;
+        }
+        else {
+            input.position(position);
+        }
+    }
+
+    private static int narrowCommandCandidates(int candidates, int index, byte b) {
+        int narrowed = candidates;
+        for (int i = 0; i < commandTokens.length; i++) {
+            if ((narrowed & (1 << i)) != 0 && !commandTokens[i].matches(index, b)) {
+                narrowed = narrowed & ~(1 << i);
+            }
+        }
+        return narrowed;
+    }
+
+    private static CommandToken matchCommandToken(int candidates, int length) {
+        CommandToken token = CommandToken.CUSTOM;
+        for (int i = 0; i < commandTokens.length; i++) {
+            if ((candidates & (1 << i)) != 0 && commandTokens[i].length() == length) {
+                token = commandTokens[i];
+                break;
+            }
+        }
+        return token;
+    }
+
+    private static int allCommandCandidates() {
+        int candidates = 0;
+        for (int i = 0; i < commandTokens.length; i++) {
+            if (commandTokens[i] != CommandToken.CUSTOM) {
+                candidates = candidates | (1 << i);
+            }
+        }
+        return candidates;
+    }
+
+    private void submitPayloadLength(ByteBuffer input) {
+        final int start = input.position();
+        final int limit = input.limit();
+        int position = start;
+        boolean complete = false;
+        boolean lineFeed = false;
+        ParseError error = ParseError.NONE;
+        while (position < limit) {
+            final byte b = input.get(position);
+            if (b == ' ' || b == '\n') {
+                /*
+                 '\n' is especially for librelp which should follow:
+                 HEADER = TXNR SP COMMAND SP DATALEN SP;
+                 but sometimes librelp follows:
+                 HEADER = TXNR SP COMMAND SP DATALEN LF; and LF is for EndOfTransfer
+                 */
+                complete = true;
+                lineFeed = b == '\n';
+                break;
+            }
+            if (b < '0' || b > '9') {
+                error = ParseError.PAYLOAD_LENGTH_NOT_NUMBER;
+                break;
+            }
+            if (frameRanges.fieldLength() + position - start == maximumPayloadLengthLength) {
+                error = ParseError.PAYLOAD_LENGTH_TOO_LONG;
+                break;
+            }
+            payloadLengthValue = payloadLengthValue * 10 + (b - '0');
+            position++;
+        }
+
+        if (error == ParseError.NONE && complete && frameRanges.fieldLength() + position - start == 0) {
+            error = ParseError.PAYLOAD_LENGTH_EMPTY;
+        }
+        else if (error == ParseError.NONE && complete && lineFeed && payloadLengthValue != 0) {
+            error = ParseError.PAYLOAD_MISSING;
+        }
+
+        if (error != ParseError.NONE) {
+            fail(input, error);
+        }
+        else if (complete) {
+            frameRanges.add(input, start, position - start);
+            frameRanges.endField();
+
+            if (lineFeed) {
+                // '\n' is left in the input as it is for EndOfTransfer
+                input.position(position);
+            }
+            else {
+                input.position(position + 1);
+            }
+
+            if (payloadLengthValue == 0) {
+                // empty payload
+                frameRanges.endField();
+                phase = Phase.END_OF_TRANSFER;
+            }
+            else {
+                phase = Phase.PAYLOAD;
+                streaming = payloadSink.begin(txnValue, commandToken, payloadLengthValue);
+                if (payloadSink.writeFailed()) {
+                    fail(input, ParseError.PAYLOAD_SINK_FAILED);
+                }
+                else if (streaming) {
+                    // header is copied so that the buffers are not needed after the payload chunks are written
+                    streamedHeader = frameRanges.copyFields();
+                    frameRanges.clear();
+                }
+            }
+        }
+        else {
+            frameRanges.add(input, start, position - start);
+            input.position(position);
+        }
+    }
+
+    private void submitPayload(ByteBuffer input) {
+        if (streaming) {
+            submitPayloadStreamed(input);
+        }
+        else {
+            submitPayloadRanges(input);
+        }
+    }
+
+    private void submitPayloadStreamed(ByteBuffer input) {
+        final int start = input.position();
+        final int size = Math.min(input.remaining(), payloadLengthValue - streamedLength);
+        input.position(start + size);
+        payloadSink.write(input, start, size);
+        streamedLength = streamedLength + size;
+
+        if (payloadSink.writeFailed()) {
+            fail(input, ParseError.PAYLOAD_SINK_FAILED);
+        }
+        else if (streamedLength == payloadLengthValue) {
+            phase = Phase.END_OF_TRANSFER;
+        }
+    }
+
+    private void submitPayloadRanges(ByteBuffer input) {
+        final int start = input.position();
+        final int size = Math.min(input.remaining(), payloadLengthValue - frameRanges.fieldLength());
+        frameRanges.add(input, start, size);
+        input.position(start + size);
+
+        if (frameRanges.fieldLength() == payloadLengthValue) {
+            frameRanges.endField();
+            phase = Phase.END_OF_TRANSFER;
+        }
+    }
+
+    private void submitEndOfTransfer(ByteBuffer input) {
+        // RelpFrame always ends with a newline byte.
+        if (input.get() != '\n') {
+            fail(input, ParseError.END_OF_TRANSFER_MISSING);
+        }
+    }
+
+    private void fail(ByteBuffer input, ParseError error) {
+        if (streaming) {
+            payloadSink.discard();
+        }
+        parseError = error;
+        phase = Phase.FAILED;
+        streaming = false;
+        streamedHeader = noHeader;
+        frameRanges.clear();
+        input.position(input.limit());
+    }
+
+    private enum Phase {
+        TXN, COMMAND, PAYLOAD_LENGTH, PAYLOAD, END_OF_TRANSFER, FAILED
+    }
 }
@@ -49,32 +49,115 @@ import com.teragrep.net_01.channel.buffer.BufferLease;
 
 import java.util.ArrayList;
 import java.util.Collections;
-import java.util.LinkedList;
 import java.util.List;
 
-public final class FrameClockLeaseful {
+public final class FrameClockLeaseful implements FrameLeaseClock {
 
     private final FrameClock frameClock;
     private final List<BufferLease> leases;
+    private final MemoryAccount memoryAccount;
+    private final FrameCompaction frameCompaction;
+    private CompactBuffer compactBuffer;
 
     public FrameClockLeaseful(FrameClock frameClock) {
+        this(frameClock, new MemoryAccountStub(), new FrameCompaction(0, 0));
+    }
+
+    /**
+     * @param memoryAccount   charged for the capacity of each lease held by complete frames, refunded when the last
+     *                        frame holding it is closed. The frame in progress is not charged, it can only complete if
+     *                        reading continues.
+     * @param frameCompaction decides which frames are copied so that their leases can be released right away, they are
+     *                        packed into a compact buffer held until it is full or the clock is closed
+     */
+    FrameClockLeaseful(FrameClock frameClock, MemoryAccount memoryAccount, FrameCompaction frameCompaction) {
         this.frameClock = frameClock;
         this.leases = new ArrayList<>();
+        this.memoryAccount = memoryAccount;
+        this.frameCompaction = frameCompaction;
+        this.compactBuffer = new CompactBufferStub();
     }
 
+    @Override
     public RelpFrame submit(BufferLease bufferLease) {
         leases.add(bufferLease);
         RelpFrame relpFrame = frameClock.submit(bufferLease.buffer());
 
         RelpFrame rv;
-        if (relpFrame.isStub()) {
+        if (frameClock.parseError() != ParseError.NONE) {
+            // frame in progress will not complete
+            releaseLeases();
+            rv = new RelpFrameLeaseful(relpFrame, Collections.emptyList());
+        }
+        else if (!frameClock.holdsInput()) {
+            // streamed payload chunks are processed already, header is copied
+            releaseLeases();
+            rv = new RelpFrameLeaseful(relpFrame, Collections.emptyList());
+        }
+        else if (relpFrame.isStub()) {
             rv = new RelpFrameLeaseful(relpFrame, Collections.emptyList());
         }
+        else if (frameCompaction.isEnabled() && frameCompaction.applies(size(relpFrame)) && reserve(size(relpFrame))) {
+            rv = frameCompaction.compact(relpFrame, leases.size(), compactBuffer, memoryAccount);
+            releaseLeases();
+        }
         else {
-            LinkedList<BufferLease> frameLeases = new LinkedList<>(leases);
-            rv = new RelpFrameLeaseful(relpFrame, frameLeases);
+            if (frameCompaction.isEnabled()) {
+                frameCompaction.pinned(leases.size());
+            }
+            List<BufferLease> frameLeases = new ArrayList<>(leases);
+            if (!memoryAccount.isStub()) {
+                for (BufferLease lease : frameLeases) {
+                    memoryAccount.hold(lease);
+                }
+            }
+            rv = new RelpFrameLeaseful(relpFrame, frameLeases, memoryAccount);
             leases.clear();
         }
         return rv;
     }
+
+    @Override
+    public ParseError parseError() {
+        return frameClock.parseError();
+    }
+
+    private void releaseLeases() {
+        for (BufferLease lease : leases) {
+            lease.removeRef();
+        }
+        leases.clear();
+    }
+
+    /**
+     * @return true if the held compact buffer has room for frameSize bytes, a new one is taken when it is full
+     */
+    private boolean reserve(long frameSize) {
+        if (compactBuffer.isStub() || compactBuffer.remaining() < frameSize) {
+            if (!compactBuffer.isStub()) {
+                compactBuffer.release();
+            }
+            compactBuffer = frameCompaction.take();
+        }
+        return !compactBuffer.isStub();
+    }
+
+    private static long size(RelpFrame relpFrame) {
+        return relpFrame.txn().size() + relpFrame.command().size() + relpFrame.payloadLength().size()
+                + relpFrame.payload().size();
+    }
+
+    @Override
+    public void close() {
+        // frame in progress is not charged
+        leases.clear();
+        frameClock.discard();
+        if (!compactBuffer.isStub()) {
+            compactBuffer.release();
+            compactBuffer = new CompactBufferStub();
+        }
+        if (!memoryAccount.isStub()) {
+            memoryAccount.close();
+        }
+    }
 }
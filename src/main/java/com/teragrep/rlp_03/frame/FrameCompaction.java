@@ -0,0 +1,253 @@
+/*
+ * Java Reliable Event Logging Protocol Library Server Implementation RLP-03
+ * Copyright (C) 2021-2024 Suomen Kanuuna Oy
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Affero General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Affero General Public License for more details.
+ *
+ * You should have received a copy of the GNU Affero General Public License
+ * along with this program.  If not, see <https://www.gnu.org/licenses/>.
+ *
+ *
+ * Additional permission under GNU Affero General Public License version 3
+ * section 7
+ *
+ * If you modify this Program, or any covered work, by linking or combining it
+ * with other code, such other code is not for that reason alone subject to any
+ * of the requirements of the GNU Affero GPL version 3 as long as this Program
+ * is the same Program as licensed from Suomen Kanuuna Oy without any additional
+ * modifications.
+ *
+ * Supplemented terms under GNU Affero General Public License version 3
+ * section 7
+ *
+ * Origin of the software must be attributed to Suomen Kanuuna Oy. Any modified
+ * versions must be marked as "Modified version of" The Program.
+ *
+ * Names of the licensors and authors may not be used for publicity purposes.
+ *
+ * No rights are granted for use of trade names, trademarks, or service marks
+ * which are in The Program if any.
+ *
+ * Licensee must indemnify licensors and authors for any liability that these
+ * contractual assumptions impose on licensors and authors.
+ *
+ * To the extent this program is licensed as part of the Commercial versions of
+ * Teragrep, the applicable Commercial License may apply to this file if you as
+ * a licensee so wish it.
+ */
+package com.teragrep.rlp_03.frame;
+
+import com.teragrep.rlp_03.frame.fragment.Fragment;
+import com.teragrep.rlp_03.frame.fragment.FragmentOffsets;
+
+import java.nio.ByteBuffer;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.concurrent.locks.Lock;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * Policy for copying small frames into pooled compact buffers, so that the network buffers they were read from are
+ * released as soon as the frame is complete instead of when it is closed. Frames of a connection are packed one after
+ * another into the compact buffer it holds. The pool is allocated up front, frames are pinned instead of compacted
+ * while it is empty. Shared by all connections of a server, the counters tell how many buffers frames pin for tuning
+ * maximumFrameSize and the pool.
+ */
+public final class FrameCompaction {
+
+    private final int maximumFrameSize;
+    private final CompactBuffer[] pool;
+    private final Lock lock;
+    private int size;
+
+    private final LongAdder frames;
+    private final LongAdder pinnedLeases;
+    private final LongAdder compactedFrames;
+    private final LongAdder releasedLeases;
+    private final LongAdder exhaustedFrames;
+
+    /**
+     * @param maximumFrameSize frames with fields shorter than this in total are compacted, 0 disables compaction
+     * @param poolSize         number of compact buffers, each holds sixteen frames of maximumFrameSize
+     */
+    public FrameCompaction(int maximumFrameSize, int poolSize) {
+        this(maximumFrameSize, maximumFrameSize * 16, poolSize);
+    }
+
+    /**
+     * @param maximumFrameSize frames with fields shorter than this in total are compacted, 0 disables compaction
+     * @param bufferSize       capacity of a compact buffer, at least maximumFrameSize
+     * @param poolSize         number of compact buffers, allocated when compaction is enabled
+     */
+    public FrameCompaction(int maximumFrameSize, int bufferSize, int poolSize) {
+        if (bufferSize < maximumFrameSize) {
+            throw new IllegalArgumentException(
+                    "bufferSize <" + bufferSize + "> is less than maximumFrameSize <" + maximumFrameSize + ">"
+            );
+        }
+        this.maximumFrameSize = maximumFrameSize;
+        if (maximumFrameSize > 0) {
+            this.pool = new CompactBuffer[poolSize];
+            for (int i = 0; i < poolSize; i++) {
+                pool[i] = new CompactBufferImpl(this, ByteBuffer.allocateDirect(bufferSize));
+            }
+        }
+        else {
+            this.pool = new CompactBuffer[0];
+        }
+        this.size = pool.length;
+        this.lock = new ReentrantLock();
+        this.frames = new LongAdder();
+        this.pinnedLeases = new LongAdder();
+        this.compactedFrames = new LongAdder();
+        this.releasedLeases = new LongAdder();
+        this.exhaustedFrames = new LongAdder();
+    }
+
+    /**
+     * @return number of frames completed
+     */
+    public long frames() {
+        return frames.sum();
+    }
+
+    /**
+     * @return number of leases pinned by frames which were not compacted, a lease is counted for each frame
+     */
+    public long pinnedLeases() {
+        return pinnedLeases.sum();
+    }
+
+    /**
+     * @return number of frames compacted
+     */
+    public long compactedFrames() {
+        return compactedFrames.sum();
+    }
+
+    /**
+     * @return number of leases released when compacting frames
+     */
+    public long releasedLeases() {
+        return releasedLeases.sum();
+    }
+
+    /**
+     * @return number of frames pinned because no compact buffer was available
+     */
+    public long exhaustedFrames() {
+        return exhaustedFrames.sum();
+    }
+
+    boolean isEnabled() {
+        return maximumFrameSize > 0;
+    }
+
+    boolean applies(long frameSize) {
+        return frameSize < maximumFrameSize;
+    }
+
+    void pinned(int leases) {
+        frames.increment();
+        pinnedLeases.add(leases);
+    }
+
+    /**
+     * @param compactBuffer has at least the size of the frame remaining
+     * @param memoryAccount charged for the bytes the frame takes from compactBuffer until the frame is closed
+     * @return copy of the frame in compactBuffer, the caller releases the leases of the original frame
+     */
+    RelpFrame compact(RelpFrame relpFrame, int leases, CompactBuffer compactBuffer, MemoryAccount memoryAccount) {
+        frames.increment();
+        compactedFrames.increment();
+        releasedLeases.add(leases);
+
+        final int start = compactBuffer.position();
+        final Fragment[] fields = new Fragment[] {
+                relpFrame.txn(), relpFrame.command(), relpFrame.payloadLength(), relpFrame.payload()
+        };
+        final int[] table = new int[fields.length * 3];
+        for (int i = 0; i < fields.length; i++) {
+            table[i * 3 + 1] = compactBuffer.position();
+            for (ByteBuffer view : fields[i].toWriteable().buffers()) {
+                compactBuffer.append(view);
+            }
+            table[i * 3 + 2] = compactBuffer.position() - table[i * 3 + 1];
+        }
+        final int length = compactBuffer.position() - start;
+        if (!memoryAccount.isStub()) {
+            memoryAccount.charge(length);
+        }
+
+        final ByteBuffer[] buffers = new ByteBuffer[] {
+                compactBuffer.buffer()
+        };
+        final RelpFrame compacted = new RelpFrameImpl(
+                new FragmentOffsets(buffers, table, 0, 1, table[2]),
+                new FragmentOffsets(buffers, table, 1, 2, table[5]),
+                new FragmentOffsets(buffers, table, 2, 3, table[8]),
+                new FragmentOffsets(buffers, table, 3, 4, table[11]),
+                relpFrame.endOfTransfer(),
+                relpFrame.txnId(),
+                relpFrame.commandToken(),
+                relpFrame.payloadLengthValue()
+        );
+        compactBuffer.retain();
+        return new RelpFrameCompacted(compacted, compactBuffer, memoryAccount, length);
+    }
+
+    /**
+     * @return compact buffer retained for the caller, stub if the pool is empty
+     */
+    CompactBuffer take() {
+        lock.lock();
+        try {
+            final CompactBuffer compactBuffer;
+            if (size > 0) {
+                size--;
+                compactBuffer = pool[size];
+                pool[size] = null;
+                compactBuffer.retain();
+            }
+            else {
+                exhaustedFrames.increment();
+                compactBuffer = new CompactBufferStub();
+            }
+            return compactBuffer;
+        }
+        finally {
+            lock.unlock();
+        }
+    }
+
+    void release(CompactBuffer compactBuffer) {
+        lock.lock();
+        try {
+            if (size == pool.length) {
+                throw new IllegalStateException("CompactBuffer does not belong to this pool");
+            }
+            pool[size] = compactBuffer;
+            size++;
+        }
+        finally {
+            lock.unlock();
+        }
+    }
+
+    int available() {
+        lock.lock();
+        try {
+            return size;
+        }
+        finally {
+            lock.unlock();
+        }
+    }
+}
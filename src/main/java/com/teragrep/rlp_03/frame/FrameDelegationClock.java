@@ -47,54 +47,109 @@ package com.teragrep.rlp_03.frame;
 
 import com.teragrep.net_01.channel.buffer.BufferLease;
 
+import com.teragrep.net_01.channel.buffer.writable.WriteableClosure;
 import com.teragrep.net_01.channel.context.Clock;
 import com.teragrep.net_01.channel.context.EstablishedContext;
 import com.teragrep.rlp_03.frame.delegate.FrameContext;
 import com.teragrep.rlp_03.frame.delegate.FrameDelegate;
+import com.teragrep.rlp_03.frame.delegate.event.ResponseEncoder;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
+import java.util.function.Function;
+
 public class FrameDelegationClock implements Clock {
 
     private static final Logger LOGGER = LoggerFactory.getLogger(FrameDelegationClock.class);
+    private static final ResponseEncoder serverCloseResponse = new ResponseEncoder("serverclose", "");
 
     private final EstablishedContext establishedContext;
     private final FrameDelegate frameDelegate;
 
-    private final FrameClockLeaseful frameClockLeaseful;
+    private final FrameLeaseClock frameLeaseClock;
+    private final ReadInterestImpl readInterest;
+    private final ParseErrorCounters parseErrorCounters;
 
     public FrameDelegationClock(EstablishedContext establishedContext, FrameDelegate frameDelegate) {
+        this(establishedContext, frameDelegate, new DelimiterScannerBytewise());
+    }
+
+    public FrameDelegationClock(
+            EstablishedContext establishedContext,
+            FrameDelegate frameDelegate,
+            DelimiterScanner delimiterScanner
+    ) {
+        this(
+                establishedContext,
+                frameDelegate,
+                (readInterest) -> new FrameClockLeaseful(new FrameClock(delimiterScanner))
+        );
+    }
+
+    /**
+     * @param frameLeaseClockFunction creates the frame clock, given the read interest of this clock
+     */
+    FrameDelegationClock(
+            EstablishedContext establishedContext,
+            FrameDelegate frameDelegate,
+            Function<ReadInterest, FrameLeaseClock> frameLeaseClockFunction
+    ) {
+        this(establishedContext, frameDelegate, frameLeaseClockFunction, new ParseErrorCounters());
+    }
+
+    /**
+     * @param parseErrorCounters counts the connections closed due to malformed input
+     */
+    FrameDelegationClock(
+            EstablishedContext establishedContext,
+            FrameDelegate frameDelegate,
+            Function<ReadInterest, FrameLeaseClock> frameLeaseClockFunction,
+            ParseErrorCounters parseErrorCounters
+    ) {
         this.establishedContext = establishedContext;
         this.frameDelegate = frameDelegate;
-
-        this.frameClockLeaseful = new FrameClockLeaseful(new FrameClock());
+        this.readInterest = new ReadInterestImpl(establishedContext, this);
+        this.frameLeaseClock = frameLeaseClockFunction.apply(readInterest);
+        this.parseErrorCounters = parseErrorCounters;
     }
 
     @Override
     public void advance(BufferLease bufferLease) {
-        LOGGER.debug("submitting bufferLease id <{}>", bufferLease.id());
-        RelpFrame relpFrame = frameClockLeaseful.submit(bufferLease);
+        if (LOGGER.isDebugEnabled()) {
+            LOGGER.debug("submitting bufferLease id <{}>", bufferLease.id());
+        }
+        RelpFrame relpFrame = frameLeaseClock.submit(bufferLease);
 
         boolean interested;
-        if (relpFrame.isStub()) {
+        if (frameLeaseClock.parseError() != ParseError.NONE) {
+            serverClose(frameLeaseClock.parseError());
+            interested = false;
+        }
+        else if (relpFrame.isStub()) {
             interested = true;
         }
         else {
             interested = delegateFrame(relpFrame);
         }
 
-        LOGGER.debug("bufferLease id <{}> isTerminated <{}>", bufferLease.id(), bufferLease.isTerminated());
+        if (LOGGER.isDebugEnabled()) {
+            LOGGER.debug("bufferLease id <{}> isTerminated <{}>", bufferLease.id(), bufferLease.isTerminated());
+        }
 
         if (!interested) {
+            readInterest.terminate();
             establishedContext.ingress().unregister(this);
         }
+        else {
+            readInterest.safePoint(bufferLease);
+        }
     }
 
     private boolean delegateFrame(RelpFrame relpFrame) {
         boolean rv;
 
         RelpFrameAccess relpFrameAccess = new RelpFrameAccess(relpFrame);
-        FrameContext frameContext = new FrameContext(establishedContext, relpFrameAccess);
+        FrameContext frameContext = new FrameContext(establishedContext, relpFrameAccess, readInterest);
 
         rv = frameDelegate.accept(frameContext);
 
@@ -102,8 +157,15 @@ public class FrameDelegationClock implements Clock {
         return rv;
     }
 
+    private void serverClose(ParseError parseError) {
+        parseErrorCounters.increment(parseError);
+        LOGGER.warn("closing connection due to malformed input <{}>", parseError);
+        establishedContext.egress().accept(new WriteableClosure(serverCloseResponse.encode(0), establishedContext));
+    }
+
     @Override
     public void close() throws Exception {
+        frameLeaseClock.close();
         frameDelegate.close();
     }
 
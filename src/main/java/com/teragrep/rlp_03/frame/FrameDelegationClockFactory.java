@@ -50,19 +50,136 @@ import com.teragrep.net_01.channel.context.ClockFactory;
 import com.teragrep.net_01.channel.context.EstablishedContext;
 import com.teragrep.rlp_03.frame.delegate.FrameDelegate;
 
+import java.nio.file.Path;
+import java.nio.file.Paths;
 import java.util.function.Supplier;
 
 public class FrameDelegationClockFactory implements ClockFactory {
 
+    private static final PayloadSink payloadSinkStub = new PayloadSinkStub();
+    private static final MemoryAccount memoryAccountStub = new MemoryAccountStub();
+
     private final Supplier<FrameDelegate> frameDelegateSupplier;
+    private final DelimiterScanner delimiterScanner;
+    private final int spillThreshold;
+    private final Path spillDirectory;
+    private final MemoryBudget memoryBudget;
+    private final long connectionLimit;
+    private final FrameCompaction frameCompaction;
+    private final ParseErrorCounters parseErrorCounters;
 
     public FrameDelegationClockFactory(final Supplier<FrameDelegate> frameDelegateSupplier) {
+        this(frameDelegateSupplier, new DelimiterScannerBytewise());
+    }
+
+    public FrameDelegationClockFactory(
+            final Supplier<FrameDelegate> frameDelegateSupplier,
+            final DelimiterScanner delimiterScanner
+    ) {
+        this(
+                frameDelegateSupplier,
+                delimiterScanner,
+                Integer.MAX_VALUE,
+                Paths.get(System.getProperty("java.io.tmpdir"))
+        );
+    }
+
+    public FrameDelegationClockFactory(
+            final Supplier<FrameDelegate> frameDelegateSupplier,
+            final DelimiterScanner delimiterScanner,
+            final int spillThreshold,
+            final Path spillDirectory
+    ) {
+        this(
+                frameDelegateSupplier,
+                delimiterScanner,
+                spillThreshold,
+                spillDirectory,
+                new MemoryBudget(Long.MAX_VALUE),
+                Long.MAX_VALUE
+        );
+    }
+
+    public FrameDelegationClockFactory(
+            final Supplier<FrameDelegate> frameDelegateSupplier,
+            final DelimiterScanner delimiterScanner,
+            final int spillThreshold,
+            final Path spillDirectory,
+            final MemoryBudget memoryBudget,
+            final long connectionLimit
+    ) {
+        this(
+                frameDelegateSupplier,
+                delimiterScanner,
+                spillThreshold,
+                spillDirectory,
+                memoryBudget,
+                connectionLimit,
+                new FrameCompaction(0, 0)
+        );
+    }
+
+    /**
+     * Payloads longer than spillThreshold bytes are written into memory-mapped temporary files in spillDirectory
+     * instead of holding the network buffers until the frame is closed. Buffers held by frames are charged from the
+     * memoryBudget shared by all connections and from a connectionLimit of each connection, reading from a connection
+     * pauses while either is exceeded. Frames selected by frameCompaction are copied so that their buffers are released
+     * when the frame is complete.
+     */
+    public FrameDelegationClockFactory(
+            final Supplier<FrameDelegate> frameDelegateSupplier,
+            final DelimiterScanner delimiterScanner,
+            final int spillThreshold,
+            final Path spillDirectory,
+            final MemoryBudget memoryBudget,
+            final long connectionLimit,
+            final FrameCompaction frameCompaction
+    ) {
         this.frameDelegateSupplier = frameDelegateSupplier;
+        this.delimiterScanner = delimiterScanner;
+        this.spillThreshold = spillThreshold;
+        this.spillDirectory = spillDirectory;
+        this.memoryBudget = memoryBudget;
+        this.connectionLimit = connectionLimit;
+        this.frameCompaction = frameCompaction;
+        this.parseErrorCounters = new ParseErrorCounters();
     }
 
     @Override
     public Clock create(final EstablishedContext establishedContext) {
-        return new FrameDelegationClock(establishedContext, frameDelegateSupplier.get());
+        final FrameDelegate frameDelegate = frameDelegateSupplier.get();
+        return new FrameDelegationClock(establishedContext, frameDelegate, this::frameLeaseClock, parseErrorCounters);
+    }
+
+    /**
+     * Creates the frame clock of a connection, spilling and memory accounting are left out when they are turned off.
+     */
+    private FrameLeaseClock frameLeaseClock(final ReadInterest readInterest) {
+        final PayloadSink payloadSink;
+        if (spillThreshold == Integer.MAX_VALUE) {
+            payloadSink = payloadSinkStub;
+        }
+        else {
+            payloadSink = new PayloadSinkSpilling(spillThreshold, spillDirectory);
+        }
+        final FrameClock frameClock = new FrameClock(delimiterScanner, new RelpFrameAssemblerImpl(), payloadSink);
+
+        final MemoryAccount memoryAccount;
+        if (memoryBudget.isUnlimited() && connectionLimit == Long.MAX_VALUE) {
+            memoryAccount = memoryAccountStub;
+        }
+        else {
+            memoryAccount = memoryBudget.account(connectionLimit, readInterest);
+        }
+
+        return new FrameClockLeaseful(frameClock, memoryAccount, frameCompaction);
+    }
+
+    /**
+     * @return connections closed due to malformed input by the clocks of this factory
+     */
+    public ParseErrorCounters parseErrorCounters() {
+        return parseErrorCounters;
     }
 
 }
@@ -0,0 +1,100 @@
+/*
+ * Java Reliable Event Logging Protocol Library Server Implementation RLP-03
+ * Copyright (C) 2021-2024 Suomen Kanuuna Oy
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Affero General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Affero General Public License for more details.
+ *
+ * You should have received a copy of the GNU Affero General Public License
+ * along with this program.  If not, see <https://www.gnu.org/licenses/>.
+ *
+ *
+ * Additional permission under GNU Affero General Public License version 3
+ * section 7
+ *
+ * If you modify this Program, or any covered work, by linking or combining it
+ * with other code, such other code is not for that reason alone subject to any
+ * of the requirements of the GNU Affero GPL version 3 as long as this Program
+ * is the same Program as licensed from Suomen Kanuuna Oy without any additional
+ * modifications.
+ *
+ * Supplemented terms under GNU Affero General Public License version 3
+ * section 7
+ *
+ * Origin of the software must be attributed to Suomen Kanuuna Oy. Any modified
+ * versions must be marked as "Modified version of" The Program.
+ *
+ * Names of the licensors and authors may not be used for publicity purposes.
+ *
+ * No rights are granted for use of trade names, trademarks, or service marks
+ * which are in The Program if any.
+ *
+ * Licensee must indemnify licensors and authors for any liability that these
+ * contractual assumptions impose on licensors and authors.
+ *
+ * To the extent this program is licensed as part of the Commercial versions of
+ * Teragrep, the applicable Commercial License may apply to this file if you as
+ * a licensee so wish it.
+ */
+package com.teragrep.rlp_03.frame;
+
+import com.teragrep.net_01.channel.context.Clock;
+import com.teragrep.net_01.channel.context.ClockFactory;
+import com.teragrep.net_01.channel.context.EstablishedContext;
+import com.teragrep.rlp_03.frame.delegate.FrameDelegate;
+
+import java.util.function.Supplier;
+
+/**
+ * {@link ClockFactory} for clocks which reuse the frame objects of a connection. Frames are returned for reuse when
+ * closed, delegates must not keep using a frame after closing it. Only the parsed frame and its fields are reused, the
+ * {@link RelpFrameAccess} and {@link com.teragrep.rlp_03.frame.delegate.FrameContext} guarding a delegated frame are
+ * created for each frame.
+ */
+public class FrameDelegationClockRecyclingFactory implements ClockFactory {
+
+    private final Supplier<FrameDelegate> frameDelegateSupplier;
+    private final DelimiterScanner delimiterScanner;
+    private final int capacity;
+    private final ParseErrorCounters parseErrorCounters;
+
+    public FrameDelegationClockRecyclingFactory(final Supplier<FrameDelegate> frameDelegateSupplier) {
+        this(frameDelegateSupplier, new DelimiterScannerBytewise(), 64);
+    }
+
+    public FrameDelegationClockRecyclingFactory(
+            final Supplier<FrameDelegate> frameDelegateSupplier,
+            final DelimiterScanner delimiterScanner,
+            final int capacity
+    ) {
+        this.frameDelegateSupplier = frameDelegateSupplier;
+        this.delimiterScanner = delimiterScanner;
+        this.capacity = capacity;
+        this.parseErrorCounters = new ParseErrorCounters();
+    }
+
+    @Override
+    public Clock create(final EstablishedContext establishedContext) {
+        return new FrameDelegationClock(
+                establishedContext,
+                frameDelegateSupplier.get(),
+                (readInterest) -> new FrameClockRecycling(delimiterScanner, capacity),
+                parseErrorCounters
+        );
+    }
+
+    /**
+     * @return connections closed due to malformed input by the clocks of this factory
+     */
+    public ParseErrorCounters parseErrorCounters() {
+        return parseErrorCounters;
+    }
+
+}
@@ -0,0 +1,202 @@
+/*
+ * Java Reliable Event Logging Protocol Library Server Implementation RLP-03
+ * Copyright (C) 2021-2024 Suomen Kanuuna Oy
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Affero General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Affero General Public License for more details.
+ *
+ * You should have received a copy of the GNU Affero General Public License
+ * along with this program.  If not, see <https://www.gnu.org/licenses/>.
+ *
+ *
+ * Additional permission under GNU Affero General Public License version 3
+ * section 7
+ *
+ * If you modify this Program, or any covered work, by linking or combining it
+ * with other code, such other code is not for that reason alone subject to any
+ * of the requirements of the GNU Affero GPL version 3 as long as this Program
+ * is the same Program as licensed from Suomen Kanuuna Oy without any additional
+ * modifications.
+ *
+ * Supplemented terms under GNU Affero General Public License version 3
+ * section 7
+ *
+ * Origin of the software must be attributed to Suomen Kanuuna Oy. Any modified
+ * versions must be marked as "Modified version of" The Program.
+ *
+ * Names of the licensors and authors may not be used for publicity purposes.
+ *
+ * No rights are granted for use of trade names, trademarks, or service marks
+ * which are in The Program if any.
+ *
+ * Licensee must indemnify licensors and authors for any liability that these
+ * contractual assumptions impose on licensors and authors.
+ *
+ * To the extent this program is licensed as part of the Commercial versions of
+ * Teragrep, the applicable Commercial License may apply to this file if you as
+ * a licensee so wish it.
+ */
+package com.teragrep.rlp_03.frame;
+
+import com.teragrep.rlp_03.frame.fragment.Fragment;
+import com.teragrep.rlp_03.frame.fragment.FragmentOffsets;
+
+import java.nio.ByteBuffer;
+import java.util.Arrays;
+
+/**
+ * Reusable record of the byte ranges the fields of a frame occupy in the submitted buffers. Each range is stored as
+ * (buffer index, offset, length) and the fields follow each other, so a frame is described by a single table.
+ */
+final class FrameRanges {
+
+    private static final int fields = 4;
+
+    private ByteBuffer[] buffers;
+    private int bufferCount;
+    private int[] table;
+    private int rangeCount;
+    private final int[] fieldEnds;
+    private final int[] fieldLengths;
+    private int fieldCount;
+    private int fieldLength;
+
+    FrameRanges() {
+        this.buffers = new ByteBuffer[2];
+        this.bufferCount = 0;
+        this.table = new int[3 * 8];
+        this.rangeCount = 0;
+        this.fieldEnds = new int[fields];
+        this.fieldLengths = new int[fields];
+        this.fieldCount = 0;
+        this.fieldLength = 0;
+    }
+
+    /**
+     * Adds a range to the current field.
+     */
+    void add(ByteBuffer buffer, int offset, int length) {
+        if (length > 0) {
+            if (bufferCount == 0 || buffers[bufferCount - 1] != buffer) {
+                if (bufferCount == buffers.length) {
+                    buffers = Arrays.copyOf(buffers, bufferCount * 2);
+                }
+                buffers[bufferCount] = buffer;
+                bufferCount++;
+            }
+            if (rangeCount * 3 == table.length) {
+                table = Arrays.copyOf(table, table.length * 2);
+            }
+            table[rangeCount * 3] = bufferCount - 1;
+            table[rangeCount * 3 + 1] = offset;
+            table[rangeCount * 3 + 2] = length;
+            rangeCount++;
+            fieldLength = fieldLength + length;
+        }
+    }
+
+    /**
+     * @return length of the current field
+     */
+    int fieldLength() {
+        return fieldLength;
+    }
+
+    /**
+     * Completes the current field, following ranges belong to the next one.
+     */
+    void endField() {
+        fieldEnds[fieldCount] = rangeCount;
+        fieldLengths[fieldCount] = fieldLength;
+        fieldCount++;
+        fieldLength = 0;
+    }
+
+    /**
+     * @return fragments for txn, command, payloadLength and payload, sharing a copy of the table
+     */
+    Fragment[] toFragments() {
+        if (fieldCount != fields) {
+            throw new IllegalStateException("frame has <" + fieldCount + "> fields, expected <" + fields + ">");
+        }
+        final ByteBuffer[] frameBuffers = Arrays.copyOf(buffers, bufferCount);
+        final int[] frameTable = Arrays.copyOf(table, rangeCount * 3);
+
+        final Fragment[] fragments = new Fragment[fields];
+        int fieldStart = 0;
+        for (int i = 0; i < fields; i++) {
+            fragments[i] = new FragmentOffsets(frameBuffers, frameTable, fieldStart, fieldEnds[i], fieldLengths[i]);
+            fieldStart = fieldEnds[i];
+        }
+        return fragments;
+    }
+
+    /**
+     * @return copies of the completed fields, backed by a single heap buffer
+     */
+    Fragment[] copyFields() {
+        int totalLength = 0;
+        for (int i = 0; i < fieldCount; i++) {
+            totalLength = totalLength + fieldLengths[i];
+        }
+
+        final int completedRanges;
+        if (fieldCount > 0) {
+            completedRanges = fieldEnds[fieldCount - 1];
+        }
+        else {
+            completedRanges = 0;
+        }
+
+        final byte[] bytes = new byte[totalLength];
+        int copiedBytes = 0;
+        for (int range = 0; range < completedRanges; range++) {
+            final ByteBuffer buffer = buffers[table[range * 3]];
+            final int offset = table[range * 3 + 1];
+            final int length = table[range * 3 + 2];
+            for (int i = 0; i < length; i++) {
+                bytes[copiedBytes + i] = buffer.get(offset + i);
+            }
+            copiedBytes = copiedBytes + length;
+        }
+
+        final ByteBuffer[] copyBuffers = new ByteBuffer[] {
+                ByteBuffer.wrap(bytes)
+        };
+        final int[] copyTable = new int[fieldCount * 3];
+        final Fragment[] fragments = new Fragment[fieldCount];
+        int fieldStart = 0;
+        for (int i = 0; i < fieldCount; i++) {
+            copyTable[i * 3 + 1] = fieldStart;
+            copyTable[i * 3 + 2] = fieldLengths[i];
+            fragments[i] = new FragmentOffsets(copyBuffers, copyTable, i, i + 1, fieldLengths[i]);
+            fieldStart = fieldStart + fieldLengths[i];
+        }
+        return fragments;
+    }
+
+    /**
+     * Copies the ranges into a recycled frame, which reuses its own tables.
+     */
+    void copyTo(RelpFrameRecycled relpFrameRecycled) {
+        if (fieldCount != fields) {
+            throw new IllegalStateException("frame has <" + fieldCount + "> fields, expected <" + fields + ">");
+        }
+        relpFrameRecycled.ranges(buffers, bufferCount, table, rangeCount, fieldEnds, fieldLengths);
+    }
+
+    void clear() {
+        Arrays.fill(buffers, 0, bufferCount, null);
+        bufferCount = 0;
+        rangeCount = 0;
+        fieldCount = 0;
+        fieldLength = 0;
+    }
+}
@@ -0,0 +1,197 @@
+/*
+ * Java Reliable Event Logging Protocol Library Server Implementation RLP-03
+ * Copyright (C) 2021-2024 Suomen Kanuuna Oy
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Affero General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Affero General Public License for more details.
+ *
+ * You should have received a copy of the GNU Affero General Public License
+ * along with this program.  If not, see <https://www.gnu.org/licenses/>.
+ *
+ *
+ * Additional permission under GNU Affero General Public License version 3
+ * section 7
+ *
+ * If you modify this Program, or any covered work, by linking or combining it
+ * with other code, such other code is not for that reason alone subject to any
+ * of the requirements of the GNU Affero GPL version 3 as long as this Program
+ * is the same Program as licensed from Suomen Kanuuna Oy without any additional
+ * modifications.
+ *
+ * Supplemented terms under GNU Affero General Public License version 3
+ * section 7
+ *
+ * Origin of the software must be attributed to Suomen Kanuuna Oy. Any modified
+ * versions must be marked as "Modified version of" The Program.
+ *
+ * Names of the licensors and authors may not be used for publicity purposes.
+ *
+ * No rights are granted for use of trade names, trademarks, or service marks
+ * which are in The Program if any.
+ *
+ * Licensee must indemnify licensors and authors for any liability that these
+ * contractual assumptions impose on licensors and authors.
+ *
+ * To the extent this program is licensed as part of the Commercial versions of
+ * Teragrep, the applicable Commercial License may apply to this file if you as
+ * a licensee so wish it.
+ */
+package com.teragrep.rlp_03.frame;
+
+import com.teragrep.net_01.channel.buffer.BufferLease;
+
+import java.util.IdentityHashMap;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.locks.Lock;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * Pauses reading of the connection while it exceeds its own limit or the {@link MemoryBudget} is exceeded. A buffer
+ * holding several frames is charged once, its capacity is refunded when the last of them is closed.
+ */
+final class MemoryAccountImpl implements MemoryAccount {
+
+    private final MemoryBudget memoryBudget;
+    private final long limit;
+    private final ReadInterest readInterest;
+    private final AtomicLong used;
+    private final AtomicBoolean paused;
+    private final AtomicBoolean queued;
+    private final AtomicBoolean closed;
+    private final Map<BufferLease, Integer> holds;
+    private final Lock lock;
+
+    MemoryAccountImpl(MemoryBudget memoryBudget, long limit, ReadInterest readInterest) {
+        this.memoryBudget = memoryBudget;
+        this.limit = limit;
+        this.readInterest = readInterest;
+        this.used = new AtomicLong();
+        this.paused = new AtomicBoolean();
+        this.queued = new AtomicBoolean();
+        this.closed = new AtomicBoolean();
+        this.holds = new IdentityHashMap<>();
+        this.lock = new ReentrantLock();
+    }
+
+    @Override
+    public void charge(long bytes) {
+        used.addAndGet(bytes);
+        memoryBudget.charge(bytes);
+        if (isExceeded() && paused.compareAndSet(false, true)) {
+            readInterest.pause();
+            // memory may have been refunded before the account was paused
+            reconsider();
+        }
+    }
+
+    @Override
+    public void refund(long bytes) {
+        used.addAndGet(-bytes);
+        memoryBudget.refund(bytes);
+        reconsider();
+    }
+
+    @Override
+    public void hold(BufferLease bufferLease) {
+        final boolean first;
+        lock.lock();
+        try {
+            final Integer count = holds.get(bufferLease);
+            first = count == null;
+            holds.put(bufferLease, first ? 1 : count + 1);
+        }
+        finally {
+            lock.unlock();
+        }
+        // charged outside the lock, pausing and resuming may reach other connections
+        if (first) {
+            charge(bufferLease.buffer().capacity());
+        }
+    }
+
+    @Override
+    public void release(BufferLease bufferLease) {
+        final boolean last;
+        lock.lock();
+        try {
+            final Integer count = holds.get(bufferLease);
+            if (count == null) {
+                throw new IllegalStateException("BufferLease id <" + bufferLease.id() + "> is not held");
+            }
+            last = count == 1;
+            if (last) {
+                holds.remove(bufferLease);
+            }
+            else {
+                holds.put(bufferLease, count - 1);
+            }
+        }
+        finally {
+            lock.unlock();
+        }
+        if (last) {
+            refund(bufferLease.buffer().capacity());
+        }
+    }
+
+    @Override
+    public void close() {
+        if (closed.compareAndSet(false, true)) {
+            leave();
+        }
+    }
+
+    /**
+     * Resumes reading if the account is paused and no longer exceeded, waits for the budget if it is exceeded. The
+     * account is queued at most once.
+     */
+    void reconsider() {
+        if (closed.get()) {
+            return;
+        }
+        if (!isExceeded()) {
+            if (paused.compareAndSet(true, false)) {
+                readInterest.resume();
+            }
+        }
+        else if (paused.get() && memoryBudget.isExceeded() && queued.compareAndSet(false, true)) {
+            memoryBudget.await(this);
+            if (closed.get()) {
+                // closed while being queued
+                leave();
+            }
+        }
+    }
+
+    /**
+     * Taken off the queue of {@link MemoryBudget}.
+     */
+    void dequeued() {
+        queued.set(false);
+        reconsider();
+    }
+
+    private void leave() {
+        if (queued.compareAndSet(true, false)) {
+            memoryBudget.leave(this);
+        }
+    }
+
+    private boolean isExceeded() {
+        return used.get() > limit || memoryBudget.isExceeded();
+    }
+
+    @Override
+    public boolean isStub() {
+        return false;
+    }
+}
@@ -0,0 +1,133 @@
+/*
+ * Java Reliable Event Logging Protocol Library Server Implementation RLP-03
+ * Copyright (C) 2021-2024 Suomen Kanuuna Oy
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Affero General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Affero General Public License for more details.
+ *
+ * You should have received a copy of the GNU Affero General Public License
+ * along with this program.  If not, see <https://www.gnu.org/licenses/>.
+ *
+ *
+ * Additional permission under GNU Affero General Public License version 3
+ * section 7
+ *
+ * If you modify this Program, or any covered work, by linking or combining it
+ * with other code, such other code is not for that reason alone subject to any
+ * of the requirements of the GNU Affero GPL version 3 as long as this Program
+ * is the same Program as licensed from Suomen Kanuuna Oy without any additional
+ * modifications.
+ *
+ * Supplemented terms under GNU Affero General Public License version 3
+ * section 7
+ *
+ * Origin of the software must be attributed to Suomen Kanuuna Oy. Any modified
+ * versions must be marked as "Modified version of" The Program.
+ *
+ * Names of the licensors and authors may not be used for publicity purposes.
+ *
+ * No rights are granted for use of trade names, trademarks, or service marks
+ * which are in The Program if any.
+ *
+ * Licensee must indemnify licensors and authors for any liability that these
+ * contractual assumptions impose on licensors and authors.
+ *
+ * To the extent this program is licensed as part of the Commercial versions of
+ * Teragrep, the applicable Commercial License may apply to this file if you as
+ * a licensee so wish it.
+ */
+package com.teragrep.rlp_03.frame;
+
+import java.util.Queue;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Memory shared by the buffers which frames of all connections hold. A connection which charges memory while the budget
+ * is exceeded stops reading until enough memory has been refunded.
+ */
+public final class MemoryBudget {
+
+    private final long limit;
+    private final AtomicLong used;
+    private final Queue<MemoryAccountImpl> pausedAccounts;
+
+    public MemoryBudget(long limit) {
+        this.limit = limit;
+        this.used = new AtomicLong();
+        this.pausedAccounts = new ConcurrentLinkedQueue<>();
+    }
+
+    /**
+     * @return bytes currently held
+     */
+    public long used() {
+        return used.get();
+    }
+
+    MemoryAccount account(long accountLimit, ReadInterest readInterest) {
+        return new MemoryAccountImpl(this, accountLimit, readInterest);
+    }
+
+    void charge(long bytes) {
+        used.addAndGet(bytes);
+    }
+
+    void refund(long bytes) {
+        if (used.addAndGet(-bytes) <= limit) {
+            wake();
+        }
+    }
+
+    private void wake() {
+        // accounts exceeded again are queued again, only the ones present now are reconsidered
+        final int waiting = pausedAccounts.size();
+        for (int i = 0; i < waiting; i++) {
+            final MemoryAccountImpl memoryAccount = pausedAccounts.poll();
+            if (memoryAccount == null) {
+                break;
+            }
+            memoryAccount.dequeued();
+        }
+    }
+
+    boolean isUnlimited() {
+        return limit == Long.MAX_VALUE;
+    }
+
+    boolean isExceeded() {
+        return used.get() > limit;
+    }
+
+    /**
+     * Account is reconsidered once the budget is no longer exceeded, the account must not be queued already.
+     */
+    void await(MemoryAccountImpl memoryAccount) {
+        pausedAccounts.add(memoryAccount);
+        if (!isExceeded()) {
+            // refund may have drained the queue before the account was added
+            wake();
+        }
+    }
+
+    /**
+     * Account closed while queued is not reconsidered.
+     */
+    void leave(MemoryAccountImpl memoryAccount) {
+        pausedAccounts.remove(memoryAccount);
+    }
+
+    /**
+     * @return number of accounts waiting for the budget
+     */
+    int waiting() {
+        return pausedAccounts.size();
+    }
+}
@@ -0,0 +1,85 @@
+/*
+ * Java Reliable Event Logging Protocol Library Server Implementation RLP-03
+ * Copyright (C) 2021-2024 Suomen Kanuuna Oy
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Affero General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Affero General Public License for more details.
+ *
+ * You should have received a copy of the GNU Affero General Public License
+ * along with this program.  If not, see <https://www.gnu.org/licenses/>.
+ *
+ *
+ * Additional permission under GNU Affero General Public License version 3
+ * section 7
+ *
+ * If you modify this Program, or any covered work, by linking or combining it
+ * with other code, such other code is not for that reason alone subject to any
+ * of the requirements of the GNU Affero GPL version 3 as long as this Program
+ * is the same Program as licensed from Suomen Kanuuna Oy without any additional
+ * modifications.
+ *
+ * Supplemented terms under GNU Affero General Public License version 3
+ * section 7
+ *
+ * Origin of the software must be attributed to Suomen Kanuuna Oy. Any modified
+ * versions must be marked as "Modified version of" The Program.
+ *
+ * Names of the licensors and authors may not be used for publicity purposes.
+ *
+ * No rights are granted for use of trade names, trademarks, or service marks
+ * which are in The Program if any.
+ *
+ * Licensee must indemnify licensors and authors for any liability that these
+ * contractual assumptions impose on licensors and authors.
+ *
+ * To the extent this program is licensed as part of the Commercial versions of
+ * Teragrep, the applicable Commercial License may apply to this file if you as
+ * a licensee so wish it.
+ */
+package com.teragrep.rlp_03.frame;
+
+import com.teragrep.rlp_03.frame.fragment.Fragment;
+
+import java.nio.ByteBuffer;
+
+/**
+ * Takes the payload of a frame from {@link FrameClock} as it arrives, so that the submitted buffers are not referenced
+ * by the frame.
+ */
+interface PayloadSink {
+
+    /**
+     * @return true if the payload of the frame is written to this sink
+     */
+    boolean begin(int txnId, CommandToken commandToken, int payloadLength);
+
+    void write(ByteBuffer input, int offset, int length);
+
+    /**
+     * @return true if the payload could not be written, the frame can not complete and the connection is closed
+     */
+    boolean writeFailed();
+
+    /**
+     * @return payload fragment of the completed frame
+     */
+    Fragment end();
+
+    /**
+     * @param relpFrame assembled with the payload returned by {@link #end()}
+     * @return frame that releases what the sink holds for its payload when closed
+     */
+    RelpFrame assembled(RelpFrame relpFrame);
+
+    /**
+     * Releases the payload of a frame that does not complete.
+     */
+    void discard();
+}
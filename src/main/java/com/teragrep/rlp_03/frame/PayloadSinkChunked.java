@@ -0,0 +1,151 @@
+/*
+ * Java Reliable Event Logging Protocol Library Server Implementation RLP-03
+ * Copyright (C) 2021-2024 Suomen Kanuuna Oy
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Affero General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Affero General Public License for more details.
+ *
+ * You should have received a copy of the GNU Affero General Public License
+ * along with this program.  If not, see <https://www.gnu.org/licenses/>.
+ *
+ *
+ * Additional permission under GNU Affero General Public License version 3
+ * section 7
+ *
+ * If you modify this Program, or any covered work, by linking or combining it
+ * with other code, such other code is not for that reason alone subject to any
+ * of the requirements of the GNU Affero GPL version 3 as long as this Program
+ * is the same Program as licensed from Suomen Kanuuna Oy without any additional
+ * modifications.
+ *
+ * Supplemented terms under GNU Affero General Public License version 3
+ * section 7
+ *
+ * Origin of the software must be attributed to Suomen Kanuuna Oy. Any modified
+ * versions must be marked as "Modified version of" The Program.
+ *
+ * Names of the licensors and authors may not be used for publicity purposes.
+ *
+ * No rights are granted for use of trade names, trademarks, or service marks
+ * which are in The Program if any.
+ *
+ * Licensee must indemnify licensors and authors for any liability that these
+ * contractual assumptions impose on licensors and authors.
+ *
+ * To the extent this program is licensed as part of the Commercial versions of
+ * Teragrep, the applicable Commercial License may apply to this file if you as
+ * a licensee so wish it.
+ */
+package com.teragrep.rlp_03.frame;
+
+import com.teragrep.rlp_03.frame.delegate.PayloadChunkConsumer;
+import com.teragrep.rlp_03.frame.delegate.PayloadChunkConsumerStub;
+import com.teragrep.rlp_03.frame.delegate.StreamingFrameDelegate;
+import com.teragrep.rlp_03.frame.fragment.Fragment;
+import com.teragrep.rlp_03.frame.fragment.FragmentOffsets;
+import com.teragrep.rlp_03.frame.fragment.FragmentStub;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.nio.ByteBuffer;
+
+/**
+ * Passes payloads to the {@link PayloadChunkConsumer} of the {@link StreamingFrameDelegate} for the command. The
+ * assembled frame has an empty payload, or a stub payload if the consumer failed. Remaining chunks of a frame are
+ * discarded after a failure.
+ */
+final class PayloadSinkChunked implements PayloadSink {
+
+    private static final Logger LOGGER = LoggerFactory.getLogger(PayloadSinkChunked.class);
+    private static final Fragment emptyPayload = new FragmentOffsets(new ByteBuffer[0], new int[0], 0, 0, 0);
+    private static final Fragment failedPayload = new FragmentStub();
+
+    private final StreamingFrameDelegate streamingFrameDelegate;
+    private PayloadChunkConsumer payloadChunkConsumer;
+    private int txnId;
+    private boolean failed;
+
+    PayloadSinkChunked(StreamingFrameDelegate streamingFrameDelegate) {
+        this.streamingFrameDelegate = streamingFrameDelegate;
+        this.payloadChunkConsumer = new PayloadChunkConsumerStub();
+        this.txnId = 0;
+        this.failed = false;
+    }
+
+    @Override
+    public boolean begin(int txnId, CommandToken commandToken, int payloadLength) {
+        this.payloadChunkConsumer = streamingFrameDelegate.payloadChunkConsumer(commandToken);
+        this.txnId = txnId;
+        this.failed = false;
+
+        boolean rv;
+        if (payloadChunkConsumer.isStub()) {
+            rv = false;
+        }
+        else {
+            try {
+                rv = payloadChunkConsumer.begin(txnId, payloadLength);
+            }
+            catch (RuntimeException runtimeException) {
+                fail(runtimeException);
+                rv = true;
+            }
+        }
+        return rv;
+    }
+
+    @Override
+    public void write(ByteBuffer input, int offset, int length) {
+        if (!failed) {
+            final ByteBuffer chunk = input.asReadOnlyBuffer();
+            chunk.limit(offset + length);
+            chunk.position(offset);
+            try {
+                payloadChunkConsumer.accept(chunk);
+            }
+            catch (RuntimeException runtimeException) {
+                fail(runtimeException);
+            }
+        }
+    }
+
+    @Override
+    public boolean writeFailed() {
+        // failure of the consumer stays with the frame
+        return false;
+    }
+
+    @Override
+    public Fragment end() {
+        final Fragment rv;
+        if (failed) {
+            rv = failedPayload;
+        }
+        else {
+            rv = emptyPayload;
+        }
+        return rv;
+    }
+
+    @Override
+    public RelpFrame assembled(RelpFrame relpFrame) {
+        return relpFrame;
+    }
+
+    @Override
+    public void discard() {
+        // chunks are already passed to the consumer
+    }
+
+    private void fail(RuntimeException runtimeException) {
+        LOGGER.error("payload chunk consumer failed on txn <{}>", txnId, runtimeException);
+        failed = true;
+    }
+}
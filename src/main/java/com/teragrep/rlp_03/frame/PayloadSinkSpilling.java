@@ -0,0 +1,139 @@
+/*
+ * Java Reliable Event Logging Protocol Library Server Implementation RLP-03
+ * Copyright (C) 2021-2024 Suomen Kanuuna Oy
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Affero General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Affero General Public License for more details.
+ *
+ * You should have received a copy of the GNU Affero General Public License
+ * along with this program.  If not, see <https://www.gnu.org/licenses/>.
+ *
+ *
+ * Additional permission under GNU Affero General Public License version 3
+ * section 7
+ *
+ * If you modify this Program, or any covered work, by linking or combining it
+ * with other code, such other code is not for that reason alone subject to any
+ * of the requirements of the GNU Affero GPL version 3 as long as this Program
+ * is the same Program as licensed from Suomen Kanuuna Oy without any additional
+ * modifications.
+ *
+ * Supplemented terms under GNU Affero General Public License version 3
+ * section 7
+ *
+ * Origin of the software must be attributed to Suomen Kanuuna Oy. Any modified
+ * versions must be marked as "Modified version of" The Program.
+ *
+ * Names of the licensors and authors may not be used for publicity purposes.
+ *
+ * No rights are granted for use of trade names, trademarks, or service marks
+ * which are in The Program if any.
+ *
+ * Licensee must indemnify licensors and authors for any liability that these
+ * contractual assumptions impose on licensors and authors.
+ *
+ * To the extent this program is licensed as part of the Commercial versions of
+ * Teragrep, the applicable Commercial License may apply to this file if you as
+ * a licensee so wish it.
+ */
+package com.teragrep.rlp_03.frame;
+
+import com.teragrep.rlp_03.frame.fragment.Fragment;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.file.Path;
+
+/**
+ * Writes payloads longer than the threshold into a {@link SpillFile} with plain channel writes, no mapping is held. The
+ * file is closed when the frame is closed, or when the frame does not complete. A failure of the file is reported by
+ * {@link #writeFailed()}, which closes the connection.
+ */
+final class PayloadSinkSpilling implements PayloadSink {
+
+    private static final Logger LOGGER = LoggerFactory.getLogger(PayloadSinkSpilling.class);
+    private static final SpillFile spillFileStub = new SpillFileStub();
+
+    private final int threshold;
+    private final Path directory;
+    private SpillFile spillFile;
+    private int txnId;
+    private boolean failed;
+
+    PayloadSinkSpilling(int threshold, Path directory) {
+        this.threshold = threshold;
+        this.directory = directory;
+        this.spillFile = spillFileStub;
+        this.txnId = 0;
+        this.failed = false;
+    }
+
+    @Override
+    public boolean begin(int txnId, CommandToken commandToken, int payloadLength) {
+        this.txnId = txnId;
+        this.failed = false;
+        final boolean rv = payloadLength > threshold;
+        if (rv) {
+            try {
+                spillFile = new SpillFileImpl(directory, payloadLength);
+            }
+            catch (IOException ioException) {
+                fail(ioException);
+            }
+        }
+        return rv;
+    }
+
+    @Override
+    public void write(ByteBuffer input, int offset, int length) {
+        if (!failed) {
+            final ByteBuffer chunk = input.duplicate();
+            chunk.limit(offset + length);
+            chunk.position(offset);
+            try {
+                spillFile.write(chunk);
+            }
+            catch (IOException ioException) {
+                fail(ioException);
+            }
+        }
+    }
+
+    @Override
+    public boolean writeFailed() {
+        return failed;
+    }
+
+    @Override
+    public Fragment end() {
+        return spillFile.fragment();
+    }
+
+    @Override
+    public RelpFrame assembled(RelpFrame relpFrame) {
+        final RelpFrame rv = new RelpFrameSpilled(relpFrame, spillFile);
+        spillFile = spillFileStub;
+        return rv;
+    }
+
+    @Override
+    public void discard() {
+        spillFile.close();
+        spillFile = spillFileStub;
+    }
+
+    private void fail(IOException ioException) {
+        LOGGER.error("spilling payload of txn <{}> failed", txnId, ioException);
+        failed = true;
+        discard();
+    }
+}
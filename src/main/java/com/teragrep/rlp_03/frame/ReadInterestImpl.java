@@ -0,0 +1,119 @@
+/*
+ * Java Reliable Event Logging Protocol Library Server Implementation RLP-03
+ * Copyright (C) 2021-2024 Suomen Kanuuna Oy
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Affero General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Affero General Public License for more details.
+ *
+ * You should have received a copy of the GNU Affero General Public License
+ * along with this program.  If not, see <https://www.gnu.org/licenses/>.
+ *
+ *
+ * Additional permission under GNU Affero General Public License version 3
+ * section 7
+ *
+ * If you modify this Program, or any covered work, by linking or combining it
+ * with other code, such other code is not for that reason alone subject to any
+ * of the requirements of the GNU Affero GPL version 3 as long as this Program
+ * is the same Program as licensed from Suomen Kanuuna Oy without any additional
+ * modifications.
+ *
+ * Supplemented terms under GNU Affero General Public License version 3
+ * section 7
+ *
+ * Origin of the software must be attributed to Suomen Kanuuna Oy. Any modified
+ * versions must be marked as "Modified version of" The Program.
+ *
+ * Names of the licensors and authors may not be used for publicity purposes.
+ *
+ * No rights are granted for use of trade names, trademarks, or service marks
+ * which are in The Program if any.
+ *
+ * Licensee must indemnify licensors and authors for any liability that these
+ * contractual assumptions impose on licensors and authors.
+ *
+ * To the extent this program is licensed as part of the Commercial versions of
+ * Teragrep, the applicable Commercial License may apply to this file if you as
+ * a licensee so wish it.
+ */
+package com.teragrep.rlp_03.frame;
+
+import com.teragrep.net_01.channel.buffer.BufferLease;
+import com.teragrep.net_01.channel.context.Clock;
+import com.teragrep.net_01.channel.context.EstablishedContext;
+
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Pauses reading by unregistering the clock from the ingress. Buffers the ingress still holds would not be submitted
+ * again until more data arrives, so the clock is unregistered only after a buffer is fully consumed. The ingress reads
+ * into one buffer at a time and holds nothing once it is consumed, whether the read filled the buffer or not.
+ */
+final class ReadInterestImpl implements ReadInterest {
+
+    private final EstablishedContext establishedContext;
+    private final Clock clock;
+    private final AtomicInteger pauses;
+    private final AtomicBoolean unregistered;
+    private final AtomicBoolean terminated;
+
+    ReadInterestImpl(EstablishedContext establishedContext, Clock clock) {
+        this.establishedContext = establishedContext;
+        this.clock = clock;
+        this.pauses = new AtomicInteger();
+        this.unregistered = new AtomicBoolean();
+        this.terminated = new AtomicBoolean();
+    }
+
+    @Override
+    public void pause() {
+        pauses.incrementAndGet();
+    }
+
+    @Override
+    public void resume() {
+        if (pauses.decrementAndGet() == 0) {
+            register();
+        }
+    }
+
+    /**
+     * Unregisters the clock if paused and the submitted buffer allows it, called by the clock after each submit.
+     */
+    void safePoint(BufferLease bufferLease) {
+        if (pauses.get() > 0 && !bufferLease.buffer().hasRemaining()) {
+            establishedContext.ingress().unregister(clock);
+            unregistered.set(true);
+            // resume may have happened before unregistered was set
+            if (pauses.get() == 0) {
+                register();
+            }
+        }
+    }
+
+    /**
+     * Clock has unregistered for good, pending pauses will not register it again.
+     */
+    void terminate() {
+        terminated.set(true);
+    }
+
+    private void register() {
+        if (!terminated.get() && unregistered.compareAndSet(true, false)) {
+            establishedContext.ingress().register(clock);
+        }
+    }
+
+    @Override
+    public boolean isStub() {
+        return false;
+    }
+}
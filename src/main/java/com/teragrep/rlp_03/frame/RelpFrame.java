@@ -52,10 +52,25 @@ public interface RelpFrame extends AutoCloseable {
 
     Fragment txn();
 
+    /**
+     * @return txn as a number, decoded once when the frame was created
+     */
+    int txnId();
+
     Fragment command();
 
+    /**
+     * @return command as a {@link CommandToken}, recognised once when the frame was created
+     */
+    CommandToken commandToken();
+
     Fragment payloadLength();
 
+    /**
+     * @return payloadLength as a number, decoded once when the frame was created
+     */
+    int payloadLengthValue();
+
     Fragment payload();
 
     Fragment endOfTransfer();
@@ -48,6 +48,7 @@ package com.teragrep.rlp_03.frame;
 import com.teragrep.net_01.channel.buffer.writable.Writeable;
 import com.teragrep.net_01.channel.buffer.writable.WriteableAccess;
 import com.teragrep.net_01.channel.buffer.access.Access;
+import com.teragrep.net_01.channel.buffer.access.Lease;
 import com.teragrep.rlp_03.frame.fragment.Fragment;
 import com.teragrep.rlp_03.frame.fragment.FragmentAccess;
 
@@ -78,16 +79,38 @@ public final class RelpFrameAccess implements RelpFrame {
         return txn;
     }
 
+    @Override
+    public int txnId() {
+        // recycled frames are reused once closed
+        try (Lease ignored = access.get()) {
+            return relpFrame.txnId();
+        }
+    }
+
     @Override
     public Fragment command() {
         return command;
     }
 
+    @Override
+    public CommandToken commandToken() {
+        try (Lease ignored = access.get()) {
+            return relpFrame.commandToken();
+        }
+    }
+
     @Override
     public Fragment payloadLength() {
         return payloadLength;
     }
 
+    @Override
+    public int payloadLengthValue() {
+        try (Lease ignored = access.get()) {
+            return relpFrame.payloadLengthValue();
+        }
+    }
+
     @Override
     public Fragment payload() {
         return payload;
@@ -71,7 +71,10 @@ public final class RelpFrameFactory {
                 commandFragment,
                 payloadLengthFragment,
                 payloadFragment,
-                endOfTransferFragment
+                endOfTransferFragment,
+                0,
+                CommandToken.of(commandFragment.toBytes()),
+                (int) payloadFragment.size()
         );
     }
 
@@ -85,7 +88,10 @@ public final class RelpFrameFactory {
                 commandFragment,
                 payloadLengthFragment,
                 payloadFragment,
-                endOfTransferFragment
+                endOfTransferFragment,
+                txnFragment.toInt(),
+                CommandToken.of(commandFragment.toBytes()),
+                (int) payloadFragment.size()
         );
     }
 }
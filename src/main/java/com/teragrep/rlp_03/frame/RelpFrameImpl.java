@@ -57,6 +57,9 @@ public final class RelpFrameImpl implements RelpFrame {
     private final Fragment payloadLength;
     private final Fragment payload;
     private final Fragment endOfTransfer;
+    private final int txnId;
+    private final CommandToken commandToken;
+    private final int payloadLengthValue;
     private static final Fragment space = new FragmentFactory().create(" ");
 
     public RelpFrameImpl(
@@ -65,12 +68,42 @@ public final class RelpFrameImpl implements RelpFrame {
             Fragment payloadLength,
             Fragment payload,
             Fragment endOfTransfer
+    ) {
+        this(
+                txn,
+                command,
+                payloadLength,
+                payload,
+                endOfTransfer,
+                txn.isStub() ? 0 : txn.toInt(),
+                command.isStub() ? CommandToken.CUSTOM : CommandToken.of(command.toBytes()),
+                payloadLength.isStub() ? 0 : payloadLength.toInt()
+        );
+    }
+
+    /**
+     * @param txnId              decoded value of txn, must match the txn fragment
+     * @param commandToken       token of command, must match the command fragment
+     * @param payloadLengthValue decoded value of payloadLength, must match the payloadLength fragment
+     */
+    public RelpFrameImpl(
+            Fragment txn,
+            Fragment command,
+            Fragment payloadLength,
+            Fragment payload,
+            Fragment endOfTransfer,
+            int txnId,
+            CommandToken commandToken,
+            int payloadLengthValue
     ) {
         this.txn = txn;
         this.command = command;
         this.payloadLength = payloadLength;
         this.payload = payload;
         this.endOfTransfer = endOfTransfer;
+        this.txnId = txnId;
+        this.commandToken = commandToken;
+        this.payloadLengthValue = payloadLengthValue;
     }
 
     @Override
@@ -78,16 +111,37 @@ public final class RelpFrameImpl implements RelpFrame {
         return txn;
     }
 
+    @Override
+    public int txnId() {
+        if (txn.isStub()) {
+            throw new IllegalStateException("txn is a stub, txnId not available");
+        }
+        return txnId;
+    }
+
     @Override
     public Fragment command() {
         return command;
     }
 
+    @Override
+    public CommandToken commandToken() {
+        return commandToken;
+    }
+
     @Override
     public Fragment payloadLength() {
         return payloadLength;
     }
 
+    @Override
+    public int payloadLengthValue() {
+        if (payloadLength.isStub()) {
+            throw new IllegalStateException("payloadLength is a stub, payloadLengthValue not available");
+        }
+        return payloadLengthValue;
+    }
+
     @Override
     public Fragment payload() {
         return payload;
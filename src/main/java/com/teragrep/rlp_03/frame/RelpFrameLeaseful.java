@@ -59,13 +59,24 @@ public final class RelpFrameLeaseful implements RelpFrame {
 
     private static final Logger LOGGER = LoggerFactory.getLogger(RelpFrameLeaseful.class);
 
+    private static final MemoryAccount memoryAccountStub = new MemoryAccountStub();
+
     private final RelpFrame relpFrame;
 
     private final List<BufferLease> leases;
+    private final MemoryAccount memoryAccount;
 
     public RelpFrameLeaseful(RelpFrame relpFrame, List<BufferLease> leases) {
+        this(relpFrame, leases, memoryAccountStub);
+    }
+
+    /**
+     * @param memoryAccount holds the leases, each is released on close
+     */
+    RelpFrameLeaseful(RelpFrame relpFrame, List<BufferLease> leases, MemoryAccount memoryAccount) {
         this.relpFrame = relpFrame;
         this.leases = leases;
+        this.memoryAccount = memoryAccount;
     }
 
     @Override
@@ -73,16 +84,31 @@ public final class RelpFrameLeaseful implements RelpFrame {
         return relpFrame.txn();
     }
 
+    @Override
+    public int txnId() {
+        return relpFrame.txnId();
+    }
+
     @Override
     public Fragment command() {
         return relpFrame.command();
     }
 
+    @Override
+    public CommandToken commandToken() {
+        return relpFrame.commandToken();
+    }
+
     @Override
     public Fragment payloadLength() {
         return relpFrame.payloadLength();
     }
 
+    @Override
+    public int payloadLengthValue() {
+        return relpFrame.payloadLengthValue();
+    }
+
     @Override
     public Fragment payload() {
         return relpFrame.payload();
@@ -106,6 +132,9 @@ public final class RelpFrameLeaseful implements RelpFrame {
             if (LOGGER.isDebugEnabled()) {
                 LOGGER.debug("releasing id <{}> with refs <{}>", bufferLease.id(), bufferLease.refs());
             }
+            if (!memoryAccount.isStub()) {
+                memoryAccount.release(bufferLease);
+            }
             bufferLease.removeRef();
         }
     }
@@ -0,0 +1,224 @@
+/*
+ * Java Reliable Event Logging Protocol Library Server Implementation RLP-03
+ * Copyright (C) 2021-2024 Suomen Kanuuna Oy
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Affero General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Affero General Public License for more details.
+ *
+ * You should have received a copy of the GNU Affero General Public License
+ * along with this program.  If not, see <https://www.gnu.org/licenses/>.
+ *
+ *
+ * Additional permission under GNU Affero General Public License version 3
+ * section 7
+ *
+ * If you modify this Program, or any covered work, by linking or combining it
+ * with other code, such other code is not for that reason alone subject to any
+ * of the requirements of the GNU Affero GPL version 3 as long as this Program
+ * is the same Program as licensed from Suomen Kanuuna Oy without any additional
+ * modifications.
+ *
+ * Supplemented terms under GNU Affero General Public License version 3
+ * section 7
+ *
+ * Origin of the software must be attributed to Suomen Kanuuna Oy. Any modified
+ * versions must be marked as "Modified version of" The Program.
+ *
+ * Names of the licensors and authors may not be used for publicity purposes.
+ *
+ * No rights are granted for use of trade names, trademarks, or service marks
+ * which are in The Program if any.
+ *
+ * Licensee must indemnify licensors and authors for any liability that these
+ * contractual assumptions impose on licensors and authors.
+ *
+ * To the extent this program is licensed as part of the Commercial versions of
+ * Teragrep, the applicable Commercial License may apply to this file if you as
+ * a licensee so wish it.
+ */
+package com.teragrep.rlp_03.frame;
+
+import com.teragrep.net_01.channel.buffer.BufferLease;
+import com.teragrep.net_01.channel.buffer.writable.Writeable;
+import com.teragrep.net_01.channel.buffer.writable.WriteableInvalidation;
+import com.teragrep.net_01.channel.buffer.writable.WriteableLeaseful;
+import com.teragrep.net_01.channel.buffer.writable.Writeables;
+import com.teragrep.rlp_03.frame.fragment.Fragment;
+import com.teragrep.rlp_03.frame.fragment.FragmentFactory;
+
+import java.nio.ByteBuffer;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * Frame owned by a {@link FrameArena}. Holds the leases of the buffers it was parsed from like
+ * {@link RelpFrameLeaseful}, and returns to the arena on {@link #close()} after releasing them. It must be accessed
+ * through {@link RelpFrameAccess} so that references kept after close are guarded.
+ */
+final class RelpFrameRecycled implements RelpFrame {
+
+    private static final Fragment space = new FragmentFactory().create(" ");
+    private static final Fragment endOfTransfer = new FragmentFactory().create("\n");
+
+    private final FrameArena frameArena;
+
+    private final FragmentRecycled txn;
+    private final FragmentRecycled command;
+    private final FragmentRecycled payloadLength;
+    private final FragmentRecycled payload;
+
+    private ByteBuffer[] buffers;
+    private int bufferCount;
+    private int[] table;
+    private BufferLease[] leases;
+    private int leaseCount;
+
+    private int txnId;
+    private CommandToken commandToken;
+    private int payloadLengthValue;
+
+    RelpFrameRecycled(FrameArena frameArena) {
+        this.frameArena = frameArena;
+        this.txn = new FragmentRecycled();
+        this.command = new FragmentRecycled();
+        this.payloadLength = new FragmentRecycled();
+        this.payload = new FragmentRecycled();
+        this.buffers = new ByteBuffer[2];
+        this.bufferCount = 0;
+        this.table = new int[3 * 8];
+        this.leases = new BufferLease[2];
+        this.leaseCount = 0;
+        this.txnId = 0;
+        this.commandToken = CommandToken.CUSTOM;
+        this.payloadLengthValue = 0;
+    }
+
+    void ranges(
+            ByteBuffer[] rangeBuffers,
+            int rangeBufferCount,
+            int[] rangeTable,
+            int rangeCount,
+            int[] fieldEnds,
+            int[] fieldLengths
+    ) {
+        if (buffers.length < rangeBufferCount) {
+            buffers = new ByteBuffer[rangeBufferCount];
+        }
+        if (table.length < rangeCount * 3) {
+            table = new int[rangeCount * 3];
+        }
+        System.arraycopy(rangeBuffers, 0, buffers, 0, rangeBufferCount);
+        System.arraycopy(rangeTable, 0, table, 0, rangeCount * 3);
+        bufferCount = rangeBufferCount;
+
+        txn.reset(buffers, table, 0, fieldEnds[0], fieldLengths[0]);
+        command.reset(buffers, table, fieldEnds[0], fieldEnds[1], fieldLengths[1]);
+        payloadLength.reset(buffers, table, fieldEnds[1], fieldEnds[2], fieldLengths[2]);
+        payload.reset(buffers, table, fieldEnds[2], fieldEnds[3], fieldLengths[3]);
+    }
+
+    void header(int txnId, CommandToken commandToken, int payloadLengthValue) {
+        this.txnId = txnId;
+        this.commandToken = commandToken;
+        this.payloadLengthValue = payloadLengthValue;
+    }
+
+    void lease(BufferLease bufferLease) {
+        if (leaseCount == leases.length) {
+            leases = Arrays.copyOf(leases, leaseCount * 2);
+        }
+        leases[leaseCount] = bufferLease;
+        leaseCount++;
+    }
+
+    @Override
+    public Fragment txn() {
+        return txn;
+    }
+
+    @Override
+    public int txnId() {
+        return txnId;
+    }
+
+    @Override
+    public Fragment command() {
+        return command;
+    }
+
+    @Override
+    public CommandToken commandToken() {
+        return commandToken;
+    }
+
+    @Override
+    public Fragment payloadLength() {
+        return payloadLength;
+    }
+
+    @Override
+    public int payloadLengthValue() {
+        return payloadLengthValue;
+    }
+
+    @Override
+    public Fragment payload() {
+        return payload;
+    }
+
+    @Override
+    public Fragment endOfTransfer() {
+        return endOfTransfer;
+    }
+
+    @Override
+    public boolean isStub() {
+        return false;
+    }
+
+    @Override
+    public void close() {
+        for (int i = 0; i < leaseCount; i++) {
+            leases[i].removeRef();
+        }
+        Arrays.fill(leases, 0, leaseCount, null);
+        leaseCount = 0;
+        Arrays.fill(buffers, 0, bufferCount, null);
+        bufferCount = 0;
+        frameArena.release(this);
+    }
+
+    @Override
+    public Writeable toWriteable() {
+        final List<BufferLease> writeableLeases = new ArrayList<>(leaseCount);
+        for (int i = 0; i < leaseCount; i++) {
+            leases[i].addRef();
+            writeableLeases.add(leases[i]);
+        }
+        final Writeable[] writeables = new Writeable[] {
+                txn.toWriteable(),
+                space.toWriteable(),
+                command.toWriteable(),
+                space.toWriteable(),
+                payloadLength.toWriteable(),
+                space.toWriteable(),
+                payload.toWriteable(),
+                endOfTransfer.toWriteable()
+        };
+        return new WriteableInvalidation(new WriteableLeaseful(new Writeables(writeables), writeableLeases));
+    }
+
+    @Override
+    public String toString() {
+        return "RelpFrameRecycled{" + "txn=" + txn + ", command=" + command + ", payloadLength=" + payloadLength
+                + ", payload=" + payload + ", endOfTransfer=" + endOfTransfer + '}';
+    }
+}
@@ -55,16 +55,31 @@ public final class RelpFrameStub implements RelpFrame {
         throw new IllegalStateException("RelpFrameStub does not allow this method");
     }
 
+    @Override
+    public int txnId() {
+        throw new IllegalStateException("RelpFrameStub does not allow this method");
+    }
+
     @Override
     public Fragment command() {
         throw new IllegalStateException("RelpFrameStub does not allow this method");
     }
 
+    @Override
+    public CommandToken commandToken() {
+        throw new IllegalStateException("RelpFrameStub does not allow this method");
+    }
+
     @Override
     public Fragment payloadLength() {
         throw new IllegalStateException("RelpFrameStub does not allow this method");
     }
 
+    @Override
+    public int payloadLengthValue() {
+        throw new IllegalStateException("RelpFrameStub does not allow this method");
+    }
+
     @Override
     public Fragment payload() {
         throw new IllegalStateException("RelpFrameStub does not allow this method");
@@ -0,0 +1,123 @@
+/*
+ * Java Reliable Event Logging Protocol Library Server Implementation RLP-03
+ * Copyright (C) 2021-2024 Suomen Kanuuna Oy
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Affero General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Affero General Public License for more details.
+ *
+ * You should have received a copy of the GNU Affero General Public License
+ * along with this program.  If not, see <https://www.gnu.org/licenses/>.
+ *
+ *
+ * Additional permission under GNU Affero General Public License version 3
+ * section 7
+ *
+ * If you modify this Program, or any covered work, by linking or combining it
+ * with other code, such other code is not for that reason alone subject to any
+ * of the requirements of the GNU Affero GPL version 3 as long as this Program
+ * is the same Program as licensed from Suomen Kanuuna Oy without any additional
+ * modifications.
+ *
+ * Supplemented terms under GNU Affero General Public License version 3
+ * section 7
+ *
+ * Origin of the software must be attributed to Suomen Kanuuna Oy. Any modified
+ * versions must be marked as "Modified version of" The Program.
+ *
+ * Names of the licensors and authors may not be used for publicity purposes.
+ *
+ * No rights are granted for use of trade names, trademarks, or service marks
+ * which are in The Program if any.
+ *
+ * Licensee must indemnify licensors and authors for any liability that these
+ * contractual assumptions impose on licensors and authors.
+ *
+ * To the extent this program is licensed as part of the Commercial versions of
+ * Teragrep, the applicable Commercial License may apply to this file if you as
+ * a licensee so wish it.
+ */
+package com.teragrep.rlp_03.frame;
+
+import com.teragrep.rlp_03.frame.fragment.Fragment;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+/**
+ * The file is unlinked right after it is opened where the platform allows it, otherwise it is deleted on close. Its
+ * space is freed once the channel is closed.
+ */
+final class SpillFileImpl implements SpillFile {
+
+    private static final Logger LOGGER = LoggerFactory.getLogger(SpillFileImpl.class);
+
+    private final FileChannel fileChannel;
+    private final int size;
+    private final AtomicBoolean closed;
+
+    SpillFileImpl(Path directory, int size) throws IOException {
+        this(open(directory), size);
+    }
+
+    SpillFileImpl(FileChannel fileChannel, int size) {
+        this.fileChannel = fileChannel;
+        this.size = size;
+        this.closed = new AtomicBoolean();
+    }
+
+    private static FileChannel open(Path directory) throws IOException {
+        final Path file = Files.createTempFile(directory, "rlp_03-payload-", ".tmp");
+        final FileChannel rv = FileChannel
+                .open(file, StandardOpenOption.READ, StandardOpenOption.WRITE, StandardOpenOption.DELETE_ON_CLOSE);
+        try {
+            Files.delete(file);
+        }
+        catch (IOException ioException) {
+            LOGGER.debug("spill file <{}> is deleted on close", file, ioException);
+        }
+        return rv;
+    }
+
+    @Override
+    public void write(ByteBuffer chunk) throws IOException {
+        while (chunk.hasRemaining()) {
+            fileChannel.write(chunk);
+        }
+    }
+
+    @Override
+    public Fragment fragment() {
+        return new FragmentSpilled(fileChannel, size);
+    }
+
+    @Override
+    public void close() {
+        if (closed.compareAndSet(false, true)) {
+            try {
+                fileChannel.close();
+            }
+            catch (IOException ioException) {
+                LOGGER.warn("closing spill file failed", ioException);
+            }
+        }
+    }
+
+    @Override
+    public boolean isStub() {
+        return false;
+    }
+}
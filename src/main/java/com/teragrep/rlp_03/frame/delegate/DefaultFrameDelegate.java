@@ -45,6 +45,7 @@
  */
 package com.teragrep.rlp_03.frame.delegate;
 
+import com.teragrep.rlp_03.frame.CommandToken;
 import com.teragrep.rlp_03.frame.delegate.event.RelpEvent;
 import com.teragrep.rlp_03.frame.delegate.event.RelpEventClose;
 import com.teragrep.rlp_03.frame.delegate.event.RelpEventOpen;
@@ -54,8 +55,9 @@ import java.util.HashMap;
 import java.util.Map;
 import java.util.function.Consumer;
 
-public final class DefaultFrameDelegate implements FrameDelegate {
+public final class DefaultFrameDelegate implements StreamingFrameDelegate {
 
+    private final StreamingFrameDelegate eventDelegate;
     private final FrameDelegate frameDelegate;
 
     public DefaultFrameDelegate(Consumer<FrameContext> cbFunction) {
@@ -64,11 +66,13 @@ public final class DefaultFrameDelegate implements FrameDelegate {
         relpCommandConsumerMap.put("open", new RelpEventOpen());
         relpCommandConsumerMap.put("syslog", new RelpEventSyslog(cbFunction));
 
-        this.frameDelegate = new SequencingDelegate(new EventDelegate(relpCommandConsumerMap));
+        this.eventDelegate = new EventDelegate(relpCommandConsumerMap);
+        this.frameDelegate = new SequencingDelegate(eventDelegate);
     }
 
     public DefaultFrameDelegate(Map<String, RelpEvent> relpCommandConsumerMap) {
-        this.frameDelegate = new SequencingDelegate(new EventDelegate(relpCommandConsumerMap));
+        this.eventDelegate = new EventDelegate(relpCommandConsumerMap);
+        this.frameDelegate = new SequencingDelegate(eventDelegate);
     }
 
     @Override
@@ -76,6 +80,11 @@ public final class DefaultFrameDelegate implements FrameDelegate {
         return frameDelegate.accept(frameContext);
     }
 
+    @Override
+    public PayloadChunkConsumer payloadChunkConsumer(CommandToken commandToken) {
+        return eventDelegate.payloadChunkConsumer(commandToken);
+    }
+
     @Override
     public void close() throws Exception {
         frameDelegate.close();
@@ -45,38 +45,71 @@
  */
 package com.teragrep.rlp_03.frame.delegate;
 
+import com.teragrep.rlp_03.frame.CommandToken;
 import com.teragrep.rlp_03.frame.delegate.event.RelpEvent;
 import com.teragrep.rlp_03.frame.delegate.event.RelpEventServerClose;
 
 import java.util.Map;
 import java.util.function.Consumer;
 
-public final class EventDelegate implements FrameDelegate {
+/**
+ * Dispatches frames to {@link RelpEvent}s by command. Well-known commands are dispatched by their {@link CommandToken},
+ * other commands are looked up by name. The events are resolved when the delegate is created.
+ */
+public final class EventDelegate implements StreamingFrameDelegate {
 
     private final Map<String, RelpEvent> relpEventMap;
     private final RelpEvent relpEventServerClose;
+    private final RelpEvent[] relpEventsByToken;
+    private final PayloadChunkConsumer payloadChunkConsumerStub;
 
     public EventDelegate(Map<String, RelpEvent> relpEventMap) {
         this.relpEventMap = relpEventMap;
         this.relpEventServerClose = new RelpEventServerClose();
+        this.payloadChunkConsumerStub = new PayloadChunkConsumerStub();
+        this.relpEventsByToken = new RelpEvent[CommandToken.values().length];
+        for (CommandToken commandToken : CommandToken.values()) {
+            relpEventsByToken[commandToken.ordinal()] = relpEventMap
+                    .getOrDefault(commandToken.command(), relpEventServerClose);
+        }
     }
 
     @Override
     public boolean accept(FrameContext frameContext) {
         boolean rv = true;
-        String relpCommand = frameContext.relpFrame().command().toString();
+        final CommandToken commandToken = frameContext.relpFrame().commandToken();
 
-        Consumer<FrameContext> commandConsumer = relpEventMap.getOrDefault(relpCommand, relpEventServerClose);
+        final Consumer<FrameContext> commandConsumer;
+        if (commandToken == CommandToken.CUSTOM) {
+            String relpCommand = frameContext.relpFrame().command().toString();
+            commandConsumer = relpEventMap.getOrDefault(relpCommand, relpEventServerClose);
+        }
+        else {
+            commandConsumer = relpEventsByToken[commandToken.ordinal()];
+        }
 
         commandConsumer.accept(frameContext);
 
-        if ("close".equals(relpCommand)) {
+        if (commandToken == CommandToken.CLOSE) {
             // TODO refactor commandConsumer to return indication of further reads
             rv = false;
         }
         return rv;
     }
 
+    @Override
+    public PayloadChunkConsumer payloadChunkConsumer(CommandToken commandToken) {
+        final PayloadChunkConsumer payloadChunkConsumer;
+        if (commandToken == CommandToken.CUSTOM) {
+            // custom commands are resolved by name, which is not known before the frame is complete
+            payloadChunkConsumer = payloadChunkConsumerStub;
+        }
+        else {
+            payloadChunkConsumer = relpEventsByToken[commandToken.ordinal()].payloadChunkConsumer();
+        }
+        return payloadChunkConsumer;
+    }
+
     @Override
     public void close() throws Exception {
         for (AutoCloseable autoCloseable : relpEventMap.values()) {
@@ -46,16 +46,26 @@
 package com.teragrep.rlp_03.frame.delegate;
 
 import com.teragrep.net_01.channel.context.EstablishedContext;
+import com.teragrep.rlp_03.frame.ReadInterest;
+import com.teragrep.rlp_03.frame.ReadInterestStub;
 import com.teragrep.rlp_03.frame.RelpFrame;
 
 public final class FrameContext {
 
+    private static final ReadInterest readInterestStub = new ReadInterestStub();
+
     private final EstablishedContext establishedContext;
     private final RelpFrame relpFrame;
+    private final ReadInterest readInterest;
 
     public FrameContext(EstablishedContext establishedContext, RelpFrame relpFrame) {
+        this(establishedContext, relpFrame, readInterestStub);
+    }
+
+    public FrameContext(EstablishedContext establishedContext, RelpFrame relpFrame, ReadInterest readInterest) {
         this.establishedContext = establishedContext;
         this.relpFrame = relpFrame;
+        this.readInterest = readInterest;
     }
 
     public EstablishedContext establishedContext() {
@@ -66,4 +76,11 @@ public final class FrameContext {
         return relpFrame;
     }
 
+    /**
+     * @return read interest of the connection, stub if the clock does not provide one
+     */
+    public ReadInterest readInterest() {
+        return readInterest;
+    }
+
 }
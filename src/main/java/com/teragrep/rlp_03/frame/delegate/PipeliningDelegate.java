@@ -0,0 +1,338 @@
+/*
+ * Java Reliable Event Logging Protocol Library Server Implementation RLP-03
+ * Copyright (C) 2021-2024 Suomen Kanuuna Oy
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Affero General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Affero General Public License for more details.
+ *
+ * You should have received a copy of the GNU Affero General Public License
+ * along with this program.  If not, see <https://www.gnu.org/licenses/>.
+ *
+ *
+ * Additional permission under GNU Affero General Public License version 3
+ * section 7
+ *
+ * If you modify this Program, or any covered work, by linking or combining it
+ * with other code, such other code is not for that reason alone subject to any
+ * of the requirements of the GNU Affero GPL version 3 as long as this Program
+ * is the same Program as licensed from Suomen Kanuuna Oy without any additional
+ * modifications.
+ *
+ * Supplemented terms under GNU Affero General Public License version 3
+ * section 7
+ *
+ * Origin of the software must be attributed to Suomen Kanuuna Oy. Any modified
+ * versions must be marked as "Modified version of" The Program.
+ *
+ * Names of the licensors and authors may not be used for publicity purposes.
+ *
+ * No rights are granted for use of trade names, trademarks, or service marks
+ * which are in The Program if any.
+ *
+ * Licensee must indemnify licensors and authors for any liability that these
+ * contractual assumptions impose on licensors and authors.
+ *
+ * To the extent this program is licensed as part of the Commercial versions of
+ * Teragrep, the applicable Commercial License may apply to this file if you as
+ * a licensee so wish it.
+ */
+package com.teragrep.rlp_03.frame.delegate;
+
+import com.teragrep.net_01.channel.buffer.writable.WriteableClosure;
+import com.teragrep.rlp_03.frame.CommandToken;
+import com.teragrep.rlp_03.frame.ReadInterest;
+import com.teragrep.rlp_03.frame.ReadInterestStub;
+import com.teragrep.rlp_03.frame.delegate.event.ResponseEncoder;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Queue;
+import java.util.concurrent.Executor;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.locks.Lock;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * Decorator for FrameDelegate that processes the syslog frames of a connection in parallel on the executor. At most
+ * window frames are in flight, further frames wait in order and reading from the connection is paused until none wait.
+ * Other commands are processed in order once all the frames in flight are complete, by the thread completing the last
+ * of them. Responses carry the txn, so they are sent as each frame completes. Wrap with {@link SequencingDelegate} to
+ * validate the txn order as frames arrive. Nothing blocks the thread of the connection. A command processed in order
+ * that returns false after the connection thread has moved on closes the connection with a serverclose hint.
+ */
+public final class PipeliningDelegate implements FrameDelegate {
+
+    private static final Logger LOGGER = LoggerFactory.getLogger(PipeliningDelegate.class);
+    private static final ReadInterest readInterestStub = new ReadInterestStub();
+    private static final ResponseEncoder serverCloseResponse = new ResponseEncoder("serverclose", "");
+
+    private final FrameDelegate frameDelegate;
+    private final Executor executor;
+    private final int window;
+    private final Lock lock;
+    private final Queue<FrameContext> waiting;
+    private ReadInterest paused;
+    private int inFlight;
+    private boolean ordered;
+    private boolean stopped;
+    private boolean closed;
+
+    public PipeliningDelegate(FrameDelegate frameDelegate, Executor executor, int window) {
+        if (window < 1) {
+            throw new IllegalArgumentException("window must be at least 1, got <" + window + ">");
+        }
+        this.frameDelegate = frameDelegate;
+        this.executor = executor;
+        this.window = window;
+        this.lock = new ReentrantLock();
+        this.waiting = new ArrayDeque<>();
+        this.paused = readInterestStub;
+        this.inFlight = 0;
+        this.ordered = false;
+        this.stopped = false;
+        this.closed = false;
+    }
+
+    /**
+     * @return false once a command processed in order has returned false, the frames after it are discarded
+     */
+    @Override
+    public boolean accept(FrameContext frameContext) {
+        final boolean queued;
+        lock.lock();
+        try {
+            queued = !stopped && !closed;
+            if (queued) {
+                waiting.add(frameContext);
+            }
+        }
+        finally {
+            lock.unlock();
+        }
+
+        if (queued) {
+            dispatch(true);
+        }
+        else {
+            frameContext.relpFrame().close();
+        }
+
+        final boolean rv;
+        lock.lock();
+        try {
+            rv = !stopped;
+        }
+        finally {
+            lock.unlock();
+        }
+        return rv;
+    }
+
+    /**
+     * Dispatches the waiting frames in order until one has to wait for a free slot. Called by the thread of the
+     * connection and by the threads completing frames, a command processed in order is processed by the caller.
+     *
+     * @param connectionThread true if the caller is the thread of the connection, which receives the result of accept
+     */
+    private void dispatch(boolean connectionThread) {
+        boolean dispatching = true;
+        while (dispatching) {
+            final List<FrameContext> parallel = new ArrayList<>();
+            final List<FrameContext> inOrder = new ArrayList<>(1);
+            lock.lock();
+            try {
+                while (!closed && !ordered && !waiting.isEmpty() && isParallel(waiting.peek()) && inFlight < window) {
+                    inFlight++;
+                    parallel.add(waiting.poll());
+                }
+                if (!closed && !ordered && !waiting.isEmpty() && !isParallel(waiting.peek()) && inFlight == 0) {
+                    // open, close and custom commands are ordered after the frames before them
+                    inFlight++;
+                    ordered = true;
+                    inOrder.add(waiting.poll());
+                }
+                updateReadInterest();
+            }
+            finally {
+                lock.unlock();
+            }
+
+            execute(parallel);
+            for (FrameContext frameContext : inOrder) {
+                processInOrder(frameContext, connectionThread);
+            }
+            dispatching = !inOrder.isEmpty();
+        }
+    }
+
+    private static boolean isParallel(FrameContext frameContext) {
+        return frameContext.relpFrame().commandToken() == CommandToken.SYSLOG;
+    }
+
+    /**
+     * Pauses reading while frames wait and resumes once none do and no command processed in order is in progress, as it
+     * may stop reading. Called with the lock held.
+     */
+    private void updateReadInterest() {
+        if (!waiting.isEmpty() && paused.isStub() && !waiting.peek().readInterest().isStub()) {
+            paused = waiting.peek().readInterest();
+            paused.pause();
+        }
+        else if (waiting.isEmpty() && !paused.isStub() && !ordered && !stopped) {
+            paused.resume();
+            paused = readInterestStub;
+        }
+    }
+
+    private void execute(List<FrameContext> parallel) {
+        for (int i = 0; i < parallel.size(); i++) {
+            final FrameContext frameContext = parallel.get(i);
+            try {
+                executor.execute(() -> {
+                    try {
+                        frameDelegate.accept(frameContext);
+                    }
+                    finally {
+                        complete();
+                    }
+                });
+            }
+            catch (RejectedExecutionException rejectedExecutionException) {
+                reject(parallel.subList(i, parallel.size()));
+                throw rejectedExecutionException;
+            }
+        }
+    }
+
+    private void processInOrder(FrameContext frameContext, boolean connectionThread) {
+        boolean accepted = false;
+        try {
+            accepted = frameDelegate.accept(frameContext);
+        }
+        finally {
+            final List<FrameContext> discarded;
+            final boolean closeDelegate;
+            lock.lock();
+            try {
+                inFlight--;
+                ordered = false;
+                if (!accepted) {
+                    // reading stays paused, the connection is closing
+                    stopped = true;
+                    discarded = takeWaiting();
+                }
+                else {
+                    discarded = Collections.emptyList();
+                }
+                closeDelegate = closed && inFlight == 0;
+            }
+            finally {
+                lock.unlock();
+            }
+            discard(discarded);
+            if (!accepted && !connectionThread) {
+                // accept has returned true already, the connection thread will not stop reading
+                frameContext
+                        .establishedContext()
+                        .egress()
+                        .accept(new WriteableClosure(serverCloseResponse.encode(0), frameContext.establishedContext()));
+            }
+            if (closeDelegate) {
+                closeDelegate();
+            }
+        }
+    }
+
+    private void complete() {
+        final boolean closeDelegate;
+        lock.lock();
+        try {
+            inFlight--;
+            closeDelegate = closed && inFlight == 0;
+        }
+        finally {
+            lock.unlock();
+        }
+
+        if (closeDelegate) {
+            closeDelegate();
+        }
+        else {
+            dispatch(false);
+        }
+    }
+
+    /**
+     * Frees the slots of frames the executor did not take, they are not processed.
+     */
+    private void reject(List<FrameContext> rejected) {
+        lock.lock();
+        try {
+            inFlight = inFlight - rejected.size();
+        }
+        finally {
+            lock.unlock();
+        }
+        discard(rejected);
+    }
+
+    private List<FrameContext> takeWaiting() {
+        final List<FrameContext> rv = new ArrayList<>(waiting);
+        waiting.clear();
+        return rv;
+    }
+
+    private static void discard(List<FrameContext> frameContexts) {
+        for (FrameContext frameContext : frameContexts) {
+            frameContext.relpFrame().close();
+        }
+    }
+
+    private void closeDelegate() {
+        try {
+            frameDelegate.close();
+        }
+        catch (Exception exception) {
+            LOGGER.warn("closing frameDelegate after the frames in flight failed", exception);
+        }
+    }
+
+    /**
+     * Discards the waiting frames. The wrapped delegate is closed right away if no frames are in flight, otherwise by
+     * the thread completing the last of them.
+     */
+    @Override
+    public void close() throws Exception {
+        final List<FrameContext> discarded;
+        final boolean idle;
+        lock.lock();
+        try {
+            closed = true;
+            discarded = takeWaiting();
+            idle = inFlight == 0;
+        }
+        finally {
+            lock.unlock();
+        }
+        discard(discarded);
+        if (idle) {
+            frameDelegate.close();
+        }
+    }
+
+    @Override
+    public boolean isStub() {
+        return frameDelegate.isStub();
+    }
+}
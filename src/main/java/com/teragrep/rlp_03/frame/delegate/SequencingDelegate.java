@@ -45,46 +45,23 @@
  */
 package com.teragrep.rlp_03.frame.delegate;
 
-import org.slf4j.Logger;
-import org.slf4j.LoggerFactory;
-
-import java.util.concurrent.atomic.AtomicInteger;
-
 /**
  * Decorator for FrameDelegate that ensures relp frame transaction numbers increment
  */
 public final class SequencingDelegate implements FrameDelegate {
 
-    private static final Logger LOGGER = LoggerFactory.getLogger(SequencingDelegate.class);
-
     private final FrameDelegate frameDelegate;
-    private final AtomicInteger txId;
+    private final TxnSequence txnSequence;
 
     public SequencingDelegate(FrameDelegate frameDelegate) {
         this.frameDelegate = frameDelegate;
 
-        this.txId = new AtomicInteger();
+        this.txnSequence = new TxnSequence();
     }
 
     @Override
     public boolean accept(FrameContext frameContext) {
-
-        final int frameTxnId = frameContext.relpFrame().txn().toInt();
-
-        // zero id is ignored, it is special by relp specification
-        if (frameTxnId != 0) {
-            int nextTxnId = txId.incrementAndGet();
-
-            if (nextTxnId == 999_999_999) {
-                // wraps around after 999999999
-                LOGGER.debug("txnId wrapped at <{}>", nextTxnId);
-                txId.set(0);
-            }
-
-            if (nextTxnId != frameTxnId) {
-                throw new IllegalArgumentException("frame txn not sequencing");
-            }
-        }
+        txnSequence.next(frameContext.relpFrame().txnId());
 
         return frameDelegate.accept(frameContext);
     }
@@ -0,0 +1,155 @@
+/*
+ * Java Reliable Event Logging Protocol Library Server Implementation RLP-03
+ * Copyright (C) 2021-2024 Suomen Kanuuna Oy
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Affero General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Affero General Public License for more details.
+ *
+ * You should have received a copy of the GNU Affero General Public License
+ * along with this program.  If not, see <https://www.gnu.org/licenses/>.
+ *
+ *
+ * Additional permission under GNU Affero General Public License version 3
+ * section 7
+ *
+ * If you modify this Program, or any covered work, by linking or combining it
+ * with other code, such other code is not for that reason alone subject to any
+ * of the requirements of the GNU Affero GPL version 3 as long as this Program
+ * is the same Program as licensed from Suomen Kanuuna Oy without any additional
+ * modifications.
+ *
+ * Supplemented terms under GNU Affero General Public License version 3
+ * section 7
+ *
+ * Origin of the software must be attributed to Suomen Kanuuna Oy. Any modified
+ * versions must be marked as "Modified version of" The Program.
+ *
+ * Names of the licensors and authors may not be used for publicity purposes.
+ *
+ * No rights are granted for use of trade names, trademarks, or service marks
+ * which are in The Program if any.
+ *
+ * Licensee must indemnify licensors and authors for any liability that these
+ * contractual assumptions impose on licensors and authors.
+ *
+ * To the extent this program is licensed as part of the Commercial versions of
+ * Teragrep, the applicable Commercial License may apply to this file if you as
+ * a licensee so wish it.
+ */
+package com.teragrep.rlp_03.frame.delegate;
+
+import com.teragrep.rlp_03.frame.ReadInterest;
+import com.teragrep.rlp_03.frame.ReadInterestStub;
+
+import java.util.concurrent.locks.Lock;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * Decorator for FrameDelegate that bounds the unacknowledged frames of a connection. A frame is acknowledged when it is
+ * closed after its response. Reading from the connection pauses when highWaterMark frames are unacknowledged and
+ * resumes when at most lowWaterMark remain, so TCP backpressure reaches the sender. Frames already read are still
+ * delegated, the bound is exceeded by at most the frames of one read. The count is kept for a single connection, so a
+ * ThrottlingDelegate must be created per connection, for example in the supplier given to
+ * {@link com.teragrep.rlp_03.frame.FrameDelegationClockFactory}. A frame of another connection is rejected with an
+ * {@link IllegalStateException}.
+ */
+public final class ThrottlingDelegate implements FrameDelegate {
+
+    private final FrameDelegate frameDelegate;
+    private final int highWaterMark;
+    private final int lowWaterMark;
+    private final Lock lock;
+    private ReadInterest readInterest;
+    private int unacknowledged;
+    private boolean paused;
+
+    public ThrottlingDelegate(FrameDelegate frameDelegate, int highWaterMark, int lowWaterMark) {
+        if (lowWaterMark < 0 || lowWaterMark >= highWaterMark) {
+            throw new IllegalArgumentException(
+                    "lowWaterMark <" + lowWaterMark + "> must be at least 0 and below highWaterMark <" + highWaterMark
+                            + ">"
+            );
+        }
+        this.frameDelegate = frameDelegate;
+        this.highWaterMark = highWaterMark;
+        this.lowWaterMark = lowWaterMark;
+        this.lock = new ReentrantLock();
+        this.readInterest = new ReadInterestStub();
+        this.unacknowledged = 0;
+        this.paused = false;
+    }
+
+    @Override
+    public boolean accept(FrameContext frameContext) {
+        final boolean rv;
+        final ReadInterest readInterest = frameContext.readInterest();
+        if (readInterest.isStub()) {
+            rv = frameDelegate.accept(frameContext);
+        }
+        else {
+            sent(readInterest);
+            rv = frameDelegate
+                    .accept(
+                            new FrameContext(
+                                    frameContext.establishedContext(),
+                                    new RelpFrameAcknowledging(frameContext.relpFrame(), this::acknowledged),
+                                    readInterest
+                            )
+                    );
+        }
+        return rv;
+    }
+
+    private void sent(ReadInterest frameReadInterest) {
+        lock.lock();
+        try {
+            if (readInterest.isStub()) {
+                readInterest = frameReadInterest;
+            }
+            else if (readInterest != frameReadInterest) {
+                throw new IllegalStateException(
+                        "ThrottlingDelegate received a frame of another connection, create one per connection"
+                );
+            }
+            unacknowledged++;
+            if (!paused && unacknowledged >= highWaterMark) {
+                paused = true;
+                readInterest.pause();
+            }
+        }
+        finally {
+            lock.unlock();
+        }
+    }
+
+    private void acknowledged() {
+        lock.lock();
+        try {
+            unacknowledged--;
+            if (paused && unacknowledged <= lowWaterMark) {
+                paused = false;
+                readInterest.resume();
+            }
+        }
+        finally {
+            lock.unlock();
+        }
+    }
+
+    @Override
+    public void close() throws Exception {
+        frameDelegate.close();
+    }
+
+    @Override
+    public boolean isStub() {
+        return frameDelegate.isStub();
+    }
+}
@@ -0,0 +1,283 @@
+/*
+ * Java Reliable Event Logging Protocol Library Server Implementation RLP-03
+ * Copyright (C) 2021-2024 Suomen Kanuuna Oy
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Affero General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Affero General Public License for more details.
+ *
+ * You should have received a copy of the GNU Affero General Public License
+ * along with this program.  If not, see <https://www.gnu.org/licenses/>.
+ *
+ *
+ * Additional permission under GNU Affero General Public License version 3
+ * section 7
+ *
+ * If you modify this Program, or any covered work, by linking or combining it
+ * with other code, such other code is not for that reason alone subject to any
+ * of the requirements of the GNU Affero GPL version 3 as long as this Program
+ * is the same Program as licensed from Suomen Kanuuna Oy without any additional
+ * modifications.
+ *
+ * Supplemented terms under GNU Affero General Public License version 3
+ * section 7
+ *
+ * Origin of the software must be attributed to Suomen Kanuuna Oy. Any modified
+ * versions must be marked as "Modified version of" The Program.
+ *
+ * Names of the licensors and authors may not be used for publicity purposes.
+ *
+ * No rights are granted for use of trade names, trademarks, or service marks
+ * which are in The Program if any.
+ *
+ * Licensee must indemnify licensors and authors for any liability that these
+ * contractual assumptions impose on licensors and authors.
+ *
+ * To the extent this program is licensed as part of the Commercial versions of
+ * Teragrep, the applicable Commercial License may apply to this file if you as
+ * a licensee so wish it.
+ */
+package com.teragrep.rlp_03.frame.delegate.event;
+
+import com.teragrep.rlp_03.frame.delegate.FrameContext;
+import com.teragrep.rlp_03.frame.delegate.RelpFrameAcknowledging;
+import org.reactivestreams.Publisher;
+import org.reactivestreams.Subscriber;
+import org.reactivestreams.Subscription;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.util.Queue;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicReference;
+
+/**
+ * Publishes the syslog frames received by {@link RelpEventPublishing} to a single subscriber. Reading from a connection
+ * pauses while any of its frames waits for demand, so the demand of the subscriber reaches the senders. The subscriber
+ * closes each frame once it is processed, which sends the 200 OK response. Frames waiting when the subscription is
+ * cancelled are answered with 500. The reactive-streams dependency is optional, users of this class declare it
+ * themselves.
+ */
+public final class FramePublisher implements Publisher<FrameContext> {
+
+    private static final Logger LOGGER = LoggerFactory.getLogger(FramePublisher.class);
+    private static final Subscriber<FrameContext> subscriberStub = new SubscriberStub();
+
+    private final Queue<FrameContext> frameContexts;
+    private final AtomicLong demand;
+    private final AtomicInteger work;
+    private final AtomicBoolean cancelled;
+    private final AtomicBoolean failed;
+    private final Queue<Throwable> errors;
+    private final AtomicReference<Subscriber<? super FrameContext>> subscriber;
+    private final ResponseEncoder okResponse;
+    private final ResponseEncoder cancelledResponse;
+
+    public FramePublisher() {
+        this.frameContexts = new ConcurrentLinkedQueue<>();
+        this.demand = new AtomicLong();
+        this.work = new AtomicInteger();
+        this.cancelled = new AtomicBoolean();
+        this.failed = new AtomicBoolean();
+        this.errors = new ConcurrentLinkedQueue<>();
+        this.subscriber = new AtomicReference<>(subscriberStub);
+        this.okResponse = new ResponseEncoder("rsp", "200 OK");
+        this.cancelledResponse = new ResponseEncoder("rsp", "500 SUBSCRIPTION CANCELLED");
+    }
+
+    @Override
+    public void subscribe(Subscriber<? super FrameContext> frameSubscriber) {
+        if (subscriber.compareAndSet(subscriberStub, frameSubscriber)) {
+            frameSubscriber.onSubscribe(new FrameSubscription());
+            drain();
+        }
+        else {
+            frameSubscriber.onSubscribe(new FrameSubscriptionRejected());
+            frameSubscriber.onError(new IllegalStateException("FramePublisher allows only one subscriber"));
+        }
+    }
+
+    void publish(FrameContext frameContext) {
+        if (!frameContext.readInterest().isStub()) {
+            // resumed when the frame is passed to the subscriber
+            frameContext.readInterest().pause();
+        }
+        frameContexts.add(frameContext);
+        drain();
+    }
+
+    /**
+     * Passes frames while there is demand. Signals to the subscriber are serialized, the thread which finds the
+     * publisher idle drains on behalf of the others.
+     */
+    private void drain() {
+        if (work.getAndIncrement() == 0) {
+            int missed = 1;
+            while (missed != 0) {
+                if (cancelled.get()) {
+                    reject();
+                    signalError();
+                }
+                else {
+                    emit();
+                }
+                missed = work.addAndGet(-missed);
+            }
+        }
+    }
+
+    private void emit() {
+        final Subscriber<? super FrameContext> frameSubscriber = subscriber.get();
+        while (demand.get() > 0 && !cancelled.get()) {
+            final FrameContext frameContext = frameContexts.poll();
+            if (frameContext == null) {
+                break;
+            }
+            if (demand.get() != Long.MAX_VALUE) {
+                demand.decrementAndGet();
+            }
+            resume(frameContext);
+            try {
+                frameSubscriber.onNext(acknowledging(frameContext));
+            }
+            catch (RuntimeException runtimeException) {
+                // subscriber violated the specification, the subscription is considered cancelled
+                LOGGER.error("subscriber failed to receive a frame, cancelling", runtimeException);
+                cancelled.set(true);
+            }
+        }
+    }
+
+    private void reject() {
+        FrameContext frameContext = frameContexts.poll();
+        while (frameContext != null) {
+            final int txnId = frameContext.relpFrame().txnId();
+            try {
+                frameContext.establishedContext().egress().accept(cancelledResponse.encode(txnId));
+            }
+            catch (RuntimeException runtimeException) {
+                // connection may have closed while the frame was waiting
+                LOGGER.warn("failed to respond to a cancelled frame", runtimeException);
+            }
+            finally {
+                frameContext.relpFrame().close();
+                resume(frameContext);
+            }
+            frameContext = frameContexts.poll();
+        }
+    }
+
+    private void signalError() {
+        final Throwable throwable = errors.poll();
+        if (throwable != null) {
+            try {
+                subscriber.get().onError(throwable);
+            }
+            catch (RuntimeException runtimeException) {
+                LOGGER.error("subscriber failed to receive an error", runtimeException);
+            }
+        }
+    }
+
+    private FrameContext acknowledging(FrameContext frameContext) {
+        final int txnId = frameContext.relpFrame().txnId();
+        return new FrameContext(
+                frameContext.establishedContext(),
+                new RelpFrameAcknowledging(
+                        frameContext.relpFrame(),
+                        () -> frameContext.establishedContext().egress().accept(okResponse.encode(txnId))
+                ),
+                frameContext.readInterest()
+        );
+    }
+
+    private static void resume(FrameContext frameContext) {
+        if (!frameContext.readInterest().isStub()) {
+            frameContext.readInterest().resume();
+        }
+    }
+
+    private final class FrameSubscription implements Subscription {
+
+        @Override
+        public void request(long n) {
+            if (n <= 0) {
+                // signalled by drain, serialized with onNext
+                if (failed.compareAndSet(false, true)) {
+                    errors.add(new IllegalArgumentException("request must be positive, got <" + n + ">"));
+                }
+                cancel();
+            }
+            else {
+                long current = demand.get();
+                while (current != Long.MAX_VALUE && !demand.compareAndSet(current, addCapped(current, n))) {
+                    current = demand.get();
+                }
+                drain();
+            }
+        }
+
+        @Override
+        public void cancel() {
+            cancelled.set(true);
+            drain();
+        }
+
+        private long addCapped(long current, long n) {
+            final long sum = current + n;
+            final long rv;
+            if (sum < 0) {
+                rv = Long.MAX_VALUE;
+            }
+            else {
+                rv = sum;
+            }
+            return rv;
+        }
+    }
+
+    private static final class FrameSubscriptionRejected implements Subscription {
+
+        @Override
+        public void request(long n) {
+            // subscriber was rejected
+        }
+
+        @Override
+        public void cancel() {
+            // subscriber was rejected
+        }
+    }
+
+    private static final class SubscriberStub implements Subscriber<FrameContext> {
+
+        @Override
+        public void onSubscribe(Subscription subscription) {
+            throw new IllegalStateException("SubscriberStub can not subscribe");
+        }
+
+        @Override
+        public void onNext(FrameContext frameContext) {
+            throw new IllegalStateException("SubscriberStub can not receive frames");
+        }
+
+        @Override
+        public void onError(Throwable throwable) {
+            throw new IllegalStateException("SubscriberStub can not receive errors");
+        }
+
+        @Override
+        public void onComplete() {
+            throw new IllegalStateException("SubscriberStub can not complete");
+        }
+    }
+}
@@ -0,0 +1,176 @@
+/*
+ * Java Reliable Event Logging Protocol Library Server Implementation RLP-03
+ * Copyright (C) 2021-2024 Suomen Kanuuna Oy
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Affero General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Affero General Public License for more details.
+ *
+ * You should have received a copy of the GNU Affero General Public License
+ * along with this program.  If not, see <https://www.gnu.org/licenses/>.
+ *
+ *
+ * Additional permission under GNU Affero General Public License version 3
+ * section 7
+ *
+ * If you modify this Program, or any covered work, by linking or combining it
+ * with other code, such other code is not for that reason alone subject to any
+ * of the requirements of the GNU Affero GPL version 3 as long as this Program
+ * is the same Program as licensed from Suomen Kanuuna Oy without any additional
+ * modifications.
+ *
+ * Supplemented terms under GNU Affero General Public License version 3
+ * section 7
+ *
+ * Origin of the software must be attributed to Suomen Kanuuna Oy. Any modified
+ * versions must be marked as "Modified version of" The Program.
+ *
+ * Names of the licensors and authors may not be used for publicity purposes.
+ *
+ * No rights are granted for use of trade names, trademarks, or service marks
+ * which are in The Program if any.
+ *
+ * Licensee must indemnify licensors and authors for any liability that these
+ * contractual assumptions impose on licensors and authors.
+ *
+ * To the extent this program is licensed as part of the Commercial versions of
+ * Teragrep, the applicable Commercial License may apply to this file if you as
+ * a licensee so wish it.
+ */
+package com.teragrep.rlp_03.frame.delegate.event;
+
+import com.teragrep.rlp_03.frame.delegate.FrameContext;
+
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.function.Consumer;
+
+/**
+ * Bounded ring of {@link FrameContext} for handing frames from the connections to processing threads. Slots are
+ * preallocated and claimed with a sequence number per slot, so any number of threads may put and drain without locks.
+ */
+public final class FrameRing {
+
+    private final FrameContext[] slots;
+    private final AtomicLongArray sequences;
+    private final int mask;
+    private final AtomicLong putPosition;
+    private final AtomicLong takePosition;
+    private final WaitStrategy waitStrategy;
+
+    /**
+     * @param capacity rounded up to a power of two
+     */
+    public FrameRing(int capacity, WaitStrategy waitStrategy) {
+        if (capacity < 1 || capacity > 1 << 30) {
+            throw new IllegalArgumentException("capacity must be between 1 and 2^30, got <" + capacity + ">");
+        }
+        final int size = Integer.highestOneBit(capacity) == capacity ? capacity : Integer.highestOneBit(capacity) << 1;
+        this.slots = new FrameContext[size];
+        this.sequences = new AtomicLongArray(size);
+        for (int i = 0; i < size; i++) {
+            sequences.set(i, i);
+        }
+        this.mask = size - 1;
+        this.putPosition = new AtomicLong();
+        this.takePosition = new AtomicLong();
+        this.waitStrategy = waitStrategy;
+    }
+
+    /**
+     * Puts the frameContext into the ring, waits while the ring is full.
+     */
+    public void put(FrameContext frameContext) {
+        int attempt = 0;
+        while (!offer(frameContext)) {
+            waitStrategy.await(attempt);
+            if (attempt < Integer.MAX_VALUE) {
+                attempt++;
+            }
+        }
+        waitStrategy.signal();
+    }
+
+    /**
+     * @return false if the ring is full
+     */
+    public boolean offer(FrameContext frameContext) {
+        boolean rv = false;
+        long position = putPosition.get();
+        while (true) {
+            final int index = (int) position & mask;
+            final long difference = sequences.get(index) - position;
+            if (difference == 0) {
+                if (putPosition.compareAndSet(position, position + 1)) {
+                    slots[index] = frameContext;
+                    // publishes the slot to the takers
+                    sequences.lazySet(index, position + 1);
+                    rv = true;
+                    break;
+                }
+                position = putPosition.get();
+            }
+            else if (difference < 0) {
+                // slot is not yet taken from the previous round
+                break;
+            }
+            else {
+                position = putPosition.get();
+            }
+        }
+        return rv;
+    }
+
+    /**
+     * Passes at most limit frames to the consumer without waiting.
+     *
+     * @return number of frames passed
+     */
+    public int drain(Consumer<FrameContext> consumer, int limit) {
+        int drained = 0;
+        long position = takePosition.get();
+        while (drained < limit) {
+            final int index = (int) position & mask;
+            final long difference = sequences.get(index) - (position + 1);
+            if (difference == 0) {
+                if (takePosition.compareAndSet(position, position + 1)) {
+                    final FrameContext frameContext = slots[index];
+                    slots[index] = null;
+                    // frees the slot for the next round
+                    sequences.lazySet(index, position + mask + 1);
+                    drained++;
+                    consumer.accept(frameContext);
+                }
+                position = takePosition.get();
+            }
+            else if (difference < 0) {
+                // nothing put in the slot yet
+                break;
+            }
+            else {
+                position = takePosition.get();
+            }
+        }
+        if (drained > 0) {
+            waitStrategy.signal();
+        }
+        return drained;
+    }
+
+    /**
+     * Waits for frames to be put after an unsuccessful drain.
+     */
+    public void await(int attempt) {
+        waitStrategy.await(attempt);
+    }
+
+    public int capacity() {
+        return slots.length;
+    }
+}
@@ -0,0 +1,113 @@
+/*
+ * Java Reliable Event Logging Protocol Library Server Implementation RLP-03
+ * Copyright (C) 2021-2024 Suomen Kanuuna Oy
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Affero General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Affero General Public License for more details.
+ *
+ * You should have received a copy of the GNU Affero General Public License
+ * along with this program.  If not, see <https://www.gnu.org/licenses/>.
+ *
+ *
+ * Additional permission under GNU Affero General Public License version 3
+ * section 7
+ *
+ * If you modify this Program, or any covered work, by linking or combining it
+ * with other code, such other code is not for that reason alone subject to any
+ * of the requirements of the GNU Affero GPL version 3 as long as this Program
+ * is the same Program as licensed from Suomen Kanuuna Oy without any additional
+ * modifications.
+ *
+ * Supplemented terms under GNU Affero General Public License version 3
+ * section 7
+ *
+ * Origin of the software must be attributed to Suomen Kanuuna Oy. Any modified
+ * versions must be marked as "Modified version of" The Program.
+ *
+ * Names of the licensors and authors may not be used for publicity purposes.
+ *
+ * No rights are granted for use of trade names, trademarks, or service marks
+ * which are in The Program if any.
+ *
+ * Licensee must indemnify licensors and authors for any liability that these
+ * contractual assumptions impose on licensors and authors.
+ *
+ * To the extent this program is licensed as part of the Commercial versions of
+ * Teragrep, the applicable Commercial License may apply to this file if you as
+ * a licensee so wish it.
+ */
+package com.teragrep.rlp_03.frame.delegate.event;
+
+import com.teragrep.rlp_03.frame.delegate.FrameContext;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.function.Consumer;
+
+/**
+ * Drains the frameRing in batches of at most batchSize frames and passes them to the relpEvent, which processes the
+ * frame and writes the response to the connection it came from, for example {@link RelpEventSyslog}. Remaining frames
+ * are processed once stopped.
+ */
+public final class FrameRingWorker implements Runnable {
+
+    private static final Logger LOGGER = LoggerFactory.getLogger(FrameRingWorker.class);
+
+    private final FrameRing frameRing;
+    private final Consumer<FrameContext> frameConsumer;
+    private final int batchSize;
+    private final AtomicBoolean stopped;
+
+    public FrameRingWorker(FrameRing frameRing, RelpEvent relpEvent) {
+        this(frameRing, relpEvent, 64);
+    }
+
+    public FrameRingWorker(FrameRing frameRing, RelpEvent relpEvent, int batchSize) {
+        this.frameRing = frameRing;
+        this.frameConsumer = (frameContext) -> process(relpEvent, frameContext);
+        this.batchSize = batchSize;
+        this.stopped = new AtomicBoolean();
+    }
+
+    @Override
+    public void run() {
+        int attempt = 0;
+        while (!stopped.get()) {
+            if (frameRing.drain(frameConsumer, batchSize) > 0) {
+                attempt = 0;
+            }
+            else {
+                frameRing.await(attempt);
+                if (attempt < Integer.MAX_VALUE) {
+                    attempt++;
+                }
+            }
+        }
+
+        while (frameRing.drain(frameConsumer, batchSize) > 0) {
+            LOGGER.debug("processed remaining frames after stop");
+        }
+    }
+
+    public void stop() {
+        stopped.set(true);
+    }
+
+    private static void process(RelpEvent relpEvent, FrameContext frameContext) {
+        try {
+            relpEvent.accept(frameContext);
+        }
+        catch (RuntimeException runtimeException) {
+            // connection may have closed while the frame was in the ring
+            LOGGER.warn("deferred processing of frame failed", runtimeException);
+        }
+    }
+}
@@ -46,10 +46,22 @@
 package com.teragrep.rlp_03.frame.delegate.event;
 
 import com.teragrep.rlp_03.frame.delegate.FrameContext;
+import com.teragrep.rlp_03.frame.delegate.PayloadChunkConsumer;
+import com.teragrep.rlp_03.frame.delegate.PayloadChunkConsumerStub;
+
 import java.util.function.Consumer;
 
 public abstract class RelpEvent implements Consumer<FrameContext>, AutoCloseable {
 
+    private static final PayloadChunkConsumer payloadChunkConsumerStub = new PayloadChunkConsumerStub();
+
+    /**
+     * @return consumer for payload chunks, or a stub if the event takes the payload within the frame
+     */
+    public PayloadChunkConsumer payloadChunkConsumer() {
+        return payloadChunkConsumerStub;
+    }
+
     @Override
     public void close() throws Exception {
 
@@ -47,13 +47,8 @@ package com.teragrep.rlp_03.frame.delegate.event;
 
 import com.teragrep.net_01.channel.buffer.writable.Writeable;
 import com.teragrep.net_01.channel.buffer.writable.WriteableClosure;
-import com.teragrep.rlp_03.frame.RelpFrame;
-import com.teragrep.rlp_03.frame.RelpFrameImpl;
 import com.teragrep.net_01.channel.buffer.writable.Writeables;
 import com.teragrep.rlp_03.frame.delegate.FrameContext;
-import com.teragrep.rlp_03.frame.fragment.Fragment;
-import com.teragrep.rlp_03.frame.fragment.FragmentFactory;
-import com.teragrep.rlp_03.frame.fragment.FragmentStub;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
@@ -61,41 +56,12 @@ public final class RelpEventClose extends RelpEvent {
 
     private static final Logger LOGGER = LoggerFactory.getLogger(RelpEventClose.class);
 
-    private final RelpFrame closeFrameTemplate;
-    private final RelpFrame serverCloseFrame;
-    private final FragmentFactory fragmentFactory;
+    private final ResponseEncoder closeResponse;
+    private final ResponseEncoder serverCloseResponse;
 
     public RelpEventClose() {
-        this.fragmentFactory = new FragmentFactory();
-
-        Fragment closeResponseTxn = new FragmentStub();
-
-        Fragment closeResponseCommand = fragmentFactory.create("rsp");
-        Fragment closeResponsePayload = fragmentFactory.create("");
-        Fragment closeResponsePayloadLength = fragmentFactory.create(closeResponsePayload.size());
-        Fragment closeResponseEndOfTransfer = fragmentFactory.create("\n");
-
-        this.closeFrameTemplate = new RelpFrameImpl(
-                closeResponseTxn,
-                closeResponseCommand,
-                closeResponsePayloadLength,
-                closeResponsePayload,
-                closeResponseEndOfTransfer
-        );
-
-        Fragment serverCloseTxn = fragmentFactory.create(0);
-        Fragment serverCloseCommand = fragmentFactory.create("serverclose");
-        Fragment serverClosePayload = fragmentFactory.create("");
-        Fragment serverClosePayloadLength = fragmentFactory.create(serverClosePayload.size());
-        Fragment serverCloseEndOfTransfer = fragmentFactory.create("\n");
-
-        this.serverCloseFrame = new RelpFrameImpl(
-                serverCloseTxn,
-                serverCloseCommand,
-                serverClosePayloadLength,
-                serverClosePayload,
-                serverCloseEndOfTransfer
-        );
+        this.closeResponse = new ResponseEncoder("rsp", "");
+        this.serverCloseResponse = new ResponseEncoder("serverclose", "");
     }
 
     @Override
@@ -105,17 +71,8 @@ public final class RelpEventClose extends RelpEvent {
                 LOGGER.debug("received close on txn <[{}]>", frameContext.relpFrame().txn().toString());
             }
 
-            Fragment txnCopy = fragmentFactory.wrap(frameContext.relpFrame().txn().toBytes()); // TODO remove once #185
-            RelpFrame relpFrame = new RelpFrameImpl(
-                    txnCopy,
-                    closeFrameTemplate.command(),
-                    closeFrameTemplate.payloadLength(),
-                    closeFrameTemplate.payload(),
-                    closeFrameTemplate.endOfTransfer()
-            );
-
             final Writeable[] framesWriteables = new Writeable[] {
-                    relpFrame.toWriteable(), serverCloseFrame.toWriteable()
+                    closeResponse.encode(frameContext.relpFrame().txnId()), serverCloseResponse.encode(0)
             };
 
             Writeables writeables = new Writeables(framesWriteables);
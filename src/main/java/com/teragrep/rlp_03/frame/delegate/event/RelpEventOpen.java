@@ -45,12 +45,7 @@
  */
 package com.teragrep.rlp_03.frame.delegate.event;
 
-import com.teragrep.rlp_03.frame.RelpFrame;
-import com.teragrep.rlp_03.frame.RelpFrameImpl;
 import com.teragrep.rlp_03.frame.delegate.FrameContext;
-import com.teragrep.rlp_03.frame.fragment.Fragment;
-import com.teragrep.rlp_03.frame.fragment.FragmentFactory;
-import com.teragrep.rlp_03.frame.fragment.FragmentStub;
 import com.teragrep.rlp_03.version.Version;
 import com.teragrep.rlp_03.version.VersionImpl;
 import org.slf4j.Logger;
@@ -60,45 +55,28 @@ public final class RelpEventOpen extends RelpEvent {
 
     private static final Logger LOGGER = LoggerFactory.getLogger(RelpEventOpen.class);
 
-    private final FragmentFactory fragmentFactory;
     private final Version version;
-    private final RelpFrame responseFrameTemplate;
+    private final ResponseEncoder response;
 
     public RelpEventOpen() {
         this(new VersionImpl());
     }
 
     public RelpEventOpen(Version version) {
-        this.fragmentFactory = new FragmentFactory();
         this.version = version;
 
-        Fragment txn = new FragmentStub();
-        Fragment command = fragmentFactory.create("rsp");
         String payloadContent = String
                 .format(
                         "200 OK\nrelp_version=0\nrelp_software=rlp_03,%s,https://teragrep.com\ncommands=syslog\n",
                         this.version.version()
                 );
-        Fragment payload = fragmentFactory.create(payloadContent);
-        long payloadSize = payload.size();
-        Fragment payloadLength = fragmentFactory.create(payloadSize);
-        Fragment endOfTransfer = fragmentFactory.create("\n");
-        this.responseFrameTemplate = new RelpFrameImpl(txn, command, payloadLength, payload, endOfTransfer);
+        this.response = new ResponseEncoder("rsp", payloadContent);
     }
 
     @Override
     public void accept(FrameContext frameContext) {
         try {
-            Fragment txnCopy = fragmentFactory.wrap(frameContext.relpFrame().txn().toBytes());
-            RelpFrame frame = new RelpFrameImpl(
-                    txnCopy,
-                    responseFrameTemplate.command(),
-                    responseFrameTemplate.payloadLength(),
-                    responseFrameTemplate.payload(),
-                    responseFrameTemplate.endOfTransfer()
-            );
-
-            frameContext.establishedContext().egress().accept(frame.toWriteable());
+            frameContext.establishedContext().egress().accept(response.encode(frameContext.relpFrame().txnId()));
         }
         finally {
             frameContext.relpFrame().close();
@@ -47,33 +47,21 @@ package com.teragrep.rlp_03.frame.delegate.event;
 
 import com.teragrep.net_01.channel.buffer.writable.Writeable;
 import com.teragrep.net_01.channel.buffer.writable.WriteableClosure;
-import com.teragrep.rlp_03.frame.RelpFrame;
-import com.teragrep.rlp_03.frame.RelpFrameImpl;
 import com.teragrep.rlp_03.frame.delegate.FrameContext;
-import com.teragrep.rlp_03.frame.fragment.Fragment;
-import com.teragrep.rlp_03.frame.fragment.FragmentFactory;
 
 public final class RelpEventServerClose extends RelpEvent {
 
-    private final RelpFrame serverCloseFrame;
+    private final ResponseEncoder serverCloseResponse;
 
     public RelpEventServerClose() {
-        FragmentFactory fragmentFactory = new FragmentFactory();
-
-        Fragment txn = fragmentFactory.create(0);
-        Fragment command = fragmentFactory.create("serverclose");
-        Fragment payload = fragmentFactory.create("");
-        Fragment payloadLength = fragmentFactory.create(payload.size());
-        Fragment endOfTransfer = fragmentFactory.create("\n");
-
-        this.serverCloseFrame = new RelpFrameImpl(txn, command, payloadLength, payload, endOfTransfer);
+        this.serverCloseResponse = new ResponseEncoder("serverclose", "");
     }
 
     @Override
     public void accept(FrameContext frameContext) {
         try {
             Writeable closingServerClose = new WriteableClosure(
-                    serverCloseFrame.toWriteable(),
+                    serverCloseResponse.encode(0),
                     frameContext.establishedContext()
             );
             frameContext.establishedContext().egress().accept(closingServerClose);
@@ -45,12 +45,7 @@
  */
 package com.teragrep.rlp_03.frame.delegate.event;
 
-import com.teragrep.rlp_03.frame.RelpFrame;
-import com.teragrep.rlp_03.frame.RelpFrameImpl;
 import com.teragrep.rlp_03.frame.delegate.FrameContext;
-import com.teragrep.rlp_03.frame.fragment.Fragment;
-import com.teragrep.rlp_03.frame.fragment.FragmentFactory;
-import com.teragrep.rlp_03.frame.fragment.FragmentStub;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
@@ -61,76 +56,42 @@ public final class RelpEventSyslog extends RelpEvent {
     private static final Logger LOGGER = LoggerFactory.getLogger(RelpEventSyslog.class);
 
     private final Consumer<FrameContext> cbFunction;
-    private final FragmentFactory fragmentFactory;
 
-    private final RelpFrame okTemplate;
-    private final RelpFrame errorTemplate;
-    private final RelpFrame noPayloadTemplate;
+    private final ResponseEncoder okResponse;
+    private final ResponseEncoder errorResponse;
+    private final ResponseEncoder noPayloadResponse;
 
     public RelpEventSyslog(Consumer<FrameContext> cbFunction) {
         this.cbFunction = cbFunction;
-        this.fragmentFactory = new FragmentFactory();
-        Fragment txn = new FragmentStub();
-        Fragment command = fragmentFactory.create("rsp");
-        Fragment endOfTransfer = fragmentFactory.create("\n");
 
-        Fragment okPayload = fragmentFactory.create("200 OK");
-        Fragment okPayloadLength = fragmentFactory.create(okPayload.size());
-
-        this.okTemplate = new RelpFrameImpl(txn, command, okPayloadLength, okPayload, endOfTransfer);
-
-        Fragment errorPayload = fragmentFactory.create("500 EXCEPTION WHILE PROCESSING SYSLOG PAYLOAD");
-        Fragment errorPayloadLength = fragmentFactory.create(errorPayload.size());
-
-        this.errorTemplate = new RelpFrameImpl(txn, command, errorPayloadLength, errorPayload, endOfTransfer);
-
-        Fragment noPayload = fragmentFactory.create("500 NO PAYLOAD");
-        Fragment noPayloadLength = fragmentFactory.create(noPayload.size());
-
-        this.noPayloadTemplate = new RelpFrameImpl(txn, command, noPayloadLength, noPayload, endOfTransfer);
+        this.okResponse = new ResponseEncoder("rsp", "200 OK");
+        this.errorResponse = new ResponseEncoder("rsp", "500 EXCEPTION WHILE PROCESSING SYSLOG PAYLOAD");
+        this.noPayloadResponse = new ResponseEncoder("rsp", "500 NO PAYLOAD");
     }
 
     @Override
     public void accept(FrameContext frameContext) {
         try {
-            Fragment txnCopy = fragmentFactory.wrap(frameContext.relpFrame().txn().toBytes());
+            final int txnId = frameContext.relpFrame().txnId();
 
-            RelpFrame relpFrame;
+            ResponseEncoder response;
             if (frameContext.relpFrame().payload().size() > 0) {
                 try {
                     cbFunction.accept(frameContext);
 
-                    relpFrame = new RelpFrameImpl(
-                            txnCopy,
-                            okTemplate.command(),
-                            okTemplate.payloadLength(),
-                            okTemplate.payload(),
-                            okTemplate.endOfTransfer()
-                    );
+                    response = okResponse;
                 }
                 catch (Exception e) {
                     LOGGER.error("EXCEPTION WHILE PROCESSING SYSLOG PAYLOAD", e);
 
-                    relpFrame = new RelpFrameImpl(
-                            txnCopy,
-                            errorTemplate.command(),
-                            errorTemplate.payloadLength(),
-                            errorTemplate.payload(),
-                            errorTemplate.endOfTransfer()
-                    );
+                    response = errorResponse;
                 }
             }
             else {
-                relpFrame = new RelpFrameImpl(
-                        txnCopy,
-                        noPayloadTemplate.command(),
-                        noPayloadTemplate.payloadLength(),
-                        noPayloadTemplate.payload(),
-                        noPayloadTemplate.endOfTransfer()
-                );
+                response = noPayloadResponse;
             }
 
-            frameContext.establishedContext().egress().accept(relpFrame.toWriteable());
+            frameContext.establishedContext().egress().accept(response.encode(txnId));
         }
         finally {
             frameContext.relpFrame().close();
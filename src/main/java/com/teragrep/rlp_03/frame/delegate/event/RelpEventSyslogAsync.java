@@ -0,0 +1,134 @@
+/*
+ * Java Reliable Event Logging Protocol Library Server Implementation RLP-03
+ * Copyright (C) 2021-2024 Suomen Kanuuna Oy
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Affero General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Affero General Public License for more details.
+ *
+ * You should have received a copy of the GNU Affero General Public License
+ * along with this program.  If not, see <https://www.gnu.org/licenses/>.
+ *
+ *
+ * Additional permission under GNU Affero General Public License version 3
+ * section 7
+ *
+ * If you modify this Program, or any covered work, by linking or combining it
+ * with other code, such other code is not for that reason alone subject to any
+ * of the requirements of the GNU Affero GPL version 3 as long as this Program
+ * is the same Program as licensed from Suomen Kanuuna Oy without any additional
+ * modifications.
+ *
+ * Supplemented terms under GNU Affero General Public License version 3
+ * section 7
+ *
+ * Origin of the software must be attributed to Suomen Kanuuna Oy. Any modified
+ * versions must be marked as "Modified version of" The Program.
+ *
+ * Names of the licensors and authors may not be used for publicity purposes.
+ *
+ * No rights are granted for use of trade names, trademarks, or service marks
+ * which are in The Program if any.
+ *
+ * Licensee must indemnify licensors and authors for any liability that these
+ * contractual assumptions impose on licensors and authors.
+ *
+ * To the extent this program is licensed as part of the Commercial versions of
+ * Teragrep, the applicable Commercial License may apply to this file if you as
+ * a licensee so wish it.
+ */
+package com.teragrep.rlp_03.frame.delegate.event;
+
+import com.teragrep.rlp_03.frame.delegate.FrameContext;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionStage;
+import java.util.function.Function;
+
+/**
+ * Syslog handler which does not wait for the processing to complete. The response is sent and the frame is closed when
+ * the stage returned by cbFunction completes, responses of a connection may be sent in any order as they are matched to
+ * the requests by txn.
+ */
+public final class RelpEventSyslogAsync extends RelpEvent {
+
+    private static final Logger LOGGER = LoggerFactory.getLogger(RelpEventSyslogAsync.class);
+
+    private final Function<FrameContext, CompletionStage<?>> cbFunction;
+
+    private final ResponseEncoder okResponse;
+    private final ResponseEncoder errorResponse;
+    private final ResponseEncoder noPayloadResponse;
+
+    public RelpEventSyslogAsync(Function<FrameContext, CompletionStage<?>> cbFunction) {
+        this.cbFunction = cbFunction;
+
+        this.okResponse = new ResponseEncoder("rsp", "200 OK");
+        this.errorResponse = new ResponseEncoder("rsp", "500 EXCEPTION WHILE PROCESSING SYSLOG PAYLOAD");
+        this.noPayloadResponse = new ResponseEncoder("rsp", "500 NO PAYLOAD");
+    }
+
+    @Override
+    public void accept(FrameContext frameContext) {
+        final int txnId = frameContext.relpFrame().txnId();
+
+        if (frameContext.relpFrame().payload().size() > 0) {
+            stage(frameContext).whenComplete((result, throwable) -> {
+                if (throwable == null) {
+                    respond(frameContext, okResponse, txnId);
+                }
+                else {
+                    LOGGER.error("EXCEPTION WHILE PROCESSING SYSLOG PAYLOAD", throwable);
+                    respond(frameContext, errorResponse, txnId);
+                }
+            });
+        }
+        else {
+            respond(frameContext, noPayloadResponse, txnId);
+        }
+    }
+
+    private CompletionStage<?> stage(FrameContext frameContext) {
+        CompletionStage<?> rv;
+        try {
+            rv = cbFunction.apply(frameContext);
+            if (rv == null) {
+                rv = failed(new IllegalStateException("cbFunction returned no stage"));
+            }
+        }
+        catch (Exception e) {
+            rv = failed(e);
+        }
+        return rv;
+    }
+
+    private static CompletionStage<?> failed(Exception exception) {
+        CompletableFuture<Object> rv = new CompletableFuture<>();
+        rv.completeExceptionally(exception);
+        return rv;
+    }
+
+    private static void respond(FrameContext frameContext, ResponseEncoder response, int txnId) {
+        try {
+            frameContext.establishedContext().egress().accept(response.encode(txnId));
+        }
+        finally {
+            frameContext.relpFrame().close();
+        }
+    }
+
+    @Override
+    public void close() throws Exception {
+        if (cbFunction instanceof AutoCloseable) {
+            ((AutoCloseable) cbFunction).close();
+        }
+    }
+}
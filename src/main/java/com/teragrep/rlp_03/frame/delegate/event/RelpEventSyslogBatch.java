@@ -0,0 +1,161 @@
+/*
+ * Java Reliable Event Logging Protocol Library Server Implementation RLP-03
+ * Copyright (C) 2021-2024 Suomen Kanuuna Oy
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Affero General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Affero General Public License for more details.
+ *
+ * You should have received a copy of the GNU Affero General Public License
+ * along with this program.  If not, see <https://www.gnu.org/licenses/>.
+ *
+ *
+ * Additional permission under GNU Affero General Public License version 3
+ * section 7
+ *
+ * If you modify this Program, or any covered work, by linking or combining it
+ * with other code, such other code is not for that reason alone subject to any
+ * of the requirements of the GNU Affero GPL version 3 as long as this Program
+ * is the same Program as licensed from Suomen Kanuuna Oy without any additional
+ * modifications.
+ *
+ * Supplemented terms under GNU Affero General Public License version 3
+ * section 7
+ *
+ * Origin of the software must be attributed to Suomen Kanuuna Oy. Any modified
+ * versions must be marked as "Modified version of" The Program.
+ *
+ * Names of the licensors and authors may not be used for publicity purposes.
+ *
+ * No rights are granted for use of trade names, trademarks, or service marks
+ * which are in The Program if any.
+ *
+ * Licensee must indemnify licensors and authors for any liability that these
+ * contractual assumptions impose on licensors and authors.
+ *
+ * To the extent this program is licensed as part of the Commercial versions of
+ * Teragrep, the applicable Commercial License may apply to this file if you as
+ * a licensee so wish it.
+ */
+package com.teragrep.rlp_03.frame.delegate.event;
+
+import com.teragrep.net_01.channel.buffer.writable.Writeable;
+import com.teragrep.net_01.channel.buffer.writable.Writeables;
+import com.teragrep.rlp_03.frame.delegate.FrameContext;
+import com.teragrep.rlp_03.frame.delegate.SyslogBatch;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.util.Arrays;
+import java.util.function.Consumer;
+
+/**
+ * Collects consecutive syslog frames of a connection and processes them with a single call to the batch consumer. The
+ * responses of all collected frames are written with one gathering write.
+ */
+public final class RelpEventSyslogBatch implements AutoCloseable {
+
+    private static final Logger LOGGER = LoggerFactory.getLogger(RelpEventSyslogBatch.class);
+
+    private final Consumer<SyslogBatch> cbFunction;
+
+    private final ResponseEncoder okResponse;
+    private final ResponseEncoder errorResponse;
+    private final ResponseEncoder noPayloadResponse;
+
+    private final SyslogBatchImpl syslogBatch;
+    private FrameContext[] pending;
+    private int pendingSize;
+
+    public RelpEventSyslogBatch(Consumer<SyslogBatch> cbFunction) {
+        this.cbFunction = cbFunction;
+
+        this.okResponse = new ResponseEncoder("rsp", "200 OK");
+        this.errorResponse = new ResponseEncoder("rsp", "500 EXCEPTION WHILE PROCESSING SYSLOG PAYLOAD");
+        this.noPayloadResponse = new ResponseEncoder("rsp", "500 NO PAYLOAD");
+
+        this.syslogBatch = new SyslogBatchImpl();
+        this.pending = new FrameContext[16];
+        this.pendingSize = 0;
+    }
+
+    /**
+     * Adds a syslog frame to be processed on the next {@link #flush()}.
+     */
+    public void add(FrameContext frameContext) {
+        if (pendingSize == pending.length) {
+            pending = Arrays.copyOf(pending, pendingSize * 2);
+        }
+        pending[pendingSize] = frameContext;
+        pendingSize++;
+    }
+
+    /**
+     * Processes the added frames and responds to them in the order they were added.
+     */
+    public void flush() {
+        if (pendingSize == 0) {
+            return;
+        }
+
+        try {
+            for (int i = 0; i < pendingSize; i++) {
+                if (pending[i].relpFrame().payload().size() > 0) {
+                    syslogBatch.add(pending[i]);
+                }
+            }
+
+            if (syslogBatch.size() > 0) {
+                try {
+                    cbFunction.accept(syslogBatch);
+                }
+                catch (Exception e) {
+                    LOGGER.error("EXCEPTION WHILE PROCESSING SYSLOG PAYLOAD", e);
+                    syslogBatch.failAll();
+                }
+            }
+
+            final Writeable[] writeables = new Writeable[pendingSize];
+            int batchIndex = 0;
+            for (int i = 0; i < pendingSize; i++) {
+                final ResponseEncoder response;
+                if (batchIndex < syslogBatch.size() && syslogBatch.get(batchIndex) == pending[i]) {
+                    if (syslogBatch.isFailed(batchIndex)) {
+                        response = errorResponse;
+                    }
+                    else {
+                        response = okResponse;
+                    }
+                    batchIndex++;
+                }
+                else {
+                    response = noPayloadResponse;
+                }
+                writeables[i] = response.encode(pending[i].relpFrame().txnId());
+            }
+
+            pending[0].establishedContext().egress().accept(new Writeables(writeables));
+        }
+        finally {
+            for (int i = 0; i < pendingSize; i++) {
+                pending[i].relpFrame().close();
+            }
+            Arrays.fill(pending, 0, pendingSize, null);
+            pendingSize = 0;
+            syslogBatch.clear();
+        }
+    }
+
+    @Override
+    public void close() throws Exception {
+        if (cbFunction instanceof AutoCloseable) {
+            ((AutoCloseable) cbFunction).close();
+        }
+    }
+}
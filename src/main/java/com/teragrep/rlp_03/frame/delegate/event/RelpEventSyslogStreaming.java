@@ -0,0 +1,127 @@
+/*
+ * Java Reliable Event Logging Protocol Library Server Implementation RLP-03
+ * Copyright (C) 2021-2024 Suomen Kanuuna Oy
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Affero General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Affero General Public License for more details.
+ *
+ * You should have received a copy of the GNU Affero General Public License
+ * along with this program.  If not, see <https://www.gnu.org/licenses/>.
+ *
+ *
+ * Additional permission under GNU Affero General Public License version 3
+ * section 7
+ *
+ * If you modify this Program, or any covered work, by linking or combining it
+ * with other code, such other code is not for that reason alone subject to any
+ * of the requirements of the GNU Affero GPL version 3 as long as this Program
+ * is the same Program as licensed from Suomen Kanuuna Oy without any additional
+ * modifications.
+ *
+ * Supplemented terms under GNU Affero General Public License version 3
+ * section 7
+ *
+ * Origin of the software must be attributed to Suomen Kanuuna Oy. Any modified
+ * versions must be marked as "Modified version of" The Program.
+ *
+ * Names of the licensors and authors may not be used for publicity purposes.
+ *
+ * No rights are granted for use of trade names, trademarks, or service marks
+ * which are in The Program if any.
+ *
+ * Licensee must indemnify licensors and authors for any liability that these
+ * contractual assumptions impose on licensors and authors.
+ *
+ * To the extent this program is licensed as part of the Commercial versions of
+ * Teragrep, the applicable Commercial License may apply to this file if you as
+ * a licensee so wish it.
+ */
+package com.teragrep.rlp_03.frame.delegate.event;
+
+import com.teragrep.rlp_03.frame.delegate.FrameContext;
+import com.teragrep.rlp_03.frame.delegate.PayloadChunkConsumer;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.util.function.Consumer;
+
+/**
+ * Syslog event which receives the payloads in chunks as they arrive. The frame is passed to the completion callback and
+ * acknowledged after the last chunk. If the chunk consumer fails the frame has a stub payload and is responded with an
+ * error, so the event holds no state of the frames and may be shared by connections.
+ */
+public final class RelpEventSyslogStreaming extends RelpEvent {
+
+    private static final Logger LOGGER = LoggerFactory.getLogger(RelpEventSyslogStreaming.class);
+
+    private final PayloadChunkConsumer payloadChunkConsumer;
+    private final Consumer<FrameContext> completion;
+
+    private final ResponseEncoder okResponse;
+    private final ResponseEncoder errorResponse;
+    private final ResponseEncoder noPayloadResponse;
+
+    public RelpEventSyslogStreaming(PayloadChunkConsumer payloadChunkConsumer, Consumer<FrameContext> completion) {
+        this.payloadChunkConsumer = payloadChunkConsumer;
+        this.completion = completion;
+
+        this.okResponse = new ResponseEncoder("rsp", "200 OK");
+        this.errorResponse = new ResponseEncoder("rsp", "500 EXCEPTION WHILE PROCESSING SYSLOG PAYLOAD");
+        this.noPayloadResponse = new ResponseEncoder("rsp", "500 NO PAYLOAD");
+    }
+
+    @Override
+    public PayloadChunkConsumer payloadChunkConsumer() {
+        return payloadChunkConsumer;
+    }
+
+    @Override
+    public void accept(FrameContext frameContext) {
+        try {
+            final int txnId = frameContext.relpFrame().txnId();
+
+            ResponseEncoder response;
+            if (frameContext.relpFrame().payload().isStub()) {
+                // chunk consumer failed, exception is logged by the sink
+                response = errorResponse;
+            }
+            else if (frameContext.relpFrame().payloadLengthValue() > 0) {
+                try {
+                    completion.accept(frameContext);
+
+                    response = okResponse;
+                }
+                catch (Exception e) {
+                    LOGGER.error("EXCEPTION WHILE PROCESSING SYSLOG PAYLOAD", e);
+
+                    response = errorResponse;
+                }
+            }
+            else {
+                response = noPayloadResponse;
+            }
+
+            frameContext.establishedContext().egress().accept(response.encode(txnId));
+        }
+        finally {
+            frameContext.relpFrame().close();
+        }
+    }
+
+    @Override
+    public void close() throws Exception {
+        if (payloadChunkConsumer instanceof AutoCloseable) {
+            ((AutoCloseable) payloadChunkConsumer).close();
+        }
+        if (completion instanceof AutoCloseable) {
+            ((AutoCloseable) completion).close();
+        }
+    }
+}
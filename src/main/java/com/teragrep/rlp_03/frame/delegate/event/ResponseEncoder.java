@@ -0,0 +1,82 @@
+/*
+ * Java Reliable Event Logging Protocol Library Server Implementation RLP-03
+ * Copyright (C) 2021-2024 Suomen Kanuuna Oy
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Affero General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Affero General Public License for more details.
+ *
+ * You should have received a copy of the GNU Affero General Public License
+ * along with this program.  If not, see <https://www.gnu.org/licenses/>.
+ *
+ *
+ * Additional permission under GNU Affero General Public License version 3
+ * section 7
+ *
+ * If you modify this Program, or any covered work, by linking or combining it
+ * with other code, such other code is not for that reason alone subject to any
+ * of the requirements of the GNU Affero GPL version 3 as long as this Program
+ * is the same Program as licensed from Suomen Kanuuna Oy without any additional
+ * modifications.
+ *
+ * Supplemented terms under GNU Affero General Public License version 3
+ * section 7
+ *
+ * Origin of the software must be attributed to Suomen Kanuuna Oy. Any modified
+ * versions must be marked as "Modified version of" The Program.
+ *
+ * Names of the licensors and authors may not be used for publicity purposes.
+ *
+ * No rights are granted for use of trade names, trademarks, or service marks
+ * which are in The Program if any.
+ *
+ * Licensee must indemnify licensors and authors for any liability that these
+ * contractual assumptions impose on licensors and authors.
+ *
+ * To the extent this program is licensed as part of the Commercial versions of
+ * Teragrep, the applicable Commercial License may apply to this file if you as
+ * a licensee so wish it.
+ */
+package com.teragrep.rlp_03.frame.delegate.event;
+
+import com.teragrep.net_01.channel.buffer.writable.Writeable;
+
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+
+/**
+ * Encodes response frames which differ only by txn. Everything after the txn is encoded once and shared, the txn digits
+ * are written into pooled buffers which are returned when the response has been written.
+ */
+public final class ResponseEncoder {
+
+    private final ResponseSlotPool responseSlotPool;
+
+    public ResponseEncoder(String command, String payload) {
+        this(command, payload, 64);
+    }
+
+    public ResponseEncoder(String command, String payload, int poolSize) {
+        byte[] payloadBytes = payload.getBytes(StandardCharsets.UTF_8);
+        String tail = " " + command + " " + payloadBytes.length + " " + payload + "\n";
+        this.responseSlotPool = new ResponseSlotPool(
+                ByteBuffer.wrap(tail.getBytes(StandardCharsets.UTF_8)).asReadOnlyBuffer(),
+                poolSize
+        );
+    }
+
+    /**
+     * @return response for the txn, must be closed after writing for the buffers to be reused
+     */
+    public Writeable encode(int txnId) {
+        ResponseSlot responseSlot = responseSlotPool.take();
+        responseSlot.encode(txnId);
+        return responseSlot;
+    }
+}
@@ -0,0 +1,146 @@
+/*
+ * Java Reliable Event Logging Protocol Library Server Implementation RLP-03
+ * Copyright (C) 2021-2024 Suomen Kanuuna Oy
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Affero General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Affero General Public License for more details.
+ *
+ * You should have received a copy of the GNU Affero General Public License
+ * along with this program.  If not, see <https://www.gnu.org/licenses/>.
+ *
+ *
+ * Additional permission under GNU Affero General Public License version 3
+ * section 7
+ *
+ * If you modify this Program, or any covered work, by linking or combining it
+ * with other code, such other code is not for that reason alone subject to any
+ * of the requirements of the GNU Affero GPL version 3 as long as this Program
+ * is the same Program as licensed from Suomen Kanuuna Oy without any additional
+ * modifications.
+ *
+ * Supplemented terms under GNU Affero General Public License version 3
+ * section 7
+ *
+ * Origin of the software must be attributed to Suomen Kanuuna Oy. Any modified
+ * versions must be marked as "Modified version of" The Program.
+ *
+ * Names of the licensors and authors may not be used for publicity purposes.
+ *
+ * No rights are granted for use of trade names, trademarks, or service marks
+ * which are in The Program if any.
+ *
+ * Licensee must indemnify licensors and authors for any liability that these
+ * contractual assumptions impose on licensors and authors.
+ *
+ * To the extent this program is licensed as part of the Commercial versions of
+ * Teragrep, the applicable Commercial License may apply to this file if you as
+ * a licensee so wish it.
+ */
+package com.teragrep.rlp_03.frame.delegate.event;
+
+import com.teragrep.net_01.channel.buffer.writable.Writeable;
+
+import java.nio.ByteBuffer;
+
+/**
+ * Pooled response, txn digits followed by the shared remainder of the frame.
+ */
+final class ResponseSlot implements Writeable {
+
+    private static final byte[] digitPairs = digitPairs();
+    private static final int[] digitLimits = new int[] {
+            9, 99, 999, 9_999, 99_999, 999_999, 9_999_999, 99_999_999, 999_999_999, Integer.MAX_VALUE
+    };
+
+    private final ResponseSlotPool responseSlotPool;
+    private final ByteBuffer txn;
+    private final ByteBuffer tail;
+    private final ByteBuffer[] buffers;
+    private boolean pooled;
+
+    ResponseSlot(ResponseSlotPool responseSlotPool, ByteBuffer tail) {
+        this.responseSlotPool = responseSlotPool;
+        this.txn = ByteBuffer.allocate(digitLimits.length);
+        this.tail = tail;
+        this.buffers = new ByteBuffer[] {
+                txn, tail
+        };
+        this.pooled = false;
+    }
+
+    void encode(int txnId) {
+        if (txnId < 0) {
+            throw new IllegalArgumentException("txnId must not be negative, got <" + txnId + ">");
+        }
+        int length = 1;
+        while (txnId > digitLimits[length - 1]) {
+            length++;
+        }
+
+        txn.clear();
+        txn.limit(length);
+        int position = length;
+        int value = txnId;
+        while (value >= 100) {
+            final int quotient = value / 100;
+            final int pair = (value - quotient * 100) * 2;
+            value = quotient;
+            position = position - 2;
+            txn.put(position, digitPairs[pair]);
+            txn.put(position + 1, digitPairs[pair + 1]);
+        }
+        if (value >= 10) {
+            txn.put(0, digitPairs[value * 2]);
+            txn.put(1, digitPairs[value * 2 + 1]);
+        }
+        else {
+            txn.put(0, (byte) ('0' + value));
+        }
+
+        tail.rewind();
+    }
+
+    boolean isPooled() {
+        return pooled;
+    }
+
+    void pooled(boolean pooled) {
+        this.pooled = pooled;
+    }
+
+    @Override
+    public ByteBuffer[] buffers() {
+        return buffers;
+    }
+
+    @Override
+    public boolean hasRemaining() {
+        return txn.hasRemaining() || tail.hasRemaining();
+    }
+
+    @Override
+    public boolean isStub() {
+        return false;
+    }
+
+    @Override
+    public void close() {
+        responseSlotPool.release(this);
+    }
+
+    private static byte[] digitPairs() {
+        final byte[] pairs = new byte[200];
+        for (int i = 0; i < 100; i++) {
+            pairs[i * 2] = (byte) ('0' + i / 10);
+            pairs[i * 2 + 1] = (byte) ('0' + i % 10);
+        }
+        return pairs;
+    }
+}
@@ -0,0 +1,103 @@
+/*
+ * Java Reliable Event Logging Protocol Library Server Implementation RLP-03
+ * Copyright (C) 2021-2024 Suomen Kanuuna Oy
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Affero General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Affero General Public License for more details.
+ *
+ * You should have received a copy of the GNU Affero General Public License
+ * along with this program.  If not, see <https://www.gnu.org/licenses/>.
+ *
+ *
+ * Additional permission under GNU Affero General Public License version 3
+ * section 7
+ *
+ * If you modify this Program, or any covered work, by linking or combining it
+ * with other code, such other code is not for that reason alone subject to any
+ * of the requirements of the GNU Affero GPL version 3 as long as this Program
+ * is the same Program as licensed from Suomen Kanuuna Oy without any additional
+ * modifications.
+ *
+ * Supplemented terms under GNU Affero General Public License version 3
+ * section 7
+ *
+ * Origin of the software must be attributed to Suomen Kanuuna Oy. Any modified
+ * versions must be marked as "Modified version of" The Program.
+ *
+ * Names of the licensors and authors may not be used for publicity purposes.
+ *
+ * No rights are granted for use of trade names, trademarks, or service marks
+ * which are in The Program if any.
+ *
+ * Licensee must indemnify licensors and authors for any liability that these
+ * contractual assumptions impose on licensors and authors.
+ *
+ * To the extent this program is licensed as part of the Commercial versions of
+ * Teragrep, the applicable Commercial License may apply to this file if you as
+ * a licensee so wish it.
+ */
+package com.teragrep.rlp_03.frame.delegate.event;
+
+import java.nio.ByteBuffer;
+import java.util.concurrent.locks.Lock;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * Bounded stack of {@link ResponseSlot}s, new slots are created when the stack is empty.
+ */
+final class ResponseSlotPool {
+
+    private final ByteBuffer tail;
+    private final ResponseSlot[] slots;
+    private final Lock lock;
+    private int size;
+
+    ResponseSlotPool(ByteBuffer tail, int capacity) {
+        this.tail = tail;
+        this.slots = new ResponseSlot[capacity];
+        this.lock = new ReentrantLock();
+        this.size = 0;
+    }
+
+    ResponseSlot take() {
+        lock.lock();
+        try {
+            final ResponseSlot responseSlot;
+            if (size > 0) {
+                size--;
+                responseSlot = slots[size];
+                slots[size] = null;
+                responseSlot.pooled(false);
+            }
+            else {
+                responseSlot = new ResponseSlot(this, tail.duplicate());
+            }
+            return responseSlot;
+        }
+        finally {
+            lock.unlock();
+        }
+    }
+
+    void release(ResponseSlot responseSlot) {
+        lock.lock();
+        try {
+            // a slot closed twice must not be handed out twice
+            if (!responseSlot.isPooled() && size < slots.length) {
+                responseSlot.pooled(true);
+                slots[size] = responseSlot;
+                size++;
+            }
+        }
+        finally {
+            lock.unlock();
+        }
+    }
+}
@@ -50,33 +50,93 @@ import com.teragrep.rlp_03.frame.delegate.FrameDelegateStub;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
-import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
 import java.util.concurrent.atomic.AtomicBoolean;
-import java.util.concurrent.locks.Lock;
-import java.util.concurrent.locks.ReentrantLock;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.LongAdder;
 import java.util.function.Supplier;
 
+/**
+ * Pool of delegates striped by thread so that the workers do not contend on a single queue. A thread takes from its own
+ * stripe first and from the others when it is empty. At most maximum delegates are pooled across all stripes, surplus
+ * delegates and those idle for longer than idleMillis are closed.
+ * <p>
+ * Idle delegates are only evicted when delegates are offered: each offer sweeps the stripe of the offering thread and
+ * one other stripe in turn. The pool runs no thread of its own, callers that want idle delegates closed while no frames
+ * arrive must run {@link #evictIdle()} periodically, for example from a ScheduledExecutorService.
+ */
 public final class FrameDelegatePool implements AutoCloseable {
 
     private static final Logger LOGGER = LoggerFactory.getLogger(FrameDelegatePool.class);
 
     private final Supplier<FrameDelegate> frameDelegateSupplier;
 
-    private final ConcurrentLinkedQueue<FrameDelegate> queue;
+    private final FrameDelegateStripe[] stripes;
 
-    private final FrameDelegate frameDelegateStub;
+    private final int maximum;
+
+    private final AtomicInteger pooled;
+
+    private final AtomicInteger sweep;
 
-    private final Lock lock = new ReentrantLock();
+    private final long idleNanos;
+
+    private final FrameDelegate frameDelegateStub;
 
     private final AtomicBoolean close;
 
+    private final LongAdder takes;
+    private final LongAdder offers;
+    private final LongAdder creates;
+    private final LongAdder evictions;
+
     public FrameDelegatePool(final Supplier<FrameDelegate> frameDelegateSupplier) {
+        this(frameDelegateSupplier, Integer.MAX_VALUE, Long.MAX_VALUE);
+    }
+
+    public FrameDelegatePool(final Supplier<FrameDelegate> frameDelegateSupplier, int maximum, long idleMillis) {
+        this(frameDelegateSupplier, Runtime.getRuntime().availableProcessors(), maximum, idleMillis);
+    }
+
+    /**
+     * @param stripes    number of stripes, each holds up to maximum / stripes delegates rounded up
+     * @param maximum    delegates pooled in total, also when there are more stripes than this
+     * @param idleMillis delegates not used for this long are closed, Long.MAX_VALUE keeps them
+     */
+    public FrameDelegatePool(
+            final Supplier<FrameDelegate> frameDelegateSupplier,
+            int stripes,
+            int maximum,
+            long idleMillis
+    ) {
+        if (stripes < 1 || maximum < 1) {
+            throw new IllegalArgumentException(
+                    "stripes <" + stripes + "> and maximum <" + maximum + "> must be at least 1"
+            );
+        }
         this.frameDelegateSupplier = frameDelegateSupplier;
-        this.queue = new ConcurrentLinkedQueue<>();
+        this.stripes = new FrameDelegateStripe[stripes];
+        final int stripeCapacity = (int) ((maximum + (long) stripes - 1) / stripes);
+        for (int i = 0; i < stripes; i++) {
+            this.stripes[i] = new FrameDelegateStripe(stripeCapacity);
+        }
+        this.maximum = maximum;
+        this.pooled = new AtomicInteger();
+        this.sweep = new AtomicInteger();
+        if (idleMillis >= TimeUnit.NANOSECONDS.toMillis(Long.MAX_VALUE)) {
+            this.idleNanos = Long.MAX_VALUE;
+        }
+        else {
+            this.idleNanos = TimeUnit.MILLISECONDS.toNanos(idleMillis);
+        }
         this.frameDelegateStub = new FrameDelegateStub();
         this.close = new AtomicBoolean();
-
-        // TODO maximum number of available frameDelegates should be perhaps limited?
+        this.takes = new LongAdder();
+        this.offers = new LongAdder();
+        this.creates = new LongAdder();
+        this.evictions = new LongAdder();
     }
 
     public FrameDelegate take() {
@@ -85,9 +145,17 @@ public final class FrameDelegatePool implements AutoCloseable {
             frameDelegate = frameDelegateStub;
         }
         else {
-            // get or create
-            frameDelegate = queue.poll();
-            if (frameDelegate == null) {
+            takes.increment();
+            final int home = stripe();
+            frameDelegate = stripes[home].take();
+            for (int i = 1; i < stripes.length && frameDelegate.isStub(); i++) {
+                frameDelegate = stripes[(home + i) % stripes.length].take();
+            }
+            if (!frameDelegate.isStub()) {
+                pooled.decrementAndGet();
+            }
+            else {
+                creates.increment();
                 frameDelegate = frameDelegateSupplier.get();
             }
         }
@@ -97,45 +165,117 @@ public final class FrameDelegatePool implements AutoCloseable {
 
     public void offer(FrameDelegate frameDelegate) {
         if (!frameDelegate.isStub()) {
-            queue.add(frameDelegate);
-        }
-
-        if (close.get()) {
-            while (queue.peek() != null) {
-                if (lock.tryLock()) {
-                    while (true) {
-                        FrameDelegate queuedFrameDelegate = queue.poll();
-                        if (queuedFrameDelegate == null) {
-                            break;
-                        }
-                        else {
-                            try {
-                                LOGGER.debug("Closing frameDelegate <{}>", queuedFrameDelegate);
-                                queuedFrameDelegate.close();
-                                LOGGER.debug("Closed frameDelegate <{}>", queuedFrameDelegate);
-                            }
-                            catch (Exception exception) {
-                                LOGGER
-                                        .warn(
-                                                "Exception <{}> while closing frameDelegate <{}>",
-                                                exception.getMessage(), queuedFrameDelegate
-                                        );
-                            }
-                        }
-                    }
-                    lock.unlock();
+            offers.increment();
+            final long now = System.nanoTime();
+            final int home = stripe();
+            boolean offered = false;
+            if (reserve()) {
+                offered = stripes[home].offer(frameDelegate, now);
+                for (int i = 1; i < stripes.length && !offered && !close.get(); i++) {
+                    offered = stripes[(home + i) % stripes.length].offer(frameDelegate, now);
                 }
-                else {
-                    break;
+                if (!offered) {
+                    pooled.decrementAndGet();
+                }
+            }
+
+            final List<FrameDelegate> evicted = new ArrayList<>(0);
+            if (!offered) {
+                // pool is full or closed
+                evicted.add(frameDelegate);
+            }
+            if (idleNanos != Long.MAX_VALUE) {
+                final int surplus = evicted.size();
+                stripes[home].evict(now - idleNanos, evicted);
+                // stripes of threads which stopped offering are swept in turn
+                final int swept = Math.floorMod(sweep.getAndIncrement(), stripes.length);
+                if (swept != home) {
+                    stripes[swept].evict(now - idleNanos, evicted);
                 }
+                pooled.addAndGet(surplus - evicted.size());
+            }
+            if (!close.get()) {
+                evictions.add(evicted.size());
             }
+            closeAll(evicted);
         }
     }
 
+    /**
+     * Closes the delegates of every stripe which have been idle for longer than idleMillis. Offers evict only part of
+     * the stripes, this is to be run periodically when offers may stop.
+     */
+    public void evictIdle() {
+        if (idleNanos != Long.MAX_VALUE) {
+            final long idleSince = System.nanoTime() - idleNanos;
+            final List<FrameDelegate> evicted = new ArrayList<>();
+            for (FrameDelegateStripe stripe : stripes) {
+                stripe.evict(idleSince, evicted);
+            }
+            pooled.addAndGet(-evicted.size());
+            evictions.add(evicted.size());
+            closeAll(evicted);
+        }
+    }
+
+    /**
+     * @return true if a delegate may be pooled, the count is taken before offering so that concurrent offers to
+     *         different stripes do not exceed maximum
+     */
+    private boolean reserve() {
+        int current = pooled.get();
+        while (current < maximum && !pooled.compareAndSet(current, current + 1)) {
+            current = pooled.get();
+        }
+        return current < maximum;
+    }
+
+    private int stripe() {
+        return (int) (Thread.currentThread().getId() % stripes.length);
+    }
+
+    private void closeAll(List<FrameDelegate> frameDelegates) {
+        for (FrameDelegate frameDelegate : frameDelegates) {
+            try {
+                LOGGER.debug("Closing frameDelegate <{}>", frameDelegate);
+                frameDelegate.close();
+                LOGGER.debug("Closed frameDelegate <{}>", frameDelegate);
+            }
+            catch (Exception exception) {
+                LOGGER.warn("Exception <{}> while closing frameDelegate <{}>", exception.getMessage(), frameDelegate);
+            }
+        }
+    }
+
+    public long takes() {
+        return takes.sum();
+    }
+
+    public long offers() {
+        return offers.sum();
+    }
+
+    public long creates() {
+        return creates.sum();
+    }
+
+    public long evictions() {
+        return evictions.sum();
+    }
+
+    /**
+     * Closes the pooled delegates, delegates in use are closed when they are offered back. Each stripe is drained under
+     * its lock, offers racing with close are closed by the offering thread.
+     */
+    @Override
     public void close() {
         close.set(true);
 
-        // close all that are in the pool right now
-        offer(frameDelegateStub);
+        final List<FrameDelegate> closing = new ArrayList<>();
+        for (FrameDelegateStripe stripe : stripes) {
+            stripe.close(closing);
+        }
+        pooled.addAndGet(-closing.size());
+        closeAll(closing);
     }
 }
@@ -0,0 +1,167 @@
+/*
+ * Java Reliable Event Logging Protocol Library Server Implementation RLP-03
+ * Copyright (C) 2021-2024 Suomen Kanuuna Oy
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Affero General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Affero General Public License for more details.
+ *
+ * You should have received a copy of the GNU Affero General Public License
+ * along with this program.  If not, see <https://www.gnu.org/licenses/>.
+ *
+ *
+ * Additional permission under GNU Affero General Public License version 3
+ * section 7
+ *
+ * If you modify this Program, or any covered work, by linking or combining it
+ * with other code, such other code is not for that reason alone subject to any
+ * of the requirements of the GNU Affero GPL version 3 as long as this Program
+ * is the same Program as licensed from Suomen Kanuuna Oy without any additional
+ * modifications.
+ *
+ * Supplemented terms under GNU Affero General Public License version 3
+ * section 7
+ *
+ * Origin of the software must be attributed to Suomen Kanuuna Oy. Any modified
+ * versions must be marked as "Modified version of" The Program.
+ *
+ * Names of the licensors and authors may not be used for publicity purposes.
+ *
+ * No rights are granted for use of trade names, trademarks, or service marks
+ * which are in The Program if any.
+ *
+ * Licensee must indemnify licensors and authors for any liability that these
+ * contractual assumptions impose on licensors and authors.
+ *
+ * To the extent this program is licensed as part of the Commercial versions of
+ * Teragrep, the applicable Commercial License may apply to this file if you as
+ * a licensee so wish it.
+ */
+package com.teragrep.rlp_03.frame.delegate.pool;
+
+import com.teragrep.rlp_03.frame.delegate.FrameDelegate;
+import com.teragrep.rlp_03.frame.delegate.FrameDelegateStub;
+
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.locks.Lock;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * Lock-guarded stack of pooled delegates with the time each was returned. The most recently returned delegate is taken
+ * first, so the idle ones collect at the bottom of the stack.
+ */
+final class FrameDelegateStripe {
+
+    private static final FrameDelegate frameDelegateStub = new FrameDelegateStub();
+
+    private final int capacity;
+    private final Lock lock;
+    private FrameDelegate[] frameDelegates;
+    private long[] returnedNanos;
+    private int size;
+    private boolean closed;
+
+    FrameDelegateStripe(int capacity) {
+        this.capacity = capacity;
+        this.lock = new ReentrantLock();
+        this.frameDelegates = new FrameDelegate[Math.min(capacity, 16)];
+        this.returnedNanos = new long[frameDelegates.length];
+        this.size = 0;
+        this.closed = false;
+    }
+
+    /**
+     * @return pooled delegate or a stub if none is available
+     */
+    FrameDelegate take() {
+        lock.lock();
+        try {
+            final FrameDelegate rv;
+            if (size > 0) {
+                size--;
+                rv = frameDelegates[size];
+                frameDelegates[size] = null;
+            }
+            else {
+                rv = frameDelegateStub;
+            }
+            return rv;
+        }
+        finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * @return false if the stripe is full or closed, the delegate is not pooled
+     */
+    boolean offer(FrameDelegate frameDelegate, long nowNanos) {
+        lock.lock();
+        try {
+            boolean rv = false;
+            if (!closed && size < capacity) {
+                if (size == frameDelegates.length) {
+                    final int grown = (int) Math.min(capacity, frameDelegates.length * 2L);
+                    frameDelegates = Arrays.copyOf(frameDelegates, grown);
+                    returnedNanos = Arrays.copyOf(returnedNanos, grown);
+                }
+                frameDelegates[size] = frameDelegate;
+                returnedNanos[size] = nowNanos;
+                size++;
+                rv = true;
+            }
+            return rv;
+        }
+        finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * Moves the delegates returned before idleSinceNanos to evicted.
+     */
+    void evict(long idleSinceNanos, List<FrameDelegate> evicted) {
+        lock.lock();
+        try {
+            int idle = 0;
+            while (idle < size && returnedNanos[idle] - idleSinceNanos < 0) {
+                evicted.add(frameDelegates[idle]);
+                idle++;
+            }
+            if (idle > 0) {
+                System.arraycopy(frameDelegates, idle, frameDelegates, 0, size - idle);
+                System.arraycopy(returnedNanos, idle, returnedNanos, 0, size - idle);
+                Arrays.fill(frameDelegates, size - idle, size, null);
+                size = size - idle;
+            }
+        }
+        finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * Moves all delegates to closing, later offers are refused.
+     */
+    void close(List<FrameDelegate> closing) {
+        lock.lock();
+        try {
+            closed = true;
+            for (int i = 0; i < size; i++) {
+                closing.add(frameDelegates[i]);
+                frameDelegates[i] = null;
+            }
+            size = 0;
+        }
+        finally {
+            lock.unlock();
+        }
+    }
+}
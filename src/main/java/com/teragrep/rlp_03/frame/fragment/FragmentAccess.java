@@ -93,7 +93,9 @@ public final class FragmentAccess implements Fragment {
 
     @Override
     public FragmentByteStream toFragmentByteStream() {
-        return null;
+        try (Lease ignored = access.get()) {
+            return new FragmentByteStreamAccess(fragment.toFragmentByteStream(), access);
+        }
     }
 
     @Override
@@ -45,9 +45,45 @@
  */
 package com.teragrep.rlp_03.frame.fragment;
 
+/**
+ * Cursor over the bytes of a fragment. The cursor starts before the first byte, {@link #next()} moves it to the
+ * following byte and {@link #getByte()} returns the byte under it. Remaining bytes are the ones after the cursor.
+ */
 public interface FragmentByteStream {
 
+    /**
+     * @return boxed {@link #getByte()}
+     */
     Byte get();
 
+    byte getByte();
+
     boolean next();
+
+    /**
+     * Copies remaining bytes, the last copied byte will be under the cursor.
+     *
+     * @return number of bytes copied or -1 if no bytes remain
+     */
+    int read(byte[] bytes, int offset, int length);
+
+    /**
+     * @return index of the first occurrence of b within the remaining bytes or -1 if not found, the cursor does not
+     *         move
+     */
+    int indexOf(byte b);
+
+    /**
+     * Moves the cursor forward as {@link #next()} would do count times.
+     *
+     * @return number of bytes skipped
+     */
+    int skip(int count);
+
+    /**
+     * @return true if the remaining bytes starting at index are equal to bytes, the cursor does not move
+     */
+    boolean regionMatches(int index, byte[] bytes);
+
+    int remaining();
 }
@@ -48,7 +48,6 @@ package com.teragrep.rlp_03.frame.fragment;
 import com.teragrep.net_01.channel.buffer.access.Access;
 import com.teragrep.net_01.channel.buffer.access.Lease;
 
-// TODO tests
 public final class FragmentByteStreamAccess implements FragmentByteStream {
 
     private final FragmentByteStream fragmentByteStream;
@@ -66,10 +65,52 @@ public final class FragmentByteStreamAccess implements FragmentByteStream {
         }
     }
 
+    @Override
+    public byte getByte() {
+        try (Lease ignored = access.get()) {
+            return fragmentByteStream.getByte();
+        }
+    }
+
     @Override
     public boolean next() {
         try (Lease ignored = access.get()) {
             return fragmentByteStream.next();
         }
     }
+
+    @Override
+    public int read(byte[] bytes, int offset, int length) {
+        try (Lease ignored = access.get()) {
+            return fragmentByteStream.read(bytes, offset, length);
+        }
+    }
+
+    @Override
+    public int indexOf(byte b) {
+        try (Lease ignored = access.get()) {
+            return fragmentByteStream.indexOf(b);
+        }
+    }
+
+    @Override
+    public int skip(int count) {
+        try (Lease ignored = access.get()) {
+            return fragmentByteStream.skip(count);
+        }
+    }
+
+    @Override
+    public boolean regionMatches(int index, byte[] bytes) {
+        try (Lease ignored = access.get()) {
+            return fragmentByteStream.regionMatches(index, bytes);
+        }
+    }
+
+    @Override
+    public int remaining() {
+        try (Lease ignored = access.get()) {
+            return fragmentByteStream.remaining();
+        }
+    }
 }
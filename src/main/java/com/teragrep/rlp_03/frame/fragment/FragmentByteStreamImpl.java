@@ -46,41 +46,58 @@
 package com.teragrep.rlp_03.frame.fragment;
 
 import java.nio.ByteBuffer;
-import java.util.LinkedList;
 
-// TODO tests
 final class FragmentByteStreamImpl implements FragmentByteStream {
 
-    private final LinkedList<ByteBuffer> bufferCopies;
-
-    private ByteBuffer currentBuffer;
+    private final ByteBuffer[] buffers;
 
+    private int bufferIndex;
     private int limit;
     private int position;
 
-    private static final ByteBuffer byteBufferStub = ByteBuffer.allocateDirect(0);
-
-    public FragmentByteStreamImpl(LinkedList<ByteBuffer> bufferCopies) {
-        this.bufferCopies = bufferCopies;
+    FragmentByteStreamImpl(ByteBuffer[] buffers) {
+        this.buffers = buffers;
+        this.bufferIndex = -1;
         this.limit = 0;
-        this.position = -1;
-        this.currentBuffer = byteBufferStub;
+        this.position = 0;
     }
 
     private boolean changeBuffer() {
         boolean rv = false;
-        if (!bufferCopies.isEmpty()) {
-            currentBuffer = bufferCopies.pop();
-            limit = currentBuffer.limit();
-            position = -1;
+        if (bufferIndex < buffers.length - 1) {
+            bufferIndex++;
+            limit = buffers[bufferIndex].limit();
+            position = buffers[bufferIndex].position();
             rv = true;
         }
         return rv;
     }
 
+    /**
+     * @return first remaining index within buffer i
+     */
+    private int from(int i) {
+        final int rv;
+        if (i == bufferIndex) {
+            rv = position + 1;
+        }
+        else {
+            rv = buffers[i].position();
+        }
+        return rv;
+    }
+
     @Override
     public Byte get() {
-        return currentBuffer.get(position);
+        return getByte();
+    }
+
+    @Override
+    public byte getByte() {
+        if (bufferIndex < 0) {
+            throw new IllegalStateException("getByte() called before next()");
+        }
+        return buffers[bufferIndex].get(position);
     }
 
     @Override
@@ -92,8 +109,7 @@ final class FragmentByteStreamImpl implements FragmentByteStream {
         }
         else {
             while (changeBuffer()) {
-                if (position < limit - 1) {
-                    position++;
+                if (position < limit) {
                     rv = true;
                     break;
                 }
@@ -101,4 +117,87 @@ final class FragmentByteStreamImpl implements FragmentByteStream {
         }
         return rv;
     }
+
+    @Override
+    public int read(byte[] bytes, int offset, int length) {
+        int copied = 0;
+        while (copied < length && next()) {
+            final ByteBuffer buffer = buffers[bufferIndex];
+            final int count = Math.min(length - copied, limit - position);
+            for (int i = 0; i < count; i++) {
+                bytes[offset + copied + i] = buffer.get(position + i);
+            }
+            position = position + count - 1;
+            copied = copied + count;
+        }
+
+        final int rv;
+        if (copied == 0 && length > 0) {
+            rv = -1;
+        }
+        else {
+            rv = copied;
+        }
+        return rv;
+    }
+
+    @Override
+    public int indexOf(byte b) {
+        int rv = -1;
+        int distance = 0;
+        for (int i = Math.max(bufferIndex, 0); i < buffers.length && rv < 0; i++) {
+            final ByteBuffer buffer = buffers[i];
+            final int from = from(i);
+            final int to = buffer.limit();
+            for (int index = from; index < to; index++) {
+                if (buffer.get(index) == b) {
+                    rv = distance + index - from;
+                    break;
+                }
+            }
+            distance = distance + Math.max(to - from, 0);
+        }
+        return rv;
+    }
+
+    @Override
+    public int skip(int count) {
+        int skipped = 0;
+        while (skipped < count && next()) {
+            final int step = Math.min(count - skipped, limit - position);
+            position = position + step - 1;
+            skipped = skipped + step;
+        }
+        return skipped;
+    }
+
+    @Override
+    public boolean regionMatches(int index, byte[] bytes) {
+        boolean rv = true;
+        int distance = 0;
+        int matched = 0;
+        for (int i = Math.max(bufferIndex, 0); i < buffers.length && rv && matched < bytes.length; i++) {
+            final ByteBuffer buffer = buffers[i];
+            final int from = from(i);
+            final int to = buffer.limit();
+            for (int at = Math.max(from, from + index - distance); at < to && matched < bytes.length; at++) {
+                if (buffer.get(at) != bytes[matched]) {
+                    rv = false;
+                    break;
+                }
+                matched++;
+            }
+            distance = distance + Math.max(to - from, 0);
+        }
+        return rv && matched == bytes.length;
+    }
+
+    @Override
+    public int remaining() {
+        int remaining = 0;
+        for (int i = Math.max(bufferIndex, 0); i < buffers.length; i++) {
+            remaining = remaining + Math.max(buffers[i].limit() - from(i), 0);
+        }
+        return remaining;
+    }
 }
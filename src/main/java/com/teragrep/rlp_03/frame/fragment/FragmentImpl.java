@@ -49,7 +49,6 @@ import com.teragrep.net_01.channel.buffer.writable.Writeable;
 
 import java.nio.ByteBuffer;
 import java.nio.charset.StandardCharsets;
-import java.util.LinkedList;
 import java.util.List;
 
 public final class FragmentImpl implements Fragment {
@@ -109,9 +108,12 @@ public final class FragmentImpl implements Fragment {
 
     @Override
     public FragmentByteStream toFragmentByteStream() {
-        LinkedList<ByteBuffer> bufferCopies = new LinkedList<>();
+        final ByteBuffer[] bufferCopies = new ByteBuffer[bufferSliceList.size()];
+
+        int buffersIndex = 0;
         for (ByteBuffer buffer : bufferSliceList) {
-            bufferCopies.add(buffer.asReadOnlyBuffer());
+            bufferCopies[buffersIndex] = buffer.asReadOnlyBuffer();
+            buffersIndex = buffersIndex + 1;
         }
         return new FragmentByteStreamImpl(bufferCopies);
     }
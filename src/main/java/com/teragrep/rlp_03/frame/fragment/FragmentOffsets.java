@@ -0,0 +1,135 @@
+/*
+ * Java Reliable Event Logging Protocol Library Server Implementation RLP-03
+ * Copyright (C) 2021-2024 Suomen Kanuuna Oy
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Affero General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Affero General Public License for more details.
+ *
+ * You should have received a copy of the GNU Affero General Public License
+ * along with this program.  If not, see <https://www.gnu.org/licenses/>.
+ *
+ *
+ * Additional permission under GNU Affero General Public License version 3
+ * section 7
+ *
+ * If you modify this Program, or any covered work, by linking or combining it
+ * with other code, such other code is not for that reason alone subject to any
+ * of the requirements of the GNU Affero GPL version 3 as long as this Program
+ * is the same Program as licensed from Suomen Kanuuna Oy without any additional
+ * modifications.
+ *
+ * Supplemented terms under GNU Affero General Public License version 3
+ * section 7
+ *
+ * Origin of the software must be attributed to Suomen Kanuuna Oy. Any modified
+ * versions must be marked as "Modified version of" The Program.
+ *
+ * Names of the licensors and authors may not be used for publicity purposes.
+ *
+ * No rights are granted for use of trade names, trademarks, or service marks
+ * which are in The Program if any.
+ *
+ * Licensee must indemnify licensors and authors for any liability that these
+ * contractual assumptions impose on licensors and authors.
+ *
+ * To the extent this program is licensed as part of the Commercial versions of
+ * Teragrep, the applicable Commercial License may apply to this file if you as
+ * a licensee so wish it.
+ */
+package com.teragrep.rlp_03.frame.fragment;
+
+import com.teragrep.net_01.channel.buffer.writable.Writeable;
+
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+
+/**
+ * Fragment described by ranges of a table shared by the fields of a frame. Every range is three ints: index to the
+ * buffers, offset and length. Buffer views are created only when the content is accessed.
+ */
+public final class FragmentOffsets implements Fragment {
+
+    private final ByteBuffer[] buffers;
+    private final int[] table;
+    private final int fromRange;
+    private final int toRange;
+    private final int size;
+
+    /**
+     * @param fromRange first range of this fragment, inclusive
+     * @param toRange   last range of this fragment, exclusive
+     * @param size      total length of the ranges
+     */
+    public FragmentOffsets(ByteBuffer[] buffers, int[] table, int fromRange, int toRange, int size) {
+        this.buffers = buffers;
+        this.table = table;
+        this.fromRange = fromRange;
+        this.toRange = toRange;
+        this.size = size;
+    }
+
+    @Override
+    public boolean isStub() {
+        return false;
+    }
+
+    @Override
+    public byte[] toBytes() {
+        final byte[] bytes = new byte[size];
+        int copiedBytes = 0;
+        for (int range = fromRange; range < toRange; range++) {
+            final int length = table[range * 3 + 2];
+            view(range).get(bytes, copiedBytes, length);
+            copiedBytes = copiedBytes + length;
+        }
+        return bytes;
+    }
+
+    @Override
+    public String toString() {
+        return new String(toBytes(), StandardCharsets.UTF_8);
+    }
+
+    @Override
+    public int toInt() {
+        return Integer.parseInt(toString());
+    }
+
+    @Override
+    public Writeable toWriteable() {
+        final ByteBuffer[] views = new ByteBuffer[toRange - fromRange];
+        for (int range = fromRange; range < toRange; range++) {
+            views[range - fromRange] = view(range);
+        }
+        return new FragmentWriteImpl(views);
+    }
+
+    @Override
+    public FragmentByteStream toFragmentByteStream() {
+        final ByteBuffer[] views = new ByteBuffer[toRange - fromRange];
+        for (int range = fromRange; range < toRange; range++) {
+            views[range - fromRange] = view(range);
+        }
+        return new FragmentByteStreamImpl(views);
+    }
+
+    @Override
+    public long size() {
+        return size;
+    }
+
+    private ByteBuffer view(int range) {
+        final ByteBuffer view = buffers[table[range * 3]].asReadOnlyBuffer();
+        final int offset = table[range * 3 + 1];
+        view.limit(offset + table[range * 3 + 2]);
+        view.position(offset);
+        return view;
+    }
+}
@@ -52,6 +52,10 @@ import com.teragrep.rlp_03.frame.fragment.FragmentStub;
 import java.nio.ByteBuffer;
 import java.util.LinkedList;
 
+/**
+ * @deprecated frames are parsed in a single pass by {@link com.teragrep.rlp_03.frame.FrameClock}
+ */
+@Deprecated
 public final class CommandClock {
 
     private static final FragmentStub fragmentStub = new FragmentStub();
@@ -53,6 +53,10 @@ import java.nio.ByteBuffer;
 import java.util.LinkedList;
 import java.util.concurrent.atomic.AtomicInteger;
 
+/**
+ * @deprecated frames are parsed in a single pass by {@link com.teragrep.rlp_03.frame.FrameClock}
+ */
+@Deprecated
 public final class PayloadClock {
 
     private static final FragmentStub fragmentStub = new FragmentStub();
@@ -61,6 +61,8 @@ import org.slf4j.LoggerFactory;
 
 import java.io.IOException;
 import java.net.InetSocketAddress;
+import java.util.ArrayList;
+import java.util.List;
 import java.util.concurrent.*;
 import java.util.regex.Matcher;
 import java.util.regex.Pattern;
@@ -159,4 +161,47 @@ public class ClientTest {
             throw new RuntimeException(exception);
         }
     }
+
+    @Test
+    public void testBatchTransmit() throws Exception {
+        ExecutorService executorService = Executors.newCachedThreadPool();
+        ConnectContextFactory connectContextFactory = new ConnectContextFactory(executorService, new PlainFactory());
+        RelpClientFactory relpClientFactory = new RelpClientFactory(connectContextFactory, eventLoop);
+        RelpFrameFactory relpFrameFactory = new RelpFrameFactory();
+
+        try (
+                RelpClient relpClient = relpClientFactory.open(new InetSocketAddress("localhost", port)).get(1, TimeUnit.SECONDS)
+        ) {
+            int openTxn;
+            try (
+                    RelpFrame openResponse = relpClient.transmit(relpFrameFactory.create("open", "")).get(1, TimeUnit.SECONDS)
+            ) {
+                openTxn = openResponse.txnId();
+            }
+
+            List<RelpFrame> relpFrames = new ArrayList<>();
+            for (int i = 0; i < 1000; i++) {
+                relpFrames.add(relpFrameFactory.create("syslog", "batch payload " + i));
+            }
+            List<CompletableFuture<RelpFrame>> futures = relpClient.transmit(relpFrames);
+            Assertions.assertEquals(relpFrames.size(), futures.size());
+
+            // transactions of a batch are consecutive
+            for (int i = 0; i < futures.size(); i++) {
+                try (RelpFrame syslogResponse = futures.get(i).get(5, TimeUnit.SECONDS)) {
+                    Assertions.assertEquals(openTxn + 1 + i, syslogResponse.txnId());
+                    Assertions.assertEquals("200 OK", syslogResponse.payload().toString());
+                }
+            }
+
+            try (
+                    RelpFrame closeResponse = relpClient.transmit(relpFrameFactory.create("close", "")).get(1, TimeUnit.SECONDS)
+            ) {
+                Assertions.assertEquals("rsp", closeResponse.command().toString());
+            }
+        }
+        finally {
+            executorService.shutdown();
+        }
+    }
 }
@@ -0,0 +1,118 @@
+/*
+ * Java Reliable Event Logging Protocol Library Server Implementation RLP-03
+ * Copyright (C) 2021-2024 Suomen Kanuuna Oy
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Affero General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Affero General Public License for more details.
+ *
+ * You should have received a copy of the GNU Affero General Public License
+ * along with this program.  If not, see <https://www.gnu.org/licenses/>.
+ *
+ *
+ * Additional permission under GNU Affero General Public License version 3
+ * section 7
+ *
+ * If you modify this Program, or any covered work, by linking or combining it
+ * with other code, such other code is not for that reason alone subject to any
+ * of the requirements of the GNU Affero GPL version 3 as long as this Program
+ * is the same Program as licensed from Suomen Kanuuna Oy without any additional
+ * modifications.
+ *
+ * Supplemented terms under GNU Affero General Public License version 3
+ * section 7
+ *
+ * Origin of the software must be attributed to Suomen Kanuuna Oy. Any modified
+ * versions must be marked as "Modified version of" The Program.
+ *
+ * Names of the licensors and authors may not be used for publicity purposes.
+ *
+ * No rights are granted for use of trade names, trademarks, or service marks
+ * which are in The Program if any.
+ *
+ * Licensee must indemnify licensors and authors for any liability that these
+ * contractual assumptions impose on licensors and authors.
+ *
+ * To the extent this program is licensed as part of the Commercial versions of
+ * Teragrep, the applicable Commercial License may apply to this file if you as
+ * a licensee so wish it.
+ */
+package com.teragrep.rlp_03.client;
+
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Test;
+
+public class CongestionWindowAdaptiveTest {
+
+    @Test
+    public void testGrowsToMaximum() {
+        CongestionWindowAdaptive congestionWindow = new CongestionWindowAdaptive(1, 1, 8, 2.0, 0.5, 16);
+        Assertions.assertEquals(1, congestionWindow.size());
+        for (int i = 0; i < 100; i++) {
+            congestionWindow.acknowledged(1000);
+        }
+        Assertions.assertEquals(8, congestionWindow.size());
+        Assertions.assertEquals(0, congestionWindow.backoffs());
+    }
+
+    @Test
+    public void testBacksOffOncePerWindow() {
+        CongestionWindowAdaptive congestionWindow = new CongestionWindowAdaptive(8, 1, 8, 2.0, 0.5, 16);
+        congestionWindow.acknowledged(1000);
+
+        congestionWindow.acknowledged(5000);
+        Assertions.assertEquals(4, congestionWindow.size());
+        Assertions.assertEquals(1, congestionWindow.backoffs());
+
+        // responses of the same window do not decrease again
+        congestionWindow.acknowledged(5000);
+        Assertions.assertEquals(4, congestionWindow.size());
+        Assertions.assertEquals(1, congestionWindow.backoffs());
+
+        for (int i = 0; i < 4; i++) {
+            congestionWindow.acknowledged(1000);
+        }
+        congestionWindow.acknowledged(5000);
+        Assertions.assertEquals(2, congestionWindow.size());
+        Assertions.assertEquals(2, congestionWindow.backoffs());
+    }
+
+    @Test
+    public void testFailedBacksOffToMinimum() {
+        CongestionWindowAdaptive congestionWindow = new CongestionWindowAdaptive(2, 2, 8, 2.0, 0.5, 16);
+        congestionWindow.failed();
+        Assertions.assertEquals(2, congestionWindow.size());
+        Assertions.assertEquals(1, congestionWindow.backoffs());
+    }
+
+    @Test
+    public void testRoundTripPercentiles() {
+        CongestionWindowAdaptive congestionWindow = new CongestionWindowAdaptive(1, 1, 8, 2.0, 0.5, 4);
+        Assertions.assertEquals(0, congestionWindow.roundTripNanos(50));
+        for (int i = 1; i <= 10; i++) {
+            congestionWindow.acknowledged(i);
+        }
+        // only the latest 4 samples are kept
+        Assertions.assertEquals(7, congestionWindow.roundTripNanos(0));
+        Assertions.assertEquals(8, congestionWindow.roundTripNanos(50));
+        Assertions.assertEquals(10, congestionWindow.roundTripNanos(99));
+        Assertions.assertEquals(10, congestionWindow.roundTripNanos(100));
+    }
+
+    @Test
+    public void testInvalidArguments() {
+        Assertions.assertThrows(IllegalArgumentException.class, () -> new CongestionWindowAdaptive(0, 8));
+        Assertions
+                .assertThrows(IllegalArgumentException.class, () -> new CongestionWindowAdaptive(9, 1, 8, 2.0, 0.5, 16));
+        Assertions
+                .assertThrows(IllegalArgumentException.class, () -> new CongestionWindowAdaptive(1, 1, 8, 1.0, 0.5, 16));
+        Assertions
+                .assertThrows(IllegalArgumentException.class, () -> new CongestionWindowAdaptive(1, 1, 8, 2.0, 1.0, 16));
+    }
+}
@@ -0,0 +1,144 @@
+/*
+ * Java Reliable Event Logging Protocol Library Server Implementation RLP-03
+ * Copyright (C) 2021-2024 Suomen Kanuuna Oy
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Affero General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Affero General Public License for more details.
+ *
+ * You should have received a copy of the GNU Affero General Public License
+ * along with this program.  If not, see <https://www.gnu.org/licenses/>.
+ *
+ *
+ * Additional permission under GNU Affero General Public License version 3
+ * section 7
+ *
+ * If you modify this Program, or any covered work, by linking or combining it
+ * with other code, such other code is not for that reason alone subject to any
+ * of the requirements of the GNU Affero GPL version 3 as long as this Program
+ * is the same Program as licensed from Suomen Kanuuna Oy without any additional
+ * modifications.
+ *
+ * Supplemented terms under GNU Affero General Public License version 3
+ * section 7
+ *
+ * Origin of the software must be attributed to Suomen Kanuuna Oy. Any modified
+ * versions must be marked as "Modified version of" The Program.
+ *
+ * Names of the licensors and authors may not be used for publicity purposes.
+ *
+ * No rights are granted for use of trade names, trademarks, or service marks
+ * which are in The Program if any.
+ *
+ * Licensee must indemnify licensors and authors for any liability that these
+ * contractual assumptions impose on licensors and authors.
+ *
+ * To the extent this program is licensed as part of the Commercial versions of
+ * Teragrep, the applicable Commercial License may apply to this file if you as
+ * a licensee so wish it.
+ */
+package com.teragrep.rlp_03.client;
+
+import com.teragrep.net_01.channel.buffer.writable.Writeable;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Test;
+
+import java.nio.ByteBuffer;
+import java.util.ArrayList;
+import java.util.List;
+
+public class GatheredWriteTest {
+
+    @Test
+    public void testSingleGather() {
+        List<Writeable> written = new ArrayList<>();
+        GatheredWrite gatheredWrite = new GatheredWrite(written::add);
+
+        List<Writeable> writeables = new ArrayList<>();
+        for (int i = 0; i < 3; i++) {
+            writeables.add(new BufferWriteable(4));
+        }
+        gatheredWrite.write(writeables);
+
+        Assertions.assertEquals(1, written.size());
+        Assertions.assertEquals(12, written.get(0).buffers().length);
+    }
+
+    @Test
+    public void testSingleWriteableNotWrapped() {
+        List<Writeable> written = new ArrayList<>();
+        GatheredWrite gatheredWrite = new GatheredWrite(written::add);
+
+        Writeable writeable = new BufferWriteable(4);
+        List<Writeable> writeables = new ArrayList<>();
+        writeables.add(writeable);
+        gatheredWrite.write(writeables);
+
+        Assertions.assertEquals(1, written.size());
+        Assertions.assertSame(writeable, written.get(0));
+    }
+
+    @Test
+    public void testGatherSplitAtMaximumBuffers() {
+        List<Writeable> written = new ArrayList<>();
+        GatheredWrite gatheredWrite = new GatheredWrite(written::add);
+
+        List<Writeable> writeables = new ArrayList<>();
+        for (int i = 0; i < 600; i++) {
+            writeables.add(new BufferWriteable(4));
+        }
+        gatheredWrite.write(writeables);
+
+        // 256 writeables of 4 buffers fill a gather of 1024 buffers
+        Assertions.assertEquals(3, written.size());
+        Assertions.assertEquals(1024, written.get(0).buffers().length);
+        Assertions.assertEquals(1024, written.get(1).buffers().length);
+        Assertions.assertEquals(352, written.get(2).buffers().length);
+    }
+
+    @Test
+    public void testNothingWritten() {
+        List<Writeable> written = new ArrayList<>();
+        GatheredWrite gatheredWrite = new GatheredWrite(written::add);
+        gatheredWrite.write(new ArrayList<>());
+        Assertions.assertTrue(written.isEmpty());
+    }
+
+    private static final class BufferWriteable implements Writeable {
+
+        private final ByteBuffer[] buffers;
+
+        private BufferWriteable(int count) {
+            this.buffers = new ByteBuffer[count];
+            for (int i = 0; i < count; i++) {
+                buffers[i] = ByteBuffer.allocate(1);
+            }
+        }
+
+        @Override
+        public void close() {
+            // no-op
+        }
+
+        @Override
+        public ByteBuffer[] buffers() {
+            return buffers;
+        }
+
+        @Override
+        public boolean hasRemaining() {
+            return true;
+        }
+
+        @Override
+        public boolean isStub() {
+            return false;
+        }
+    }
+}
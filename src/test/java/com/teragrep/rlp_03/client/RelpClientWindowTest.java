@@ -0,0 +1,402 @@
+/*
+ * Java Reliable Event Logging Protocol Library Server Implementation RLP-03
+ * Copyright (C) 2021-2024 Suomen Kanuuna Oy
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Affero General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Affero General Public License for more details.
+ *
+ * You should have received a copy of the GNU Affero General Public License
+ * along with this program.  If not, see <https://www.gnu.org/licenses/>.
+ *
+ *
+ * Additional permission under GNU Affero General Public License version 3
+ * section 7
+ *
+ * If you modify this Program, or any covered work, by linking or combining it
+ * with other code, such other code is not for that reason alone subject to any
+ * of the requirements of the GNU Affero GPL version 3 as long as this Program
+ * is the same Program as licensed from Suomen Kanuuna Oy without any additional
+ * modifications.
+ *
+ * Supplemented terms under GNU Affero General Public License version 3
+ * section 7
+ *
+ * Origin of the software must be attributed to Suomen Kanuuna Oy. Any modified
+ * versions must be marked as "Modified version of" The Program.
+ *
+ * Names of the licensors and authors may not be used for publicity purposes.
+ *
+ * No rights are granted for use of trade names, trademarks, or service marks
+ * which are in The Program if any.
+ *
+ * Licensee must indemnify licensors and authors for any liability that these
+ * contractual assumptions impose on licensors and authors.
+ *
+ * To the extent this program is licensed as part of the Commercial versions of
+ * Teragrep, the applicable Commercial License may apply to this file if you as
+ * a licensee so wish it.
+ */
+package com.teragrep.rlp_03.client;
+
+import com.teragrep.net_01.channel.context.ConnectContextFactory;
+import com.teragrep.net_01.channel.socket.PlainFactory;
+import com.teragrep.net_01.eventloop.EventLoop;
+import com.teragrep.net_01.eventloop.EventLoopFactory;
+import com.teragrep.net_01.server.ServerFactory;
+import com.teragrep.rlp_01.RelpCommand;
+import com.teragrep.rlp_03.frame.FrameDelegationClockFactory;
+import com.teragrep.rlp_03.frame.RelpFrame;
+import com.teragrep.rlp_03.frame.RelpFrameFactory;
+import com.teragrep.rlp_03.frame.delegate.DefaultFrameDelegate;
+import com.teragrep.rlp_03.frame.delegate.FrameContext;
+import com.teragrep.rlp_03.frame.delegate.event.RelpEvent;
+import com.teragrep.rlp_03.frame.delegate.event.RelpEventClose;
+import com.teragrep.rlp_03.frame.delegate.event.RelpEventOpen;
+import com.teragrep.rlp_03.frame.delegate.event.RelpEventSyslogAsync;
+import org.junit.jupiter.api.*;
+
+import java.net.InetSocketAddress;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.*;
+
+@TestInstance(TestInstance.Lifecycle.PER_CLASS)
+public class RelpClientWindowTest {
+
+    private final int port = 23603;
+    private EventLoop eventLoop;
+    private Thread eventLoopThread;
+    private ExecutorService executorService;
+    private final BlockingQueue<CompletableFuture<Object>> pending = new LinkedBlockingQueue<>();
+
+    @BeforeAll
+    public void init() {
+        EventLoopFactory eventLoopFactory = new EventLoopFactory();
+        Assertions.assertAll(() -> eventLoop = eventLoopFactory.create());
+
+        eventLoopThread = new Thread(eventLoop);
+        eventLoopThread.start();
+
+        executorService = Executors.newSingleThreadExecutor();
+        ServerFactory serverFactory = new ServerFactory(
+                eventLoop,
+                executorService,
+                new PlainFactory(),
+                new FrameDelegationClockFactory(() -> {
+                    Map<String, RelpEvent> relpEvents = new HashMap<>();
+                    relpEvents.put(RelpCommand.OPEN, new RelpEventOpen());
+                    relpEvents.put(RelpCommand.CLOSE, new RelpEventClose());
+                    relpEvents.put(RelpCommand.SYSLOG, new RelpEventSyslogAsync(this::hold));
+                    return new DefaultFrameDelegate(relpEvents);
+                })
+        );
+        Assertions.assertAll(() -> serverFactory.create(port));
+    }
+
+    @AfterAll
+    public void cleanup() {
+        eventLoop.stop();
+        executorService.shutdown();
+        Assertions.assertAll(eventLoopThread::join);
+    }
+
+    /**
+     * Responses are held until the test completes them, payload "stuck" is never responded to.
+     */
+    private CompletionStage<?> hold(FrameContext frameContext) {
+        CompletableFuture<Object> completableFuture = new CompletableFuture<>();
+        if (!"stuck".equals(frameContext.relpFrame().payload().toString())) {
+            pending.add(completableFuture);
+        }
+        return completableFuture;
+    }
+
+    @Test
+    public void testWindow() throws Exception {
+        ExecutorService clientExecutorService = Executors.newCachedThreadPool();
+        ConnectContextFactory connectContextFactory = new ConnectContextFactory(
+                clientExecutorService,
+                new PlainFactory()
+        );
+        RelpClientFactory relpClientFactory = new RelpClientFactory(connectContextFactory, eventLoop, 3);
+        RelpFrameFactory relpFrameFactory = new RelpFrameFactory();
+
+        try (
+                RelpClient relpClient = relpClientFactory.open(new InetSocketAddress("localhost", port)).get(1, TimeUnit.SECONDS)
+        ) {
+            try (
+                    RelpFrame openResponse = relpClient.transmit(relpFrameFactory.create("open", "")).get(1, TimeUnit.SECONDS)
+            ) {
+                Assertions.assertEquals("rsp", openResponse.command().toString());
+            }
+
+            List<CompletableFuture<RelpFrame>> syslogs = new ArrayList<>();
+            for (int i = 0; i < 10; i++) {
+                syslogs.add(relpClient.transmit(relpFrameFactory.create("syslog", "message " + i)));
+            }
+
+            // only the window is transmitted until the server responds
+            List<CompletableFuture<Object>> held = new ArrayList<>();
+            for (int i = 0; i < 3; i++) {
+                CompletableFuture<Object> next = pending.poll(1, TimeUnit.SECONDS);
+                Assertions.assertNotNull(next);
+                held.add(next);
+            }
+            Assertions.assertNull(pending.poll(100, TimeUnit.MILLISECONDS));
+            Assertions.assertEquals(3, relpClient.window());
+            Assertions.assertEquals(3, relpClient.inFlight());
+            Assertions.assertEquals(7, relpClient.waiting());
+            Assertions.assertFalse(syslogs.get(3).isDone());
+
+            // each response frees a slot for a waiting frame
+            for (CompletableFuture<Object> next : held) {
+                next.complete("ok");
+            }
+            for (int i = 3; i < 10; i++) {
+                CompletableFuture<Object> next = pending.poll(1, TimeUnit.SECONDS);
+                Assertions.assertNotNull(next);
+                next.complete("ok");
+            }
+
+            for (CompletableFuture<RelpFrame> syslog : syslogs) {
+                try (RelpFrame syslogResponse = syslog.get(1, TimeUnit.SECONDS)) {
+                    Assertions.assertEquals("200 OK", syslogResponse.payload().toString());
+                }
+            }
+            // slots are released by callbacks of the futures, which may run after get() returns
+            awaitInFlight(relpClient, 0);
+            Assertions.assertEquals(0, relpClient.waiting());
+
+            try (
+                    RelpFrame closeResponse = relpClient.transmit(relpFrameFactory.create("close", "")).get(1, TimeUnit.SECONDS)
+            ) {
+                Assertions.assertEquals("rsp", closeResponse.command().toString());
+            }
+        }
+        finally {
+            clientExecutorService.shutdown();
+        }
+    }
+
+    @Test
+    public void testCloseFailsWaiting() throws Exception {
+        ExecutorService clientExecutorService = Executors.newCachedThreadPool();
+        ConnectContextFactory connectContextFactory = new ConnectContextFactory(
+                clientExecutorService,
+                new PlainFactory()
+        );
+        RelpClientFactory relpClientFactory = new RelpClientFactory(connectContextFactory, eventLoop, 1);
+        RelpFrameFactory relpFrameFactory = new RelpFrameFactory();
+
+        RelpClient relpClient = relpClientFactory
+                .open(new InetSocketAddress("localhost", port))
+                .get(1, TimeUnit.SECONDS);
+        try (
+                RelpFrame openResponse = relpClient.transmit(relpFrameFactory.create("open", "")).get(1, TimeUnit.SECONDS)
+        ) {
+            Assertions.assertEquals("rsp", openResponse.command().toString());
+        }
+        awaitInFlight(relpClient, 0);
+        CompletableFuture<RelpFrame> stuck = relpClient.transmit(relpFrameFactory.create("syslog", "stuck"));
+        CompletableFuture<RelpFrame> waiting = relpClient.transmit(relpFrameFactory.create("syslog", "waiting"));
+        Assertions.assertEquals(1, relpClient.waiting());
+
+        relpClient.close();
+
+        ExecutionException executionException = Assertions
+                .assertThrows(ExecutionException.class, () -> waiting.get(1, TimeUnit.SECONDS));
+        Assertions.assertTrue(executionException.getCause() instanceof TransactionServiceClosedException);
+        Assertions.assertTrue(stuck.isCompletedExceptionally());
+        Assertions.assertEquals(0, relpClient.waiting());
+        clientExecutorService.shutdown();
+    }
+
+    @Test
+    public void testResponseTimeout() throws Exception {
+        ExecutorService clientExecutorService = Executors.newCachedThreadPool();
+        ScheduledThreadPoolExecutor scheduledExecutorService = new ScheduledThreadPoolExecutor(1);
+        scheduledExecutorService.setRemoveOnCancelPolicy(true);
+        ConnectContextFactory connectContextFactory = new ConnectContextFactory(
+                clientExecutorService,
+                new PlainFactory()
+        );
+        RelpClientFactory relpClientFactory = new RelpClientFactory(
+                connectContextFactory,
+                eventLoop,
+                () -> new CongestionWindowFixed(1),
+                scheduledExecutorService,
+                Duration.ofMillis(100)
+        );
+        RelpFrameFactory relpFrameFactory = new RelpFrameFactory();
+
+        try (
+                RelpClient relpClient = relpClientFactory.open(new InetSocketAddress("localhost", port)).get(1, TimeUnit.SECONDS)
+        ) {
+            try (
+                    RelpFrame openResponse = relpClient.transmit(relpFrameFactory.create("open", "")).get(1, TimeUnit.SECONDS)
+            ) {
+                Assertions.assertEquals("rsp", openResponse.command().toString());
+            }
+            awaitInFlight(relpClient, 0);
+
+            // the stuck transaction times out and frees the only slot for the waiting one
+            CompletableFuture<RelpFrame> stuck = relpClient.transmit(relpFrameFactory.create("syslog", "stuck"));
+            CompletableFuture<RelpFrame> after = relpClient.transmit(relpFrameFactory.create("syslog", "after"));
+            ExecutionException executionException = Assertions
+                    .assertThrows(ExecutionException.class, () -> stuck.get(1, TimeUnit.SECONDS));
+            Assertions.assertTrue(executionException.getCause() instanceof TimeoutException);
+
+            CompletableFuture<Object> held = pending.poll(1, TimeUnit.SECONDS);
+            Assertions.assertNotNull(held);
+            held.complete("ok");
+            try (RelpFrame afterResponse = after.get(1, TimeUnit.SECONDS)) {
+                Assertions.assertEquals("200 OK", afterResponse.payload().toString());
+            }
+            awaitInFlight(relpClient, 0);
+        }
+        finally {
+            scheduledExecutorService.shutdown();
+            clientExecutorService.shutdown();
+        }
+    }
+
+    @Test
+    public void testErrorResponseFailsWindow() throws Exception {
+        ExecutorService clientExecutorService = Executors.newCachedThreadPool();
+        ConnectContextFactory connectContextFactory = new ConnectContextFactory(
+                clientExecutorService,
+                new PlainFactory()
+        );
+        RelpClientFactory relpClientFactory = new RelpClientFactory(
+                connectContextFactory,
+                eventLoop,
+                CountingCongestionWindow::new
+        );
+        RelpFrameFactory relpFrameFactory = new RelpFrameFactory();
+
+        try (
+                RelpClient relpClient = relpClientFactory.open(new InetSocketAddress("localhost", port)).get(1, TimeUnit.SECONDS)
+        ) {
+            CountingCongestionWindow congestionWindow = (CountingCongestionWindow) relpClient.congestionWindow();
+            try (
+                    RelpFrame openResponse = relpClient.transmit(relpFrameFactory.create("open", "")).get(1, TimeUnit.SECONDS)
+            ) {
+                Assertions.assertEquals("rsp", openResponse.command().toString());
+            }
+            // window is updated before the response is handed over
+            Assertions.assertEquals(1, congestionWindow.acknowledged);
+            Assertions.assertEquals(0, congestionWindow.failed);
+
+            CompletableFuture<RelpFrame> syslog = relpClient.transmit(relpFrameFactory.create("syslog", "error"));
+            CompletableFuture<Object> held = pending.poll(1, TimeUnit.SECONDS);
+            Assertions.assertNotNull(held);
+            held.completeExceptionally(new IllegalStateException("error"));
+            try (RelpFrame syslogResponse = syslog.get(1, TimeUnit.SECONDS)) {
+                Assertions.assertTrue(syslogResponse.payload().toString().startsWith("500"));
+            }
+            Assertions.assertEquals(1, congestionWindow.acknowledged);
+            Assertions.assertEquals(1, congestionWindow.failed);
+        }
+        finally {
+            clientExecutorService.shutdown();
+        }
+    }
+
+    private static final class CountingCongestionWindow implements CongestionWindow {
+
+        private int acknowledged = 0;
+        private int failed = 0;
+
+        @Override
+        public int size() {
+            return Integer.MAX_VALUE;
+        }
+
+        @Override
+        public void acknowledged(long roundTripNanos) {
+            acknowledged++;
+        }
+
+        @Override
+        public void failed() {
+            failed++;
+        }
+    }
+
+    private void awaitInFlight(RelpClient relpClient, int inFlight) throws InterruptedException {
+        long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(1);
+        while (relpClient.inFlight() != inFlight && System.nanoTime() < deadline) {
+            Thread.sleep(1);
+        }
+        Assertions.assertEquals(inFlight, relpClient.inFlight());
+    }
+
+    @Test
+    public void testInvalidWindow() {
+        ExecutorService clientExecutorService = Executors.newSingleThreadExecutor();
+        ConnectContextFactory connectContextFactory = new ConnectContextFactory(
+                clientExecutorService,
+                new PlainFactory()
+        );
+        Assertions
+                .assertThrows(
+                        IllegalArgumentException.class, () -> new RelpClientFactory(connectContextFactory, eventLoop, 0)
+                );
+        clientExecutorService.shutdown();
+    }
+
+    @Test
+    public void testWindowNotSupported() {
+        RelpClient relpClient = new UnboundedRelpClient();
+        Assertions.assertThrows(UnsupportedOperationException.class, relpClient::inFlight);
+        Assertions.assertThrows(UnsupportedOperationException.class, relpClient::window);
+        Assertions.assertThrows(UnsupportedOperationException.class, relpClient::waiting);
+        Assertions.assertThrows(UnsupportedOperationException.class, relpClient::congestionWindow);
+    }
+
+    @Test
+    public void testDefaultBatchTransmit() throws Exception {
+        RelpClient relpClient = new UnboundedRelpClient();
+        RelpFrameFactory relpFrameFactory = new RelpFrameFactory();
+        List<RelpFrame> relpFrames = new ArrayList<>();
+        for (int i = 0; i < 3; i++) {
+            relpFrames.add(relpFrameFactory.create("syslog", "batch payload " + i));
+        }
+        List<CompletableFuture<RelpFrame>> futures = relpClient.transmit(relpFrames);
+        Assertions.assertEquals(relpFrames.size(), futures.size());
+        for (int i = 0; i < relpFrames.size(); i++) {
+            Assertions.assertSame(relpFrames.get(i), futures.get(i).get());
+        }
+    }
+
+    /**
+     * Implementation written against the interface before batch transmit and the window accessors existed.
+     */
+    private static final class UnboundedRelpClient implements RelpClient {
+
+        @Override
+        public CompletableFuture<RelpFrame> transmit(RelpFrame relpFrame) {
+            return CompletableFuture.completedFuture(relpFrame);
+        }
+
+        @Override
+        public void close() {
+            // no-op
+        }
+
+        @Override
+        public boolean isStub() {
+            return false;
+        }
+    }
+}
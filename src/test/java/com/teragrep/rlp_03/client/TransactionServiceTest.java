@@ -0,0 +1,202 @@
+/*
+ * Java Reliable Event Logging Protocol Library Server Implementation RLP-03
+ * Copyright (C) 2021-2024 Suomen Kanuuna Oy
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Affero General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Affero General Public License for more details.
+ *
+ * You should have received a copy of the GNU Affero General Public License
+ * along with this program.  If not, see <https://www.gnu.org/licenses/>.
+ *
+ *
+ * Additional permission under GNU Affero General Public License version 3
+ * section 7
+ *
+ * If you modify this Program, or any covered work, by linking or combining it
+ * with other code, such other code is not for that reason alone subject to any
+ * of the requirements of the GNU Affero GPL version 3 as long as this Program
+ * is the same Program as licensed from Suomen Kanuuna Oy without any additional
+ * modifications.
+ *
+ * Supplemented terms under GNU Affero General Public License version 3
+ * section 7
+ *
+ * Origin of the software must be attributed to Suomen Kanuuna Oy. Any modified
+ * versions must be marked as "Modified version of" The Program.
+ *
+ * Names of the licensors and authors may not be used for publicity purposes.
+ *
+ * No rights are granted for use of trade names, trademarks, or service marks
+ * which are in The Program if any.
+ *
+ * Licensee must indemnify licensors and authors for any liability that these
+ * contractual assumptions impose on licensors and authors.
+ *
+ * To the extent this program is licensed as part of the Commercial versions of
+ * Teragrep, the applicable Commercial License may apply to this file if you as
+ * a licensee so wish it.
+ */
+package com.teragrep.rlp_03.client;
+
+import com.teragrep.rlp_03.frame.RelpFrame;
+import com.teragrep.rlp_03.frame.RelpFrameFactory;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Test;
+
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+
+public class TransactionServiceTest {
+
+    private final RelpFrameFactory relpFrameFactory = new RelpFrameFactory();
+
+    private RelpFrame frame(int txn, String command) {
+        return relpFrameFactory.create(String.valueOf(txn).getBytes(StandardCharsets.UTF_8), command, "");
+    }
+
+    @Test
+    public void testOutOfOrderCompletion() {
+        TransactionService transactionService = new TransactionService(4);
+        List<CompletableFuture<RelpFrame>> futures = new ArrayList<>();
+        for (int txn = 1; txn <= 4; txn++) {
+            futures.add(transactionService.create(frame(txn, "syslog")));
+        }
+
+        transactionService.complete(frame(3, "rsp"));
+        transactionService.complete(frame(1, "rsp"));
+        Assertions.assertTrue(futures.get(0).isDone());
+        Assertions.assertFalse(futures.get(1).isDone());
+        Assertions.assertTrue(futures.get(2).isDone());
+
+        // slots of completed txns are reused
+        CompletableFuture<RelpFrame> fifth = transactionService.create(frame(5, "syslog"));
+        transactionService.complete(frame(5, "rsp"));
+        Assertions.assertEquals(5, Assertions.assertDoesNotThrow(() -> fifth.get().txnId()));
+
+        Assertions.assertThrows(IllegalStateException.class, () -> transactionService.complete(frame(3, "rsp")));
+    }
+
+    @Test
+    public void testGrowsWhenSlotTaken() {
+        TransactionService transactionService = new TransactionService(2);
+        CompletableFuture<RelpFrame> stuck = transactionService.create(frame(1, "syslog"));
+        List<CompletableFuture<RelpFrame>> futures = new ArrayList<>();
+        for (int txn = 2; txn <= 20; txn++) {
+            futures.add(transactionService.create(frame(txn, "syslog")));
+        }
+        for (int txn = 20; txn >= 2; txn--) {
+            transactionService.complete(frame(txn, "rsp"));
+        }
+        for (CompletableFuture<RelpFrame> future : futures) {
+            Assertions.assertTrue(future.isDone());
+        }
+        Assertions.assertFalse(stuck.isDone());
+        transactionService.complete(frame(1, "rsp"));
+        Assertions.assertTrue(stuck.isDone());
+    }
+
+    @Test
+    public void testStuckTransactionFailedAtMaximumCapacity() {
+        TransactionService transactionService = new TransactionService(2, 8);
+        CompletableFuture<RelpFrame> stuck = transactionService.create(frame(1, "syslog"));
+
+        // completed txns free their slots, only the stuck one makes the ring grow
+        for (int txn = 2; txn <= 1000; txn++) {
+            CompletableFuture<RelpFrame> future = transactionService.create(frame(txn, "syslog"));
+            transactionService.complete(frame(txn, "rsp"));
+            Assertions.assertTrue(future.isDone());
+            Assertions.assertFalse(future.isCompletedExceptionally());
+        }
+
+        // txn 9 needed the slot of txn 1 once the ring could not grow past 8 slots
+        ExecutionException executionException = Assertions.assertThrows(ExecutionException.class, stuck::get);
+        Assertions.assertInstanceOf(TransactionServiceFullException.class, executionException.getCause());
+    }
+
+    @Test
+    public void testResponseAfterEvictionDiscarded() {
+        TransactionService transactionService = new TransactionService(2, 2);
+        CompletableFuture<RelpFrame> evicted = transactionService.create(frame(1, "syslog"));
+        transactionService.create(frame(2, "syslog"));
+        transactionService.complete(frame(2, "rsp"));
+
+        // txn 3 takes the slot of txn 1 as the ring can not grow
+        CompletableFuture<RelpFrame> third = transactionService.create(frame(3, "syslog"));
+        Assertions.assertTrue(evicted.isCompletedExceptionally());
+
+        Assertions.assertDoesNotThrow(() -> transactionService.complete(frame(1, "rsp")));
+        Assertions.assertFalse(third.isDone());
+        transactionService.complete(frame(3, "rsp"));
+        Assertions.assertTrue(third.isDone());
+        Assertions.assertFalse(third.isCompletedExceptionally());
+
+        // only one late response is expected
+        Assertions.assertThrows(IllegalStateException.class, () -> transactionService.complete(frame(1, "rsp")));
+    }
+
+    @Test
+    public void testInvalidMaximumCapacity() {
+        Assertions.assertThrows(IllegalArgumentException.class, () -> new TransactionService(64, 32));
+        Assertions.assertThrows(IllegalArgumentException.class, () -> new TransactionService(64, (1 << 30) + 1));
+    }
+
+    @Test
+    public void testAbandonedLateResponseDiscarded() {
+        TransactionService transactionService = new TransactionService(2);
+        CompletableFuture<RelpFrame> abandoned = transactionService.create(frame(1, "syslog"));
+
+        transactionService.abandon(1, new IllegalStateException("abandoned"));
+        ExecutionException executionException = Assertions.assertThrows(ExecutionException.class, abandoned::get);
+        Assertions.assertEquals("abandoned", executionException.getCause().getMessage());
+        Assertions.assertDoesNotThrow(() -> transactionService.complete(frame(1, "rsp")));
+
+        // slot of an abandoned txn is reused without a late response
+        transactionService.create(frame(2, "syslog"));
+        transactionService.abandon(2, new IllegalStateException("abandoned"));
+        CompletableFuture<RelpFrame> fourth = transactionService.create(frame(4, "syslog"));
+        transactionService.complete(frame(4, "rsp"));
+        Assertions.assertTrue(fourth.isDone());
+    }
+
+    @Test
+    public void testLateResponseAfterRingWrapDiscarded() {
+        TransactionService transactionService = new TransactionService(2);
+        CompletableFuture<RelpFrame> timedOut = transactionService.create(frame(1, "syslog"));
+        transactionService.abandon(1, new IllegalStateException("timed out"));
+
+        // ring wraps, txn 3 reuses the slot of the abandoned txn 1
+        transactionService.create(frame(2, "syslog"));
+        transactionService.complete(frame(2, "rsp"));
+        CompletableFuture<RelpFrame> third = transactionService.create(frame(3, "syslog"));
+
+        Assertions.assertDoesNotThrow(() -> transactionService.complete(frame(1, "rsp")));
+        Assertions.assertTrue(timedOut.isCompletedExceptionally());
+        Assertions.assertFalse(third.isDone());
+        transactionService.complete(frame(3, "rsp"));
+        Assertions.assertFalse(third.isCompletedExceptionally());
+    }
+
+    @Test
+    public void testCloseFailsPending() {
+        TransactionService transactionService = new TransactionService();
+        CompletableFuture<RelpFrame> pending = transactionService.create(frame(1, "syslog"));
+
+        transactionService.close();
+        ExecutionException executionException = Assertions.assertThrows(ExecutionException.class, pending::get);
+        Assertions.assertInstanceOf(TransactionServiceClosedException.class, executionException.getCause());
+
+        // responses after close are ignored and new transactions fail right away
+        Assertions.assertDoesNotThrow(() -> transactionService.complete(frame(1, "rsp")));
+        Assertions.assertThrows(ExecutionException.class, () -> transactionService.create(frame(2, "syslog")).get());
+    }
+}
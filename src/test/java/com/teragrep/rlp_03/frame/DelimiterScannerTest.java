@@ -0,0 +1,100 @@
+/*
+ * Java Reliable Event Logging Protocol Library Server Implementation RLP-03
+ * Copyright (C) 2021-2024 Suomen Kanuuna Oy
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Affero General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Affero General Public License for more details.
+ *
+ * You should have received a copy of the GNU Affero General Public License
+ * along with this program.  If not, see <https://www.gnu.org/licenses/>.
+ *
+ *
+ * Additional permission under GNU Affero General Public License version 3
+ * section 7
+ *
+ * If you modify this Program, or any covered work, by linking or combining it
+ * with other code, such other code is not for that reason alone subject to any
+ * of the requirements of the GNU Affero GPL version 3 as long as this Program
+ * is the same Program as licensed from Suomen Kanuuna Oy without any additional
+ * modifications.
+ *
+ * Supplemented terms under GNU Affero General Public License version 3
+ * section 7
+ *
+ * Origin of the software must be attributed to Suomen Kanuuna Oy. Any modified
+ * versions must be marked as "Modified version of" The Program.
+ *
+ * Names of the licensors and authors may not be used for publicity purposes.
+ *
+ * No rights are granted for use of trade names, trademarks, or service marks
+ * which are in The Program if any.
+ *
+ * Licensee must indemnify licensors and authors for any liability that these
+ * contractual assumptions impose on licensors and authors.
+ *
+ * To the extent this program is licensed as part of the Commercial versions of
+ * Teragrep, the applicable Commercial License may apply to this file if you as
+ * a licensee so wish it.
+ */
+package com.teragrep.rlp_03.frame;
+
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Test;
+
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.util.Random;
+
+public class DelimiterScannerTest {
+
+    @Test
+    public void testSwarMatchesBytewise() {
+        DelimiterScanner reference = new DelimiterScannerBytewise();
+        DelimiterScanner swar = new DelimiterScannerSwar();
+        Random random = new Random(1234);
+
+        for (int round = 0; round < 1000; round++) {
+            byte[] bytes = new byte[random.nextInt(64)];
+            for (int i = 0; i < bytes.length; i++) {
+                // small alphabet including the delimiter and bytes with the high bit set
+                bytes[i] = (byte) new byte[] {
+                        ' ', '\n', 'a', (byte) 0x80, (byte) 0xA0, (byte) 0xFF, 0x00
+                }[random.nextInt(7)];
+            }
+            ByteBuffer buffer = ByteBuffer.wrap(bytes);
+            if (random.nextBoolean()) {
+                buffer.order(ByteOrder.LITTLE_ENDIAN);
+            }
+            int from = bytes.length == 0 ? 0 : random.nextInt(bytes.length);
+            int to = from + random.nextInt(bytes.length - from + 1);
+
+            for (byte delimiter : new byte[] {
+                    ' ', '\n', (byte) 0xA0
+            }) {
+                Assertions
+                        .assertEquals(reference.indexOf(buffer, from, to, delimiter), swar.indexOf(buffer, from, to, delimiter));
+            }
+        }
+    }
+
+    @Test
+    public void testSwarFindsFirstInWord() {
+        ByteBuffer buffer = ByteBuffer.allocateDirect(24);
+        buffer.put("abcdefghijk mnop qrstuvw".getBytes());
+        buffer.flip();
+
+        DelimiterScanner swar = new DelimiterScannerSwar();
+        Assertions.assertEquals(11, swar.indexOf(buffer, 0, 24, (byte) ' '));
+        Assertions.assertEquals(16, swar.indexOf(buffer, 12, 24, (byte) ' '));
+        Assertions.assertEquals(-1, swar.indexOf(buffer, 17, 24, (byte) ' '));
+        Assertions.assertEquals(-1, swar.indexOf(buffer, 0, 11, (byte) ' '));
+        Assertions.assertEquals(0, buffer.position());
+    }
+}
@@ -0,0 +1,254 @@
+/*
+ * Java Reliable Event Logging Protocol Library Server Implementation RLP-03
+ * Copyright (C) 2021-2024 Suomen Kanuuna Oy
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Affero General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Affero General Public License for more details.
+ *
+ * You should have received a copy of the GNU Affero General Public License
+ * along with this program.  If not, see <https://www.gnu.org/licenses/>.
+ *
+ *
+ * Additional permission under GNU Affero General Public License version 3
+ * section 7
+ *
+ * If you modify this Program, or any covered work, by linking or combining it
+ * with other code, such other code is not for that reason alone subject to any
+ * of the requirements of the GNU Affero GPL version 3 as long as this Program
+ * is the same Program as licensed from Suomen Kanuuna Oy without any additional
+ * modifications.
+ *
+ * Supplemented terms under GNU Affero General Public License version 3
+ * section 7
+ *
+ * Origin of the software must be attributed to Suomen Kanuuna Oy. Any modified
+ * versions must be marked as "Modified version of" The Program.
+ *
+ * Names of the licensors and authors may not be used for publicity purposes.
+ *
+ * No rights are granted for use of trade names, trademarks, or service marks
+ * which are in The Program if any.
+ *
+ * Licensee must indemnify licensors and authors for any liability that these
+ * contractual assumptions impose on licensors and authors.
+ *
+ * To the extent this program is licensed as part of the Commercial versions of
+ * Teragrep, the applicable Commercial License may apply to this file if you as
+ * a licensee so wish it.
+ */
+package com.teragrep.rlp_03.frame;
+
+import com.teragrep.net_01.channel.socket.PlainFactory;
+import com.teragrep.net_01.eventloop.EventLoop;
+import com.teragrep.net_01.eventloop.EventLoopFactory;
+import com.teragrep.net_01.server.ServerFactory;
+import com.teragrep.rlp_01.RelpBatch;
+import com.teragrep.rlp_01.RelpConnection;
+import com.teragrep.rlp_01.RelpFrameRX;
+import com.teragrep.rlp_03.frame.delegate.DefaultFrameBatchDelegate;
+import com.teragrep.rlp_03.frame.delegate.DefaultFrameDelegate;
+import com.teragrep.rlp_03.frame.delegate.FrameBatch;
+import com.teragrep.rlp_03.frame.delegate.FrameBatchDelegate;
+import com.teragrep.rlp_03.frame.delegate.FrameBatchDelegateSerial;
+import org.junit.jupiter.api.*;
+
+import java.io.ByteArrayOutputStream;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.net.Socket;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicInteger;
+
+@TestInstance(TestInstance.Lifecycle.PER_CLASS)
+public class FrameBatchDelegationClockTest {
+
+    private final String hostname = "localhost";
+    private int port;
+    private int syslogBatchPort;
+    private EventLoop eventLoop;
+    private Thread eventLoopThread;
+    private ExecutorService executorService;
+    private final List<String> messages = new ArrayList<>();
+    private final AtomicInteger batches = new AtomicInteger();
+    private final FrameBatchDelegationClockFactory syslogBatchClockFactory = new FrameBatchDelegationClockFactory(
+            () -> new DefaultFrameBatchDelegate((syslogBatch) -> {
+                for (int i = 0; i < syslogBatch.size(); i++) {
+                    if (syslogBatch.get(i).relpFrame().payload().toString().startsWith("fail")) {
+                        syslogBatch.fail(i);
+                    }
+                }
+            })
+    );
+
+    @BeforeAll
+    public void init() {
+        port = 24601;
+        syslogBatchPort = 24602;
+
+        EventLoopFactory eventLoopFactory = new EventLoopFactory();
+        Assertions.assertAll(() -> eventLoop = eventLoopFactory.create());
+
+        eventLoopThread = new Thread(eventLoop);
+        eventLoopThread.start();
+
+        executorService = Executors.newSingleThreadExecutor();
+        ServerFactory serverFactory = new ServerFactory(
+                eventLoop,
+                executorService,
+                new PlainFactory(),
+                new FrameBatchDelegationClockFactory(
+                        () -> new CountingBatchDelegate(
+                                new FrameBatchDelegateSerial(new DefaultFrameDelegate((frameContext) -> {
+                                    synchronized (messages) {
+                                        messages.add(frameContext.relpFrame().payload().toString());
+                                    }
+                                }))
+                        ),
+                        new DelimiterScannerSwar()
+                )
+        );
+        Assertions.assertAll(() -> serverFactory.create(port));
+
+        ServerFactory syslogBatchServerFactory = new ServerFactory(
+                eventLoop,
+                executorService,
+                new PlainFactory(),
+                syslogBatchClockFactory
+        );
+        Assertions.assertAll(() -> syslogBatchServerFactory.create(syslogBatchPort));
+    }
+
+    @AfterAll
+    public void cleanup() {
+        eventLoop.stop();
+        executorService.shutdown();
+        Assertions.assertAll(eventLoopThread::join);
+    }
+
+    @Test
+    public void testBatchDelivery() {
+        RelpConnection relpSession = new RelpConnection();
+        Assertions.assertAll(() -> relpSession.connect(hostname, port));
+
+        RelpBatch batch = new RelpBatch();
+        List<Long> reqIds = new ArrayList<>();
+        for (int i = 0; i < 100; i++) {
+            reqIds.add(batch.insert(("message " + i).getBytes(StandardCharsets.UTF_8)));
+        }
+        Assertions.assertAll(() -> relpSession.commit(batch));
+
+        for (long reqId : reqIds) {
+            Assertions.assertEquals(200, batch.getResponse(reqId).getResponseCode());
+        }
+        Assertions.assertAll(relpSession::disconnect);
+
+        synchronized (messages) {
+            Assertions.assertEquals(100, messages.size());
+            for (int i = 0; i < 100; i++) {
+                Assertions.assertEquals("message " + i, messages.get(i));
+            }
+        }
+        Assertions.assertTrue(batches.get() > 0);
+    }
+
+    @Test
+    public void testSyslogBatchFailures() {
+        RelpConnection relpSession = new RelpConnection();
+        Assertions.assertAll(() -> relpSession.connect(hostname, syslogBatchPort));
+
+        RelpBatch batch = new RelpBatch();
+        List<Long> reqIds = new ArrayList<>();
+        for (int i = 0; i < 50; i++) {
+            String message;
+            if (i % 3 == 0) {
+                message = "fail " + i;
+            }
+            else {
+                message = "pass " + i;
+            }
+            reqIds.add(batch.insert(message.getBytes(StandardCharsets.UTF_8)));
+        }
+        Assertions.assertAll(() -> relpSession.commit(batch));
+
+        for (int i = 0; i < reqIds.size(); i++) {
+            RelpFrameRX response = batch.getResponse(reqIds.get(i));
+            if (i % 3 == 0) {
+                Assertions.assertEquals(500, response.getResponseCode());
+                Assertions
+                        .assertEquals(
+                                "500 EXCEPTION WHILE PROCESSING SYSLOG PAYLOAD",
+                                new String(response.getData(), StandardCharsets.UTF_8)
+                        );
+            }
+            else {
+                Assertions.assertEquals(200, response.getResponseCode());
+            }
+        }
+        Assertions.assertAll(relpSession::disconnect);
+    }
+
+    @Test
+    public void testMalformedInputClosesConnection() {
+        String response = Assertions.assertDoesNotThrow(() -> exchange("1 open 0\n2 syslog 4 pass\n3 syslog x foo\n"));
+
+        Assertions.assertTrue(response.endsWith("0 serverclose 0 \n"), response);
+        ParseErrorCounters parseErrorCounters = syslogBatchClockFactory.parseErrorCounters();
+        Assertions.assertEquals(1, parseErrorCounters.count(ParseError.PAYLOAD_LENGTH_NOT_NUMBER));
+        Assertions.assertEquals(1, parseErrorCounters.total());
+    }
+
+    private String exchange(String request) throws Exception {
+        try (Socket socket = new Socket(hostname, syslogBatchPort)) {
+            socket.setSoTimeout(5000);
+            OutputStream outputStream = socket.getOutputStream();
+            outputStream.write(request.getBytes(StandardCharsets.UTF_8));
+            outputStream.flush();
+
+            // server closes the connection after the serverclose
+            InputStream inputStream = socket.getInputStream();
+            ByteArrayOutputStream received = new ByteArrayOutputStream();
+            byte[] bytes = new byte[1024];
+            int read;
+            while ((read = inputStream.read(bytes)) != -1) {
+                received.write(bytes, 0, read);
+            }
+            return new String(received.toByteArray(), StandardCharsets.UTF_8);
+        }
+    }
+
+    private final class CountingBatchDelegate implements FrameBatchDelegate {
+
+        private final FrameBatchDelegate frameBatchDelegate;
+
+        private CountingBatchDelegate(FrameBatchDelegate frameBatchDelegate) {
+            this.frameBatchDelegate = frameBatchDelegate;
+        }
+
+        @Override
+        public boolean accept(FrameBatch frameBatch) {
+            batches.incrementAndGet();
+            return frameBatchDelegate.accept(frameBatch);
+        }
+
+        @Override
+        public void close() throws Exception {
+            frameBatchDelegate.close();
+        }
+
+        @Override
+        public boolean isStub() {
+            return frameBatchDelegate.isStub();
+        }
+    }
+}
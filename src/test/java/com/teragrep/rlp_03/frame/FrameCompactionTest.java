@@ -0,0 +1,221 @@
+/*
+ * Java Reliable Event Logging Protocol Library Server Implementation RLP-03
+ * Copyright (C) 2021-2024 Suomen Kanuuna Oy
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Affero General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Affero General Public License for more details.
+ *
+ * You should have received a copy of the GNU Affero General Public License
+ * along with this program.  If not, see <https://www.gnu.org/licenses/>.
+ *
+ *
+ * Additional permission under GNU Affero General Public License version 3
+ * section 7
+ *
+ * If you modify this Program, or any covered work, by linking or combining it
+ * with other code, such other code is not for that reason alone subject to any
+ * of the requirements of the GNU Affero GPL version 3 as long as this Program
+ * is the same Program as licensed from Suomen Kanuuna Oy without any additional
+ * modifications.
+ *
+ * Supplemented terms under GNU Affero General Public License version 3
+ * section 7
+ *
+ * Origin of the software must be attributed to Suomen Kanuuna Oy. Any modified
+ * versions must be marked as "Modified version of" The Program.
+ *
+ * Names of the licensors and authors may not be used for publicity purposes.
+ *
+ * No rights are granted for use of trade names, trademarks, or service marks
+ * which are in The Program if any.
+ *
+ * Licensee must indemnify licensors and authors for any liability that these
+ * contractual assumptions impose on licensors and authors.
+ *
+ * To the extent this program is licensed as part of the Commercial versions of
+ * Teragrep, the applicable Commercial License may apply to this file if you as
+ * a licensee so wish it.
+ */
+package com.teragrep.rlp_03.frame;
+
+import com.teragrep.net_01.channel.buffer.BufferLease;
+import com.teragrep.net_01.channel.buffer.writable.Writeable;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Test;
+
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+
+public class FrameCompactionTest {
+
+    @Test
+    public void testSmallFrameReleasesLeases() {
+        FrameCompaction frameCompaction = new FrameCompaction(64, 4);
+        FrameLeaseClock frameLeaseClock = new FrameClockLeaseful(
+                new FrameClock(),
+                new MemoryAccountStub(),
+                frameCompaction
+        );
+
+        // frame straddles two reads
+        CountingBufferLease first = new CountingBufferLease("1 syslog 11 hello");
+        Assertions.assertTrue(frameLeaseClock.submit(first).isStub());
+        Assertions.assertEquals(1, first.refs());
+        CountingBufferLease second = new CountingBufferLease(" world\n");
+        RelpFrame relpFrame = frameLeaseClock.submit(second);
+
+        Assertions.assertEquals(0, first.refs());
+        Assertions.assertEquals(0, second.refs());
+        Assertions.assertEquals(1, relpFrame.txnId());
+        Assertions.assertEquals("1", relpFrame.txn().toString());
+        Assertions.assertEquals("syslog", relpFrame.command().toString());
+        Assertions.assertEquals("11", relpFrame.payloadLength().toString());
+        Assertions.assertEquals("hello world", relpFrame.payload().toString());
+
+        // writeable keeps the compact buffer after the frame is closed
+        Writeable writeable = relpFrame.toWriteable();
+        relpFrame.close();
+        StringBuilder stringBuilder = new StringBuilder();
+        for (ByteBuffer buffer : writeable.buffers()) {
+            stringBuilder.append(StandardCharsets.UTF_8.decode(buffer));
+        }
+        Assertions.assertEquals("1 syslog 11 hello world\n", stringBuilder.toString());
+        writeable.close();
+
+        Assertions.assertEquals(1, frameCompaction.frames());
+        Assertions.assertEquals(1, frameCompaction.compactedFrames());
+        Assertions.assertEquals(2, frameCompaction.releasedLeases());
+        Assertions.assertEquals(0, frameCompaction.pinnedLeases());
+    }
+
+    @Test
+    public void testLargeFramePinsLeases() {
+        FrameCompaction frameCompaction = new FrameCompaction(8, 4);
+        FrameLeaseClock frameLeaseClock = new FrameClockLeaseful(
+                new FrameClock(),
+                new MemoryAccountStub(),
+                frameCompaction
+        );
+
+        CountingBufferLease lease = new CountingBufferLease("1 syslog 11 hello world\n");
+        RelpFrame relpFrame = frameLeaseClock.submit(lease);
+        Assertions.assertEquals(1, lease.refs());
+        Assertions.assertEquals("hello world", relpFrame.payload().toString());
+        relpFrame.close();
+        Assertions.assertEquals(0, lease.refs());
+
+        Assertions.assertEquals(1, frameCompaction.frames());
+        Assertions.assertEquals(0, frameCompaction.compactedFrames());
+        Assertions.assertEquals(1, frameCompaction.pinnedLeases());
+    }
+
+    @Test
+    public void testFramesArePacked() {
+        FrameCompaction frameCompaction = new FrameCompaction(32, 48, 1);
+        FrameLeaseClock frameLeaseClock = new FrameClockLeaseful(
+                new FrameClock(),
+                new MemoryAccountStub(),
+                frameCompaction
+        );
+        Assertions.assertEquals(1, frameCompaction.available());
+
+        // 20 bytes of fields each, two frames share the buffer
+        RelpFrame first = frameLeaseClock.submit(new CountingBufferLease("1 syslog 11 hello world\n"));
+        RelpFrame second = frameLeaseClock.submit(new CountingBufferLease("2 syslog 11 hello again\n"));
+        Assertions.assertEquals(0, frameCompaction.available());
+        Assertions.assertEquals("hello world", first.payload().toString());
+        Assertions.assertEquals("hello again", second.payload().toString());
+
+        // third does not fit and the pool is empty, it is pinned
+        CountingBufferLease lease = new CountingBufferLease("3 syslog 11 hello third\n");
+        RelpFrame third = frameLeaseClock.submit(lease);
+        Assertions.assertEquals(1, lease.refs());
+        Assertions.assertEquals(2, frameCompaction.compactedFrames());
+        Assertions.assertEquals(1, frameCompaction.exhaustedFrames());
+        Assertions.assertEquals(1, frameCompaction.pinnedLeases());
+        third.close();
+        Assertions.assertEquals(0, lease.refs());
+
+        // buffer returns to the pool once the clock released it and both frames are closed
+        first.close();
+        Assertions.assertEquals(0, frameCompaction.available());
+        second.close();
+        Assertions.assertEquals(1, frameCompaction.available());
+        RelpFrame fourth = frameLeaseClock.submit(new CountingBufferLease("4 syslog 11 hello again\n"));
+        Assertions.assertEquals("hello again", fourth.payload().toString());
+        Assertions.assertEquals(0, frameCompaction.available());
+        fourth.close();
+        frameLeaseClock.close();
+        Assertions.assertEquals(1, frameCompaction.available());
+    }
+
+    @Test
+    public void testCompactedFrameIsCharged() {
+        MemoryBudget memoryBudget = new MemoryBudget(Long.MAX_VALUE);
+        FrameLeaseClock frameLeaseClock = new FrameClockLeaseful(
+                new FrameClock(),
+                memoryBudget.account(Long.MAX_VALUE, new ReadInterestStub()),
+                new FrameCompaction(64, 1)
+        );
+
+        RelpFrame relpFrame = frameLeaseClock.submit(new CountingBufferLease("1 syslog 11 hello world\n"));
+        Assertions.assertEquals(20, memoryBudget.used());
+        relpFrame.close();
+        Assertions.assertEquals(0, memoryBudget.used());
+        frameLeaseClock.close();
+    }
+
+    private static final class CountingBufferLease implements BufferLease {
+
+        private final ByteBuffer buffer;
+        private long refs;
+
+        private CountingBufferLease(String content) {
+            this.buffer = ByteBuffer.wrap(content.getBytes(StandardCharsets.UTF_8));
+            // reference of the submit
+            this.refs = 1;
+        }
+
+        @Override
+        public long id() {
+            return 0;
+        }
+
+        @Override
+        public long refs() {
+            return refs;
+        }
+
+        @Override
+        public ByteBuffer buffer() {
+            return buffer;
+        }
+
+        @Override
+        public void addRef() {
+            refs++;
+        }
+
+        @Override
+        public void removeRef() {
+            refs--;
+        }
+
+        @Override
+        public boolean isTerminated() {
+            return refs == 0;
+        }
+
+        @Override
+        public boolean isStub() {
+            return false;
+        }
+    }
+}
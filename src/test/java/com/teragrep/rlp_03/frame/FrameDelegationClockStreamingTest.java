@@ -0,0 +1,376 @@
+/*
+ * Java Reliable Event Logging Protocol Library Server Implementation RLP-03
+ * Copyright (C) 2021-2024 Suomen Kanuuna Oy
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Affero General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Affero General Public License for more details.
+ *
+ * You should have received a copy of the GNU Affero General Public License
+ * along with this program.  If not, see <https://www.gnu.org/licenses/>.
+ *
+ *
+ * Additional permission under GNU Affero General Public License version 3
+ * section 7
+ *
+ * If you modify this Program, or any covered work, by linking or combining it
+ * with other code, such other code is not for that reason alone subject to any
+ * of the requirements of the GNU Affero GPL version 3 as long as this Program
+ * is the same Program as licensed from Suomen Kanuuna Oy without any additional
+ * modifications.
+ *
+ * Supplemented terms under GNU Affero General Public License version 3
+ * section 7
+ *
+ * Origin of the software must be attributed to Suomen Kanuuna Oy. Any modified
+ * versions must be marked as "Modified version of" The Program.
+ *
+ * Names of the licensors and authors may not be used for publicity purposes.
+ *
+ * No rights are granted for use of trade names, trademarks, or service marks
+ * which are in The Program if any.
+ *
+ * Licensee must indemnify licensors and authors for any liability that these
+ * contractual assumptions impose on licensors and authors.
+ *
+ * To the extent this program is licensed as part of the Commercial versions of
+ * Teragrep, the applicable Commercial License may apply to this file if you as
+ * a licensee so wish it.
+ */
+package com.teragrep.rlp_03.frame;
+
+import com.teragrep.net_01.channel.buffer.BufferLease;
+import com.teragrep.net_01.channel.socket.PlainFactory;
+import com.teragrep.net_01.eventloop.EventLoop;
+import com.teragrep.net_01.eventloop.EventLoopFactory;
+import com.teragrep.net_01.server.ServerFactory;
+import com.teragrep.rlp_01.RelpBatch;
+import com.teragrep.rlp_01.RelpConnection;
+import com.teragrep.rlp_03.frame.delegate.DefaultFrameDelegate;
+import com.teragrep.rlp_03.frame.delegate.EventDelegate;
+import com.teragrep.rlp_03.frame.delegate.PayloadChunkConsumer;
+import com.teragrep.rlp_03.frame.delegate.event.RelpEvent;
+import com.teragrep.rlp_03.frame.delegate.event.RelpEventClose;
+import com.teragrep.rlp_03.frame.delegate.event.RelpEventOpen;
+import com.teragrep.rlp_03.frame.delegate.event.RelpEventSyslogStreaming;
+import com.teragrep.rlp_03.frame.fragment.Fragment;
+import org.junit.jupiter.api.*;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.stream.Stream;
+
+@TestInstance(TestInstance.Lifecycle.PER_CLASS)
+public class FrameDelegationClockStreamingTest {
+
+    private final String hostname = "localhost";
+    private final int port = 24603;
+    private EventLoop eventLoop;
+    private Thread eventLoopThread;
+    private ExecutorService executorService;
+    private final List<byte[]> payloads = new ArrayList<>();
+    private final List<Integer> chunkCounts = new ArrayList<>();
+
+    @BeforeAll
+    public void init() {
+        EventLoopFactory eventLoopFactory = new EventLoopFactory();
+        Assertions.assertAll(() -> eventLoop = eventLoopFactory.create());
+
+        eventLoopThread = new Thread(eventLoop);
+        eventLoopThread.start();
+
+        executorService = Executors.newSingleThreadExecutor();
+        ServerFactory serverFactory = new ServerFactory(
+                eventLoop,
+                executorService,
+                new PlainFactory(),
+                new FrameDelegationClockStreamingFactory(() -> {
+                    CollectingChunkConsumer chunkConsumer = new CollectingChunkConsumer();
+                    Map<String, RelpEvent> relpEventMap = new HashMap<>();
+                    relpEventMap.put("open", new RelpEventOpen());
+                    relpEventMap.put("close", new RelpEventClose());
+                    relpEventMap.put("syslog", new RelpEventSyslogStreaming(chunkConsumer, (frameContext) -> {
+                        synchronized (payloads) {
+                            payloads.add(chunkConsumer.bytes.toByteArray());
+                            chunkCounts.add(chunkConsumer.chunks);
+                        }
+                    }));
+                    return new DefaultFrameDelegate(relpEventMap);
+                })
+        );
+        Assertions.assertAll(() -> serverFactory.create(port));
+    }
+
+    @AfterAll
+    public void cleanup() {
+        eventLoop.stop();
+        executorService.shutdown();
+        Assertions.assertAll(eventLoopThread::join);
+    }
+
+    @Test
+    public void testLargePayloadStreamed() {
+        byte[] large = new byte[512 * 1024];
+        for (int i = 0; i < large.length; i++) {
+            large[i] = (byte) ('a' + i % 26);
+        }
+
+        RelpConnection relpSession = new RelpConnection();
+        Assertions.assertAll(() -> relpSession.connect(hostname, port));
+
+        RelpBatch batch = new RelpBatch();
+        long largeId = batch.insert(large);
+        long smallId = batch.insert("small".getBytes(StandardCharsets.UTF_8));
+        Assertions.assertAll(() -> relpSession.commit(batch));
+        Assertions.assertEquals(200, batch.getResponse(largeId).getResponseCode());
+        Assertions.assertEquals(200, batch.getResponse(smallId).getResponseCode());
+        Assertions.assertAll(relpSession::disconnect);
+
+        synchronized (payloads) {
+            Assertions.assertEquals(2, payloads.size());
+            Assertions.assertArrayEquals(large, payloads.get(0));
+            Assertions.assertTrue(chunkCounts.get(0) > 1);
+            Assertions.assertEquals("small", new String(payloads.get(1), StandardCharsets.UTF_8));
+        }
+    }
+
+    @Test
+    public void testLeasesReleasedPerChunk() {
+        CollectingChunkConsumer chunkConsumer = new CollectingChunkConsumer();
+        Map<String, RelpEvent> relpEventMap = new HashMap<>();
+        relpEventMap.put("syslog", new RelpEventSyslogStreaming(chunkConsumer, (frameContext) -> {
+        }));
+        FrameLeaseClock frameLeaseClock = new FrameClockLeaseful(
+                new FrameClock(
+                        new DelimiterScannerBytewise(),
+                        new RelpFrameAssemblerImpl(),
+                        new PayloadSinkChunked(new EventDelegate(relpEventMap))
+                )
+        );
+
+        CountingBufferLease first = new CountingBufferLease("7 syslog 10 hello");
+        Assertions.assertTrue(frameLeaseClock.submit(first).isStub());
+        Assertions.assertEquals(0, first.refs());
+        Assertions.assertEquals("hello", new String(chunkConsumer.bytes.toByteArray(), StandardCharsets.UTF_8));
+
+        CountingBufferLease second = new CountingBufferLease("world\n");
+        RelpFrame streamed = frameLeaseClock.submit(second);
+        Assertions.assertFalse(streamed.isStub());
+        Assertions.assertEquals(0, second.refs());
+        Assertions.assertEquals("helloworld", new String(chunkConsumer.bytes.toByteArray(), StandardCharsets.UTF_8));
+        Assertions.assertEquals(7, streamed.txnId());
+        Assertions.assertEquals("syslog", streamed.command().toString());
+        Assertions.assertEquals(10, streamed.payloadLengthValue());
+        Assertions.assertEquals(0, streamed.payload().size());
+        streamed.close();
+
+        // commands without a chunk consumer keep their buffers until the frame is closed
+        CountingBufferLease third = new CountingBufferLease("8 open 3 abc\n");
+        RelpFrame open = frameLeaseClock.submit(third);
+        Assertions.assertEquals(1, third.refs());
+        Assertions.assertEquals("abc", open.payload().toString());
+        open.close();
+        Assertions.assertEquals(0, third.refs());
+    }
+
+    @Test
+    public void testFailedChunksStayWithFrame() {
+        CollectingChunkConsumer chunkConsumer = new CollectingChunkConsumer();
+        PayloadChunkConsumer failing = new PayloadChunkConsumer() {
+
+            @Override
+            public boolean begin(int txnId, int payloadLength) {
+                return chunkConsumer.begin(txnId, payloadLength);
+            }
+
+            @Override
+            public void accept(ByteBuffer chunk) {
+                if (chunk.get(chunk.position()) == 'f') {
+                    throw new IllegalArgumentException("failing chunk");
+                }
+                chunkConsumer.accept(chunk);
+            }
+
+            @Override
+            public boolean isStub() {
+                return false;
+            }
+        };
+        Map<String, RelpEvent> relpEventMap = new HashMap<>();
+        relpEventMap.put("syslog", new RelpEventSyslogStreaming(failing, (frameContext) -> {
+        }));
+        FrameLeaseClock frameLeaseClock = new FrameClockLeaseful(
+                new FrameClock(
+                        new DelimiterScannerBytewise(),
+                        new RelpFrameAssemblerImpl(),
+                        new PayloadSinkChunked(new EventDelegate(relpEventMap))
+                )
+        );
+
+        // remaining chunks of the failed frame are discarded
+        CountingBufferLease first = new CountingBufferLease("1 syslog 7 fail");
+        Assertions.assertTrue(frameLeaseClock.submit(first).isStub());
+        RelpFrame failed = frameLeaseClock.submit(new CountingBufferLease("ure\n"));
+        Assertions.assertTrue(failed.payload().isStub());
+        Assertions.assertEquals(0, chunkConsumer.chunks);
+        failed.close();
+
+        RelpFrame passed = frameLeaseClock.submit(new CountingBufferLease("2 syslog 4 pass\n"));
+        Assertions.assertFalse(passed.payload().isStub());
+        Assertions.assertEquals("pass", new String(chunkConsumer.bytes.toByteArray(), StandardCharsets.UTF_8));
+        passed.close();
+    }
+
+    @Test
+    public void testPayloadSpilled() throws IOException {
+        Path spillDirectory = Files.createTempDirectory("rlp_03-spill-test");
+        FrameLeaseClock frameLeaseClock = new FrameClockLeaseful(
+                new FrameClock(
+                        new DelimiterScannerBytewise(),
+                        new RelpFrameAssemblerImpl(),
+                        new PayloadSinkSpilling(4, spillDirectory)
+                )
+        );
+
+        CountingBufferLease first = new CountingBufferLease("1 syslog 3 abc\n2 syslog 10 hello");
+        RelpFrame small = frameLeaseClock.submit(first);
+        Assertions.assertEquals("abc", small.payload().toString());
+        // remaining bytes are submitted again with a new reference
+        first.addRef();
+        Assertions.assertTrue(frameLeaseClock.submit(first).isStub());
+        // the spilled frame does not hold a reference
+        Assertions.assertEquals(1, first.refs());
+        small.close();
+        Assertions.assertEquals(0, first.refs());
+
+        CountingBufferLease second = new CountingBufferLease("world\n");
+        RelpFrame spilled = frameLeaseClock.submit(second);
+        Assertions.assertEquals(0, second.refs());
+        Assertions.assertEquals(2, spilled.txnId());
+        Assertions.assertEquals(10, spilled.payload().size());
+        Assertions.assertEquals("helloworld", spilled.payload().toString());
+        Assertions.assertEquals(10, spilled.payload().toWriteable().buffers()[0].remaining());
+
+        // temporary files are deleted once opened
+        try (Stream<Path> files = Files.list(spillDirectory)) {
+            Assertions.assertEquals(0, files.count());
+        }
+        Fragment payload = spilled.payload();
+        spilled.close();
+        // file is closed with the frame
+        Assertions.assertThrows(IllegalStateException.class, payload::toBytes);
+        Files.delete(spillDirectory);
+    }
+
+    @Test
+    public void testSpillFailureClosesConnection() throws IOException {
+        Path spillDirectory = Files.createTempDirectory("rlp_03-spill-test");
+        Files.delete(spillDirectory);
+        FrameLeaseClock frameLeaseClock = new FrameClockLeaseful(
+                new FrameClock(
+                        new DelimiterScannerBytewise(),
+                        new RelpFrameAssemblerImpl(),
+                        new PayloadSinkSpilling(4, spillDirectory)
+                )
+        );
+
+        CountingBufferLease lease = new CountingBufferLease("1 syslog 3 abc\n2 syslog 10 helloworld\n");
+        RelpFrame small = frameLeaseClock.submit(lease);
+        Assertions.assertEquals("abc", small.payload().toString());
+        small.close();
+
+        lease.addRef();
+        Assertions.assertTrue(frameLeaseClock.submit(lease).isStub());
+        Assertions.assertEquals(ParseError.PAYLOAD_SINK_FAILED, frameLeaseClock.parseError());
+        Assertions.assertEquals(0, lease.refs());
+    }
+
+    private static final class CollectingChunkConsumer implements PayloadChunkConsumer {
+
+        private final ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        private int chunks = 0;
+
+        @Override
+        public boolean begin(int txnId, int payloadLength) {
+            bytes.reset();
+            chunks = 0;
+            return true;
+        }
+
+        @Override
+        public void accept(ByteBuffer chunk) {
+            byte[] chunkBytes = new byte[chunk.remaining()];
+            chunk.get(chunkBytes);
+            bytes.write(chunkBytes, 0, chunkBytes.length);
+            chunks++;
+        }
+
+        @Override
+        public boolean isStub() {
+            return false;
+        }
+    }
+
+    private static final class CountingBufferLease implements BufferLease {
+
+        private final ByteBuffer buffer;
+        private long refs;
+
+        private CountingBufferLease(String content) {
+            this.buffer = ByteBuffer.wrap(content.getBytes(StandardCharsets.UTF_8));
+            // reference of the submit
+            this.refs = 1;
+        }
+
+        @Override
+        public long id() {
+            return 0;
+        }
+
+        @Override
+        public long refs() {
+            return refs;
+        }
+
+        @Override
+        public ByteBuffer buffer() {
+            return buffer;
+        }
+
+        @Override
+        public void addRef() {
+            refs++;
+        }
+
+        @Override
+        public void removeRef() {
+            refs--;
+        }
+
+        @Override
+        public boolean isTerminated() {
+            return refs == 0;
+        }
+
+        @Override
+        public boolean isStub() {
+            return false;
+        }
+    }
+}
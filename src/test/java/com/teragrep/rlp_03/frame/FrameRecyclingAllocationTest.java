@@ -0,0 +1,177 @@
+/*
+ * Java Reliable Event Logging Protocol Library Server Implementation RLP-03
+ * Copyright (C) 2021-2024 Suomen Kanuuna Oy
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Affero General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Affero General Public License for more details.
+ *
+ * You should have received a copy of the GNU Affero General Public License
+ * along with this program.  If not, see <https://www.gnu.org/licenses/>.
+ *
+ *
+ * Additional permission under GNU Affero General Public License version 3
+ * section 7
+ *
+ * If you modify this Program, or any covered work, by linking or combining it
+ * with other code, such other code is not for that reason alone subject to any
+ * of the requirements of the GNU Affero GPL version 3 as long as this Program
+ * is the same Program as licensed from Suomen Kanuuna Oy without any additional
+ * modifications.
+ *
+ * Supplemented terms under GNU Affero General Public License version 3
+ * section 7
+ *
+ * Origin of the software must be attributed to Suomen Kanuuna Oy. Any modified
+ * versions must be marked as "Modified version of" The Program.
+ *
+ * Names of the licensors and authors may not be used for publicity purposes.
+ *
+ * No rights are granted for use of trade names, trademarks, or service marks
+ * which are in The Program if any.
+ *
+ * Licensee must indemnify licensors and authors for any liability that these
+ * contractual assumptions impose on licensors and authors.
+ *
+ * To the extent this program is licensed as part of the Commercial versions of
+ * Teragrep, the applicable Commercial License may apply to this file if you as
+ * a licensee so wish it.
+ */
+package com.teragrep.rlp_03.frame;
+
+import com.teragrep.net_01.channel.buffer.BufferLease;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Assumptions;
+import org.junit.jupiter.api.Test;
+
+import java.lang.management.ManagementFactory;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+
+public class FrameRecyclingAllocationTest {
+
+    private final int frames = 100_000;
+
+    @Test
+    public void testRecycledFrameContent() {
+        FrameLeaseClock frameLeaseClock = new FrameClockRecycling(new DelimiterScannerBytewise(), 4);
+        FakeBufferLease bufferLease = new FakeBufferLease("1 syslog 5 hello\n2 syslog 5 world\n");
+
+        RelpFrame first = frameLeaseClock.submit(bufferLease);
+        Assertions.assertFalse(first.isStub());
+        Assertions.assertEquals(1, first.txnId());
+        Assertions.assertEquals(CommandToken.SYSLOG, first.commandToken());
+        Assertions.assertEquals("hello", first.payload().toString());
+        Assertions.assertEquals(5, first.payloadLengthValue());
+        first.close();
+        Assertions.assertEquals(-1, bufferLease.refs);
+
+        RelpFrame second = frameLeaseClock.submit(bufferLease);
+        Assertions.assertSame(first, second);
+        Assertions.assertEquals(2, second.txnId());
+        Assertions.assertEquals("world", second.payload().toString());
+        Assertions.assertEquals("syslog", second.command().toString());
+        second.close();
+    }
+
+    @Test
+    public void testRecycledAllocation() {
+        com.sun.management.ThreadMXBean threadMXBean = threadMXBean();
+
+        FakeBufferLease bufferLease = new FakeBufferLease("12345 syslog 11 hello world\n");
+        FrameLeaseClock recycling = new FrameClockRecycling(new DelimiterScannerSwar(), 4);
+        FrameLeaseClock leaseful = new FrameClockLeaseful(new FrameClock(new DelimiterScannerSwar()));
+
+        // warmup
+        run(recycling, bufferLease);
+        run(leaseful, bufferLease);
+
+        long threadId = Thread.currentThread().getId();
+        long start = threadMXBean.getThreadAllocatedBytes(threadId);
+        run(recycling, bufferLease);
+        long recycledBytes = threadMXBean.getThreadAllocatedBytes(threadId) - start;
+
+        start = threadMXBean.getThreadAllocatedBytes(threadId);
+        run(leaseful, bufferLease);
+        long leasefulBytes = threadMXBean.getThreadAllocatedBytes(threadId) - start;
+
+        Assertions.assertTrue(recycledBytes < frames, "recycled path allocated <" + recycledBytes + "> bytes");
+        Assertions.assertTrue(recycledBytes < leasefulBytes);
+    }
+
+    private void run(FrameLeaseClock frameLeaseClock, FakeBufferLease bufferLease) {
+        for (int i = 0; i < frames; i++) {
+            bufferLease.buffer().rewind();
+            RelpFrame relpFrame = frameLeaseClock.submit(bufferLease);
+            if (relpFrame.txnId() != 12345) {
+                Assertions.fail("unexpected txnId <" + relpFrame.txnId() + ">");
+            }
+            relpFrame.close();
+        }
+    }
+
+    private com.sun.management.ThreadMXBean threadMXBean() {
+        Assumptions
+                .assumeTrue(
+                        ManagementFactory.getThreadMXBean() instanceof com.sun.management.ThreadMXBean,
+                        "no allocation counters"
+                );
+        com.sun.management.ThreadMXBean threadMXBean = (com.sun.management.ThreadMXBean) ManagementFactory
+                .getThreadMXBean();
+        Assumptions.assumeTrue(threadMXBean.isThreadAllocatedMemorySupported(), "no allocation counters");
+        threadMXBean.setThreadAllocatedMemoryEnabled(true);
+        return threadMXBean;
+    }
+
+    private static final class FakeBufferLease implements BufferLease {
+
+        private final ByteBuffer buffer;
+        private long refs;
+
+        FakeBufferLease(String content) {
+            this.buffer = ByteBuffer.wrap(content.getBytes(StandardCharsets.UTF_8));
+            this.refs = 0;
+        }
+
+        @Override
+        public long id() {
+            return 0;
+        }
+
+        @Override
+        public long refs() {
+            return refs;
+        }
+
+        @Override
+        public ByteBuffer buffer() {
+            return buffer;
+        }
+
+        @Override
+        public void addRef() {
+            refs++;
+        }
+
+        @Override
+        public void removeRef() {
+            refs--;
+        }
+
+        @Override
+        public boolean isTerminated() {
+            return false;
+        }
+
+        @Override
+        public boolean isStub() {
+            return false;
+        }
+    }
+}
@@ -0,0 +1,553 @@
+/*
+ * Java Reliable Event Logging Protocol Library Server Implementation RLP-03
+ * Copyright (C) 2021-2024 Suomen Kanuuna Oy
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Affero General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Affero General Public License for more details.
+ *
+ * You should have received a copy of the GNU Affero General Public License
+ * along with this program.  If not, see <https://www.gnu.org/licenses/>.
+ *
+ *
+ * Additional permission under GNU Affero General Public License version 3
+ * section 7
+ *
+ * If you modify this Program, or any covered work, by linking or combining it
+ * with other code, such other code is not for that reason alone subject to any
+ * of the requirements of the GNU Affero GPL version 3 as long as this Program
+ * is the same Program as licensed from Suomen Kanuuna Oy without any additional
+ * modifications.
+ *
+ * Supplemented terms under GNU Affero General Public License version 3
+ * section 7
+ *
+ * Origin of the software must be attributed to Suomen Kanuuna Oy. Any modified
+ * versions must be marked as "Modified version of" The Program.
+ *
+ * Names of the licensors and authors may not be used for publicity purposes.
+ *
+ * No rights are granted for use of trade names, trademarks, or service marks
+ * which are in The Program if any.
+ *
+ * Licensee must indemnify licensors and authors for any liability that these
+ * contractual assumptions impose on licensors and authors.
+ *
+ * To the extent this program is licensed as part of the Commercial versions of
+ * Teragrep, the applicable Commercial License may apply to this file if you as
+ * a licensee so wish it.
+ */
+package com.teragrep.rlp_03.frame;
+
+import com.teragrep.net_01.channel.buffer.BufferLease;
+import com.teragrep.net_01.channel.context.Clock;
+import com.teragrep.net_01.channel.context.Egress;
+import com.teragrep.net_01.channel.context.EstablishedContext;
+import com.teragrep.net_01.channel.context.Ingress;
+import com.teragrep.net_01.channel.context.InterestOps;
+import com.teragrep.net_01.channel.socket.PlainFactory;
+import com.teragrep.net_01.channel.socket.Socket;
+import com.teragrep.net_01.eventloop.EventLoop;
+import com.teragrep.net_01.eventloop.EventLoopFactory;
+import com.teragrep.net_01.server.ServerFactory;
+import com.teragrep.rlp_01.RelpBatch;
+import com.teragrep.rlp_01.RelpConnection;
+import com.teragrep.rlp_03.frame.delegate.DefaultFrameDelegate;
+import com.teragrep.rlp_03.frame.delegate.FrameContext;
+import com.teragrep.rlp_03.frame.delegate.FrameDelegate;
+import org.junit.jupiter.api.*;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.ByteBuffer;
+import java.nio.channels.SelectionKey;
+import java.nio.channels.spi.AbstractSelectableChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+
+@TestInstance(TestInstance.Lifecycle.PER_CLASS)
+public class MemoryBudgetTest {
+
+    private final String hostname = "localhost";
+    private final int port = 24604;
+    private EventLoop eventLoop;
+    private Thread eventLoopThread;
+    private ExecutorService executorService;
+    private final MemoryBudget serverBudget = new MemoryBudget(1);
+    private final AtomicInteger messages = new AtomicInteger();
+    private final int floodPort = 10605;
+    private final long floodLimit = 64 * 1024;
+    private final MemoryBudget floodBudget = new MemoryBudget(floodLimit);
+    private final HoldingDelegate holdingDelegate = new HoldingDelegate();
+
+    @BeforeAll
+    public void init() {
+        EventLoopFactory eventLoopFactory = new EventLoopFactory();
+        Assertions.assertAll(() -> eventLoop = eventLoopFactory.create());
+
+        eventLoopThread = new Thread(eventLoop);
+        eventLoopThread.start();
+
+        executorService = Executors.newSingleThreadExecutor();
+        ServerFactory serverFactory = new ServerFactory(
+                eventLoop,
+                executorService,
+                new PlainFactory(),
+                new FrameDelegationClockFactory(() -> new DefaultFrameDelegate((frameContext) -> messages.incrementAndGet()), new DelimiterScannerBytewise(), Integer.MAX_VALUE, Paths.get(System.getProperty("java.io.tmpdir")), serverBudget, Long.MAX_VALUE)
+        );
+        Assertions.assertAll(() -> serverFactory.create(port));
+
+        ServerFactory floodServerFactory = new ServerFactory(
+                eventLoop,
+                executorService,
+                new PlainFactory(),
+                new FrameDelegationClockFactory(
+                        () -> holdingDelegate,
+                        new DelimiterScannerBytewise(),
+                        Integer.MAX_VALUE,
+                        Paths.get(System.getProperty("java.io.tmpdir")),
+                        floodBudget,
+                        Long.MAX_VALUE
+                )
+        );
+        Assertions.assertAll(() -> floodServerFactory.create(floodPort));
+    }
+
+    @AfterAll
+    public void cleanup() {
+        eventLoop.stop();
+        executorService.shutdown();
+        Assertions.assertAll(eventLoopThread::join);
+    }
+
+    @Test
+    public void testExceededBudgetResumes() {
+        // every held buffer exceeds the budget, reading pauses and resumes as frames are closed
+        RelpConnection relpSession = new RelpConnection();
+        Assertions.assertAll(() -> relpSession.connect(hostname, port));
+
+        RelpBatch batch = new RelpBatch();
+        List<Long> reqIds = new ArrayList<>();
+        for (int i = 0; i < 200; i++) {
+            reqIds.add(batch.insert(("message " + i).getBytes(StandardCharsets.UTF_8)));
+        }
+        Assertions.assertAll(() -> relpSession.commit(batch));
+        for (long reqId : reqIds) {
+            Assertions.assertEquals(200, batch.getResponse(reqId).getResponseCode());
+        }
+        Assertions.assertAll(relpSession::disconnect);
+
+        Assertions.assertEquals(200, messages.get());
+        // close frame is refunded after the response is sent
+        Assertions.assertAll(() -> {
+            for (int i = 0; i < 100 && serverBudget.used() != 0; i++) {
+                Thread.sleep(50);
+            }
+        });
+        Assertions.assertEquals(0, serverBudget.used());
+    }
+
+    @Test
+    public void testGlobalLimit() {
+        MemoryBudget memoryBudget = new MemoryBudget(100);
+        CountingReadInterest first = new CountingReadInterest();
+        CountingReadInterest second = new CountingReadInterest();
+        MemoryAccount firstAccount = memoryBudget.account(1000, first);
+        MemoryAccount secondAccount = memoryBudget.account(1000, second);
+
+        firstAccount.charge(80);
+        Assertions.assertEquals(0, first.pauses.get());
+
+        secondAccount.charge(40);
+        Assertions.assertEquals(0, first.pauses.get());
+        Assertions.assertEquals(1, second.pauses.get());
+
+        // refund of another account resumes the paused one
+        firstAccount.refund(30);
+        Assertions.assertEquals(0, second.pauses.get());
+        Assertions.assertEquals(90, memoryBudget.used());
+
+        firstAccount.refund(50);
+        secondAccount.refund(40);
+        Assertions.assertEquals(0, memoryBudget.used());
+        Assertions.assertEquals(0, first.pauses.get());
+        Assertions.assertEquals(0, second.pauses.get());
+    }
+
+    @Test
+    public void testPausedAccountQueuedOnce() {
+        MemoryBudget memoryBudget = new MemoryBudget(100);
+        CountingReadInterest first = new CountingReadInterest();
+        CountingReadInterest second = new CountingReadInterest();
+        MemoryAccount firstAccount = memoryBudget.account(1000, first);
+        MemoryAccount secondAccount = memoryBudget.account(1000, second);
+
+        firstAccount.charge(150);
+        Assertions.assertEquals(1, first.pauses.get());
+        Assertions.assertEquals(1, memoryBudget.waiting());
+        // refunds that leave the budget exceeded do not queue the account again
+        for (int i = 0; i < 3; i++) {
+            firstAccount.refund(10);
+        }
+        Assertions.assertEquals(1, memoryBudget.waiting());
+
+        secondAccount.charge(10);
+        Assertions.assertEquals(1, second.pauses.get());
+        Assertions.assertEquals(2, memoryBudget.waiting());
+
+        // closed account is taken off the queue and not resumed
+        firstAccount.close();
+        Assertions.assertEquals(1, memoryBudget.waiting());
+        firstAccount.refund(120);
+        Assertions.assertEquals(0, memoryBudget.waiting());
+        Assertions.assertEquals(1, first.pauses.get());
+        Assertions.assertEquals(0, second.pauses.get());
+    }
+
+    @Test
+    public void testConnectionLimit() {
+        MemoryBudget memoryBudget = new MemoryBudget(1000);
+        CountingReadInterest readInterest = new CountingReadInterest();
+        MemoryAccount memoryAccount = memoryBudget.account(50, readInterest);
+
+        memoryAccount.charge(60);
+        Assertions.assertEquals(1, readInterest.pauses.get());
+        memoryAccount.charge(10);
+        // paused once until resumed
+        Assertions.assertEquals(1, readInterest.pauses.get());
+
+        memoryAccount.refund(10);
+        Assertions.assertEquals(1, readInterest.pauses.get());
+        memoryAccount.refund(20);
+        Assertions.assertEquals(0, readInterest.pauses.get());
+    }
+
+    @Test
+    public void testFloodPauses() throws Exception {
+        // frames fill the buffers, reads end at the end of a buffer while the writer keeps up
+        final int frames = 2000;
+        final byte[] payload = new byte[4000];
+        Arrays.fill(payload, (byte) 'x');
+        final String payloadString = new String(payload, StandardCharsets.US_ASCII);
+
+        try (java.net.Socket socket = new java.net.Socket(hostname, floodPort)) {
+            final OutputStream outputStream = socket.getOutputStream();
+            Thread writer = new Thread(() -> {
+                try {
+                    for (int i = 1; i <= frames; i++) {
+                        outputStream
+                                .write(
+                                        (i + " syslog " + payload.length + " " + payloadString + "\n")
+                                                .getBytes(StandardCharsets.US_ASCII)
+                                );
+                    }
+                    outputStream.flush();
+                }
+                catch (IOException ignored) {
+                    // socket closed by the test
+                }
+            });
+            writer.setDaemon(true);
+            writer.start();
+
+            // reading stops while the held frames exceed the budget
+            int received = awaitStable(holdingDelegate.received);
+            Assertions.assertTrue(received > 0);
+            Assertions.assertTrue(received < frames, "reading did not pause, received <" + received + ">");
+            Assertions.assertTrue(floodBudget.used() > floodLimit);
+            Assertions.assertTrue(floodBudget.used() <= floodLimit + 4096 + payload.length);
+
+            // closing the held frames resumes reading
+            holdingDelegate.release();
+            for (int i = 0; i < 100 && holdingDelegate.received.get() < frames; i++) {
+                Thread.sleep(50);
+            }
+            Assertions.assertEquals(frames, holdingDelegate.received.get());
+            writer.join(5000);
+        }
+        for (int i = 0; i < 100 && floodBudget.used() != 0; i++) {
+            Thread.sleep(50);
+        }
+        Assertions.assertEquals(0, floodBudget.used());
+    }
+
+    private static int awaitStable(AtomicInteger counter) throws InterruptedException {
+        int previous = -1;
+        int current = counter.get();
+        for (int i = 0; i < 50 && (current == 0 || current != previous); i++) {
+            Thread.sleep(100);
+            previous = current;
+            current = counter.get();
+        }
+        return current;
+    }
+
+    @Test
+    public void testLeaseChargedOnce() {
+        MemoryBudget memoryBudget = new MemoryBudget(Long.MAX_VALUE);
+        MemoryAccount memoryAccount = memoryBudget.account(Long.MAX_VALUE, new CountingReadInterest());
+        FrameLeaseClock frameLeaseClock = new FrameClockLeaseful(
+                new FrameClock(),
+                memoryAccount,
+                new FrameCompaction(0, 0)
+        );
+
+        // one buffer holding three frames, submitted once per frame like the ingress does
+        CountingBufferLease lease = new CountingBufferLease(4096, "1 syslog 1 a\n2 syslog 1 b\n3 syslog 1 c\n");
+        List<RelpFrame> relpFrames = new ArrayList<>();
+        for (int i = 0; i < 3; i++) {
+            lease.addRef();
+            relpFrames.add(frameLeaseClock.submit(lease));
+        }
+        Assertions.assertFalse(lease.buffer().hasRemaining());
+        Assertions.assertEquals(4096, memoryBudget.used());
+
+        relpFrames.get(0).close();
+        relpFrames.get(2).close();
+        Assertions.assertEquals(4096, memoryBudget.used());
+        relpFrames.get(1).close();
+        Assertions.assertEquals(0, memoryBudget.used());
+        Assertions.assertEquals(0, lease.refs());
+    }
+
+    @Test
+    public void testFullBufferIsSafePoint() {
+        RecordingIngress ingress = new RecordingIngress();
+        ReadInterestImpl readInterest = new ReadInterestImpl(new IngressContext(ingress), new UnusedClock());
+
+        // read filled the whole buffer and it is consumed
+        CountingBufferLease lease = new CountingBufferLease(16, "1 syslog 3 abc\n\n");
+        Assertions.assertEquals(lease.buffer().capacity(), lease.buffer().limit());
+        lease.buffer().position(lease.buffer().limit());
+
+        readInterest.safePoint(lease);
+        Assertions.assertEquals(0, ingress.unregisters);
+
+        readInterest.pause();
+        readInterest.safePoint(lease);
+        Assertions.assertEquals(1, ingress.unregisters);
+
+        readInterest.resume();
+        Assertions.assertEquals(1, ingress.registers);
+    }
+
+    private static final class HoldingDelegate implements FrameDelegate {
+
+        private final AtomicInteger received = new AtomicInteger();
+        private final List<RelpFrame> held = new ArrayList<>();
+        private boolean released = false;
+
+        @Override
+        public boolean accept(FrameContext frameContext) {
+            received.incrementAndGet();
+            synchronized (held) {
+                if (released) {
+                    frameContext.relpFrame().close();
+                }
+                else {
+                    held.add(frameContext.relpFrame());
+                }
+            }
+            return true;
+        }
+
+        private void release() {
+            synchronized (held) {
+                released = true;
+                for (RelpFrame relpFrame : held) {
+                    relpFrame.close();
+                }
+                held.clear();
+            }
+        }
+
+        @Override
+        public void close() {
+            // frames are closed by release
+        }
+
+        @Override
+        public boolean isStub() {
+            return false;
+        }
+    }
+
+    private static final class CountingBufferLease implements BufferLease {
+
+        private final ByteBuffer buffer;
+        private long refs;
+
+        private CountingBufferLease(int capacity, String content) {
+            this.buffer = ByteBuffer.allocate(capacity);
+            this.buffer.put(content.getBytes(StandardCharsets.UTF_8));
+            this.buffer.flip();
+            this.refs = 0;
+        }
+
+        @Override
+        public long id() {
+            return 0;
+        }
+
+        @Override
+        public long refs() {
+            return refs;
+        }
+
+        @Override
+        public ByteBuffer buffer() {
+            return buffer;
+        }
+
+        @Override
+        public void addRef() {
+            refs++;
+        }
+
+        @Override
+        public void removeRef() {
+            refs--;
+        }
+
+        @Override
+        public boolean isTerminated() {
+            return refs == 0;
+        }
+
+        @Override
+        public boolean isStub() {
+            return false;
+        }
+    }
+
+    private static final class RecordingIngress implements Ingress {
+
+        private int registers;
+        private int unregisters;
+
+        @Override
+        public void run() {
+            throw new UnsupportedOperationException();
+        }
+
+        @Override
+        public AtomicBoolean needWrite() {
+            throw new UnsupportedOperationException();
+        }
+
+        @Override
+        public void register(Clock clock) {
+            registers++;
+        }
+
+        @Override
+        public void unregister(Clock clock) {
+            unregisters++;
+        }
+
+        @Override
+        public void close() {
+            throw new UnsupportedOperationException();
+        }
+    }
+
+    private static final class UnusedClock implements Clock {
+
+        @Override
+        public void advance(BufferLease bufferLease) {
+            throw new UnsupportedOperationException();
+        }
+
+        @Override
+        public void close() {
+            throw new UnsupportedOperationException();
+        }
+    }
+
+    private static final class IngressContext implements EstablishedContext {
+
+        private final Ingress ingress;
+
+        private IngressContext(Ingress ingress) {
+            this.ingress = ingress;
+        }
+
+        @Override
+        public InterestOps interestOps() {
+            throw new UnsupportedOperationException();
+        }
+
+        @Override
+        public Socket socket() {
+            throw new UnsupportedOperationException();
+        }
+
+        @Override
+        public Ingress ingress() {
+            return ingress;
+        }
+
+        @Override
+        public Egress egress() {
+            throw new UnsupportedOperationException();
+        }
+
+        @Override
+        public boolean isStub() {
+            return false;
+        }
+
+        @Override
+        public void handleEvent(SelectionKey selectionKey) {
+            throw new UnsupportedOperationException();
+        }
+
+        @Override
+        public void close() {
+            throw new UnsupportedOperationException();
+        }
+
+        @Override
+        public AbstractSelectableChannel socketChannel() {
+            throw new UnsupportedOperationException();
+        }
+
+        @Override
+        public int initialSelectionKey() {
+            throw new UnsupportedOperationException();
+        }
+    }
+
+    private static final class CountingReadInterest implements ReadInterest {
+
+        private final AtomicInteger pauses = new AtomicInteger();
+
+        @Override
+        public void pause() {
+            pauses.incrementAndGet();
+        }
+
+        @Override
+        public void resume() {
+            pauses.decrementAndGet();
+        }
+
+        @Override
+        public boolean isStub() {
+            return false;
+        }
+    }
+}
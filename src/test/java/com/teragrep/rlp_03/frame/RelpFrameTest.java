@@ -68,14 +68,20 @@ public class RelpFrameTest {
         Assertions.assertEquals(relpFrame.txn().toInt(), 1);
         Assertions.assertEquals(relpFrame.command().toString(), "syslog");
         Assertions.assertEquals(relpFrame.payloadLength().toInt(), 3);
+        Assertions.assertEquals(1, relpFrame.txnId());
+        Assertions.assertEquals(3, relpFrame.payloadLengthValue());
         Assertions.assertEquals(relpFrame.payload().toString(), "foo");
         Assertions.assertArrayEquals(relpFrame.endOfTransfer().toBytes(), new byte[] {
                 '\n'
         });
 
         RelpFrameAccess relpFrameAccess = new RelpFrameAccess(relpFrame);
+        Assertions.assertEquals(1, relpFrameAccess.txnId());
         relpFrameAccess.close();
         Assertions.assertThrows(IllegalStateException.class, relpFrameAccess::toString);
+        Assertions.assertThrows(IllegalStateException.class, relpFrameAccess::txnId);
+        Assertions.assertThrows(IllegalStateException.class, relpFrameAccess::commandToken);
+        Assertions.assertThrows(IllegalStateException.class, relpFrameAccess::payloadLengthValue);
     }
 
     @Test
@@ -104,6 +110,8 @@ public class RelpFrameTest {
         Assertions.assertEquals(relpFrame.txn().toInt(), 7);
         Assertions.assertEquals(relpFrame.command().toString(), "syslog");
         Assertions.assertEquals(relpFrame.payloadLength().toInt(), 6);
+        Assertions.assertEquals(7, relpFrame.txnId());
+        Assertions.assertEquals(6, relpFrame.payloadLengthValue());
         Assertions.assertEquals(relpFrame.payload().toString(), "abcdef");
         Assertions.assertArrayEquals(relpFrame.endOfTransfer().toBytes(), new byte[] {
                 '\n'
@@ -144,4 +152,197 @@ public class RelpFrameTest {
                 '\n'
         });
     }
+
+    @Test
+    public void testLineFeedTerminatedPayloadLength() {
+        // librelp sends HEADER = TXNR SP COMMAND SP DATALEN LF when there is no payload
+        FrameClock frameClock = new FrameClock();
+        RelpFrame relpFrame = frameClock.submit(buffer("3 close 0\n4 syslog 1 x\n"));
+
+        Assertions.assertFalse(relpFrame.isStub());
+        Assertions.assertEquals(3, relpFrame.txn().toInt());
+        Assertions.assertEquals("close", relpFrame.command().toString());
+        Assertions.assertEquals(0, relpFrame.payloadLength().toInt());
+        Assertions.assertEquals(0, relpFrame.payload().size());
+        Assertions.assertArrayEquals(new byte[] {
+                '\n'
+        }, relpFrame.endOfTransfer().toBytes());
+
+        RelpFrame nextRelpFrame = frameClock.submit(buffer("4 syslog 1 x\n"));
+        Assertions.assertEquals(4, nextRelpFrame.txn().toInt());
+        Assertions.assertEquals("x", nextRelpFrame.payload().toString());
+    }
+
+    @Test
+    public void testFieldsSpanningBuffers() {
+        FrameClock frameClock = new FrameClock();
+
+        Assertions.assertTrue(frameClock.submit(buffer("12")).isStub());
+        Assertions.assertTrue(frameClock.submit(buffer("3 sys")).isStub());
+        Assertions.assertTrue(frameClock.submit(buffer("log 1")).isStub());
+        Assertions.assertTrue(frameClock.submit(buffer("1 hello")).isStub());
+        RelpFrame relpFrame = frameClock.submit(buffer(" world\n"));
+
+        Assertions.assertFalse(relpFrame.isStub());
+        Assertions.assertEquals(123, relpFrame.txn().toInt());
+        Assertions.assertEquals("syslog", relpFrame.command().toString());
+        Assertions.assertEquals(11, relpFrame.payloadLength().toInt());
+        Assertions.assertEquals("hello world", relpFrame.payload().toString());
+    }
+
+    @Test
+    public void testTxnTooLong() {
+        FrameClock frameClock = new FrameClock();
+        ByteBuffer input = buffer("1234567890 syslog 3 foo\n");
+        Assertions.assertTrue(frameClock.submit(input).isStub());
+        Assertions.assertEquals(ParseError.TXN_TOO_LONG, frameClock.parseError());
+        Assertions.assertFalse(input.hasRemaining());
+    }
+
+    @Test
+    public void testTxnNotNumber() {
+        FrameClock frameClock = new FrameClock();
+        ByteBuffer input = buffer("1a syslog 3 foo\n");
+        Assertions.assertTrue(frameClock.submit(input).isStub());
+        Assertions.assertEquals(ParseError.TXN_NOT_NUMBER, frameClock.parseError());
+        Assertions.assertFalse(input.hasRemaining());
+    }
+
+    @Test
+    public void testCommandTooLong() {
+        FrameClock frameClock = new FrameClock();
+        ByteBuffer input = buffer("1 xxxAxxxAxxxAxxxAxxxAxxxAxxxAxxxAB 3 foo\n");
+        Assertions.assertTrue(frameClock.submit(input).isStub());
+        Assertions.assertEquals(ParseError.COMMAND_TOO_LONG, frameClock.parseError());
+        Assertions.assertFalse(input.hasRemaining());
+    }
+
+    @Test
+    public void testPayloadLengthTooLong() {
+        FrameClock frameClock = new FrameClock();
+        ByteBuffer input = buffer("1 syslog 9999999991 foo\n");
+        Assertions.assertTrue(frameClock.submit(input).isStub());
+        Assertions.assertEquals(ParseError.PAYLOAD_LENGTH_TOO_LONG, frameClock.parseError());
+        Assertions.assertFalse(input.hasRemaining());
+    }
+
+    @Test
+    public void testMissingEndOfTransfer() {
+        FrameClock frameClock = new FrameClock();
+        ByteBuffer input = buffer("1 syslog 3 fooX");
+        Assertions.assertTrue(frameClock.submit(input).isStub());
+        Assertions.assertEquals(ParseError.END_OF_TRANSFER_MISSING, frameClock.parseError());
+        Assertions.assertFalse(input.hasRemaining());
+    }
+
+    @Test
+    public void testPrimitiveAccessorsThroughAccess() {
+        FrameClock frameClock = new FrameClock();
+
+        RelpFrame relpFrame = frameClock.submit(buffer("999999999 syslog 1 x\n"));
+        RelpFrameAccess relpFrameAccess = new RelpFrameAccess(relpFrame);
+
+        Assertions.assertEquals(999999999, relpFrameAccess.txnId());
+        Assertions.assertEquals(1, relpFrameAccess.payloadLengthValue());
+        relpFrameAccess.close();
+    }
+
+    @Test
+    public void testPrimitiveAccessorsFromFragments() {
+        RelpFrame relpFrame = new RelpFrameFactory().create("syslog", "hello");
+
+        Assertions.assertEquals(5, relpFrame.payloadLengthValue());
+        Assertions.assertThrows(IllegalStateException.class, relpFrame::txnId);
+    }
+
+    @Test
+    public void testCommandToken() {
+        FrameClock frameClock = new FrameClock();
+
+        Assertions.assertEquals(CommandToken.OPEN, frameClock.submit(buffer("1 open 0\n")).commandToken());
+        Assertions.assertEquals(CommandToken.SYSLOG, frameClock.submit(buffer("2 syslog 1 x\n")).commandToken());
+        Assertions.assertEquals(CommandToken.RSP, frameClock.submit(buffer("3 rsp 0\n")).commandToken());
+        Assertions.assertEquals(CommandToken.CLOSE, frameClock.submit(buffer("4 close 0\n")).commandToken());
+        Assertions
+                .assertEquals(CommandToken.SERVERCLOSE, frameClock.submit(buffer("0 serverclose 0\n")).commandToken());
+    }
+
+    @Test
+    public void testCommandTokenCustom() {
+        FrameClock frameClock = new FrameClock();
+
+        Assertions.assertEquals(CommandToken.CUSTOM, frameClock.submit(buffer("1 sys 0\n")).commandToken());
+        Assertions.assertEquals(CommandToken.CUSTOM, frameClock.submit(buffer("2 syslogx 0\n")).commandToken());
+        Assertions.assertEquals(CommandToken.CUSTOM, frameClock.submit(buffer("3 rsq 0\n")).commandToken());
+    }
+
+    @Test
+    public void testCommandTokenSpanningBuffers() {
+        FrameClock frameClock = new FrameClock();
+
+        Assertions.assertTrue(frameClock.submit(buffer("1 sys")).isStub());
+        RelpFrame relpFrame = frameClock.submit(buffer("log 1 x\n"));
+
+        Assertions.assertEquals(CommandToken.SYSLOG, relpFrame.commandToken());
+        Assertions.assertEquals(CommandToken.SYSLOG, new RelpFrameFactory().create("syslog", "x").commandToken());
+    }
+
+    @Test
+    public void testPipelinedFramesWithSwarScanner() {
+        FrameClock frameClock = new FrameClock(new DelimiterScannerSwar());
+        ByteBuffer input = buffer("1 syslog 3 foo\n2 a_custom_command 0\n3 close 0\n");
+
+        RelpFrame first = frameClock.submit(input);
+        Assertions.assertEquals(CommandToken.SYSLOG, first.commandToken());
+        Assertions.assertEquals("foo", first.payload().toString());
+
+        RelpFrame second = frameClock.submit(input);
+        Assertions.assertEquals(CommandToken.CUSTOM, second.commandToken());
+        Assertions.assertEquals("a_custom_command", second.command().toString());
+
+        RelpFrame third = frameClock.submit(input);
+        Assertions.assertEquals(CommandToken.CLOSE, third.commandToken());
+        Assertions.assertFalse(input.hasRemaining());
+
+        Assertions.assertTrue(frameClock.submit(buffer("4 abcdefghijklmnopqrstuvwxyzabcdefg 0\n")).isStub());
+        Assertions.assertEquals(ParseError.COMMAND_TOO_LONG, frameClock.parseError());
+    }
+
+    @Test
+    public void testParseErrorDiscardsInput() {
+        FrameClock frameClock = new FrameClock();
+
+        Assertions.assertEquals(ParseError.NONE, frameClock.parseError());
+        Assertions.assertTrue(frameClock.submit(buffer("1 syslog 3\nfoo\n")).isStub());
+        Assertions.assertEquals(ParseError.PAYLOAD_MISSING, frameClock.parseError());
+
+        // parsing does not resume after malformed input
+        ByteBuffer input = buffer("2 syslog 3 foo\n");
+        Assertions.assertTrue(frameClock.submit(input).isStub());
+        Assertions.assertFalse(input.hasRemaining());
+        Assertions.assertEquals(ParseError.PAYLOAD_MISSING, frameClock.parseError());
+    }
+
+    @Test
+    public void testEmptyFields() {
+        FrameClock txnClock = new FrameClock();
+        Assertions.assertTrue(txnClock.submit(buffer(" syslog 3 foo\n")).isStub());
+        Assertions.assertEquals(ParseError.TXN_EMPTY, txnClock.parseError());
+
+        FrameClock payloadLengthClock = new FrameClock();
+        Assertions.assertTrue(payloadLengthClock.submit(buffer("1 syslog  foo\n")).isStub());
+        Assertions.assertEquals(ParseError.PAYLOAD_LENGTH_EMPTY, payloadLengthClock.parseError());
+
+        FrameClock notNumberClock = new FrameClock();
+        Assertions.assertTrue(notNumberClock.submit(buffer("1 syslog 3x foo\n")).isStub());
+        Assertions.assertEquals(ParseError.PAYLOAD_LENGTH_NOT_NUMBER, notNumberClock.parseError());
+    }
+
+    private ByteBuffer buffer(String content) {
+        byte[] contentBytes = content.getBytes(StandardCharsets.UTF_8);
+        ByteBuffer input = ByteBuffer.allocateDirect(contentBytes.length);
+        input.put(contentBytes);
+        input.flip();
+        return input;
+    }
 }
@@ -0,0 +1,373 @@
+/*
+ * Java Reliable Event Logging Protocol Library Server Implementation RLP-03
+ * Copyright (C) 2021-2024 Suomen Kanuuna Oy
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Affero General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Affero General Public License for more details.
+ *
+ * You should have received a copy of the GNU Affero General Public License
+ * along with this program.  If not, see <https://www.gnu.org/licenses/>.
+ *
+ *
+ * Additional permission under GNU Affero General Public License version 3
+ * section 7
+ *
+ * If you modify this Program, or any covered work, by linking or combining it
+ * with other code, such other code is not for that reason alone subject to any
+ * of the requirements of the GNU Affero GPL version 3 as long as this Program
+ * is the same Program as licensed from Suomen Kanuuna Oy without any additional
+ * modifications.
+ *
+ * Supplemented terms under GNU Affero General Public License version 3
+ * section 7
+ *
+ * Origin of the software must be attributed to Suomen Kanuuna Oy. Any modified
+ * versions must be marked as "Modified version of" The Program.
+ *
+ * Names of the licensors and authors may not be used for publicity purposes.
+ *
+ * No rights are granted for use of trade names, trademarks, or service marks
+ * which are in The Program if any.
+ *
+ * Licensee must indemnify licensors and authors for any liability that these
+ * contractual assumptions impose on licensors and authors.
+ *
+ * To the extent this program is licensed as part of the Commercial versions of
+ * Teragrep, the applicable Commercial License may apply to this file if you as
+ * a licensee so wish it.
+ */
+package com.teragrep.rlp_03.frame.delegate;
+
+import com.teragrep.net_01.channel.buffer.writable.Writeable;
+import com.teragrep.net_01.channel.buffer.writable.WriteableClosure;
+import com.teragrep.net_01.channel.context.Egress;
+import com.teragrep.net_01.channel.context.EstablishedContext;
+import com.teragrep.net_01.channel.context.Ingress;
+import com.teragrep.net_01.channel.context.InterestOps;
+import com.teragrep.net_01.channel.socket.PlainFactory;
+import com.teragrep.net_01.channel.socket.Socket;
+import com.teragrep.net_01.eventloop.EventLoop;
+import com.teragrep.net_01.eventloop.EventLoopFactory;
+import com.teragrep.net_01.server.ServerFactory;
+import com.teragrep.rlp_01.RelpBatch;
+import com.teragrep.rlp_01.RelpCommand;
+import com.teragrep.rlp_01.RelpConnection;
+import com.teragrep.rlp_03.frame.CommandToken;
+import com.teragrep.rlp_03.frame.FrameDelegationClockFactory;
+import com.teragrep.rlp_03.frame.ReadInterest;
+import com.teragrep.rlp_03.frame.RelpFrameFactory;
+import com.teragrep.rlp_03.frame.delegate.event.RelpEvent;
+import com.teragrep.rlp_03.frame.delegate.event.RelpEventClose;
+import com.teragrep.rlp_03.frame.delegate.event.RelpEventOpen;
+import com.teragrep.rlp_03.frame.delegate.event.RelpEventSyslog;
+import org.junit.jupiter.api.*;
+
+import java.nio.channels.SelectionKey;
+import java.nio.channels.spi.AbstractSelectableChannel;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+
+@TestInstance(TestInstance.Lifecycle.PER_CLASS)
+public class PipeliningDelegateTest {
+
+    private final String hostname = "localhost";
+    private final int port = 24608;
+    private final int window = 4;
+    private EventLoop eventLoop;
+    private Thread eventLoopThread;
+    private ExecutorService executorService;
+    private ExecutorService workers;
+    private final AtomicInteger messages = new AtomicInteger();
+    private final AtomicInteger active = new AtomicInteger();
+    private final AtomicInteger maximumActive = new AtomicInteger();
+
+    @BeforeAll
+    public void init() {
+        EventLoopFactory eventLoopFactory = new EventLoopFactory();
+        Assertions.assertAll(() -> eventLoop = eventLoopFactory.create());
+
+        eventLoopThread = new Thread(eventLoop);
+        eventLoopThread.start();
+
+        workers = Executors.newFixedThreadPool(8);
+        executorService = Executors.newSingleThreadExecutor();
+        ServerFactory serverFactory = new ServerFactory(
+                eventLoop,
+                executorService,
+                new PlainFactory(),
+                new FrameDelegationClockFactory(() -> {
+                    Map<String, RelpEvent> relpEvents = new HashMap<>();
+                    relpEvents.put(RelpCommand.OPEN, new RelpEventOpen());
+                    relpEvents.put(RelpCommand.CLOSE, new RelpEventClose());
+                    relpEvents.put(RelpCommand.SYSLOG, new RelpEventSyslog(frameContext -> {
+                        int current = active.incrementAndGet();
+                        maximumActive.accumulateAndGet(current, Math::max);
+                        try {
+                            Thread.sleep(2);
+                        }
+                        catch (InterruptedException interruptedException) {
+                            throw new IllegalStateException(interruptedException);
+                        }
+                        active.decrementAndGet();
+                        messages.incrementAndGet();
+                    }));
+                    return new SequencingDelegate(
+                            new PipeliningDelegate(new EventDelegate(relpEvents), workers, window)
+                    );
+                })
+        );
+        Assertions.assertAll(() -> serverFactory.create(port));
+    }
+
+    @AfterAll
+    public void cleanup() {
+        eventLoop.stop();
+        executorService.shutdown();
+        workers.shutdown();
+        Assertions.assertAll(eventLoopThread::join);
+    }
+
+    @Test
+    public void testParallelFramesOfConnection() {
+        RelpConnection relpConnection = new RelpConnection();
+        Assertions.assertAll(() -> relpConnection.connect(hostname, port));
+
+        RelpBatch batch = new RelpBatch();
+        List<Long> reqIds = new ArrayList<>();
+        for (int i = 0; i < 200; i++) {
+            reqIds.add(batch.insert(("pipelined " + i).getBytes(StandardCharsets.UTF_8)));
+        }
+        Assertions.assertAll(() -> relpConnection.commit(batch));
+        for (long reqId : reqIds) {
+            Assertions.assertEquals(200, batch.getResponse(reqId).getResponseCode());
+        }
+        // close is processed after the frames in flight
+        Assertions.assertAll(relpConnection::disconnect);
+
+        Assertions.assertEquals(200, messages.get());
+        Assertions.assertTrue(maximumActive.get() > 1, "frames were not processed in parallel");
+        Assertions.assertTrue(maximumActive.get() <= window, "window exceeded <" + maximumActive.get() + ">");
+    }
+
+    @Test
+    public void testFullWindowPausesReading() {
+        List<Runnable> tasks = new ArrayList<>();
+        CollectingDelegate collectingDelegate = new CollectingDelegate(true);
+        PipeliningDelegate pipeliningDelegate = new PipeliningDelegate(collectingDelegate, tasks::add, 2);
+        CountingReadInterest readInterest = new CountingReadInterest();
+        RelpFrameFactory relpFrameFactory = new RelpFrameFactory();
+
+        for (int i = 0; i < 3; i++) {
+            Assertions
+                    .assertTrue(
+                            pipeliningDelegate
+                                    .accept(
+                                            new FrameContext(
+                                                    new RecordingEstablishedContext(),
+                                                    relpFrameFactory.create("syslog", "frame " + i),
+                                                    readInterest
+                                            )
+                                    )
+                    );
+        }
+        // third frame waits without blocking the caller
+        Assertions.assertEquals(2, tasks.size());
+        Assertions.assertEquals(1, readInterest.pauses);
+
+        Assertions
+                .assertTrue(
+                        pipeliningDelegate
+                                .accept(
+                                        new FrameContext(
+                                                new RecordingEstablishedContext(),
+                                                relpFrameFactory.create("close", ""),
+                                                readInterest
+                                        )
+                                )
+                );
+        Assertions.assertEquals(1, readInterest.pauses);
+
+        tasks.remove(0).run();
+        Assertions.assertEquals(2, tasks.size());
+        Assertions.assertEquals(1, collectingDelegate.frameContexts.size());
+        Assertions.assertEquals(1, readInterest.pauses);
+
+        tasks.remove(0).run();
+        tasks.remove(0).run();
+        // close is processed by the thread completing the last frame before it
+        Assertions.assertEquals(4, collectingDelegate.frameContexts.size());
+        Assertions.assertEquals("close", collectingDelegate.frameContexts.get(3).relpFrame().command().toString());
+        Assertions.assertEquals(0, readInterest.pauses);
+        Assertions.assertEquals(1, readInterest.resumes);
+    }
+
+    @Test
+    public void testStoppedByCommandInOrder() {
+        List<Runnable> tasks = new ArrayList<>();
+        CollectingDelegate collectingDelegate = new CollectingDelegate(false);
+        PipeliningDelegate pipeliningDelegate = new PipeliningDelegate(collectingDelegate, tasks::add, 1);
+        CountingReadInterest readInterest = new CountingReadInterest();
+        RelpFrameFactory relpFrameFactory = new RelpFrameFactory();
+        RecordingEstablishedContext establishedContext = new RecordingEstablishedContext();
+
+        Assertions
+                .assertTrue(
+                        pipeliningDelegate
+                                .accept(new FrameContext(establishedContext, relpFrameFactory.create("syslog", "frame"), readInterest))
+                );
+        Assertions
+                .assertTrue(
+                        pipeliningDelegate
+                                .accept(new FrameContext(establishedContext, relpFrameFactory.create("close", ""), readInterest))
+                );
+        Assertions.assertEquals(1, readInterest.pauses);
+
+        tasks.remove(0).run();
+        Assertions.assertEquals(2, collectingDelegate.frameContexts.size());
+        // connection thread returned already, the connection is closed after the response of the command
+        Assertions.assertEquals(1, establishedContext.written.size());
+        Assertions.assertInstanceOf(WriteableClosure.class, establishedContext.written.get(0));
+        // reading stays paused and later frames are discarded
+        Assertions.assertEquals(1, readInterest.pauses);
+        Assertions
+                .assertFalse(
+                        pipeliningDelegate
+                                .accept(new FrameContext(establishedContext, relpFrameFactory.create("syslog", "late"), readInterest))
+                );
+        Assertions.assertTrue(tasks.isEmpty());
+        Assertions.assertEquals(2, collectingDelegate.frameContexts.size());
+    }
+
+    private static final class CollectingDelegate implements FrameDelegate {
+
+        private final List<FrameContext> frameContexts = new ArrayList<>();
+        private final boolean acceptedInOrder;
+
+        private CollectingDelegate(boolean acceptedInOrder) {
+            this.acceptedInOrder = acceptedInOrder;
+        }
+
+        @Override
+        public boolean accept(FrameContext frameContext) {
+            frameContexts.add(frameContext);
+            return acceptedInOrder || frameContext.relpFrame().commandToken() == CommandToken.SYSLOG;
+        }
+
+        @Override
+        public void close() {
+            frameContexts.clear();
+        }
+
+        @Override
+        public boolean isStub() {
+            return false;
+        }
+    }
+
+    private static final class CountingReadInterest implements ReadInterest {
+
+        private int pauses;
+        private int resumes;
+
+        @Override
+        public void pause() {
+            pauses++;
+        }
+
+        @Override
+        public void resume() {
+            pauses--;
+            resumes++;
+        }
+
+        @Override
+        public boolean isStub() {
+            return false;
+        }
+    }
+
+    private static final class RecordingEstablishedContext implements EstablishedContext {
+
+        private final List<Writeable> written = new ArrayList<>();
+
+        @Override
+        public InterestOps interestOps() {
+            throw new UnsupportedOperationException();
+        }
+
+        @Override
+        public Socket socket() {
+            throw new UnsupportedOperationException();
+        }
+
+        @Override
+        public Ingress ingress() {
+            throw new UnsupportedOperationException();
+        }
+
+        @Override
+        public Egress egress() {
+            return new Egress() {
+
+                @Override
+                public void accept(Writeable writeable) {
+                    written.add(writeable);
+                }
+
+                @Override
+                public void run() {
+                    throw new UnsupportedOperationException();
+                }
+
+                @Override
+                public AtomicBoolean needRead() {
+                    throw new UnsupportedOperationException();
+                }
+
+                @Override
+                public int outstanding() {
+                    return 0;
+                }
+            };
+        }
+
+        @Override
+        public boolean isStub() {
+            return false;
+        }
+
+        @Override
+        public void handleEvent(SelectionKey selectionKey) {
+            throw new UnsupportedOperationException();
+        }
+
+        @Override
+        public void close() {
+            throw new UnsupportedOperationException();
+        }
+
+        @Override
+        public AbstractSelectableChannel socketChannel() {
+            throw new UnsupportedOperationException();
+        }
+
+        @Override
+        public int initialSelectionKey() {
+            throw new UnsupportedOperationException();
+        }
+    }
+}
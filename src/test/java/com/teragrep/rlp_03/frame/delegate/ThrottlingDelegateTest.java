@@ -0,0 +1,251 @@
+/*
+ * Java Reliable Event Logging Protocol Library Server Implementation RLP-03
+ * Copyright (C) 2021-2024 Suomen Kanuuna Oy
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Affero General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Affero General Public License for more details.
+ *
+ * You should have received a copy of the GNU Affero General Public License
+ * along with this program.  If not, see <https://www.gnu.org/licenses/>.
+ *
+ *
+ * Additional permission under GNU Affero General Public License version 3
+ * section 7
+ *
+ * If you modify this Program, or any covered work, by linking or combining it
+ * with other code, such other code is not for that reason alone subject to any
+ * of the requirements of the GNU Affero GPL version 3 as long as this Program
+ * is the same Program as licensed from Suomen Kanuuna Oy without any additional
+ * modifications.
+ *
+ * Supplemented terms under GNU Affero General Public License version 3
+ * section 7
+ *
+ * Origin of the software must be attributed to Suomen Kanuuna Oy. Any modified
+ * versions must be marked as "Modified version of" The Program.
+ *
+ * Names of the licensors and authors may not be used for publicity purposes.
+ *
+ * No rights are granted for use of trade names, trademarks, or service marks
+ * which are in The Program if any.
+ *
+ * Licensee must indemnify licensors and authors for any liability that these
+ * contractual assumptions impose on licensors and authors.
+ *
+ * To the extent this program is licensed as part of the Commercial versions of
+ * Teragrep, the applicable Commercial License may apply to this file if you as
+ * a licensee so wish it.
+ */
+package com.teragrep.rlp_03.frame.delegate;
+
+import com.teragrep.net_01.channel.context.Egress;
+import com.teragrep.net_01.channel.context.EstablishedContext;
+import com.teragrep.net_01.channel.context.Ingress;
+import com.teragrep.net_01.channel.context.InterestOps;
+import com.teragrep.net_01.channel.socket.Socket;
+import com.teragrep.rlp_03.frame.ReadInterest;
+import com.teragrep.rlp_03.frame.RelpFrameFactory;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Test;
+
+import java.nio.channels.SelectionKey;
+import java.nio.channels.spi.AbstractSelectableChannel;
+import java.util.ArrayList;
+import java.util.List;
+
+public class ThrottlingDelegateTest {
+
+    @Test
+    public void testWaterMarks() {
+        CollectingDelegate collectingDelegate = new CollectingDelegate();
+        ThrottlingDelegate throttlingDelegate = new ThrottlingDelegate(collectingDelegate, 3, 1);
+        CountingReadInterest readInterest = new CountingReadInterest();
+        RelpFrameFactory relpFrameFactory = new RelpFrameFactory();
+
+        for (int i = 0; i < 2; i++) {
+            Assertions
+                    .assertTrue(
+                            throttlingDelegate
+                                    .accept(
+                                            new FrameContext(
+                                                    new UnusedEstablishedContext(),
+                                                    relpFrameFactory.create("syslog", "frame " + i),
+                                                    readInterest
+                                            )
+                                    )
+                    );
+        }
+        Assertions.assertEquals(0, readInterest.pauses);
+
+        throttlingDelegate
+                .accept(new FrameContext(new UnusedEstablishedContext(), relpFrameFactory.create("syslog", "frame 2"), readInterest));
+        Assertions.assertEquals(1, readInterest.pauses);
+
+        // frames read before the pause took effect do not pause again
+        throttlingDelegate
+                .accept(new FrameContext(new UnusedEstablishedContext(), relpFrameFactory.create("syslog", "frame 3"), readInterest));
+        Assertions.assertEquals(1, readInterest.pauses);
+
+        collectingDelegate.frameContexts.get(0).relpFrame().close();
+        collectingDelegate.frameContexts.get(1).relpFrame().close();
+        Assertions.assertEquals(1, readInterest.pauses);
+
+        collectingDelegate.frameContexts.get(2).relpFrame().close();
+        Assertions.assertEquals(0, readInterest.pauses);
+        Assertions.assertEquals(1, readInterest.resumes);
+
+        // closing twice acknowledges once
+        collectingDelegate.frameContexts.get(2).relpFrame().close();
+        collectingDelegate.frameContexts.get(3).relpFrame().close();
+        Assertions.assertEquals(1, readInterest.resumes);
+    }
+
+    @Test
+    public void testWithoutReadInterest() {
+        CollectingDelegate collectingDelegate = new CollectingDelegate();
+        ThrottlingDelegate throttlingDelegate = new ThrottlingDelegate(collectingDelegate, 1, 0);
+        FrameContext frameContext = new FrameContext(
+                new UnusedEstablishedContext(),
+                new RelpFrameFactory().create("syslog", "frame")
+        );
+
+        Assertions.assertTrue(throttlingDelegate.accept(frameContext));
+        Assertions.assertSame(frameContext, collectingDelegate.frameContexts.get(0));
+    }
+
+    @Test
+    public void testSharedBetweenConnections() {
+        CollectingDelegate collectingDelegate = new CollectingDelegate();
+        ThrottlingDelegate throttlingDelegate = new ThrottlingDelegate(collectingDelegate, 1, 0);
+        CountingReadInterest first = new CountingReadInterest();
+        RelpFrameFactory relpFrameFactory = new RelpFrameFactory();
+
+        throttlingDelegate
+                .accept(new FrameContext(new UnusedEstablishedContext(), relpFrameFactory.create("syslog", "frame 0"), first));
+        Assertions.assertEquals(1, first.pauses);
+
+        // frame of another connection would never resume the paused one
+        Assertions
+                .assertThrows(
+                        IllegalStateException.class,
+                        () -> throttlingDelegate
+                                .accept(
+                                        new FrameContext(
+                                                new UnusedEstablishedContext(),
+                                                relpFrameFactory.create("syslog", "frame 1"),
+                                                new CountingReadInterest()
+                                        )
+                                )
+                );
+        Assertions.assertEquals(1, collectingDelegate.frameContexts.size());
+
+        collectingDelegate.frameContexts.get(0).relpFrame().close();
+        Assertions.assertEquals(0, first.pauses);
+    }
+
+    @Test
+    public void testInvalidWaterMarks() {
+        Assertions
+                .assertThrows(
+                        IllegalArgumentException.class, () -> new ThrottlingDelegate(new CollectingDelegate(), 2, 2)
+                );
+    }
+
+    private static final class CollectingDelegate implements FrameDelegate {
+
+        private final List<FrameContext> frameContexts = new ArrayList<>();
+
+        @Override
+        public boolean accept(FrameContext frameContext) {
+            frameContexts.add(frameContext);
+            return true;
+        }
+
+        @Override
+        public void close() {
+            frameContexts.clear();
+        }
+
+        @Override
+        public boolean isStub() {
+            return false;
+        }
+    }
+
+    private static final class CountingReadInterest implements ReadInterest {
+
+        private int pauses;
+        private int resumes;
+
+        @Override
+        public void pause() {
+            pauses++;
+        }
+
+        @Override
+        public void resume() {
+            pauses--;
+            resumes++;
+        }
+
+        @Override
+        public boolean isStub() {
+            return false;
+        }
+    }
+
+    private static final class UnusedEstablishedContext implements EstablishedContext {
+
+        @Override
+        public InterestOps interestOps() {
+            throw new UnsupportedOperationException();
+        }
+
+        @Override
+        public Socket socket() {
+            throw new UnsupportedOperationException();
+        }
+
+        @Override
+        public Ingress ingress() {
+            throw new UnsupportedOperationException();
+        }
+
+        @Override
+        public Egress egress() {
+            throw new UnsupportedOperationException();
+        }
+
+        @Override
+        public boolean isStub() {
+            return false;
+        }
+
+        @Override
+        public void handleEvent(SelectionKey selectionKey) {
+            throw new UnsupportedOperationException();
+        }
+
+        @Override
+        public void close() {
+            throw new UnsupportedOperationException();
+        }
+
+        @Override
+        public AbstractSelectableChannel socketChannel() {
+            throw new UnsupportedOperationException();
+        }
+
+        @Override
+        public int initialSelectionKey() {
+            throw new UnsupportedOperationException();
+        }
+    }
+}
@@ -0,0 +1,210 @@
+/*
+ * Java Reliable Event Logging Protocol Library Server Implementation RLP-03
+ * Copyright (C) 2021-2024 Suomen Kanuuna Oy
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Affero General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Affero General Public License for more details.
+ *
+ * You should have received a copy of the GNU Affero General Public License
+ * along with this program.  If not, see <https://www.gnu.org/licenses/>.
+ *
+ *
+ * Additional permission under GNU Affero General Public License version 3
+ * section 7
+ *
+ * If you modify this Program, or any covered work, by linking or combining it
+ * with other code, such other code is not for that reason alone subject to any
+ * of the requirements of the GNU Affero GPL version 3 as long as this Program
+ * is the same Program as licensed from Suomen Kanuuna Oy without any additional
+ * modifications.
+ *
+ * Supplemented terms under GNU Affero General Public License version 3
+ * section 7
+ *
+ * Origin of the software must be attributed to Suomen Kanuuna Oy. Any modified
+ * versions must be marked as "Modified version of" The Program.
+ *
+ * Names of the licensors and authors may not be used for publicity purposes.
+ *
+ * No rights are granted for use of trade names, trademarks, or service marks
+ * which are in The Program if any.
+ *
+ * Licensee must indemnify licensors and authors for any liability that these
+ * contractual assumptions impose on licensors and authors.
+ *
+ * To the extent this program is licensed as part of the Commercial versions of
+ * Teragrep, the applicable Commercial License may apply to this file if you as
+ * a licensee so wish it.
+ */
+package com.teragrep.rlp_03.frame.delegate.event;
+
+import com.teragrep.net_01.channel.socket.PlainFactory;
+import com.teragrep.net_01.eventloop.EventLoop;
+import com.teragrep.net_01.eventloop.EventLoopFactory;
+import com.teragrep.net_01.server.ServerFactory;
+import com.teragrep.rlp_01.RelpBatch;
+import com.teragrep.rlp_01.RelpCommand;
+import com.teragrep.rlp_01.RelpConnection;
+import com.teragrep.rlp_03.frame.FrameDelegationClockFactory;
+import com.teragrep.rlp_03.frame.delegate.DefaultFrameDelegate;
+import com.teragrep.rlp_03.frame.delegate.FrameContext;
+import org.junit.jupiter.api.*;
+import org.reactivestreams.Subscriber;
+import org.reactivestreams.Subscription;
+
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicReference;
+
+@TestInstance(TestInstance.Lifecycle.PER_CLASS)
+public class FramePublisherTest {
+
+    private final String hostname = "localhost";
+    private final int port = 24609;
+    private EventLoop eventLoop;
+    private Thread eventLoopThread;
+    private ExecutorService executorService;
+    private final FramePublisher framePublisher = new FramePublisher();
+
+    @BeforeAll
+    public void init() {
+        EventLoopFactory eventLoopFactory = new EventLoopFactory();
+        Assertions.assertAll(() -> eventLoop = eventLoopFactory.create());
+
+        eventLoopThread = new Thread(eventLoop);
+        eventLoopThread.start();
+
+        executorService = Executors.newSingleThreadExecutor();
+        ServerFactory serverFactory = new ServerFactory(
+                eventLoop,
+                executorService,
+                new PlainFactory(),
+                new FrameDelegationClockFactory(() -> {
+                    Map<String, RelpEvent> relpEvents = new HashMap<>();
+                    relpEvents.put(RelpCommand.OPEN, new RelpEventOpen());
+                    relpEvents.put(RelpCommand.CLOSE, new RelpEventClose());
+                    relpEvents.put(RelpCommand.SYSLOG, new RelpEventPublishing(framePublisher));
+                    return new DefaultFrameDelegate(relpEvents);
+                })
+        );
+        Assertions.assertAll(() -> serverFactory.create(port));
+    }
+
+    @AfterAll
+    public void cleanup() {
+        eventLoop.stop();
+        executorService.shutdown();
+        Assertions.assertAll(eventLoopThread::join);
+    }
+
+    @Test
+    public void testDemandDrivenDelivery() {
+        CollectingSubscriber subscriber = new CollectingSubscriber();
+        framePublisher.subscribe(subscriber);
+
+        ExecutorService client = Executors.newSingleThreadExecutor();
+        Future<List<Integer>> responses = client.submit(() -> send(30));
+
+        for (int i = 0; i < 30; i++) {
+            // nothing is delivered without demand
+            Assertions.assertTrue(subscriber.frameContexts.isEmpty());
+            subscriber.subscription.get().request(1);
+            FrameContext frameContext = Assertions
+                    .assertDoesNotThrow(() -> subscriber.frameContexts.poll(5, TimeUnit.SECONDS));
+            Assertions.assertNotNull(frameContext);
+            Assertions.assertEquals("message " + i, frameContext.relpFrame().payload().toString());
+            // closing the frame acknowledges it
+            frameContext.relpFrame().close();
+        }
+
+        List<Integer> responseCodes = Assertions.assertDoesNotThrow(() -> responses.get(5, TimeUnit.SECONDS));
+        client.shutdown();
+        Assertions.assertEquals(30, responseCodes.size());
+        for (int responseCode : responseCodes) {
+            Assertions.assertEquals(200, responseCode);
+        }
+
+        // only one subscriber is allowed
+        CollectingSubscriber second = new CollectingSubscriber();
+        framePublisher.subscribe(second);
+        Assertions.assertInstanceOf(IllegalStateException.class, second.error.get());
+    }
+
+    @Test
+    public void testNonPositiveRequestSignalsError() {
+        FramePublisher publisher = new FramePublisher();
+        CollectingSubscriber subscriber = new CollectingSubscriber();
+        publisher.subscribe(subscriber);
+
+        subscriber.subscription.get().request(0);
+        Assertions.assertInstanceOf(IllegalArgumentException.class, subscriber.error.get());
+        // subscription is terminated by the first error
+        subscriber.subscription.get().request(-1);
+        Assertions.assertEquals(1, subscriber.errors.get());
+    }
+
+    private List<Integer> send(int count) throws Exception {
+        RelpConnection relpConnection = new RelpConnection();
+        relpConnection.connect(hostname, port);
+
+        RelpBatch batch = new RelpBatch();
+        List<Long> reqIds = new ArrayList<>();
+        for (int i = 0; i < count; i++) {
+            reqIds.add(batch.insert(("message " + i).getBytes(StandardCharsets.UTF_8)));
+        }
+        relpConnection.commit(batch);
+
+        List<Integer> rv = new ArrayList<>();
+        for (long reqId : reqIds) {
+            rv.add(batch.getResponse(reqId).getResponseCode());
+        }
+        relpConnection.disconnect();
+        return rv;
+    }
+
+    private static final class CollectingSubscriber implements Subscriber<FrameContext> {
+
+        private final AtomicReference<Subscription> subscription = new AtomicReference<>();
+        private final BlockingQueue<FrameContext> frameContexts = new LinkedBlockingQueue<>();
+        private final AtomicReference<Throwable> error = new AtomicReference<>();
+        private final AtomicInteger errors = new AtomicInteger();
+
+        @Override
+        public void onSubscribe(Subscription subscription) {
+            this.subscription.set(subscription);
+        }
+
+        @Override
+        public void onNext(FrameContext frameContext) {
+            frameContexts.add(frameContext);
+        }
+
+        @Override
+        public void onError(Throwable throwable) {
+            error.set(throwable);
+            errors.incrementAndGet();
+        }
+
+        @Override
+        public void onComplete() {
+            // server does not complete
+        }
+    }
+}
@@ -0,0 +1,169 @@
+/*
+ * Java Reliable Event Logging Protocol Library Server Implementation RLP-03
+ * Copyright (C) 2021-2024 Suomen Kanuuna Oy
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Affero General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Affero General Public License for more details.
+ *
+ * You should have received a copy of the GNU Affero General Public License
+ * along with this program.  If not, see <https://www.gnu.org/licenses/>.
+ *
+ *
+ * Additional permission under GNU Affero General Public License version 3
+ * section 7
+ *
+ * If you modify this Program, or any covered work, by linking or combining it
+ * with other code, such other code is not for that reason alone subject to any
+ * of the requirements of the GNU Affero GPL version 3 as long as this Program
+ * is the same Program as licensed from Suomen Kanuuna Oy without any additional
+ * modifications.
+ *
+ * Supplemented terms under GNU Affero General Public License version 3
+ * section 7
+ *
+ * Origin of the software must be attributed to Suomen Kanuuna Oy. Any modified
+ * versions must be marked as "Modified version of" The Program.
+ *
+ * Names of the licensors and authors may not be used for publicity purposes.
+ *
+ * No rights are granted for use of trade names, trademarks, or service marks
+ * which are in The Program if any.
+ *
+ * Licensee must indemnify licensors and authors for any liability that these
+ * contractual assumptions impose on licensors and authors.
+ *
+ * To the extent this program is licensed as part of the Commercial versions of
+ * Teragrep, the applicable Commercial License may apply to this file if you as
+ * a licensee so wish it.
+ */
+package com.teragrep.rlp_03.frame.delegate.event;
+
+import com.teragrep.net_01.channel.socket.PlainFactory;
+import com.teragrep.net_01.eventloop.EventLoop;
+import com.teragrep.net_01.eventloop.EventLoopFactory;
+import com.teragrep.net_01.server.ServerFactory;
+import com.teragrep.rlp_01.RelpBatch;
+import com.teragrep.rlp_01.RelpCommand;
+import com.teragrep.rlp_01.RelpConnection;
+import com.teragrep.rlp_03.frame.FrameDelegationClockFactory;
+import com.teragrep.rlp_03.frame.delegate.DefaultFrameDelegate;
+import org.junit.jupiter.api.*;
+
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicInteger;
+
+@TestInstance(TestInstance.Lifecycle.PER_CLASS)
+public class RelpEventDeferredTest {
+
+    private final String hostname = "localhost";
+    private final int port = 24606;
+    private EventLoop eventLoop;
+    private Thread eventLoopThread;
+    private ExecutorService executorService;
+    // small ring so that the connections wait for the workers
+    private final FrameRing frameRing = new FrameRing(6, new WaitStrategyParking());
+    private final AtomicInteger messages = new AtomicInteger();
+    private final List<FrameRingWorker> workers = new ArrayList<>();
+    private final List<Thread> workerThreads = new ArrayList<>();
+
+    @BeforeAll
+    public void init() {
+        EventLoopFactory eventLoopFactory = new EventLoopFactory();
+        Assertions.assertAll(() -> eventLoop = eventLoopFactory.create());
+
+        eventLoopThread = new Thread(eventLoop);
+        eventLoopThread.start();
+
+        for (int i = 0; i < 2; i++) {
+            FrameRingWorker frameRingWorker = new FrameRingWorker(
+                    frameRing,
+                    new RelpEventSyslog((frameContext) -> messages.incrementAndGet()),
+                    4
+            );
+            Thread workerThread = new Thread(frameRingWorker);
+            workers.add(frameRingWorker);
+            workerThreads.add(workerThread);
+            workerThread.start();
+        }
+
+        executorService = Executors.newFixedThreadPool(2);
+        ServerFactory serverFactory = new ServerFactory(
+                eventLoop,
+                executorService,
+                new PlainFactory(),
+                new FrameDelegationClockFactory(() -> {
+                    Map<String, RelpEvent> relpEvents = new HashMap<>();
+                    relpEvents.put(RelpCommand.OPEN, new RelpEventOpen());
+                    relpEvents.put(RelpCommand.CLOSE, new RelpEventClose());
+                    relpEvents.put(RelpCommand.SYSLOG, new RelpEventDeferred(frameRing));
+                    return new DefaultFrameDelegate(relpEvents);
+                })
+        );
+        Assertions.assertAll(() -> serverFactory.create(port));
+    }
+
+    @AfterAll
+    public void cleanup() {
+        eventLoop.stop();
+        executorService.shutdown();
+        Assertions.assertAll(eventLoopThread::join);
+        for (FrameRingWorker frameRingWorker : workers) {
+            frameRingWorker.stop();
+        }
+        for (Thread workerThread : workerThreads) {
+            Assertions.assertAll(workerThread::join);
+        }
+    }
+
+    @Test
+    public void testConcurrentConnections() {
+        Assertions.assertEquals(8, frameRing.capacity());
+
+        ExecutorService clients = Executors.newFixedThreadPool(4);
+        List<Future<Integer>> acknowledged = new ArrayList<>();
+        for (int client = 0; client < 4; client++) {
+            acknowledged.add(clients.submit(() -> send(250)));
+        }
+        for (Future<Integer> future : acknowledged) {
+            Assertions.assertEquals(250, Assertions.assertDoesNotThrow(() -> future.get()));
+        }
+        clients.shutdown();
+
+        Assertions.assertEquals(1000, messages.get());
+    }
+
+    private int send(int count) throws Exception {
+        RelpConnection relpConnection = new RelpConnection();
+        relpConnection.connect(hostname, port);
+
+        RelpBatch batch = new RelpBatch();
+        List<Long> reqIds = new ArrayList<>();
+        for (int i = 0; i < count; i++) {
+            reqIds.add(batch.insert(("deferred " + i).getBytes(StandardCharsets.UTF_8)));
+        }
+        relpConnection.commit(batch);
+
+        int rv = 0;
+        for (long reqId : reqIds) {
+            if (batch.getResponse(reqId).getResponseCode() == 200) {
+                rv++;
+            }
+        }
+        relpConnection.disconnect();
+        return rv;
+    }
+}
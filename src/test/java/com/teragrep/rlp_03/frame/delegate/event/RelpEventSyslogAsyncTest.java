@@ -0,0 +1,183 @@
+/*
+ * Java Reliable Event Logging Protocol Library Server Implementation RLP-03
+ * Copyright (C) 2021-2024 Suomen Kanuuna Oy
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Affero General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Affero General Public License for more details.
+ *
+ * You should have received a copy of the GNU Affero General Public License
+ * along with this program.  If not, see <https://www.gnu.org/licenses/>.
+ *
+ *
+ * Additional permission under GNU Affero General Public License version 3
+ * section 7
+ *
+ * If you modify this Program, or any covered work, by linking or combining it
+ * with other code, such other code is not for that reason alone subject to any
+ * of the requirements of the GNU Affero GPL version 3 as long as this Program
+ * is the same Program as licensed from Suomen Kanuuna Oy without any additional
+ * modifications.
+ *
+ * Supplemented terms under GNU Affero General Public License version 3
+ * section 7
+ *
+ * Origin of the software must be attributed to Suomen Kanuuna Oy. Any modified
+ * versions must be marked as "Modified version of" The Program.
+ *
+ * Names of the licensors and authors may not be used for publicity purposes.
+ *
+ * No rights are granted for use of trade names, trademarks, or service marks
+ * which are in The Program if any.
+ *
+ * Licensee must indemnify licensors and authors for any liability that these
+ * contractual assumptions impose on licensors and authors.
+ *
+ * To the extent this program is licensed as part of the Commercial versions of
+ * Teragrep, the applicable Commercial License may apply to this file if you as
+ * a licensee so wish it.
+ */
+package com.teragrep.rlp_03.frame.delegate.event;
+
+import com.teragrep.net_01.channel.socket.PlainFactory;
+import com.teragrep.net_01.eventloop.EventLoop;
+import com.teragrep.net_01.eventloop.EventLoopFactory;
+import com.teragrep.net_01.server.ServerFactory;
+import com.teragrep.rlp_01.RelpBatch;
+import com.teragrep.rlp_01.RelpCommand;
+import com.teragrep.rlp_01.RelpConnection;
+import com.teragrep.rlp_03.frame.FrameDelegationClockFactory;
+import com.teragrep.rlp_03.frame.delegate.DefaultFrameDelegate;
+import com.teragrep.rlp_03.frame.delegate.FrameContext;
+import org.junit.jupiter.api.*;
+
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionStage;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+@TestInstance(TestInstance.Lifecycle.PER_CLASS)
+public class RelpEventSyslogAsyncTest {
+
+    private final String hostname = "localhost";
+    private final int port = 24607;
+    private EventLoop eventLoop;
+    private Thread eventLoopThread;
+    private ExecutorService executorService;
+    private ScheduledExecutorService sink;
+    private final AtomicInteger pending = new AtomicInteger();
+
+    @BeforeAll
+    public void init() {
+        EventLoopFactory eventLoopFactory = new EventLoopFactory();
+        Assertions.assertAll(() -> eventLoop = eventLoopFactory.create());
+
+        eventLoopThread = new Thread(eventLoop);
+        eventLoopThread.start();
+
+        sink = Executors.newScheduledThreadPool(2);
+        executorService = Executors.newSingleThreadExecutor();
+        ServerFactory serverFactory = new ServerFactory(
+                eventLoop,
+                executorService,
+                new PlainFactory(),
+                new FrameDelegationClockFactory(() -> {
+                    Map<String, RelpEvent> relpEvents = new HashMap<>();
+                    relpEvents.put(RelpCommand.OPEN, new RelpEventOpen());
+                    relpEvents.put(RelpCommand.CLOSE, new RelpEventClose());
+                    relpEvents.put(RelpCommand.SYSLOG, new RelpEventSyslogAsync(this::write));
+                    return new DefaultFrameDelegate(relpEvents);
+                })
+        );
+        Assertions.assertAll(() -> serverFactory.create(port));
+    }
+
+    @AfterAll
+    public void cleanup() {
+        eventLoop.stop();
+        executorService.shutdown();
+        sink.shutdown();
+        Assertions.assertAll(eventLoopThread::join);
+    }
+
+    /**
+     * Completes later frames of a connection first, payloads starting with "fail" complete exceptionally and payloads
+     * starting with "null" get no stage.
+     */
+    private CompletionStage<?> write(FrameContext frameContext) {
+        final String payload = frameContext.relpFrame().payload().toString();
+        final int txnId = frameContext.relpFrame().txnId();
+        if (payload.startsWith("null")) {
+            return null;
+        }
+        final CompletableFuture<Object> completableFuture = new CompletableFuture<>();
+        pending.incrementAndGet();
+        sink.schedule(() -> {
+            pending.decrementAndGet();
+            if (payload.startsWith("fail")) {
+                completableFuture.completeExceptionally(new IllegalStateException("sink rejected " + payload));
+            }
+            else {
+                completableFuture.complete(payload);
+            }
+        }, 50 - txnId % 50, TimeUnit.MILLISECONDS);
+        return completableFuture;
+    }
+
+    @Test
+    public void testOutOfOrderCompletion() {
+        RelpConnection relpConnection = new RelpConnection();
+        Assertions.assertAll(() -> relpConnection.connect(hostname, port));
+
+        RelpBatch batch = new RelpBatch();
+        List<Long> okIds = new ArrayList<>();
+        List<Long> failIds = new ArrayList<>();
+        for (int i = 0; i < 100; i++) {
+            if (i % 10 == 0) {
+                failIds.add(batch.insert(("fail " + i).getBytes(StandardCharsets.UTF_8)));
+            }
+            else {
+                okIds.add(batch.insert(("message " + i).getBytes(StandardCharsets.UTF_8)));
+            }
+        }
+        Assertions.assertAll(() -> relpConnection.commit(batch));
+
+        for (long reqId : okIds) {
+            Assertions.assertEquals(200, batch.getResponse(reqId).getResponseCode());
+        }
+        for (long reqId : failIds) {
+            Assertions.assertEquals(500, batch.getResponse(reqId).getResponseCode());
+        }
+        Assertions.assertAll(relpConnection::disconnect);
+        Assertions.assertEquals(0, pending.get());
+    }
+
+    @Test
+    public void testNullStage() {
+        RelpConnection relpConnection = new RelpConnection();
+        Assertions.assertAll(() -> relpConnection.connect(hostname, port));
+
+        RelpBatch batch = new RelpBatch();
+        long nullId = batch.insert("null stage".getBytes(StandardCharsets.UTF_8));
+        long okId = batch.insert("message".getBytes(StandardCharsets.UTF_8));
+        Assertions.assertAll(() -> relpConnection.commit(batch));
+
+        Assertions.assertEquals(500, batch.getResponse(nullId).getResponseCode());
+        Assertions.assertEquals(200, batch.getResponse(okId).getResponseCode());
+        Assertions.assertAll(relpConnection::disconnect);
+    }
+}
@@ -0,0 +1,104 @@
+/*
+ * Java Reliable Event Logging Protocol Library Server Implementation RLP-03
+ * Copyright (C) 2021-2024 Suomen Kanuuna Oy
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Affero General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Affero General Public License for more details.
+ *
+ * You should have received a copy of the GNU Affero General Public License
+ * along with this program.  If not, see <https://www.gnu.org/licenses/>.
+ *
+ *
+ * Additional permission under GNU Affero General Public License version 3
+ * section 7
+ *
+ * If you modify this Program, or any covered work, by linking or combining it
+ * with other code, such other code is not for that reason alone subject to any
+ * of the requirements of the GNU Affero GPL version 3 as long as this Program
+ * is the same Program as licensed from Suomen Kanuuna Oy without any additional
+ * modifications.
+ *
+ * Supplemented terms under GNU Affero General Public License version 3
+ * section 7
+ *
+ * Origin of the software must be attributed to Suomen Kanuuna Oy. Any modified
+ * versions must be marked as "Modified version of" The Program.
+ *
+ * Names of the licensors and authors may not be used for publicity purposes.
+ *
+ * No rights are granted for use of trade names, trademarks, or service marks
+ * which are in The Program if any.
+ *
+ * Licensee must indemnify licensors and authors for any liability that these
+ * contractual assumptions impose on licensors and authors.
+ *
+ * To the extent this program is licensed as part of the Commercial versions of
+ * Teragrep, the applicable Commercial License may apply to this file if you as
+ * a licensee so wish it.
+ */
+package com.teragrep.rlp_03.frame.delegate.event;
+
+import com.teragrep.net_01.channel.buffer.writable.Writeable;
+import com.teragrep.rlp_03.frame.RelpFrame;
+import com.teragrep.rlp_03.frame.RelpFrameFactory;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Test;
+
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+
+public class ResponseEncoderTest {
+
+    @Test
+    public void testEncodingMatchesRelpFrame() {
+        ResponseEncoder responseEncoder = new ResponseEncoder("rsp", "200 OK");
+        RelpFrameFactory relpFrameFactory = new RelpFrameFactory();
+
+        for (int txnId : new int[] {
+                0, 1, 9, 10, 42, 99, 100, 101, 1000, 12345, 100000, 9999999, 99999999, 999999999, Integer.MAX_VALUE
+        }) {
+            RelpFrame relpFrame = relpFrameFactory
+                    .create(String.valueOf(txnId).getBytes(StandardCharsets.UTF_8), "rsp", "200 OK");
+
+            Writeable writeable = responseEncoder.encode(txnId);
+            Assertions.assertEquals(string(relpFrame.toWriteable()), string(writeable));
+            writeable.close();
+        }
+    }
+
+    @Test
+    public void testSlotReuse() {
+        ResponseEncoder responseEncoder = new ResponseEncoder("rsp", "", 1);
+
+        Writeable first = responseEncoder.encode(7);
+        Assertions.assertEquals("7 rsp 0 \n", string(first));
+        Assertions.assertFalse(first.hasRemaining());
+        first.close();
+        // closing twice must not pool the slot twice
+        first.close();
+
+        Writeable second = responseEncoder.encode(12);
+        Writeable third = responseEncoder.encode(13);
+        Assertions.assertSame(first, second);
+        Assertions.assertNotSame(second, third);
+        Assertions.assertEquals("12 rsp 0 \n", string(second));
+        Assertions.assertEquals("13 rsp 0 \n", string(third));
+    }
+
+    private String string(Writeable writeable) {
+        StringBuilder stringBuilder = new StringBuilder();
+        for (ByteBuffer buffer : writeable.buffers()) {
+            byte[] bytes = new byte[buffer.remaining()];
+            buffer.get(bytes);
+            stringBuilder.append(new String(bytes, StandardCharsets.UTF_8));
+        }
+        return stringBuilder.toString();
+    }
+}
@@ -45,6 +45,7 @@
  */
 package com.teragrep.rlp_03.frame.fragment;
 
+import com.teragrep.net_01.channel.buffer.access.Access;
 import com.teragrep.rlp_03.frame.fragment.clocks.TransactionClock;
 import org.junit.jupiter.api.Assertions;
 import org.junit.jupiter.api.Test;
@@ -97,4 +98,99 @@ public class FragmentTest {
         Assertions.assertFalse(fragmentByteStream.next());
 
     }
+
+    @Test
+    public void testFragmentOffsets() {
+        ByteBuffer first = ByteBuffer.wrap("xxab".getBytes(StandardCharsets.UTF_8));
+        ByteBuffer second = ByteBuffer.allocateDirect(4);
+        second.put("cdyy".getBytes(StandardCharsets.UTF_8));
+        second.flip();
+
+        // "ab" at offset 2 of the first buffer and "cd" at offset 0 of the second
+        Fragment fragment = new FragmentOffsets(new ByteBuffer[] {
+                first, second
+        }, new int[] {
+                0, 2, 2, 1, 0, 2
+        }, 0, 2, 4);
+
+        Assertions.assertEquals(4, fragment.size());
+        Assertions.assertEquals("abcd", fragment.toString());
+        Assertions.assertEquals(2, fragment.toWriteable().buffers().length);
+        Assertions.assertEquals(2, fragment.toWriteable().buffers()[0].remaining());
+
+        FragmentByteStream fragmentByteStream = fragment.toFragmentByteStream();
+        StringBuilder stringBuilder = new StringBuilder();
+        while (fragmentByteStream.next()) {
+            stringBuilder.append((char) fragmentByteStream.get().byteValue());
+        }
+        Assertions.assertEquals("abcd", stringBuilder.toString());
+
+        // views do not move the underlying buffers
+        Assertions.assertEquals(0, first.position());
+        Assertions.assertEquals(0, second.position());
+
+        Fragment empty = new FragmentOffsets(new ByteBuffer[0], new int[0], 0, 0, 0);
+        Assertions.assertEquals(0, empty.size());
+        Assertions.assertEquals("", empty.toString());
+    }
+
+    @Test
+    public void testFragmentByteStreamBulk() {
+        ByteBuffer first = ByteBuffer.wrap("xx<13>1 ".getBytes(StandardCharsets.UTF_8));
+        ByteBuffer second = ByteBuffer.wrap("host app".getBytes(StandardCharsets.UTF_8));
+        Fragment fragment = new FragmentOffsets(new ByteBuffer[] {
+                first, second
+        }, new int[] {
+                0, 2, 6, 1, 0, 8
+        }, 0, 2, 14);
+
+        FragmentByteStream fragmentByteStream = fragment.toFragmentByteStream();
+        Assertions.assertEquals(14, fragmentByteStream.remaining());
+        Assertions.assertEquals(0, fragmentByteStream.indexOf((byte) '<'));
+        Assertions.assertEquals(5, fragmentByteStream.indexOf((byte) ' '));
+        Assertions.assertEquals(-1, fragmentByteStream.indexOf((byte) '!'));
+        Assertions.assertTrue(fragmentByteStream.regionMatches(4, "1 host".getBytes(StandardCharsets.UTF_8)));
+        Assertions.assertFalse(fragmentByteStream.regionMatches(4, "1 hosx".getBytes(StandardCharsets.UTF_8)));
+        Assertions.assertFalse(fragmentByteStream.regionMatches(10, "apps".getBytes(StandardCharsets.UTF_8)));
+
+        // cursor on '>'
+        Assertions.assertEquals(4, fragmentByteStream.skip(4));
+        Assertions.assertEquals((byte) '>', fragmentByteStream.getByte());
+        Assertions.assertEquals(10, fragmentByteStream.remaining());
+        Assertions.assertEquals(1, fragmentByteStream.indexOf((byte) ' '));
+
+        // read across the buffer boundary
+        byte[] bytes = new byte[6];
+        Assertions.assertEquals(6, fragmentByteStream.read(bytes, 0, 6));
+        Assertions.assertEquals("1 host", new String(bytes, StandardCharsets.UTF_8));
+        Assertions.assertEquals((byte) 't', fragmentByteStream.getByte());
+
+        Assertions.assertEquals(4, fragmentByteStream.read(bytes, 1, 5));
+        Assertions.assertEquals(" app", new String(bytes, 1, 4, StandardCharsets.UTF_8));
+        Assertions.assertEquals(0, fragmentByteStream.remaining());
+        Assertions.assertEquals(-1, fragmentByteStream.read(bytes, 0, 1));
+        Assertions.assertEquals(0, fragmentByteStream.skip(1));
+        Assertions.assertFalse(fragmentByteStream.next());
+    }
+
+    @Test
+    public void testFragmentByteStreamAccess() {
+        Access access = new Access();
+        Fragment fragment = new FragmentAccess(new FragmentOffsets(new ByteBuffer[] {
+                ByteBuffer.wrap("abc".getBytes(StandardCharsets.UTF_8))
+        }, new int[] {
+                0, 0, 3
+        }, 0, 1, 3), access);
+
+        FragmentByteStream fragmentByteStream = fragment.toFragmentByteStream();
+        Assertions.assertTrue(fragmentByteStream.next());
+        Assertions.assertEquals((byte) 'a', fragmentByteStream.getByte());
+        Assertions.assertEquals(2, fragmentByteStream.remaining());
+
+        access.terminate();
+        Assertions.assertThrows(IllegalStateException.class, fragmentByteStream::next);
+        Assertions.assertThrows(IllegalStateException.class, fragmentByteStream::remaining);
+        Assertions.assertThrows(IllegalStateException.class, () -> fragmentByteStream.indexOf((byte) 'c'));
+        Assertions.assertThrows(IllegalStateException.class, fragment::toFragmentByteStream);
+    }
 }
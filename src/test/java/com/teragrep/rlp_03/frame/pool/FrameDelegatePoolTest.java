@@ -0,0 +1,204 @@
+/*
+ * Java Reliable Event Logging Protocol Library Server Implementation RLP-03
+ * Copyright (C) 2021-2024 Suomen Kanuuna Oy
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Affero General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Affero General Public License for more details.
+ *
+ * You should have received a copy of the GNU Affero General Public License
+ * along with this program.  If not, see <https://www.gnu.org/licenses/>.
+ *
+ *
+ * Additional permission under GNU Affero General Public License version 3
+ * section 7
+ *
+ * If you modify this Program, or any covered work, by linking or combining it
+ * with other code, such other code is not for that reason alone subject to any
+ * of the requirements of the GNU Affero GPL version 3 as long as this Program
+ * is the same Program as licensed from Suomen Kanuuna Oy without any additional
+ * modifications.
+ *
+ * Supplemented terms under GNU Affero General Public License version 3
+ * section 7
+ *
+ * Origin of the software must be attributed to Suomen Kanuuna Oy. Any modified
+ * versions must be marked as "Modified version of" The Program.
+ *
+ * Names of the licensors and authors may not be used for publicity purposes.
+ *
+ * No rights are granted for use of trade names, trademarks, or service marks
+ * which are in The Program if any.
+ *
+ * Licensee must indemnify licensors and authors for any liability that these
+ * contractual assumptions impose on licensors and authors.
+ *
+ * To the extent this program is licensed as part of the Commercial versions of
+ * Teragrep, the applicable Commercial License may apply to this file if you as
+ * a licensee so wish it.
+ */
+package com.teragrep.rlp_03.frame.pool;
+
+import com.teragrep.rlp_03.frame.delegate.FrameContext;
+import com.teragrep.rlp_03.frame.delegate.FrameDelegate;
+import com.teragrep.rlp_03.frame.delegate.pool.FrameDelegatePool;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicInteger;
+
+public class FrameDelegatePoolTest {
+
+    @Test
+    public void testMaximum() {
+        AtomicInteger closed = new AtomicInteger();
+        FrameDelegatePool frameDelegatePool = new FrameDelegatePool(
+                () -> new ClosingDelegate(closed),
+                2,
+                2,
+                Long.MAX_VALUE
+        );
+
+        List<FrameDelegate> taken = new ArrayList<>();
+        for (int i = 0; i < 3; i++) {
+            taken.add(frameDelegatePool.take());
+        }
+        for (FrameDelegate frameDelegate : taken) {
+            frameDelegatePool.offer(frameDelegate);
+        }
+
+        // surplus delegate is closed, the others are reused
+        Assertions.assertEquals(1, closed.get());
+        Assertions.assertEquals(1, frameDelegatePool.evictions());
+        Assertions.assertFalse(frameDelegatePool.take().isStub());
+        Assertions.assertFalse(frameDelegatePool.take().isStub());
+        Assertions.assertEquals(5, frameDelegatePool.takes());
+        Assertions.assertEquals(3, frameDelegatePool.offers());
+        Assertions.assertEquals(3, frameDelegatePool.creates());
+    }
+
+    @Test
+    public void testMaximumBelowStripes() {
+        AtomicInteger closed = new AtomicInteger();
+        FrameDelegatePool frameDelegatePool = new FrameDelegatePool(
+                () -> new ClosingDelegate(closed),
+                4,
+                2,
+                Long.MAX_VALUE
+        );
+
+        List<FrameDelegate> taken = new ArrayList<>();
+        for (int i = 0; i < 4; i++) {
+            taken.add(frameDelegatePool.take());
+        }
+        for (FrameDelegate frameDelegate : taken) {
+            frameDelegatePool.offer(frameDelegate);
+        }
+
+        // each stripe has room for one, the pool as a whole only for two
+        Assertions.assertEquals(2, closed.get());
+        Assertions.assertEquals(2, frameDelegatePool.evictions());
+        for (int i = 0; i < 3; i++) {
+            frameDelegatePool.take();
+        }
+        Assertions.assertEquals(5, frameDelegatePool.creates());
+
+        frameDelegatePool.close();
+        Assertions.assertEquals(2, closed.get());
+    }
+
+    @Test
+    public void testIdleEviction() {
+        AtomicInteger closed = new AtomicInteger();
+        FrameDelegatePool frameDelegatePool = new FrameDelegatePool(() -> new ClosingDelegate(closed), 1, 10, 1);
+
+        FrameDelegate first = frameDelegatePool.take();
+        FrameDelegate second = frameDelegatePool.take();
+        frameDelegatePool.offer(first);
+        Assertions.assertAll(() -> Thread.sleep(10));
+
+        // idle delegates of the stripe are evicted when another is offered
+        frameDelegatePool.offer(second);
+        Assertions.assertEquals(1, closed.get());
+
+        Assertions.assertAll(() -> Thread.sleep(10));
+        frameDelegatePool.evictIdle();
+        Assertions.assertEquals(2, closed.get());
+        Assertions.assertEquals(2, frameDelegatePool.evictions());
+    }
+
+    @Test
+    public void testIdleEvictionOfOtherStripe() throws Exception {
+        AtomicInteger closed = new AtomicInteger();
+        FrameDelegatePool frameDelegatePool = new FrameDelegatePool(() -> new ClosingDelegate(closed), 2, 10, 50);
+
+        // thread with the other stripe as its home stripe
+        final long home = Thread.currentThread().getId() % 2;
+        Thread other = new Thread(() -> frameDelegatePool.offer(frameDelegatePool.take()));
+        while (other.getId() % 2 == home) {
+            other = new Thread(() -> frameDelegatePool.offer(frameDelegatePool.take()));
+        }
+        other.start();
+        other.join();
+        Assertions.assertEquals(0, closed.get());
+        Thread.sleep(100);
+
+        // offers of this thread sweep the other stripe without evictIdle
+        for (int i = 0; i < 2; i++) {
+            frameDelegatePool.offer(new ClosingDelegate(closed));
+        }
+        Assertions.assertEquals(1, closed.get());
+        Assertions.assertEquals(1, frameDelegatePool.evictions());
+    }
+
+    @Test
+    public void testClose() {
+        AtomicInteger closed = new AtomicInteger();
+        FrameDelegatePool frameDelegatePool = new FrameDelegatePool(() -> new ClosingDelegate(closed));
+
+        FrameDelegate pooled = frameDelegatePool.take();
+        FrameDelegate inUse = frameDelegatePool.take();
+        frameDelegatePool.offer(pooled);
+
+        frameDelegatePool.close();
+        Assertions.assertEquals(1, closed.get());
+        Assertions.assertTrue(frameDelegatePool.take().isStub());
+
+        // delegate in use is closed once it is returned
+        frameDelegatePool.offer(inUse);
+        Assertions.assertEquals(2, closed.get());
+        Assertions.assertEquals(0, frameDelegatePool.evictions());
+    }
+
+    private static final class ClosingDelegate implements FrameDelegate {
+
+        private final AtomicInteger closed;
+
+        private ClosingDelegate(AtomicInteger closed) {
+            this.closed = closed;
+        }
+
+        @Override
+        public boolean accept(FrameContext frameContext) {
+            return true;
+        }
+
+        @Override
+        public void close() {
+            closed.incrementAndGet();
+        }
+
+        @Override
+        public boolean isStub() {
+            return false;
+        }
+    }
+}
@@ -49,16 +49,19 @@ import com.teragrep.rlp_01.RelpCommand;
 import com.teragrep.net_01.eventloop.EventLoop;
 import com.teragrep.net_01.eventloop.EventLoopFactory;
 import com.teragrep.rlp_03.frame.FrameDelegationClockFactory;
-import com.teragrep.rlp_03.frame.RelpFrameFactory;
 import com.teragrep.rlp_03.frame.delegate.DefaultFrameDelegate;
 import com.teragrep.rlp_03.frame.delegate.FrameContext;
 import com.teragrep.rlp_03.frame.delegate.FrameDelegate;
 import com.teragrep.net_01.server.ServerFactory;
 import com.teragrep.net_01.channel.socket.PlainFactory;
-import com.teragrep.rlp_03.frame.RelpFrame;
+import com.teragrep.rlp_03.frame.delegate.event.FrameRing;
+import com.teragrep.rlp_03.frame.delegate.event.FrameRingWorker;
 import com.teragrep.rlp_03.frame.delegate.event.RelpEvent;
 import com.teragrep.rlp_03.frame.delegate.event.RelpEventClose;
+import com.teragrep.rlp_03.frame.delegate.event.RelpEventDeferred;
 import com.teragrep.rlp_03.frame.delegate.event.RelpEventOpen;
+import com.teragrep.rlp_03.frame.delegate.event.RelpEventSyslog;
+import com.teragrep.rlp_03.frame.delegate.event.WaitStrategyBlocking;
 import org.junit.jupiter.api.Test;
 
 import java.io.IOException;
@@ -66,7 +69,7 @@ import java.io.UncheckedIOException;
 import java.util.HashMap;
 import java.util.Map;
 import java.util.concurrent.*;
-import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.function.Consumer;
 import java.util.function.Supplier;
 
 /**
@@ -92,23 +95,10 @@ public class ReadmeDeferredTest {
         relpCommandConsumerMap.put(RelpCommand.CLOSE, new RelpEventClose());
 
         /*
-         * Queue for deferring the processing of the frames
+         * Ring for deferring the processing of the frames, shared by all the connections
          */
-        BlockingQueue<FrameContext> frameContexts = new ArrayBlockingQueue<>(1024);
-        RelpEvent syslogRelpEvent = new RelpEvent() {
-
-            @Override
-            public void accept(FrameContext frameContext) {
-                frameContexts.add(frameContext);
-            }
-
-            @Override
-            public void close() {
-                frameContexts.clear();
-            }
-        };
-
-        relpCommandConsumerMap.put(RelpCommand.SYSLOG, syslogRelpEvent);
+        FrameRing frameRing = new FrameRing(1024, new WaitStrategyBlocking());
+        relpCommandConsumerMap.put(RelpCommand.SYSLOG, new RelpEventDeferred(frameRing));
 
         /*
          * New instance of the frameDelegate is provided for every connection
@@ -155,10 +145,13 @@ public class ReadmeDeferredTest {
         }
 
         /*
-         * Start deferred processing, otherwise our client will wait forever for a response
+         * Start deferred processing, otherwise our client will wait forever for a response.
+         * RelpEventSyslog processes the frame on the worker thread and responds to the connection it came from.
          */
-        DeferredSyslog deferredSyslog = new DeferredSyslog(frameContexts);
-        Thread deferredProcessingThread = new Thread(deferredSyslog);
+        Consumer<FrameContext> syslogConsumer = (frameContext) -> System.out
+                .println("deferred payload <[" + frameContext.relpFrame().payload().toString() + "]>");
+        FrameRingWorker frameRingWorker = new FrameRingWorker(frameRing, new RelpEventSyslog(syslogConsumer));
+        Thread deferredProcessingThread = new Thread(frameRingWorker);
         deferredProcessingThread.start();
 
         /*
@@ -186,7 +179,7 @@ public class ReadmeDeferredTest {
         /*
          * Stop the deferred processing thread
          */
-        deferredSyslog.run.set(false);
+        frameRingWorker.stop();
         try {
             deferredProcessingThread.join();
         }
@@ -195,52 +188,4 @@ public class ReadmeDeferredTest {
         }
         executorService.shutdown();
     }
-
-    private class DeferredSyslog implements Runnable {
-
-        private final BlockingQueue<FrameContext> frameContexts;
-
-        public final AtomicBoolean run;
-
-        DeferredSyslog(BlockingQueue<FrameContext> frameContexts) {
-            this.frameContexts = frameContexts;
-
-            this.run = new AtomicBoolean(true);
-        }
-
-        @Override
-        public void run() {
-            while (run.get()) {
-                try {
-                    // this will read at least one
-                    FrameContext frameContext = frameContexts.poll(1, TimeUnit.SECONDS);
-
-                    if (frameContext == null) {
-                        // no frame yet
-                        continue;
-                    }
-
-                    // try-with-resources so frame is closed and freed,
-                    try (RelpFrame relpFrame = frameContext.relpFrame()) {
-                        System.out
-                                .println(
-                                        this.getClass().getSimpleName() + " payload <[" + relpFrame.payload().toString()
-                                                + "]>"
-                                );
-
-                        RelpFrameFactory relpFrameFactory = new RelpFrameFactory();
-                        // create a response for the frame
-                        RelpFrame responseFrame = relpFrameFactory.create(relpFrame.txn().toBytes(), "rsp", "200 OK");
-
-                        // WARNING: failing to respond causes transaction aware clients to wait
-                        frameContext.establishedContext().egress().accept(responseFrame.toWriteable());
-                    }
-                }
-                catch (Exception interruptedException) {
-                    // ignored
-                }
-            }
-
-        }
-    }
 }